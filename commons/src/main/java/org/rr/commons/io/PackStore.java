@@ -0,0 +1,506 @@
+package org.rr.commons.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores many small blobs, like thumbnails, in a few append-only pack files instead of one file per blob.
+ * <br><br>
+ * The blobs are addressed by their content hash, so equal blobs are stored only once. The keys are mapped
+ * to the hash of their blob, so renaming a key is only an update of this mapping. All changes are appended to
+ * a journal file which is replayed when the store is opened. The pack files are read with memory mapped regions.
+ * <br><br>
+ * Blobs which are no longer referenced by a key remain in their pack file until the pack is compacted with
+ * {@link #compact()}. Each invocation compacts only a single pack file, so the store is never blocked for long.
+ */
+public class PackStore {
+
+	/** The location of a blob in a pack file. */
+	private static class Blob {
+
+		private int pack;
+
+		private long offset;
+
+		private final int length;
+
+		private int references;
+
+		private Blob(int pack, long offset, int length) {
+			this.pack = pack;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/** An open pack file. */
+	private static class Pack {
+
+		private final File file;
+
+		private final RandomAccessFile raf;
+
+		/** The mapped regions of the pack file by their number. */
+		private final Map<Integer, MappedByteBuffer> regions = new HashMap<>();
+
+		/** <code>true</code> if nothing is appended to the pack anymore, so also its last region could be mapped. */
+		private boolean sealed;
+
+		private long garbage;
+
+		private Pack(File file) throws IOException {
+			this.file = file;
+			this.raf = new RandomAccessFile(file, "rw");
+		}
+
+		/**
+		 * Reads from the mapped region which contains the requested bytes. The regions are mapped once and never remapped,
+		 * so the last region of a growing pack and blobs which cross a region border are read from the channel instead.
+		 */
+		private ByteBuffer read(long offset, int length) throws IOException {
+			int number = (int) (offset / regionSize);
+			long regionStart = (long) number * regionSize;
+			long regionEnd = Math.min(regionStart + regionSize, raf.length());
+			if(offset + length > regionStart + regionSize || (regionEnd < regionStart + regionSize && !sealed)) {
+				return readChannel(offset, length);
+			}
+
+			MappedByteBuffer region = regions.get(number);
+			if(region == null) {
+				region = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, regionStart, regionEnd - regionStart);
+				regions.put(number, region);
+			}
+			ByteBuffer slice = region.duplicate();
+			slice.position((int) (offset - regionStart));
+			slice.limit((int) (offset - regionStart) + length);
+			return slice;
+		}
+
+		private ByteBuffer readChannel(long offset, int length) throws IOException {
+			ByteBuffer data = ByteBuffer.allocate(length);
+			while(data.hasRemaining()) {
+				if(raf.getChannel().read(data, offset + data.position()) < 0) {
+					throw new EOFException("Unexpected end of " + file);
+				}
+			}
+			data.flip();
+			return data;
+		}
+
+		private void close() throws IOException {
+			regions.clear();
+			raf.close();
+		}
+	}
+
+	/** The size of the regions in which the pack files are mapped. */
+	static int regionSize = 4 * 1024 * 1024;
+
+	private static final String JOURNAL_FILE = "pack.journal";
+
+	private static final String PACK_PREFIX = "pack-";
+
+	private static final String PACK_SUFFIX = ".dat";
+
+	private static final byte BLOB_RECORD = 'B';
+
+	private static final byte KEY_RECORD = 'K';
+
+	private static final byte DELETE_RECORD = 'D';
+
+	private static final int DEFAULT_MAX_PACK_SIZE = 32 * 1024 * 1024;
+
+	private final File directory;
+
+	private final long maxPackSize;
+
+	private final Map<String, String> keys = new HashMap<>();
+
+	private final Map<String, Blob> blobs = new HashMap<>();
+
+	private final TreeMap<Integer, Pack> packs = new TreeMap<>();
+
+	private DataOutputStream journal;
+
+	/** The number of records in the journal, used to decide when the journal should be rewritten. */
+	private int journalRecords;
+
+	/**
+	 * Opens the store in the given directory with the default pack size.
+	 */
+	public PackStore(File directory) throws IOException {
+		this(directory, DEFAULT_MAX_PACK_SIZE);
+	}
+
+	/**
+	 * Opens the store in the given directory.
+	 *
+	 * @param directory The directory for the journal and the pack files. Other files in this directory are not touched.
+	 * @param maxPackSize The size after that a new pack file is started.
+	 */
+	public PackStore(File directory, long maxPackSize) throws IOException {
+		this.directory = directory;
+		this.maxPackSize = maxPackSize;
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create " + directory);
+		}
+		replayJournal();
+		openPacks();
+		journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getJournalFile(), true)));
+	}
+
+	private void replayJournal() throws IOException {
+		File journalFile = getJournalFile();
+		if(!journalFile.isFile()) {
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+			while(true) {
+				byte type = in.readByte();
+				if(type == BLOB_RECORD) {
+					String hash = in.readUTF();
+					Blob blob = new Blob(in.readInt(), in.readLong(), in.readInt());
+					Blob previous = blobs.get(hash);
+					if(previous != null) {
+						// the blob was moved by a compaction
+						previous.pack = blob.pack;
+						previous.offset = blob.offset;
+					} else {
+						blobs.put(hash, blob);
+					}
+				} else if(type == KEY_RECORD) {
+					keys.put(in.readUTF(), in.readUTF());
+				} else if(type == DELETE_RECORD) {
+					keys.remove(in.readUTF());
+				} else {
+					throw new IOException("Invalid journal record " + type + " in " + journalFile);
+				}
+				journalRecords++;
+			}
+		} catch(EOFException e) {
+			// the end of the journal or an incomplete last record written while the application was terminated.
+		}
+
+		for(String hash : keys.values()) {
+			Blob blob = blobs.get(hash);
+			if(blob != null) {
+				blob.references++;
+			}
+		}
+		keys.values().retainAll(blobs.keySet());
+	}
+
+	/**
+	 * Opens all pack files which contains a referenced blob, computes their garbage and deletes the pack files which are no longer needed.
+	 */
+	private void openPacks() throws IOException {
+		Map<Integer, Long> usedBytes = new HashMap<>();
+		for(Blob blob : blobs.values()) {
+			if(blob.references > 0) {
+				Long used = usedBytes.get(blob.pack);
+				usedBytes.put(blob.pack, (used != null ? used.longValue() : 0) + blob.length);
+			}
+		}
+		for(Iterator<Blob> iterator = blobs.values().iterator(); iterator.hasNext();) {
+			if(iterator.next().references == 0) {
+				iterator.remove();
+			}
+		}
+
+		File[] packFiles = directory.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith(PACK_PREFIX) && name.endsWith(PACK_SUFFIX);
+			}
+		});
+		int lastPack = -1;
+		for(File packFile : packFiles) {
+			String name = packFile.getName();
+			int number = Integer.parseInt(name.substring(PACK_PREFIX.length(), name.length() - PACK_SUFFIX.length()));
+			lastPack = Math.max(lastPack, number);
+			if(usedBytes.containsKey(number)) {
+				Pack pack = new Pack(packFile);
+				pack.garbage = pack.raf.length() - usedBytes.get(number);
+				packs.put(number, pack);
+			} else {
+				packFile.delete();
+			}
+		}
+		if(packs.isEmpty() || packs.lastKey() != lastPack) {
+			// the last pack file is used for appending, a new one is started if it was deleted.
+			packs.put(lastPack + 1, new Pack(getPackFile(lastPack + 1)));
+		}
+		for(Pack pack : packs.headMap(packs.lastKey()).values()) {
+			pack.sealed = true;
+		}
+	}
+
+	/**
+	 * Stores the given data for the given key. A previous blob of the key is replaced.
+	 */
+	public synchronized void put(String key, byte[] data) throws IOException {
+		String hash = hash(data);
+		Blob blob = blobs.get(hash);
+		if(blob == null) {
+			Pack pack = getActivePack();
+			long offset = pack.raf.length();
+			pack.raf.seek(offset);
+			pack.raf.write(data);
+			blob = new Blob(packs.lastKey(), offset, data.length);
+			blobs.put(hash, blob);
+			writeBlobRecord(hash, blob);
+		}
+		if(hash.equals(keys.get(key))) {
+			return;
+		}
+		blob.references++;
+		release(keys.put(key, hash));
+		writeRecord(KEY_RECORD, key, hash);
+	}
+
+	/**
+	 * @return The data stored for the given key or <code>null</code> if there is no data for the key.
+	 */
+	public synchronized byte[] get(String key) throws IOException {
+		String hash = keys.get(key);
+		if(hash == null) {
+			return null;
+		}
+		Blob blob = blobs.get(hash);
+		byte[] data = new byte[blob.length];
+		packs.get(blob.pack).read(blob.offset, blob.length).get(data);
+		return data;
+	}
+
+	/**
+	 * @return <code>true</code> if there is data stored for the given key.
+	 */
+	public synchronized boolean contains(String key) {
+		return keys.containsKey(key);
+	}
+
+	/**
+	 * Removes the data of the given key.
+	 * @return <code>true</code> if there was data for the given key.
+	 */
+	public synchronized boolean remove(String key) throws IOException {
+		String hash = keys.remove(key);
+		if(hash == null) {
+			return false;
+		}
+		release(hash);
+		writeRecord(DELETE_RECORD, key, null);
+		return true;
+	}
+
+	/**
+	 * Moves the data of the source key to the target key. No data is copied.
+	 * @return <code>true</code> if there was data for the source key.
+	 */
+	public synchronized boolean rename(String source, String target) throws IOException {
+		if(source.equals(target)) {
+			return keys.containsKey(source);
+		}
+		String hash = keys.remove(source);
+		if(hash == null) {
+			return false;
+		}
+		release(keys.put(target, hash));
+		writeRecord(KEY_RECORD, target, hash);
+		writeRecord(DELETE_RECORD, source, null);
+		return true;
+	}
+
+	/**
+	 * @return The number of keys in the store.
+	 */
+	public synchronized int size() {
+		return keys.size();
+	}
+
+	/**
+	 * @return The bytes in the pack files which are used by blobs which are no longer referenced.
+	 */
+	public synchronized long getGarbageBytes() {
+		long garbage = 0;
+		for(Pack pack : packs.values()) {
+			garbage += pack.garbage;
+		}
+		return garbage;
+	}
+
+	/**
+	 * Copies the referenced blobs of the pack file with the most garbage to the active pack and deletes the old pack file.
+	 * Only pack files with at least the half of their size as garbage are compacted. The journal is rewritten if it
+	 * contains much more records than needed to describe the store.
+	 *
+	 * @return <code>true</code> if a pack file was compacted and more packs could be compacted.
+	 */
+	public synchronized boolean compact() throws IOException {
+		if(journalRecords > (keys.size() + blobs.size()) * 2 + 1000) {
+			rewriteJournal();
+		}
+
+		Map.Entry<Integer, Pack> candidate = null;
+		for(Map.Entry<Integer, Pack> entry : packs.entrySet()) {
+			Pack pack = entry.getValue();
+			if(pack.garbage > 0 && pack.garbage * 2 >= pack.raf.length() && (candidate == null || pack.garbage > candidate.getValue().garbage)) {
+				candidate = entry;
+			}
+		}
+		if(candidate == null) {
+			return false;
+		}
+
+		int number = candidate.getKey();
+		Pack pack = candidate.getValue();
+		if(number == packs.lastKey()) {
+			// the active pack could not be copied into itself.
+			startPack();
+		}
+		for(Map.Entry<String, Blob> entry : blobs.entrySet()) {
+			Blob blob = entry.getValue();
+			if(blob.pack == number) {
+				// not read from a mapped region, so the pack file is not mapped only for the compaction
+				ByteBuffer data = pack.readChannel(blob.offset, blob.length);
+				Pack target = getActivePack();
+				long offset = target.raf.length();
+				target.raf.getChannel().write(data, offset);
+				blob.pack = packs.lastKey();
+				blob.offset = offset;
+				writeBlobRecord(entry.getKey(), blob);
+			}
+		}
+		journal.flush();
+		packs.remove(number);
+		boolean mapped = !pack.regions.isEmpty();
+		pack.close();
+		if(!mapped) {
+			pack.file.delete();
+		}
+		// a mapped pack file could not be deleted before its buffers are collected. None of its blobs is referenced
+		// anymore, so it's deleted when the store is opened the next time.
+		return true;
+	}
+
+	/**
+	 * Flushes and closes the journal and the pack files.
+	 */
+	public synchronized void close() throws IOException {
+		journal.close();
+		for(Pack pack : packs.values()) {
+			pack.close();
+		}
+		packs.clear();
+	}
+
+	private void release(String hash) {
+		if(hash == null) {
+			return;
+		}
+		Blob blob = blobs.get(hash);
+		if(--blob.references == 0) {
+			blobs.remove(hash);
+			packs.get(blob.pack).garbage += blob.length;
+		}
+	}
+
+	private Pack getActivePack() throws IOException {
+		Pack pack = packs.lastEntry().getValue();
+		if(pack.raf.length() >= maxPackSize) {
+			pack = startPack();
+		}
+		return pack;
+	}
+
+	private Pack startPack() throws IOException {
+		packs.lastEntry().getValue().sealed = true;
+		int number = packs.lastKey() + 1;
+		Pack pack = new Pack(getPackFile(number));
+		packs.put(number, pack);
+		return pack;
+	}
+
+	private void writeBlobRecord(String hash, Blob blob) throws IOException {
+		journal.writeByte(BLOB_RECORD);
+		journal.writeUTF(hash);
+		journal.writeInt(blob.pack);
+		journal.writeLong(blob.offset);
+		journal.writeInt(blob.length);
+		journal.flush();
+		journalRecords++;
+	}
+
+	private void writeRecord(byte type, String key, String hash) throws IOException {
+		journal.writeByte(type);
+		journal.writeUTF(key);
+		if(hash != null) {
+			journal.writeUTF(hash);
+		}
+		journal.flush();
+		journalRecords++;
+	}
+
+	/**
+	 * Replaces the journal with a new one which contains only the current blobs and keys.
+	 */
+	private void rewriteJournal() throws IOException {
+		File journalFile = getJournalFile();
+		File tmpFile = new File(directory, JOURNAL_FILE + ".tmp");
+		journal.close();
+		journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+		journalRecords = 0;
+		for(Map.Entry<String, Blob> entry : new ArrayList<>(blobs.entrySet())) {
+			writeBlobRecord(entry.getKey(), entry.getValue());
+		}
+		for(Map.Entry<String, String> entry : keys.entrySet()) {
+			writeRecord(KEY_RECORD, entry.getKey(), entry.getValue());
+		}
+		journal.close();
+		Files.move(tmpFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+	}
+
+	private File getJournalFile() {
+		return new File(directory, JOURNAL_FILE);
+	}
+
+	private File getPackFile(int number) {
+		return new File(directory, PACK_PREFIX + number + PACK_SUFFIX);
+	}
+
+	private static String hash(byte[] data) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+			StringBuilder result = new StringBuilder(digest.length * 2);
+			for(byte b : digest) {
+				result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return result.toString();
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -5,23 +5,74 @@ import java.net.URL;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
 
 
 public class FTPConnectionManager {
 
 	private static final HashMap<String, FTPConnectionManager> sharedinstances = new HashMap<String, FTPConnectionManager>(); 
 	
+	/**
+	 * Sends a NOOP over the idle connections of all instances, so the servers do not close them.
+	 */
+	private static final ScheduledExecutorService keepAliveService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "FTP-KeepAlive");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
+	/**
+	 * The milliseconds between two NOOP commands over an idle connection.
+	 */
+	static long keepAliveInterval = TimeUnit.SECONDS.toMillis(30);
+	
+	/**
+	 * The milliseconds after an idle connection is closed.
+	 */
+	static long maxIdleTime = TimeUnit.MINUTES.toMillis(5);
+	
+	/**
+	 * The milliseconds a directory listing is served from the cache.
+	 */
+	static long listingTimeToLive = TimeUnit.SECONDS.toMillis(30);
+	
 	private final URL url;
 	
 	private final Vector<FTPClient> inPoolconnections = new Vector<>();
 	
 	private final Vector<FTPClient> inUseConnections = new Vector<>();
 	
+	/**
+	 * The time in milliseconds since the connections in the pool are idle.
+	 */
+	private final HashMap<FTPClient, Long> idleSince = new HashMap<>();
+	
+	/**
+	 * The directory listings of this host by their path.
+	 */
+	private final HashMap<String, CachedListing> listings = new HashMap<>();
+	
+	/**
+	 * Incremented with each invalidation, so a listing which was running during an invalidation is not cached.
+	 */
+	private long listingGeneration = 0;
+	
 	/**
 	 * specifies the maxmimal number of connection to be established to one host.
 	 */
@@ -29,22 +80,45 @@ public class FTPConnectionManager {
 	
 	private int connectionHighWaterMark = MAX_CONNECTIONS;
 	
+	private static class CachedListing {
+		
+		private final FTPFile[] files;
+		
+		private final long createdAt = System.currentTimeMillis();
+		
+		private CachedListing(FTPFile[] files) {
+			this.files = files;
+		}
+		
+		private boolean isExpired(long now) {
+			return now - createdAt >= listingTimeToLive;
+		}
+	}
+	
 	private FTPConnectionManager(final URL url) {
 		this.url = url;
+		keepAliveService.scheduleWithFixedDelay(new Runnable() {
+			
+			@Override
+			public void run() {
+				keepAlive();
+			}
+		}, keepAliveInterval, keepAliveInterval, TimeUnit.MILLISECONDS);
 	}
 
 	/**
 	 * Get a new instance for the given URL. All {@link FTPConnectionManager} 
-	 * having the same host in the url, will get the same shared instance.
+	 * having the same host and port in the url, will get the same shared instance.
 	 * 
 	 * @param url The url for which the instance should be fetched.
 	 * @return The shared {@link FTPConnectionManager} instance.
 	 */
-	public static FTPConnectionManager getInstance(final URL url) {
-		FTPConnectionManager connectionManager = sharedinstances.get(url.getHost().toLowerCase());
+	public static synchronized FTPConnectionManager getInstance(final URL url) {
+		final String key = url.getHost().toLowerCase() + ":" + url.getPort();
+		FTPConnectionManager connectionManager = sharedinstances.get(key);
 		if(connectionManager==null) {
 			connectionManager = new FTPConnectionManager(url);
-			sharedinstances.put(url.getHost().toLowerCase(), connectionManager);
+			sharedinstances.put(key, connectionManager);
 		}
 		return connectionManager;
 	}
@@ -60,17 +134,18 @@ public class FTPConnectionManager {
 	 * @thorws RuntimeException
 	 */
 	public synchronized FTPClient getRegisteredConnection() throws UnknownHostException, ResourceHandlerException {
-		FTPClient result = null;
 		ArrayList<Exception> failcount = new ArrayList<>();
 		
 		while(true) {
 			//return an existing connection from the pool
 			if(inPoolconnections.size() > 0) {
-				//remove connection from pool and put it into the used list.
-				result = inPoolconnections.remove(0);
+				//remove the last released connection from pool and put it into the used list.
+				FTPClient result = inPoolconnections.remove(inPoolconnections.size() - 1);
+				idleSince.remove(result);
 				inUseConnections.add(result);
 				try {
 					initConnection(result, url);
+					return result;
 				} catch (UnknownHostException e) {
 					//host address seems to be invalid or unreachable. 
 					//no sense to retry
@@ -81,11 +156,10 @@ public class FTPConnectionManager {
 					disposeConnection(result);
 					throw e;
 				} catch (Exception e) {
-					//max connection limit reached?
-					connectionHighWaterMark = inUseConnections.size();
-					failcount.add(e);					
+					//the server has closed the idle connection. Try the next one.
+					disposeConnection(result);
+					failcount.add(e);
 				}
-				return result;
 			} else if (inUseConnections.size() < connectionHighWaterMark) {
 				//try to create a new connection if the highwatermark is not reached
 				FTPClient newConnection = new FTPClient();
@@ -95,11 +169,11 @@ public class FTPConnectionManager {
 				} catch (UnknownHostException e) {
 					//host address seems to be invalid or unreachable. 
 					//no sense to retry
-					disposeConnection(result);
+					disposeConnection(newConnection);
 					throw e;
 				}  catch (ResourceHandlerException e) {
 					//login has failed, no sense to continue
-					disposeConnection(result);
+					disposeConnection(newConnection);
 					throw e;
 				} catch (Exception e) {
 					//max connection limit reached?
@@ -121,10 +195,13 @@ public class FTPConnectionManager {
 				throw new RuntimeException(failcount.get(failcount.size()-1));
 			}
 			
-			//wait a moment and retry.
+			//wait for a released connection and retry.
 			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {}
+				wait(500);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("interrupted while waiting for a connection to " + String.valueOf(this.url), e);
+			}
 		}
 	}
 	
@@ -142,8 +219,15 @@ public class FTPConnectionManager {
 	 * @param connection The connection to be given back.
 	 */
 	public void releaseConnection(final FTPClient connection) {
-		this.inUseConnections.remove(connection);
-		this.inPoolconnections.add(connection);	
+		returnToPool(connection, System.currentTimeMillis());
+	}
+	
+	private synchronized void returnToPool(final FTPClient connection, long idleStart) {
+		if(this.inUseConnections.remove(connection)) {
+			this.inPoolconnections.add(connection);
+			this.idleSince.put(connection, Long.valueOf(idleStart));
+			notifyAll();
+		}
 	}
 	
 	/**
@@ -151,9 +235,17 @@ public class FTPConnectionManager {
 	 * @param connection The connection to be removed.
 	 */
 	public void disposeConnection(final FTPClient connection) {
+		if(connection == null) {
+			return;
+		}
+		
 		//remove the connection from the caches. It's no longer provided.
-		this.inUseConnections.remove(connection);
-		this.inPoolconnections.remove(connection);
+		synchronized(this) {
+			this.inUseConnections.remove(connection);
+			this.inPoolconnections.remove(connection);
+			this.idleSince.remove(connection);
+			notifyAll();
+		}
 		
 		//do the dispose in a new thread. It's not needed to 
 		//let the application wait till the dispose process has been finished.
@@ -172,6 +264,101 @@ public class FTPConnectionManager {
 		
 	}
 	
+	/**
+	 * Sends a NOOP over all connections in the pool and closes the connections which are idle
+	 * longer than {@link #maxIdleTime}. Connections which do not respond are closed.
+	 */
+	void keepAlive() {
+		final long now = System.currentTimeMillis();
+		final List<FTPClient> idle;
+		final Map<FTPClient, Long> idleStart = new HashMap<>();
+		synchronized(this) {
+			// take the connections out of the pool, so they're not used while sending the NOOP.
+			idle = new ArrayList<>(inPoolconnections);
+			inPoolconnections.clear();
+			inUseConnections.addAll(idle);
+			idleStart.putAll(idleSince);
+			idleSince.clear();
+			
+			for (Iterator<CachedListing> iterator = listings.values().iterator(); iterator.hasNext();) {
+				if(iterator.next().isExpired(now)) {
+					iterator.remove();
+				}
+			}
+		}
+		
+		for(FTPClient connection : idle) {
+			Long since = idleStart.get(connection);
+			if(since == null || now - since.longValue() >= maxIdleTime) {
+				disposeConnection(connection);
+				continue;
+			}
+			
+			try {
+				if(connection.sendNoOp()) {
+					returnToPool(connection, since.longValue());
+				} else {
+					disposeConnection(connection);
+				}
+			} catch (IOException e) {
+				disposeConnection(connection);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the cached listing of the given directory.
+	 * @param path The remote path of the directory.
+	 * @return The listing or <code>null</code> if the listing is not cached or has been expired.
+	 */
+	synchronized FTPFile[] getCachedListing(final String path) {
+		final String key = normalizePath(path);
+		CachedListing listing = listings.get(key);
+		if(listing == null) {
+			return null;
+		} else if(listing.isExpired(System.currentTimeMillis())) {
+			listings.remove(key);
+			return null;
+		}
+		return listing.files;
+	}
+	
+	/**
+	 * Gets the current generation of the cached listings which must be passed to {@link #putCachedListing(String, FTPFile[], long)}.
+	 */
+	synchronized long getListingGeneration() {
+		return listingGeneration;
+	}
+	
+	/**
+	 * Caches the listing of the given directory if no listing has been invalidated since the given generation.
+	 * @param path The remote path of the directory.
+	 * @param files The listing of the directory.
+	 * @param generation The generation fetched with {@link #getListingGeneration()} before the listing was read.
+	 */
+	synchronized void putCachedListing(final String path, final FTPFile[] files, long generation) {
+		if(generation == listingGeneration) {
+			listings.put(normalizePath(path), new CachedListing(files));
+		}
+	}
+	
+	/**
+	 * Removes the listing of the given directory from the cache. Must be invoked for the parent directory
+	 * with each change of a resource.
+	 * @param path The remote path of the directory.
+	 */
+	synchronized void invalidateListing(final String path) {
+		listingGeneration++;
+		listings.remove(normalizePath(path));
+	}
+	
+	private static String normalizePath(String path) {
+		if(path.length() > 1 && path.endsWith("/")) {
+			return path.substring(0, path.length() - 1);
+		}
+		return path;
+	}
+	
 	/**
 	 * Initializes the given connection if not already done.
 	 * @param connection The connection to be initialized
@@ -10,7 +10,6 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 
@@ -77,6 +76,7 @@ public class FTPResourceHandler extends AResourceHandler {
 	public FTPResourceHandler(URL ftpURL, FTPResourceHandler parent, FTPFile ftpFile) {
 		super();
 		this.ftpURL = ftpURL;
+		this.parentResourceHandler = parent;
 		this.ftpFile = ftpFile;
 	}
 
@@ -113,12 +113,13 @@ public class FTPResourceHandler extends AResourceHandler {
 				if (result == false) {
 					throw new IOException("could not delete resource " + String.valueOf(ftpURL));
 				}
-
-				// set the exists flag. The resource is deleted now.
-				this.exists = Boolean.FALSE;
 			} finally {
 				releaseConnection(connection);
+				invalidateListing();
 			}
+
+			// set the exists flag. The resource is deleted now.
+			this.exists = Boolean.FALSE;
 		} catch (IOException e) {
 			throw e;
 		} catch (Exception e) {
@@ -159,26 +160,13 @@ public class FTPResourceHandler extends AResourceHandler {
 			return true;
 		}
 
-		if (this.isDirectoryResource()) {
-			this.exists = Boolean.TRUE;
-			return true;
-		} else {
-			try {
-				IResourceHandler[] listFileResources = this.getParentResource().listFileResources();
-				for (int i = 0; i < listFileResources.length; i++) {
-					if (listFileResources[i].getName().equals(this.getName())) {
-						this.exists = Boolean.TRUE;
-						return true;
-					}
-				}
-			} catch (IOException e) {
-				this.exists = Boolean.FALSE;
-				return false;
-			}
+		// look into the listing of the parent directory which is shared with all other children
+		try {
+			this.exists = Boolean.valueOf(getFTPFile() != null);
+		} catch (IOException e) {
+			this.exists = Boolean.FALSE;
 		}
-
-		this.exists = Boolean.FALSE;
-		return false;
+		return this.exists.booleanValue();
 	}
 
 	/**
@@ -229,6 +217,21 @@ public class FTPResourceHandler extends AResourceHandler {
 				return retrieveFileStream.read();
 			}
 
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return retrieveFileStream.read(b, off, len);
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				return retrieveFileStream.skip(n);
+			}
+
+			@Override
+			public int available() throws IOException {
+				return retrieveFileStream.available();
+			}
+
 			@Override
 			public void close() throws IOException {
 				try {
@@ -302,6 +305,11 @@ public class FTPResourceHandler extends AResourceHandler {
 				storeFileStream.write(b);
 			}
 
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				storeFileStream.write(b, off, len);
+			}
+
 			@Override
 			public void close() throws IOException {
 				try {
@@ -322,6 +330,7 @@ public class FTPResourceHandler extends AResourceHandler {
 				} finally {
 					// give the connection back for reusing
 					releaseConnection(connection);
+					invalidateListing();
 				}
 			}
 		};
@@ -373,7 +382,7 @@ public class FTPResourceHandler extends AResourceHandler {
 		}
 
 		try {
-			FTPFile file = getFTPFile(ftpURL);
+			FTPFile file = getFTPFile();
 			if (file == null) {
 				return true;
 			}
@@ -429,26 +438,21 @@ public class FTPResourceHandler extends AResourceHandler {
 	@Override
 	public IResourceHandler[] listDirectoryResources(ResourceNameFilter filter) throws IOException {
 		if (this.childDirectories == null) {
-			FTPClient connection = this.getConnection();
-			try {
-				final FTPFile[] listDirectories = connection.listFiles(getURLPath(this.ftpURL));
-				ArrayList<IResourceHandler> result = new ArrayList<>();
-				for (int i = 0; i < listDirectories.length; i++) {
-					if (listDirectories[i].isDirectory() && !listDirectories[i].getName().equals(".") && !listDirectories[i].getName().equals("..")) {
-						FTPResourceHandler newResourceHandler = new FTPResourceHandler(addURLPath(this.ftpURL, listDirectories[i].getName()), this,
-								listDirectories[i]);
-						if(filter != null && filter.accept(newResourceHandler)) {
-							result.add(newResourceHandler);
-						} else if(filter == null) {
-							result.add(newResourceHandler);
-						}						
-					}
+			final FTPFile[] listDirectories = listFiles(this.ftpURL);
+			ArrayList<IResourceHandler> result = new ArrayList<>();
+			for (int i = 0; i < listDirectories.length; i++) {
+				if (listDirectories[i].isDirectory() && !listDirectories[i].getName().equals(".") && !listDirectories[i].getName().equals("..")) {
+					FTPResourceHandler newResourceHandler = new FTPResourceHandler(addURLPath(this.ftpURL, listDirectories[i].getName()), this,
+							listDirectories[i]);
+					if(filter != null && filter.accept(newResourceHandler)) {
+						result.add(newResourceHandler);
+					} else if(filter == null) {
+						result.add(newResourceHandler);
+					}						
 				}
-
-				this.childDirectories = result.toArray(new IResourceHandler[result.size()]);
-			} finally {
-				releaseConnection(connection);
 			}
+
+			this.childDirectories = result.toArray(new IResourceHandler[result.size()]);
 		}
 		return this.childDirectories;
 	}
@@ -456,23 +460,18 @@ public class FTPResourceHandler extends AResourceHandler {
 	@Override
 	public IResourceHandler[] listFileResources() throws IOException {
 		if (this.childFiles == null) {
-			FTPClient connection = this.getConnection();
-			try {
-				final FTPFile[] listDirectories = connection.listFiles(getURLPath(this.ftpURL));
-
-				ArrayList<IResourceHandler> result = new ArrayList<>();
-				for (int i = 0; i < listDirectories.length; i++) {
-					if (listDirectories[i].isFile()) {
-						FTPResourceHandler newResourceHandler = new FTPResourceHandler(addURLPath(this.ftpURL, listDirectories[i].getName()), this,
-								listDirectories[i]);
-						result.add(newResourceHandler);
-					}
+			final FTPFile[] listDirectories = listFiles(this.ftpURL);
+
+			ArrayList<IResourceHandler> result = new ArrayList<>();
+			for (int i = 0; i < listDirectories.length; i++) {
+				if (listDirectories[i].isFile()) {
+					FTPResourceHandler newResourceHandler = new FTPResourceHandler(addURLPath(this.ftpURL, listDirectories[i].getName()), this,
+							listDirectories[i]);
+					result.add(newResourceHandler);
 				}
-
-				this.childFiles = result.toArray(new IResourceHandler[result.size()]);
-			} finally {
-				releaseConnection(connection);
 			}
+
+			this.childFiles = result.toArray(new IResourceHandler[result.size()]);
 		}
 		return this.childFiles;
 	}
@@ -480,24 +479,26 @@ public class FTPResourceHandler extends AResourceHandler {
 	@Override
 	public boolean mkdirs() throws IOException {
 		ArrayList<FTPResourceHandler> hierarchy = new ArrayList<>();
-		FTPResourceHandler parent = (FTPResourceHandler) this.getParentResource();
-		while (parent != null) {
+		FTPResourceHandler parent = this;
+		while (parent != null && !parent.isRoot()) {
 			hierarchy.add(parent);
 			parent = (FTPResourceHandler) parent.getParentResource();
 		}
 		
-		//reverse
-		Arrays.sort(hierarchy.toArray(new FTPResourceHandler[hierarchy.size()]), Collections.reverseOrder());
+		//reverse, so the top most folder is created first
+		Collections.reverse(hierarchy);
 
 		FTPClient connection = this.getConnection();
-		for (int i = 0; i < hierarchy.size(); i++) {
-			if (!hierarchy.get(i).exists()) {
-				try {
-					connection.makeDirectory(getURLPath(hierarchy.get(i).ftpURL));
-				} finally {
-					releaseConnection(connection);
+		try {
+			for (int i = 0; i < hierarchy.size(); i++) {
+				FTPResourceHandler folder = hierarchy.get(i);
+				if (!folder.exists()) {
+					connection.makeDirectory(getURLPath(folder.ftpURL));
+					folder.invalidateListing();
 				}
 			}
+		} finally {
+			releaseConnection(connection);
 		}
 
 		return true;
@@ -510,7 +511,7 @@ public class FTPResourceHandler extends AResourceHandler {
 		}
 
 		try {
-			final FTPFile file = getFTPFile(ftpURL);
+			final FTPFile file = getFTPFile();
 			if (file == null || file.isDirectory()) {
 				return 0;
 			}
@@ -540,10 +541,16 @@ public class FTPResourceHandler extends AResourceHandler {
 			// test if the source and the target are on the same host.
 			if (ftpURL.getHost().equals(((FTPResourceHandler) targetRecourceLoader).ftpURL.getHost())) {
 				FTPClient connection = this.getConnection();
+				boolean renamed;
 				try {
-					connection.rename(getURLPath(this.ftpURL), getURLPath(((FTPResourceHandler) targetRecourceLoader).ftpURL));
+					renamed = connection.rename(getURLPath(this.ftpURL), getURLPath(((FTPResourceHandler) targetRecourceLoader).ftpURL));
 				} finally {
 					releaseConnection(connection);
+					this.invalidateListing();
+					((FTPResourceHandler) targetRecourceLoader).invalidateListing();
+				}
+				if (renamed) {
+					return;
 				}
 			}
 		}
@@ -561,6 +568,29 @@ public class FTPResourceHandler extends AResourceHandler {
 		this.childDirectories = null;
 		this.childFiles = null;
 		this.exists = null;
+		this.ftpFile = null;
+		FTPConnectionManager.getInstance(this.ftpURL).invalidateListing(getURLPath(this.ftpURL));
+	}
+
+	/**
+	 * Removes the listing of the parent directory and of this resource from the listing cache
+	 * shared by all {@link FTPResourceHandler} instances of the host. Must be invoked after each change.
+	 */
+	private void invalidateListing() {
+		final FTPConnectionManager ftpConnectionManager = FTPConnectionManager.getInstance(this.ftpURL);
+		ftpConnectionManager.invalidateListing(getURLPath(this.ftpURL));
+		try {
+			URL parentURL = getParentURL(this.ftpURL);
+			if (parentURL != null) {
+				ftpConnectionManager.invalidateListing(getURLPath(parentURL));
+			}
+		} catch (MalformedURLException e) {
+			throw new RuntimeException(e);
+		}
+		this.ftpFile = null;
+		this.exists = null;
+		this.childDirectories = null;
+		this.childFiles = null;
 	}
 	
 	/**
@@ -732,23 +762,51 @@ public class FTPResourceHandler extends AResourceHandler {
 		throw new IOException(lastException);
 	}
 
-	private FTPFile getFTPFile(URL url) throws IOException {
-		if (this.ftpFile == null) {
+	/**
+	 * Gets the listing of the directory with the given url. The listing is taken from the cache shared by all
+	 * {@link FTPResourceHandler} instances of the host if it's not expired.
+	 * 
+	 * @param url The url of the directory.
+	 * @return The listing of the directory.
+	 * @throws IOException
+	 */
+	private FTPFile[] listFiles(URL url) throws IOException {
+		final String path = getURLPath(url);
+		final FTPConnectionManager ftpConnectionManager = FTPConnectionManager.getInstance(url);
+		FTPFile[] listFiles = ftpConnectionManager.getCachedListing(path);
+		if (listFiles == null) {
+			final long generation = ftpConnectionManager.getListingGeneration();
 			FTPClient connection = this.getConnection();
-			FTPFile[] listFiles = null;
 			try {
-				listFiles = connection.listFiles(getURLPath(this.ftpURL));
+				listFiles = connection.listFiles(path);
 			} finally {
 				releaseConnection(connection);
 			}
+			ftpConnectionManager.putCachedListing(path, listFiles, generation);
+		}
+		return listFiles;
+	}
 
-			if (listFiles != null) {
-				for (int i = 0; i < listFiles.length; i++) {
-					final String fileName = listFiles[i].getName().replaceAll("/", EMPTY);
-					if (fileName.equals(this.getName())) {
-						this.ftpFile = listFiles[i];
-						break;
-					}
+	/**
+	 * Gets the entry of this resource from the listing of the parent directory.
+	 * 
+	 * @return The entry or <code>null</code> if the resource does not exist or if this is the root.
+	 * @throws IOException
+	 */
+	private FTPFile getFTPFile() throws IOException {
+		if (this.ftpFile == null) {
+			URL parentURL = getParentURL(this.ftpURL);
+			if (parentURL == null) {
+				return null;
+			}
+
+			final FTPFile[] listFiles = listFiles(parentURL);
+			final String name = this.getName();
+			for (int i = 0; i < listFiles.length; i++) {
+				final String fileName = listFiles[i].getName().replaceAll("/", EMPTY);
+				if (fileName.equals(name)) {
+					this.ftpFile = listFiles[i];
+					break;
 				}
 			}
 		}
@@ -764,7 +822,11 @@ public class FTPResourceHandler extends AResourceHandler {
 	@Override
 	public Date getModifiedAt() {
 		try {
-			return this.getFTPFile(this.ftpURL).getTimestamp().getTime();
+			final FTPFile file = this.getFTPFile();
+			if (file == null || file.getTimestamp() == null) {
+				return null;
+			}
+			return file.getTimestamp().getTime();
 		} catch (IOException e) {
 			return null;
 		}
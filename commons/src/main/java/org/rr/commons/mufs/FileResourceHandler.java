@@ -28,6 +28,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.utils.ListUtils;
+import org.rr.commons.utils.compression.zip.RandomAccessZip;
 
 
 /**
@@ -310,6 +311,7 @@ class FileResourceHandler extends AResourceHandler {
 	 */
 	@Override
 	public void delete() throws IOException {
+		RandomAccessZip.closeShared(this.file);
 		if(this.isFileResource() && this.exists()) {
 			Path path = Paths.get(file.getAbsolutePath());
 			Files.delete(path);
@@ -332,6 +334,7 @@ class FileResourceHandler extends AResourceHandler {
 	
 	@Override
 	public boolean moveToTrash() throws IOException {
+		RandomAccessZip.closeShared(this.file);
 		try {
 			if(!ResourceHandlerUtils.moveToTrash(this)) {
 				com.sun.jna.platform.FileUtils.getInstance().moveToTrash(new File[] { new File(this.toString()) });
@@ -565,6 +568,7 @@ class FileResourceHandler extends AResourceHandler {
 				if(!overwrite && targetRecourceLoader.exists() && !targetRecourceLoader.isDirectoryResource()) {
 					throw new IOException("file already exists");
 				}
+				RandomAccessZip.closeShared(((FileResourceHandler) targetRecourceLoader).file);
 				
 				//try to copy using fast nio copy.
 				try {
@@ -595,6 +599,10 @@ class FileResourceHandler extends AResourceHandler {
 	@Override
 	public void moveTo(IResourceHandler targetRecourceLoader, boolean overwrite) throws IOException {
 		resetIsDirectoryEvaluation();
+		RandomAccessZip.closeShared(this.file);
+		if(targetRecourceLoader instanceof FileResourceHandler) {
+			RandomAccessZip.closeShared(((FileResourceHandler) targetRecourceLoader).file);
+		}
 		
 		if(targetRecourceLoader instanceof FileResourceHandler) {
 			if(this.equals(targetRecourceLoader)) {
@@ -708,6 +708,15 @@ public class ResourceHandlerUtils {
 		return true;
 	}
 
+	/**
+	 * Tests if the given {@link IResourceHandler} is a file in the local file system, so {@link IResourceHandler#toFile()}
+	 * returns the file itself and not a temporary copy.
+	 * @return <code>true</code> if the given {@link IResourceHandler} is a local file and <code>false</code> otherwise.
+	 */
+	public static boolean isLocalFileResource(IResourceHandler resourceHandler) {
+		return resourceHandler instanceof FileResourceHandler && resourceHandler.isFileResource();
+	}
+
 	/**
 	 * Remove those characters which can't be used in file names.
 	 * @param fileName The file name to be filtered for invalid characters.
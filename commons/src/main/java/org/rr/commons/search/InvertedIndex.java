@@ -0,0 +1,499 @@
+package org.rr.commons.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A compact inverted index which maps the words of some named text fields to the documents containing them.
+ * Each document is identified by a key and carries a version, for example the timestamp of the file it was
+ * created from, so it could be determined if a document needs to be indexed again.
+ * <br><br>
+ * The search supports:
+ * <ul>
+ * <li><code>word</code> - the word in any field, with a light plural stemming.</li>
+ * <li><code>field:word</code> - the word in the given field only.</li>
+ * <li><code>word*</code> - all words starting with the given prefix.</li>
+ * <li><code>word~</code> - all words with a small edit distance to the given one.</li>
+ * </ul>
+ * All words of a query must match. The hits are ranked with a tf-idf score where each field could be boosted.
+ * <br><br>
+ * The index is thread safe. It is kept in memory and could be written to and read from a stream.
+ */
+public class InvertedIndex {
+
+	/**
+	 * A document found by {@link InvertedIndex#search(String, int)}.
+	 */
+	public static class Hit {
+
+		private final String key;
+
+		private final float score;
+
+		private Hit(String key, float score) {
+			this.key = key;
+			this.score = score;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public float getScore() {
+			return score;
+		}
+
+		@Override
+		public String toString() {
+			return key + " (" + score + ")";
+		}
+	}
+
+	/**
+	 * The documents of one word. Document ids are only appended, so the ids are in ascending order.
+	 */
+	private static class Postings {
+
+		private int[] docs = new int[2];
+
+		/** The field index in the upper 8 bit and the word count in the lower 24 bit. */
+		private int[] values = new int[2];
+
+		private int size = 0;
+
+		private void add(int doc, int field, int count) {
+			if(size == docs.length) {
+				docs = Arrays.copyOf(docs, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			docs[size] = doc;
+			values[size] = (field << 24) | Math.min(count, 0xFFFFFF);
+			size++;
+		}
+	}
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int MIN_PREFIX_LENGTH = 2;
+
+	private final String[] fields;
+
+	private final float[] boosts;
+
+	private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+	private final List<String> keys = new ArrayList<>();
+
+	private long[] versions = new long[16];
+
+	private final Map<String, Integer> docIds = new HashMap<>();
+
+	/**
+	 * @param fields The names of the fields which could be indexed. Each field has a boost of 1 by default.
+	 */
+	public InvertedIndex(String... fields) {
+		if(fields.length > 0xFF) {
+			throw new IllegalArgumentException("Too many fields " + fields.length);
+		}
+		this.fields = fields.clone();
+		this.boosts = new float[fields.length];
+		Arrays.fill(boosts, 1f);
+	}
+
+	/**
+	 * Sets the factor for the score of words found in the given field.
+	 */
+	public synchronized void setBoost(String field, float boost) {
+		boosts[getFieldIndex(field)] = boost;
+	}
+
+	/**
+	 * Adds the document with the given key to the index. A previous document with the same key is replaced.
+	 *
+	 * @param key The key of the document.
+	 * @param version The version of the document, see {@link #getVersion(String)}.
+	 * @param fieldValues The text of the document fields. Fields which are unknown to the index are ignored.
+	 */
+	public synchronized void put(String key, long version, Map<String, String> fieldValues) {
+		remove(key);
+
+		int doc = keys.size();
+		keys.add(key);
+		if(doc == versions.length) {
+			versions = Arrays.copyOf(versions, doc * 2);
+		}
+		versions[doc] = version;
+		docIds.put(key, Integer.valueOf(doc));
+
+		for(int field = 0; field < fields.length; field++) {
+			String value = fieldValues.get(fields[field]);
+			if(value != null) {
+				Map<String, Integer> counts = new HashMap<>();
+				for(String word : tokenize(value)) {
+					Integer count = counts.get(word);
+					counts.put(word, Integer.valueOf(count != null ? count.intValue() + 1 : 1));
+				}
+				for(Map.Entry<String, Integer> count : counts.entrySet()) {
+					Postings postings = terms.get(count.getKey());
+					if(postings == null) {
+						postings = new Postings();
+						terms.put(count.getKey(), postings);
+					}
+					postings.add(doc, field, count.getValue().intValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the document with the given key from the index.
+	 * @return <code>true</code> if the document was part of the index.
+	 */
+	public synchronized boolean remove(String key) {
+		Integer doc = docIds.remove(key);
+		if(doc != null) {
+			keys.set(doc.intValue(), null);
+			if(keys.size() > 1024 && docIds.size() < keys.size() / 2) {
+				compact();
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Get the version of the document with the given key.
+	 * @return The version given with {@link #put(String, long, Map)} or <code>-1</code> if the document is not part of the index.
+	 */
+	public synchronized long getVersion(String key) {
+		Integer doc = docIds.get(key);
+		return doc != null ? versions[doc.intValue()] : -1;
+	}
+
+	/**
+	 * @return The keys of all documents in the index.
+	 */
+	public synchronized List<String> getKeys() {
+		return new ArrayList<>(docIds.keySet());
+	}
+
+	/**
+	 * @return The number of documents in the index.
+	 */
+	public synchronized int size() {
+		return docIds.size();
+	}
+
+	/**
+	 * Searches the documents matching all words of the given query.
+	 *
+	 * @param query The query, see class description for the syntax.
+	 * @param limit The maximum number of hits to be returned.
+	 * @return The hits ordered by their score, the best one first.
+	 */
+	public synchronized List<Hit> search(String query, int limit) {
+		Map<Integer, Float> scores = null;
+		for(String queryTerm : query.trim().split("\\s+")) {
+			if(!queryTerm.isEmpty()) {
+				Map<Integer, Float> termScores = searchTerm(queryTerm);
+				if(termScores == null) {
+					continue;
+				} else if(scores == null) {
+					scores = termScores;
+				} else {
+					scores = intersect(scores, termScores);
+				}
+			}
+		}
+		if(scores == null || scores.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		List<Hit> hits = new ArrayList<>(scores.size());
+		for(Map.Entry<Integer, Float> score : scores.entrySet()) {
+			hits.add(new Hit(keys.get(score.getKey().intValue()), score.getValue().floatValue()));
+		}
+		Collections.sort(hits, new Comparator<Hit>() {
+
+			@Override
+			public int compare(Hit o1, Hit o2) {
+				int result = Float.compare(o2.score, o1.score);
+				return result != 0 ? result : o1.key.compareTo(o2.key);
+			}
+		});
+		return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+	}
+
+	/**
+	 * Scores the documents matching a single query term.
+	 * @return The score for each matching document or <code>null</code> if the term contains no word.
+	 */
+	private Map<Integer, Float> searchTerm(String queryTerm) {
+		int field = -1;
+		int colon = queryTerm.indexOf(':');
+		if(colon > 0) {
+			field = findFieldIndex(queryTerm.substring(0, colon));
+			queryTerm = queryTerm.substring(colon + 1);
+		}
+
+		boolean prefix = queryTerm.endsWith("*");
+		boolean fuzzy = queryTerm.endsWith("~");
+		List<String> words = tokenize(prefix || fuzzy ? queryTerm.substring(0, queryTerm.length() - 1) : queryTerm);
+		if(words.isEmpty()) {
+			return null;
+		}
+
+		// a term like "sci-fi" results in more than one word which all must match.
+		Map<Integer, Float> result = null;
+		for(int i = 0; i < words.size(); i++) {
+			String word = words.get(i);
+			boolean last = i == words.size() - 1;
+			Map<Integer, Float> wordScores = new HashMap<>();
+			for(Map.Entry<String, Postings> term : getMatchingTerms(word, last && prefix, last && fuzzy).entrySet()) {
+				score(term.getValue(), field, wordScores);
+			}
+			result = result == null ? wordScores : intersect(result, wordScores);
+		}
+		return result;
+	}
+
+	private Map<String, Postings> getMatchingTerms(String word, boolean prefix, boolean fuzzy) {
+		if(prefix && word.length() >= MIN_PREFIX_LENGTH) {
+			return terms.subMap(word, word + Character.MAX_VALUE);
+		} else if(fuzzy) {
+			Map<String, Postings> result = new HashMap<>();
+			int maxDistance = word.length() > 7 ? 2 : 1;
+			// only words with the same first letter are checked to keep the search fast.
+			SortedMap<String, Postings> candidates = terms.subMap(word.substring(0, 1), word.substring(0, 1) + Character.MAX_VALUE);
+			for(Map.Entry<String, Postings> candidate : candidates.entrySet()) {
+				if(Math.abs(candidate.getKey().length() - word.length()) <= maxDistance && distance(word, candidate.getKey()) <= maxDistance) {
+					result.put(candidate.getKey(), candidate.getValue());
+				}
+			}
+			return result;
+		}
+		Postings postings = terms.get(word);
+		return postings != null ? Collections.singletonMap(word, postings) : Collections.<String, Postings>emptyMap();
+	}
+
+	private void score(Postings postings, int field, Map<Integer, Float> scores) {
+		float idf = (float) Math.log(1d + (double) docIds.size() / postings.size);
+		for(int i = 0; i < postings.size; i++) {
+			int doc = postings.docs[i];
+			int postingField = postings.values[i] >>> 24;
+			if(keys.get(doc) != null && (field == -1 || field == postingField)) {
+				int count = postings.values[i] & 0xFFFFFF;
+				float score = boosts[postingField] * (1f + (float) Math.log(count)) * idf;
+				Float previous = scores.get(Integer.valueOf(doc));
+				scores.put(Integer.valueOf(doc), Float.valueOf(previous != null ? previous.floatValue() + score : score));
+			}
+		}
+	}
+
+	private Map<Integer, Float> intersect(Map<Integer, Float> scores, Map<Integer, Float> other) {
+		Map<Integer, Float> result = new HashMap<>();
+		for(Map.Entry<Integer, Float> score : scores.entrySet()) {
+			Float otherScore = other.get(score.getKey());
+			if(otherScore != null) {
+				result.put(score.getKey(), Float.valueOf(score.getValue().floatValue() + otherScore.floatValue()));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the deleted documents from the postings and renumbers the remaining documents.
+	 */
+	private void compact() {
+		int[] newIds = new int[keys.size()];
+		List<String> newKeys = new ArrayList<>(docIds.size());
+		long[] newVersions = new long[Math.max(16, docIds.size())];
+		for(int doc = 0; doc < keys.size(); doc++) {
+			String key = keys.get(doc);
+			if(key != null) {
+				newIds[doc] = newKeys.size();
+				newVersions[newKeys.size()] = versions[doc];
+				docIds.put(key, Integer.valueOf(newKeys.size()));
+				newKeys.add(key);
+			} else {
+				newIds[doc] = -1;
+			}
+		}
+
+		List<String> emptyTerms = new ArrayList<>();
+		for(Map.Entry<String, Postings> term : terms.entrySet()) {
+			Postings postings = term.getValue();
+			int size = 0;
+			for(int i = 0; i < postings.size; i++) {
+				int newId = newIds[postings.docs[i]];
+				if(newId != -1) {
+					postings.docs[size] = newId;
+					postings.values[size] = postings.values[i];
+					size++;
+				}
+			}
+			postings.size = size;
+			if(size == 0) {
+				emptyTerms.add(term.getKey());
+			}
+		}
+		for(String term : emptyTerms) {
+			terms.remove(term);
+		}
+
+		keys.clear();
+		keys.addAll(newKeys);
+		versions = newVersions;
+	}
+
+	/**
+	 * Writes the index in a compressed format to the given stream. The stream is not closed.
+	 */
+	public synchronized void write(OutputStream out) throws IOException {
+		compact();
+		DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+		DataOutputStream data = new DataOutputStream(deflater);
+		data.writeInt(FORMAT_VERSION);
+		data.writeInt(keys.size());
+		for(int doc = 0; doc < keys.size(); doc++) {
+			data.writeUTF(keys.get(doc));
+			data.writeLong(versions[doc]);
+		}
+		data.writeInt(terms.size());
+		for(Map.Entry<String, Postings> term : terms.entrySet()) {
+			Postings postings = term.getValue();
+			data.writeUTF(term.getKey());
+			data.writeInt(postings.size);
+			int previous = 0;
+			for(int i = 0; i < postings.size; i++) {
+				// the ids are ascending, so the differences are small and compress well.
+				data.writeInt(postings.docs[i] - previous);
+				data.writeInt(postings.values[i]);
+				previous = postings.docs[i];
+			}
+		}
+		data.flush();
+		deflater.finish();
+	}
+
+	/**
+	 * Reads an index previously written with {@link #write(OutputStream)}. The current content of this index is replaced.
+	 */
+	public synchronized void read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new InflaterInputStream(in));
+		if(data.readInt() != FORMAT_VERSION) {
+			throw new IOException("Unsupported index format");
+		}
+		keys.clear();
+		docIds.clear();
+		terms.clear();
+
+		int docs = data.readInt();
+		versions = new long[Math.max(16, docs)];
+		for(int doc = 0; doc < docs; doc++) {
+			String key = data.readUTF();
+			keys.add(key);
+			docIds.put(key, Integer.valueOf(doc));
+			versions[doc] = data.readLong();
+		}
+		int termCount = data.readInt();
+		for(int t = 0; t < termCount; t++) {
+			String term = data.readUTF();
+			int size = data.readInt();
+			Postings postings = new Postings();
+			postings.docs = new int[Math.max(2, size)];
+			postings.values = new int[Math.max(2, size)];
+			int previous = 0;
+			for(int i = 0; i < size; i++) {
+				previous += data.readInt();
+				postings.docs[i] = previous;
+				postings.values[i] = data.readInt();
+			}
+			postings.size = size;
+			terms.put(term, postings);
+		}
+	}
+
+	private int getFieldIndex(String field) {
+		int index = findFieldIndex(field);
+		if(index == -1) {
+			throw new IllegalArgumentException("Unknown field " + field);
+		}
+		return index;
+	}
+
+	private int findFieldIndex(String field) {
+		for(int i = 0; i < fields.length; i++) {
+			if(fields[i].equalsIgnoreCase(field)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Splits the given text into lower case words without diacritics and applies a light plural stemming.
+	 */
+	static List<String> tokenize(String text) {
+		String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+		List<String> result = new ArrayList<>();
+		StringBuilder word = new StringBuilder();
+		for(int i = 0; i <= normalized.length(); i++) {
+			char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+			if(Character.isLetterOrDigit(c)) {
+				word.append(Character.toLowerCase(c));
+			} else if(Character.getType(c) != Character.NON_SPACING_MARK && word.length() > 0) {
+				result.add(stem(word.toString()));
+				word.setLength(0);
+			}
+		}
+		return result;
+	}
+
+	private static String stem(String word) {
+		int length = word.length();
+		if(length > 4 && word.endsWith("ies")) {
+			return word.substring(0, length - 3) + 'y';
+		} else if(length > 3 && word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+			return word.substring(0, length - 1);
+		}
+		return word;
+	}
+
+	/**
+	 * The levenshtein distance between the given words.
+	 */
+	private static int distance(String s1, String s2) {
+		int[] previous = new int[s2.length() + 1];
+		int[] current = new int[s2.length() + 1];
+		for(int j = 0; j <= s2.length(); j++) {
+			previous[j] = j;
+		}
+		for(int i = 1; i <= s1.length(); i++) {
+			current[0] = i;
+			for(int j = 1; j <= s2.length(); j++) {
+				int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[s2.length()];
+	}
+}
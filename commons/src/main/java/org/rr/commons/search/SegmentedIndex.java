@@ -0,0 +1,845 @@
+package org.rr.commons.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * A disk based inverted index for large texts like the content of books. The documents are collected in
+ * memory and written as immutable segment files to the index directory. Only a sparse term dictionary of
+ * each segment is kept in memory, so the index could handle much more text than fits into memory.
+ * <br><br>
+ * Like the {@link InvertedIndex} each document has a key and a version. Documents which are removed or
+ * replaced are skipped by the search and dropped when segments are merged. Documents which are not yet
+ * written with {@link #flush()} are lost if the application did not {@link #close()} the index, so their
+ * version is no longer known after restart and they could be indexed again.
+ * <br><br>
+ * The search supports plain words and prefixes like <code>word*</code>. All words of a query must match.
+ */
+public class SegmentedIndex {
+
+	/**
+	 * Collects the words of a document before it's added to the index with {@link SegmentedIndex#add(Document)}.
+	 */
+	public static class Document {
+
+		private final String key;
+
+		private final long version;
+
+		private final Map<String, int[]> counts = new HashMap<>();
+
+		private Document(String key, long version) {
+			this.key = key;
+			this.version = version;
+		}
+
+		/**
+		 * Adds the words of the given text to the document. Could be invoked multiple times
+		 * to add large texts piece by piece.
+		 */
+		public void addText(String text) {
+			for(String word : InvertedIndex.tokenize(text)) {
+				int[] count = counts.get(word);
+				if(count == null) {
+					counts.put(word, new int[] {1});
+				} else {
+					count[0]++;
+				}
+			}
+		}
+
+		/**
+		 * @return The number of different words in this document.
+		 */
+		public int getWordCount() {
+			return counts.size();
+		}
+	}
+
+	/**
+	 * Points to the current version of a document.
+	 */
+	private static class DocRef {
+
+		/** The segment of the document or <code>null</code> if the document is not yet flushed. */
+		private final Segment segment;
+
+		private final int doc;
+
+		private final long version;
+
+		private DocRef(Segment segment, int doc, long version) {
+			this.segment = segment;
+			this.doc = doc;
+			this.version = version;
+		}
+	}
+
+	/**
+	 * An immutable segment file. The file contains the documents, the terms with their postings
+	 * and the sparse term dictionary.
+	 */
+	private static class Segment {
+
+		private final int generation;
+
+		private final File file;
+
+		private String[] keys;
+
+		private long[] versions;
+
+		private String[] sparseTerms;
+
+		private long[] sparseOffsets;
+
+		private long termsStart;
+
+		private long termsEnd;
+
+		private int termCount;
+
+		private RandomAccessFile data;
+
+		private Segment(int generation, File file) {
+			this.generation = generation;
+			this.file = file;
+		}
+
+		private void open() throws IOException {
+			data = new RandomAccessFile(file, "r");
+			if(data.readInt() != MAGIC) {
+				throw new IOException("No index segment " + file);
+			}
+			int docs = data.readInt();
+			keys = new String[docs];
+			versions = new long[docs];
+			for(int doc = 0; doc < docs; doc++) {
+				keys[doc] = data.readUTF();
+				versions[doc] = data.readLong();
+			}
+			termsStart = data.getFilePointer();
+
+			data.seek(data.length() - 12);
+			termCount = data.readInt();
+			termsEnd = data.readLong();
+			data.seek(termsEnd);
+			int sparse = data.readInt();
+			sparseTerms = new String[sparse];
+			sparseOffsets = new long[sparse];
+			for(int i = 0; i < sparse; i++) {
+				sparseTerms[i] = data.readUTF();
+				sparseOffsets[i] = data.readLong();
+			}
+		}
+
+		/**
+		 * Reads the postings of all terms starting with the given prefix or only of the term which is
+		 * equal to the prefix.
+		 */
+		private Map<String, byte[]> readPostings(String prefix, boolean exact) throws IOException {
+			int index = Arrays.binarySearch(sparseTerms, prefix);
+			if(index < 0) {
+				index = -index - 2;
+			}
+			if(index < 0) {
+				if(sparseTerms.length == 0) {
+					return Collections.emptyMap();
+				}
+				index = 0;
+			}
+
+			Map<String, byte[]> result = new HashMap<>();
+			data.seek(sparseOffsets[index]);
+			while(data.getFilePointer() < termsEnd) {
+				String term = data.readUTF();
+				int length = data.readInt();
+				int compare = term.compareTo(prefix);
+				if(compare < 0 || (compare > 0 && exact)) {
+					if(compare > 0) {
+						break;
+					}
+					data.skipBytes(length);
+				} else if(term.startsWith(prefix)) {
+					byte[] postings = new byte[length];
+					data.readFully(postings);
+					result.put(term, postings);
+					if(exact) {
+						break;
+					}
+				} else {
+					break;
+				}
+			}
+			return result;
+		}
+
+		private void close() {
+			try {
+				if(data != null) {
+					data.close();
+				}
+			} catch (IOException e) {
+				// nothing to do
+			}
+		}
+	}
+
+	/**
+	 * Reads the terms of a segment sequentially. Used for merging segments.
+	 */
+	private static class SegmentCursor {
+
+		private final Segment segment;
+
+		private final DataInputStream in;
+
+		private int remaining;
+
+		private String term;
+
+		private byte[] postings;
+
+		private SegmentCursor(Segment segment) throws IOException {
+			this.segment = segment;
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+			this.remaining = segment.termCount;
+			long skip = segment.termsStart;
+			while(skip > 0) {
+				long skipped = in.skip(skip);
+				if(skipped <= 0) {
+					throw new IOException("Unexpected end of " + segment.file);
+				}
+				skip -= skipped;
+			}
+		}
+
+		private boolean next() throws IOException {
+			if(remaining-- <= 0) {
+				term = null;
+				return false;
+			}
+			term = in.readUTF();
+			postings = new byte[in.readInt()];
+			in.readFully(postings);
+			return true;
+		}
+	}
+
+	/**
+	 * {@link OutputStream} which counts the written bytes with a long value.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private long count = 0;
+
+		private CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	private static final int MAGIC = 0x4A425349;
+
+	private static final int SPARSE_INTERVAL = 64;
+
+	private static final String SEGMENT_PREFIX = "segment-";
+
+	private static final String SEGMENT_SUFFIX = ".idx";
+
+	private static final String DELETES_FILE = "deletes.idx";
+
+	private final File directory;
+
+	private final int maxBufferedDocuments;
+
+	private final int maxSegments;
+
+	private final List<Segment> segments = new ArrayList<>();
+
+	private final Map<String, DocRef> live = new HashMap<>();
+
+	/** The keys of the removed documents with the generation of the next segment at the time of removal. */
+	private final Map<String, Integer> deletes = new HashMap<>();
+
+	private final List<Document> buffer = new ArrayList<>();
+
+	private int nextGeneration = 0;
+
+	/**
+	 * Opens the index in the given directory. The directory is created if it did not exist.
+	 *
+	 * @param directory The directory for the segment files.
+	 * @param maxBufferedDocuments The number of documents which are collected in memory before a segment is written.
+	 * @param maxSegments The number of segments which causes the smaller segments to be merged.
+	 */
+	public SegmentedIndex(File directory, int maxBufferedDocuments, int maxSegments) throws IOException {
+		this.directory = directory;
+		this.maxBufferedDocuments = Math.max(1, maxBufferedDocuments);
+		this.maxSegments = Math.max(2, maxSegments);
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create " + directory);
+		}
+		open();
+	}
+
+	private void open() throws IOException {
+		readDeletes();
+
+		File[] files = directory.listFiles();
+		List<Segment> found = new ArrayList<>();
+		for(File file : files != null ? files : new File[0]) {
+			String name = file.getName();
+			if(name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+				int generation = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+				found.add(new Segment(generation, file));
+			}
+		}
+		Collections.sort(found, new Comparator<Segment>() {
+
+			@Override
+			public int compare(Segment o1, Segment o2) {
+				return Integer.compare(o1.generation, o2.generation);
+			}
+		});
+
+		for(Segment segment : found) {
+			try {
+				segment.open();
+			} catch(IOException e) {
+				// a broken segment is dropped, the documents are indexed again.
+				segment.close();
+				continue;
+			}
+			segments.add(segment);
+			nextGeneration = Math.max(nextGeneration, segment.generation + 1);
+			for(int doc = 0; doc < segment.keys.length; doc++) {
+				Integer deleted = deletes.get(segment.keys[doc]);
+				if(deleted == null || deleted.intValue() <= segment.generation) {
+					live.put(segment.keys[doc], new DocRef(segment, doc, segment.versions[doc]));
+				}
+			}
+		}
+		for(Integer generation : deletes.values()) {
+			nextGeneration = Math.max(nextGeneration, generation.intValue());
+		}
+	}
+
+	/**
+	 * Creates a new document which could be added with {@link #add(Document)}.
+	 */
+	public Document createDocument(String key, long version) {
+		return new Document(key, version);
+	}
+
+	/**
+	 * Adds the given document to the index. A previous document with the same key is replaced.
+	 */
+	public synchronized void add(Document document) throws IOException {
+		live.put(document.key, new DocRef(null, buffer.size(), document.version));
+		buffer.add(document);
+		if(buffer.size() >= maxBufferedDocuments) {
+			flush();
+		}
+	}
+
+	/**
+	 * Removes the document with the given key.
+	 * @return <code>true</code> if the document was part of the index.
+	 */
+	public synchronized boolean remove(String key) {
+		if(live.remove(key) != null) {
+			deletes.put(key, Integer.valueOf(nextGeneration));
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Get the version of the document with the given key.
+	 * @return The version of the document or <code>-1</code> if the document is not part of the index.
+	 */
+	public synchronized long getVersion(String key) {
+		DocRef ref = live.get(key);
+		return ref != null ? ref.version : -1;
+	}
+
+	/**
+	 * @return The keys of all documents in the index.
+	 */
+	public synchronized List<String> getKeys() {
+		return new ArrayList<>(live.keySet());
+	}
+
+	/**
+	 * @return The number of documents in the index.
+	 */
+	public synchronized int size() {
+		return live.size();
+	}
+
+	/**
+	 * Searches the documents matching all words of the given query.
+	 *
+	 * @param query The words to be searched. Words ending with <code>*</code> are searched as prefix.
+	 * @param limit The maximum number of hits to be returned.
+	 * @return The keys of the hits, the best one first.
+	 */
+	public synchronized List<String> search(String query, int limit) throws IOException {
+		Map<String, Float> scores = null;
+		for(String queryTerm : query.trim().split("\\s+")) {
+			boolean prefix = queryTerm.endsWith("*");
+			List<String> words = InvertedIndex.tokenize(prefix ? queryTerm.substring(0, queryTerm.length() - 1) : queryTerm);
+			for(int i = 0; i < words.size(); i++) {
+				Map<String, Float> wordScores = searchWord(words.get(i), prefix && i == words.size() - 1);
+				scores = scores == null ? wordScores : intersect(scores, wordScores);
+			}
+		}
+		if(scores == null) {
+			return Collections.emptyList();
+		}
+
+		final Map<String, Float> result = scores;
+		List<String> keys = new ArrayList<>(result.keySet());
+		Collections.sort(keys, new Comparator<String>() {
+
+			@Override
+			public int compare(String o1, String o2) {
+				int compare = Float.compare(result.get(o2).floatValue(), result.get(o1).floatValue());
+				return compare != 0 ? compare : o1.compareTo(o2);
+			}
+		});
+		return keys.size() > limit ? new ArrayList<>(keys.subList(0, limit)) : keys;
+	}
+
+	private Map<String, Float> searchWord(String word, boolean prefix) throws IOException {
+		Map<String, Integer> counts = new HashMap<>();
+		for(Segment segment : segments) {
+			for(byte[] postings : segment.readPostings(word, !prefix).values()) {
+				int[] decoded = decodePostings(postings);
+				for(int i = 0; i < decoded.length; i += 2) {
+					DocRef ref = live.get(segment.keys[decoded[i]]);
+					if(ref != null && ref.segment == segment && ref.doc == decoded[i]) {
+						addCount(counts, segment.keys[decoded[i]], decoded[i + 1]);
+					}
+				}
+			}
+		}
+		for(int doc = 0; doc < buffer.size(); doc++) {
+			Document document = buffer.get(doc);
+			DocRef ref = live.get(document.key);
+			if(ref != null && ref.segment == null && ref.doc == doc) {
+				for(Map.Entry<String, int[]> count : document.counts.entrySet()) {
+					if(prefix ? count.getKey().startsWith(word) : count.getKey().equals(word)) {
+						addCount(counts, document.key, count.getValue()[0]);
+					}
+				}
+			}
+		}
+
+		Map<String, Float> scores = new HashMap<>();
+		float idf = (float) Math.log(1d + (double) live.size() / Math.max(1, counts.size()));
+		for(Map.Entry<String, Integer> count : counts.entrySet()) {
+			scores.put(count.getKey(), Float.valueOf((1f + (float) Math.log(count.getValue().intValue())) * idf));
+		}
+		return scores;
+	}
+
+	private void addCount(Map<String, Integer> counts, String key, int count) {
+		Integer previous = counts.get(key);
+		counts.put(key, Integer.valueOf(previous != null ? previous.intValue() + count : count));
+	}
+
+	private Map<String, Float> intersect(Map<String, Float> scores, Map<String, Float> other) {
+		Map<String, Float> result = new HashMap<>();
+		for(Map.Entry<String, Float> score : scores.entrySet()) {
+			Float otherScore = other.get(score.getKey());
+			if(otherScore != null) {
+				result.put(score.getKey(), Float.valueOf(score.getValue().floatValue() + otherScore.floatValue()));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the buffered documents as a new segment and merges the smaller segments if there are too many.
+	 */
+	public synchronized void flush() throws IOException {
+		List<String> keys = new ArrayList<>();
+		List<Long> versions = new ArrayList<>();
+		TreeMap<String, PostingsWriter> terms = new TreeMap<>();
+		for(int doc = 0; doc < buffer.size(); doc++) {
+			Document document = buffer.get(doc);
+			DocRef ref = live.get(document.key);
+			if(ref != null && ref.segment == null && ref.doc == doc) {
+				int newDoc = keys.size();
+				keys.add(document.key);
+				versions.add(Long.valueOf(document.version));
+				for(Map.Entry<String, int[]> count : document.counts.entrySet()) {
+					PostingsWriter postings = terms.get(count.getKey());
+					if(postings == null) {
+						postings = new PostingsWriter();
+						terms.put(count.getKey(), postings);
+					}
+					postings.add(newDoc, count.getValue()[0]);
+				}
+			}
+		}
+		buffer.clear();
+
+		if(!keys.isEmpty()) {
+			int generation = nextGeneration++;
+			File file = getSegmentFile(generation);
+			SegmentWriter writer = new SegmentWriter(file, keys, versions);
+			try {
+				for(Map.Entry<String, PostingsWriter> term : terms.entrySet()) {
+					writer.writeTerm(term.getKey(), term.getValue().toByteArray());
+				}
+			} finally {
+				writer.close();
+			}
+			Segment segment = new Segment(generation, file);
+			segment.open();
+			segments.add(segment);
+			for(int doc = 0; doc < keys.size(); doc++) {
+				live.put(keys.get(doc), new DocRef(segment, doc, versions.get(doc).longValue()));
+			}
+		}
+
+		if(segments.size() > maxSegments) {
+			merge();
+		}
+		writeDeletes();
+	}
+
+	/**
+	 * Merges the smallest segments into one, so the number of segments is halved.
+	 */
+	private void merge() throws IOException {
+		List<Segment> candidates = new ArrayList<>(segments);
+		Collections.sort(candidates, new Comparator<Segment>() {
+
+			@Override
+			public int compare(Segment o1, Segment o2) {
+				return Long.compare(o1.file.length(), o2.file.length());
+			}
+		});
+		final List<Segment> merged = new ArrayList<>(candidates.subList(0, segments.size() - maxSegments / 2));
+		Collections.sort(merged, new Comparator<Segment>() {
+
+			@Override
+			public int compare(Segment o1, Segment o2) {
+				return Integer.compare(o1.generation, o2.generation);
+			}
+		});
+
+		// give the live documents of the merged segments new ids in the order of the segments.
+		List<String> keys = new ArrayList<>();
+		List<Long> versions = new ArrayList<>();
+		final Map<Segment, int[]> newIds = new HashMap<>();
+		int generation = 0;
+		for(Segment segment : merged) {
+			generation = Math.max(generation, segment.generation);
+			int[] ids = new int[segment.keys.length];
+			for(int doc = 0; doc < segment.keys.length; doc++) {
+				DocRef ref = live.get(segment.keys[doc]);
+				if(ref != null && ref.segment == segment && ref.doc == doc) {
+					ids[doc] = keys.size();
+					keys.add(segment.keys[doc]);
+					versions.add(Long.valueOf(segment.versions[doc]));
+				} else {
+					ids[doc] = -1;
+				}
+			}
+			newIds.put(segment, ids);
+		}
+
+		File tmpFile = new File(directory, SEGMENT_PREFIX + generation + ".tmp");
+		SegmentWriter writer = new SegmentWriter(tmpFile, keys, versions);
+		PriorityQueue<SegmentCursor> cursors = new PriorityQueue<>(merged.size(), new Comparator<SegmentCursor>() {
+
+			@Override
+			public int compare(SegmentCursor o1, SegmentCursor o2) {
+				int compare = o1.term.compareTo(o2.term);
+				return compare != 0 ? compare : Integer.compare(o1.segment.generation, o2.segment.generation);
+			}
+		});
+		List<SegmentCursor> allCursors = new ArrayList<>();
+		try {
+			for(Segment segment : merged) {
+				SegmentCursor cursor = new SegmentCursor(segment);
+				allCursors.add(cursor);
+				if(cursor.next()) {
+					cursors.add(cursor);
+				}
+			}
+
+			while(!cursors.isEmpty()) {
+				String term = cursors.peek().term;
+				PostingsWriter postings = new PostingsWriter();
+				// the cursors with the same term are polled in the order of their generation.
+				while(!cursors.isEmpty() && cursors.peek().term.equals(term)) {
+					SegmentCursor cursor = cursors.poll();
+					int[] ids = newIds.get(cursor.segment);
+					int[] decoded = decodePostings(cursor.postings);
+					for(int i = 0; i < decoded.length; i += 2) {
+						if(ids[decoded[i]] != -1) {
+							postings.add(ids[decoded[i]], decoded[i + 1]);
+						}
+					}
+					if(cursor.next()) {
+						cursors.add(cursor);
+					}
+				}
+				if(postings.size > 0) {
+					writer.writeTerm(term, postings.toByteArray());
+				}
+			}
+		} finally {
+			writer.close();
+			for(SegmentCursor cursor : allCursors) {
+				cursor.in.close();
+			}
+		}
+
+		for(Segment segment : merged) {
+			segment.close();
+			segments.remove(segment);
+			if(!segment.file.delete()) {
+				throw new IOException("Could not delete " + segment.file);
+			}
+		}
+		File file = getSegmentFile(generation);
+		if(!tmpFile.renameTo(file)) {
+			throw new IOException("Could not rename " + tmpFile);
+		}
+
+		Segment segment = new Segment(generation, file);
+		segment.open();
+		segments.add(segment);
+		Collections.sort(segments, new Comparator<Segment>() {
+
+			@Override
+			public int compare(Segment o1, Segment o2) {
+				return Integer.compare(o1.generation, o2.generation);
+			}
+		});
+		for(int doc = 0; doc < keys.size(); doc++) {
+			live.put(keys.get(doc), new DocRef(segment, doc, versions.get(doc).longValue()));
+		}
+	}
+
+	/**
+	 * Writes the buffered documents and closes all segment files.
+	 */
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			for(Segment segment : segments) {
+				segment.close();
+			}
+			segments.clear();
+			live.clear();
+		}
+	}
+
+	private File getSegmentFile(int generation) {
+		return new File(directory, SEGMENT_PREFIX + generation + SEGMENT_SUFFIX);
+	}
+
+	private void readDeletes() throws IOException {
+		File file = new File(directory, DELETES_FILE);
+		if(file.isFile()) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+				int count = in.readInt();
+				for(int i = 0; i < count; i++) {
+					String key = in.readUTF();
+					deletes.put(key, Integer.valueOf(in.readInt()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the removed keys which are still part of a segment.
+	 */
+	private void writeDeletes() throws IOException {
+		Iterator<Map.Entry<String, Integer>> iterator = deletes.entrySet().iterator();
+		while(iterator.hasNext()) {
+			Map.Entry<String, Integer> delete = iterator.next();
+			boolean inSegment = false;
+			for(Segment segment : segments) {
+				if(segment.generation < delete.getValue().intValue() && Arrays.asList(segment.keys).contains(delete.getKey())) {
+					inSegment = true;
+					break;
+				}
+			}
+			if(!inSegment) {
+				iterator.remove();
+			}
+		}
+
+		File file = new File(directory, DELETES_FILE);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(deletes.size());
+			for(Map.Entry<String, Integer> delete : deletes.entrySet()) {
+				out.writeUTF(delete.getKey());
+				out.writeInt(delete.getValue().intValue());
+			}
+		}
+	}
+
+	/**
+	 * Decodes the postings written by {@link PostingsWriter}.
+	 * @return The document ids and the word counts alternating.
+	 */
+	private static int[] decodePostings(byte[] postings) {
+		int[] position = new int[1];
+		int size = readVarInt(postings, position);
+		int[] result = new int[size * 2];
+		int doc = 0;
+		for(int i = 0; i < size; i++) {
+			doc += readVarInt(postings, position);
+			result[i * 2] = doc;
+			result[i * 2 + 1] = readVarInt(postings, position);
+		}
+		return result;
+	}
+
+	private static int readVarInt(byte[] data, int[] position) {
+		int result = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data[position[0]++];
+			result |= (b & 0x7F) << shift;
+			shift += 7;
+		} while((b & 0x80) != 0);
+		return result;
+	}
+
+	/**
+	 * Collects the postings of one term with delta and variable length encoded document ids.
+	 */
+	private static class PostingsWriter {
+
+		private byte[] data = new byte[16];
+
+		private int length = 0;
+
+		private int size = 0;
+
+		private int lastDoc = 0;
+
+		private void add(int doc, int count) {
+			writeVarInt(doc - lastDoc);
+			writeVarInt(count);
+			lastDoc = doc;
+			size++;
+		}
+
+		private void writeVarInt(int value) {
+			if(length + 5 > data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			while((value & ~0x7F) != 0) {
+				data[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			data[length++] = (byte) value;
+		}
+
+		private byte[] toByteArray() {
+			PostingsWriter result = new PostingsWriter();
+			result.writeVarInt(size);
+			byte[] bytes = Arrays.copyOf(result.data, result.length + length);
+			System.arraycopy(data, 0, bytes, result.length, length);
+			return bytes;
+		}
+	}
+
+	/**
+	 * Writes a segment file. The terms must be written in their natural order.
+	 */
+	private static class SegmentWriter {
+
+		private final CountingOutputStream counter;
+
+		private final DataOutputStream out;
+
+		private final List<String> sparseTerms = new ArrayList<>();
+
+		private final List<Long> sparseOffsets = new ArrayList<>();
+
+		private int terms = 0;
+
+		private SegmentWriter(File file, List<String> keys, List<Long> versions) throws IOException {
+			counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			out = new DataOutputStream(counter);
+			out.writeInt(MAGIC);
+			out.writeInt(keys.size());
+			for(int doc = 0; doc < keys.size(); doc++) {
+				out.writeUTF(keys.get(doc));
+				out.writeLong(versions.get(doc).longValue());
+			}
+		}
+
+		private void writeTerm(String term, byte[] postings) throws IOException {
+			if(terms++ % SPARSE_INTERVAL == 0) {
+				out.flush();
+				sparseTerms.add(term);
+				sparseOffsets.add(Long.valueOf(counter.count));
+			}
+			out.writeUTF(term);
+			out.writeInt(postings.length);
+			out.write(postings);
+		}
+
+		private void close() throws IOException {
+			try {
+				out.flush();
+				long termsEnd = counter.count;
+				out.writeInt(sparseTerms.size());
+				for(int i = 0; i < sparseTerms.size(); i++) {
+					out.writeUTF(sparseTerms.get(i));
+					out.writeLong(sparseOffsets.get(i).longValue());
+				}
+				out.writeInt(terms);
+				out.writeLong(termsEnd);
+			} finally {
+				out.close();
+			}
+		}
+	}
+}
@@ -222,6 +222,37 @@ public final class ListUtils implements Serializable {
 		
 		return result;
 	}
+
+	/**
+	 * Splits the given list into chunks with the given length. The last chunk
+	 * contains the remaining values and could be smaller than the given length.
+	 * The chunks are views to the given list, so the given list should not be changed
+	 * while the chunks are in use.
+	 * <br><br>
+	 * <pre><code>
+	 * chunkSplit([1, 2, 3, 4, 5], 2)
+	 * returns: [[1, 2], [3, 4], [5]]
+	 * </code></pre>
+	 *
+	 * @param values The list to be splitted
+	 * @param length The maximum length of each chunk.
+	 * @return A list with the chunks. Never returns <code>null</code>.
+	 */
+	public static <T> List<List<T>> chunkSplit(final List<T> values, int length) {
+		if(values == null || values.isEmpty()) {
+			return new ArrayList<List<T>>(0);
+		}
+		
+		if(length<=0) {
+			throw new RuntimeException("length for chunk splitting must be larger than 0 - given value is: '" + length+"'");
+		}
+		
+		List<List<T>> result = new ArrayList<>((values.size() + length - 1) / length);
+		for (int i = 0; i < values.size(); i += length) {
+			result.add(values.subList(i, Math.min(values.size(), i + length)));
+		}
+		return result;
+	}
 	
 	public static <T>List<T> filter(List<T> values, final List<?> match, final boolean include, final int compare, final int searchType) {
 		ArrayList<T> result = new ArrayList<>(values.size());
@@ -1,28 +1,83 @@
 package org.rr.commons.utils;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-
-import org.rr.commons.collection.IteratorList;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.utils.compression.CompressedDataEntry;
 
 public class ThreadUtils {
 
-	private static final Object MUTEX = new Object();
+	/**
+	 * The pool shared by all {@link #parallelMap(Iterator, RunnableImpl, int, long, TimeUnit)} invocations. It's larger than
+	 * the number of processors because many tasks wait for the network, for example while downloading metadata.
+	 */
+	private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(16, availableProcessors() * 2), new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+
+		@Override
+		public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("ParallelMap-" + thread.getPoolIndex());
+			return thread;
+		}
+	}, null, false);
 
 	public static <S,T> List<T> loopAndWait(final Iterable<S> l, final RunnableImpl<S,T> each, final int maxThreads) {
 		return loopAndWait(l.iterator(), each, maxThreads);
 	}
 
+	/**
+	 * Invokes <code>each</code> with all elements of the given iterator in parallel and waits until all are done.
+	 * Failures of single elements are logged and their result is <code>null</code>.
+	 *
+	 * @param l The elements to be processed.
+	 * @param each The {@link RunnableImpl} implementation which is executed with each element.
+	 * @param maxThreads Maximum number of elements which are processed at the same time.
+	 * @return The results of all elements in the order of the elements.
+	 * @throws RuntimeException with the {@link InterruptedException} as cause if the invoking thread is interrupted
+	 * while waiting. The interrupt flag of the thread stays set and the running elements are interrupted.
+	 * @see #parallelMap(Iterator, RunnableImpl, int, long, TimeUnit)
+	 */
 	public static <S,T> List<T> loopAndWait(final Iterator<S> l, final RunnableImpl<S,T> each, final int maxThreads) {
-		return loopAndWait(new IteratorList<S>(l, -1), each, maxThreads);
+		try {
+			return parallelMap(l, new RunnableImpl<S, T>() {
+
+				@Override
+				public T run(S entry) {
+					try {
+						return each.run(entry);
+					} catch(RuntimeException e) {
+						LoggerFactory.log(Level.WARNING, ThreadUtils.class, "Failed to process " + entry, e);
+						return null;
+					}
+				}
+			}, maxThreads, 0, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the elements", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} catch (TimeoutException e) {
+			throw new IllegalStateException(e);
+		}
 	}
 
 	public static <S,T> List<T> loopAndWait(final List<S> l, final RunnableImpl<S,T> each, int maxThreads) {
-		return loop(l, each, maxThreads, true);
+		if(l == null) {
+			return new ArrayList<T>(0);
+		}
+		return loopAndWait(l.iterator(), each, Math.min(maxThreads, Math.max(1, l.size())));
 	}
 
 	public static List<List<IResourceHandler>> loopAndWait(List<CompressedDataEntry> sourceFiles,
@@ -31,86 +86,164 @@ public class ThreadUtils {
 	}
 
 	/**
-	 * Does a loop over the given list where the <code>each</code> parameter is
-	 * invoked with any entry in the list. The
+	 * Invokes <code>each</code> with all elements of the given iterator on a shared pool and waits until all are done.
+	 * The elements are taken from the iterator one by one when a thread is free, so the iterator could also
+	 * create the elements lazily.
+	 * <br><br>
+	 * If <code>each</code> throws an exception, no further elements are processed and the running ones are interrupted.
+	 * The same happens if the timeout has elapsed or the invoking thread is interrupted.
 	 *
-	 * @param l The list to be looped.
-	 * @param each The {@link RunnableImpl} implementation which is executed with each list entry.
-	 * @param maxThreads Maximum number of Threads to be executed to run the {@link RunnableImpl} implementations.
-	 * @return A list of results for each RunnableImpl in the same order than given with <code>each</code>.
+	 * @param source The elements to be processed.
+	 * @param each The {@link RunnableImpl} implementation which is executed with each element.
+	 * @param maxThreads Maximum number of elements which are processed at the same time.
+	 * @param timeout The time to wait for all elements. A value less or equal to 0 waits without a timeout.
+	 * @return The results of all elements in the order of the elements, also if the same element occurs multiple times.
+	 * @throws ExecutionException with the first exception thrown by <code>each</code>.
+	 * @throws TimeoutException if not all elements are processed within the timeout.
+	 * @throws InterruptedException if the invoking thread is interrupted while waiting.
+	 */
+	public static <S, T> List<T> parallelMap(Iterator<S> source, RunnableImpl<S, T> each, int maxThreads, long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		return new ParallelMap<S, T>(source, each).run(Math.max(1, maxThreads), timeout > 0 ? unit.toNanos(timeout) : -1);
+	}
+
+	public static int availableProcessors() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	public static abstract class RunnableImpl<S, T> {
+		public abstract T run(S entry);
+	}
+
+	/**
+	 * A single {@link ThreadUtils#parallelMap(Iterator, RunnableImpl, int, long, TimeUnit)} invocation. The workers take the
+	 * next element with it's index from the iterator and put the result at this index.
 	 */
-	private static <S, T> List<T> loop(final List<S> l, final RunnableImpl<S, T> each, int maxThreads, boolean wait) {
-		final Thread[] slots = new Thread[maxThreads];
-		final List<T> results = Collections.synchronizedList(l != null ? new ArrayList<T>(l.size()) : Collections.<T>emptyList());
-		final List<S> working = Collections.synchronizedList(l != null ? new ArrayList<S>(l) : Collections.<S>emptyList());
-		while(!working.isEmpty()) {
-			//thread slot searching and execution must be synchronized.
-			synchronized(MUTEX) {
-				boolean emptySlotFound = false;
-				for(int i = 0; i < slots.length; i++) {
-					final int slot = i;
-					if(slots[slot] == null) {
-						//free slot to use.
-						slots[slot] = new Thread(new Runnable() {
-
-							@Override
-							public void run() {
-								S entry = null;
-								try {
-									entry = working.remove(0);
-								} catch(IndexOutOfBoundsException e) {
-								}
-
-								if(entry != null) {
-									int index = l.indexOf(entry);
-									ListUtils.set(results, each.run(entry), index);
-								}
-								slots[slot] = null;
-							}
-						});
-						slots[slot].start();
-						emptySlotFound = true;
+	private static class ParallelMap<S, T> implements Runnable {
+
+		private final Iterator<S> source;
+
+		private final RunnableImpl<S, T> each;
+
+		/** The results in the order of the elements. Guarded by this. */
+		private final List<T> results = new ArrayList<>();
+
+		/** The workers which are currently processing an element and have to be interrupted on cancel. Guarded by this. */
+		private final Set<Thread> working = new HashSet<>();
+
+		private CountDownLatch done;
+
+		private volatile boolean stopped;
+
+		private volatile Throwable failure;
+
+		private ParallelMap(Iterator<S> source, RunnableImpl<S, T> each) {
+			this.source = source;
+			this.each = each;
+		}
+
+		private List<T> run(int workers, long timeoutNanos) throws InterruptedException, ExecutionException, TimeoutException {
+			done = new CountDownLatch(workers);
+			for(int i = 0; i < workers; i++) {
+				POOL.execute(this);
+			}
+
+			try {
+				if(!await(timeoutNanos)) {
+					stop();
+					throw new TimeoutException("Not all elements processed within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms");
+				}
+			} catch(InterruptedException e) {
+				stop();
+				throw e;
+			}
+
+			if(failure != null) {
+				throw new ExecutionException(failure);
+			}
+			synchronized(this) {
+				return new ArrayList<>(results);
+			}
+		}
+
+		/**
+		 * Waits for the workers. If the invoking thread is a worker of the pool, the pool gets
+		 * an additional thread while waiting, so nested invocations could not exhaust the pool.
+		 * @return <code>true</code> if all workers are done and <code>false</code> if the timeout has elapsed.
+		 */
+		private boolean await(final long timeoutNanos) throws InterruptedException {
+			final long deadline = System.nanoTime() + timeoutNanos;
+			ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+
+				@Override
+				public boolean block() throws InterruptedException {
+					if(timeoutNanos < 0) {
+						done.await();
 					} else {
-						//no free slot
-						emptySlotFound = false;
+						done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
 					}
+					return true;
 				}
 
-				if(!emptySlotFound && !working.isEmpty()) {
-					try {
-						Thread.sleep(100);
-					} catch (InterruptedException e) {
-					}
+				@Override
+				public boolean isReleasable() {
+					return done.getCount() == 0 || (timeoutNanos >= 0 && System.nanoTime() - deadline >= 0);
 				}
-			}
+			});
+			return done.getCount() == 0;
 		}
 
-		if(wait) {
-			while(!containsOnlyNull(slots)) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
+		@Override
+		public void run() {
+			Thread current = Thread.currentThread();
+			try {
+				while(!stopped) {
+					S element;
+					int index;
+					synchronized(this) {
+						if(stopped || !source.hasNext()) {
+							break;
+						}
+						element = source.next();
+						index = results.size();
+						results.add(null);
+						working.add(current);
+					}
+
+					T result;
+					try {
+						result = each.run(element);
+					} finally {
+						synchronized(this) {
+							working.remove(current);
+						}
+						// the pool thread must not stay interrupted by a cancel
+						Thread.interrupted();
+					}
+
+					synchronized(this) {
+						results.set(index, result);
+					}
 				}
+			} catch(Throwable t) {
+				if(failure == null) {
+					failure = t;
+				}
+				stop();
+			} finally {
+				done.countDown();
 			}
 		}
-		return results;
-	}
-	
-	public static int availableProcessors() {
-		return Runtime.getRuntime().availableProcessors();
-	}
 
-	private static boolean containsOnlyNull(Object[] values) {
-		for (int i = 0; i < values.length; i++) {
-			if(values[i] != null) {
-				return false;
+		/**
+		 * Prevents that further elements are processed and interrupts the elements which are processed.
+		 */
+		private synchronized void stop() {
+			stopped = true;
+			for(Thread thread : working) {
+				thread.interrupt();
 			}
 		}
-		return true;
-	}
-
-	public static abstract class RunnableImpl<S, T> {
-		public abstract T run(S entry);
 	}
 
 }
@@ -3,69 +3,164 @@ package org.rr.commons.utils.compression.zip;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.ZipException;
 
 import org.apache.commons.io.IOUtils;
 import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.utils.compression.CompressedDataEntry;
 
+/**
+ * Stream for a zip entry which is not read before the first access. Entries of local zips are streamed from
+ * a shared {@link RandomAccessZip}, so reading many entries of the same zip did not open and scan the zip each time.
+ * The shared zip is released when the entry is read completely or the stream is closed. Entries of all
+ * other zips are extracted completely with the {@link ZipUtils}.
+ */
 public class LazyZipEntryStream extends InputStream {
 
 	private IResourceHandler zipResource;
 	private String entry;
 	private InputStream data;
-	
+
+	/** The shared zip while the entry is streamed from it. */
+	private RandomAccessZip zip;
+
+	/** The whole entry if the zip could not be read with random access. */
+	private byte[] buffer;
+
+	/** The position in the entry, used to continue at the marked position after {@link #reset()}. */
+	private long position;
+	private long markPosition;
+
+	/** Tells that the end of the entry is reached and the zip is already released. */
+	private boolean finished;
+
 	public LazyZipEntryStream(IResourceHandler zipResource, String entry) {
 		this.zipResource = zipResource;
 		this.entry = entry;
 	}
-	
+
 	private void load() throws IOException {
-		if(data == null) {
+		if(data == null && !finished) {
+			data = openEntry();
+			long skip = position;
+			while(skip > 0) {
+				long skipped = data.skip(skip);
+				if(skipped <= 0) {
+					break;
+				}
+				skip -= skipped;
+			}
+		}
+	}
+
+	private InputStream openEntry() throws IOException {
+		if(buffer == null) {
+			try {
+				RandomAccessZip sharedZip = RandomAccessZip.acquire(zipResource);
+				if(sharedZip != null) {
+					InputStream in = sharedZip.getInputStream(entry);
+					if(in != null) {
+						zip = sharedZip;
+						return in;
+					}
+					sharedZip.close();
+				}
+			} catch (IllegalArgumentException | ZipException e) {
+				// entry names which are not UTF-8 encoded or a damaged central directory, read the zip as stream.
+			}
+
 			InputStream contentInputStream = null;
 			try {
 				contentInputStream = zipResource.getContentInputStream();
 				CompressedDataEntry extract = ZipUtils.extract(contentInputStream, entry);
-				data = new ByteArrayInputStream(extract.getBytes());
-				data.mark(Integer.MAX_VALUE);
+				buffer = extract != null ? IOUtils.toByteArray(extract.getData()) : new byte[0];
 			} finally {
 				if(contentInputStream != null) {
 					IOUtils.closeQuietly(contentInputStream);
 				}
 			}
-		}		
+		}
+		return new ByteArrayInputStream(buffer);
 	}
-	
+
+	/**
+	 * Closes the entry data and releases the shared zip.
+	 */
+	private void closeData() throws IOException {
+		try {
+			if(data != null) {
+				data.close();
+				data = null;
+			}
+		} finally {
+			if(zip != null) {
+				zip.close();
+				zip = null;
+			}
+		}
+	}
+
+	private int count(int read) throws IOException {
+		if(read == -1) {
+			closeData();
+			finished = true;
+		} else {
+			position += read;
+		}
+		return read;
+	}
+
 	@Override
 	public int read() throws IOException {
 		load();
-		return data.read();
+		if(finished) {
+			return -1;
+		}
+		int read = data.read();
+		if(read == -1) {
+			return count(-1);
+		}
+		count(1);
+		return read;
 	}
 
 	@Override
 	public int read(byte[] b, int off, int len) throws IOException {
 		load();
-		return data.read(b, off, len);
+		if(finished) {
+			return -1;
+		}
+		return count(data.read(b, off, len));
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		load();
+		if(finished) {
+			return 0;
+		}
+		long skipped = data.skip(n);
+		position += skipped;
+		return skipped;
 	}
 
 	@Override
 	public int available() throws IOException {
 		load();
-		return data.available();
+		return finished ? 0 : data.available();
 	}
 
 	@Override
 	public void close() throws IOException {
-		if(data != null) {
-			data.close();
-			data = null;
-		}
+		closeData();
+		finished = false;
+		position = 0;
+		markPosition = 0;
 	}
 
 	@Override
 	public synchronized void mark(int readlimit) {
-		if(data != null) {
-			data.mark(readlimit);
-		}
+		markPosition = position;
 	}
 
 	@Override
@@ -73,11 +168,15 @@ public class LazyZipEntryStream extends InputStream {
 		return true;
 	}
 
+	/**
+	 * Continues at the marked position or at the start of the entry if no position is marked.
+	 * The entry is opened again for this.
+	 */
 	@Override
 	public synchronized void reset() throws IOException {
-		if(data != null) {
-			data.reset();
-		}
+		closeData();
+		finished = false;
+		position = markPosition;
 	}
-	
+
 }
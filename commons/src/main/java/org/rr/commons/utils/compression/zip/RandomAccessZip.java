@@ -0,0 +1,216 @@
+package org.rr.commons.utils.compression.zip;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.IOUtils;
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.ResourceHandlerUtils;
+import org.rr.commons.utils.compression.CompressedDataEntry;
+
+/**
+ * Reads single entries of a local zip file. Unlike the {@link ZipUtils} which always stream through the whole
+ * zip, the entries are found with the central directory at the end of the zip and read by seeking directly to
+ * their data. Reading a single entry costs only the size of the central directory and the entry.
+ * <br><br>
+ * The entry names are decoded as UTF-8. Zips with names in another encoding throw an {@link IllegalArgumentException}
+ * while their entries are accessed and could only be read with the {@link ZipUtils}.
+ */
+public class RandomAccessZip implements Closeable {
+
+	/** The maximum number of zips kept open by {@link #acquire(IResourceHandler)}. */
+	private static final int MAX_OPEN_ZIPS = 8;
+
+	/** The zips shared with {@link #acquire(IResourceHandler)}, the key contains the path and the modification time of the zip. */
+	private static final LinkedHashMap<String, RandomAccessZip> openZips = new LinkedHashMap<>(MAX_OPEN_ZIPS * 2, 0.75f, true);
+
+	private final ZipFile zipFile;
+
+	/** The path of the zip if it's shared or <code>null</code> if the zip is only used by it's opener. */
+	private final String path;
+
+	/** The number of users of a shared zip. Guarded by {@link #openZips}. */
+	private int references;
+
+	/** Tells if a shared zip is no longer in the cache, so it's closed when the last user has released it. Guarded by {@link #openZips}. */
+	private boolean evicted;
+
+	private RandomAccessZip(ZipFile zipFile, String path) {
+		this.zipFile = zipFile;
+		this.path = path;
+	}
+
+	/**
+	 * Opens the given zip resource for random access.
+	 * @param zipResource The zip to be opened.
+	 * @return The opened zip or <code>null</code> if the resource is not a local file and could only be read as stream.
+	 * @throws IOException if the zip could not be opened, for example because of an invalid central directory.
+	 */
+	public static RandomAccessZip open(IResourceHandler zipResource) throws IOException {
+		if(!ResourceHandlerUtils.isLocalFileResource(zipResource)) {
+			return null;
+		}
+		return new RandomAccessZip(new ZipFile(zipResource.toFile(), StandardCharsets.UTF_8), null);
+	}
+
+	/**
+	 * Get a shared instance of the given zip resource. The last recently used zips are kept open, so reading
+	 * many entries of the same zip one by one did not open the zip again and again. The returned instance must
+	 * be released with {@link #close()}. The zip is closed after it's released and no longer in the cache.
+	 * @param zipResource The zip to be opened.
+	 * @return The opened zip or <code>null</code> if the resource is not a local file and could only be read as stream.
+	 * @throws IOException if the zip could not be opened, for example because of an invalid central directory.
+	 */
+	public static RandomAccessZip acquire(IResourceHandler zipResource) throws IOException {
+		if(!ResourceHandlerUtils.isLocalFileResource(zipResource)) {
+			return null;
+		}
+		File file = zipResource.toFile();
+		String key = file.getPath() + '\n' + file.lastModified() + '\n' + file.length();
+		synchronized(openZips) {
+			RandomAccessZip zip = openZips.get(key);
+			if(zip == null) {
+				zip = new RandomAccessZip(new ZipFile(file, StandardCharsets.UTF_8), file.getPath());
+				openZips.put(key, zip);
+				for(Iterator<RandomAccessZip> iterator = openZips.values().iterator(); openZips.size() > MAX_OPEN_ZIPS && iterator.hasNext();) {
+					iterator.next().evict();
+					iterator.remove();
+				}
+			}
+			zip.references++;
+			return zip;
+		}
+	}
+
+	/**
+	 * Removes all shared instances of the given zip resource from the cache. Must be invoked before the zip file
+	 * is replaced or deleted because some platforms did not allow to change open files.
+	 */
+	public static void closeShared(IResourceHandler zipResource) {
+		if(ResourceHandlerUtils.isLocalFileResource(zipResource)) {
+			closeShared(zipResource.toFile());
+		}
+	}
+
+	/**
+	 * Removes all shared instances of the given zip file, or of the zips below the given folder, from the cache.
+	 * Invoked by the local file resources before they are deleted or moved, so no cached zip keeps the file open.
+	 */
+	public static void closeShared(File file) {
+		String path = file.getPath();
+		String folder = path.endsWith(File.separator) ? path : path + File.separator;
+		synchronized(openZips) {
+			for(Iterator<RandomAccessZip> iterator = openZips.values().iterator(); iterator.hasNext();) {
+				RandomAccessZip zip = iterator.next();
+				if(zip.path.equals(path) || zip.path.startsWith(folder)) {
+					zip.evict();
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks this shared zip as removed from the cache and closes it if it's not used.
+	 */
+	private void evict() {
+		evicted = true;
+		if(references == 0) {
+			closeQuietly();
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			zipFile.close();
+		} catch (IOException e) {
+			LoggerFactory.log(Level.WARNING, this, "Could not close " + zipFile.getName(), e);
+		}
+	}
+
+	/**
+	 * @return The names of all file entries in the order of the central directory.
+	 */
+	public List<String> getEntryNames() {
+		List<String> result = new ArrayList<>(zipFile.size());
+		Enumeration<? extends ZipEntry> entries = zipFile.entries();
+		while(entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			if(!entry.isDirectory()) {
+				result.add(entry.getName());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return <code>true</code> if the zip contains the given entry.
+	 */
+	public boolean contains(String entry) {
+		return zipFile.getEntry(entry) != null;
+	}
+
+	/**
+	 * Extracts the given entry.
+	 * @param entry The name of the entry, for example 'META-INF/container.xml'.
+	 * @return The desired entry or <code>null</code> if the entry is not in the zip.
+	 */
+	public CompressedDataEntry extract(String entry) throws IOException {
+		ZipEntry zipEntry = zipFile.getEntry(entry);
+		if(zipEntry == null || zipEntry.isDirectory()) {
+			return null;
+		}
+		try (InputStream in = zipFile.getInputStream(zipEntry)) {
+			return new CompressedDataEntry(zipEntry.getName(), getRawName(zipEntry.getName()), IOUtils.toByteArray(in));
+		}
+	}
+
+	/**
+	 * Opens a stream for the given entry which reads the entry without buffering it completely.
+	 * The stream must be closed before this zip is closed.
+	 * @param entry The name of the entry, for example 'META-INF/container.xml'.
+	 * @return The stream or <code>null</code> if the entry is not in the zip.
+	 */
+	public InputStream getInputStream(String entry) throws IOException {
+		ZipEntry zipEntry = zipFile.getEntry(entry);
+		if(zipEntry == null || zipEntry.isDirectory()) {
+			return null;
+		}
+		return zipFile.getInputStream(zipEntry);
+	}
+
+	/**
+	 * @return The UTF-8 bytes of the given entry name like they're stored in the zip.
+	 */
+	public static byte[] getRawName(String entry) {
+		return entry.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Closes the zip or releases it if it's a shared instance from {@link #acquire(IResourceHandler)}.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(path == null) {
+			zipFile.close();
+		} else {
+			synchronized(openZips) {
+				if(--references == 0 && evicted) {
+					closeQuietly();
+				}
+			}
+		}
+	}
+}
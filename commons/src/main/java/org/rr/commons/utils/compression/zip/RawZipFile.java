@@ -0,0 +1,395 @@
+package org.rr.commons.utils.compression.zip;
+
+import static org.rr.commons.utils.compression.zip.ZipConstants64.ZIP64_MAGICCOUNT;
+import static org.rr.commons.utils.compression.zip.ZipConstants64.ZIP64_MAGICVAL;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the entries of a local zip file with their compressed data. Together with
+ * {@link ZipOutputStream#writeRawEntry(ZipEntry, InputStream)} the entries could be copied into another
+ * zip without inflating and deflating them again, so changing a single entry of a zip did not
+ * cost the compression of all other entries.
+ * <br><br>
+ * The entries are read from the central directory at the end of the zip. Zip64 archives are not
+ * supported and throw a {@link ZipException} while opening.
+ */
+public class RawZipFile implements Closeable {
+
+	/**
+	 * An entry of the central directory with the offset of it's local header.
+	 */
+	private static class RawEntry {
+
+		private final ZipEntry entry;
+
+		private final long offset;
+
+		private RawEntry(ZipEntry entry, long offset) {
+			this.entry = entry;
+			this.offset = offset;
+		}
+	}
+
+	/** The maximum size of the end of central directory record including the zip comment. */
+	private static final int MAX_END_SIZE = ZipConstants.ENDHDR + 0xffff;
+
+	private final File zipFile;
+
+	private final RandomAccessFile file;
+
+	private final FileChannel channel;
+
+	private final Map<String, RawEntry> entries = new LinkedHashMap<>();
+
+	/** The offset of the central directory which is also the end of the last entry. */
+	private long cenOffset;
+
+	/** The copy of the zip with the appended entries or <code>null</code> if nothing is appended. */
+	private File appendFile;
+
+	/**
+	 * Opens the given zip and reads it's central directory. The entry names are decoded as UTF-8.
+	 * @throws ZipException if the zip has no valid central directory or is a zip64 archive.
+	 */
+	public RawZipFile(File zipFile) throws IOException {
+		this(zipFile, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Opens the given zip and reads it's central directory.
+	 * @param charset The charset for the entry names.
+	 * @throws ZipException if the zip has no valid central directory or is a zip64 archive.
+	 */
+	public RawZipFile(File zipFile, Charset charset) throws IOException {
+		this.zipFile = zipFile;
+		file = new RandomAccessFile(zipFile, "r");
+		channel = file.getChannel();
+		try {
+			readCentralDirectory(charset);
+		} catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	private void readCentralDirectory(Charset charset) throws IOException {
+		long length = channel.size();
+		int endSize = (int) Math.min(length, MAX_END_SIZE);
+		ByteBuffer end = read(length - endSize, endSize);
+		int endOffset = -1;
+		for(int i = endSize - ZipConstants.ENDHDR; i >= 0; i--) {
+			if(end.getInt(i) == (int) ZipConstants.ENDSIG) {
+				endOffset = i;
+				break;
+			}
+		}
+		if(endOffset == -1) {
+			throw new ZipException("No end of central directory found");
+		}
+
+		int total = end.getShort(endOffset + ZipConstants.ENDTOT) & 0xffff;
+		long cenSize = end.getInt(endOffset + ZipConstants.ENDSIZ) & 0xffffffffL;
+		cenOffset = end.getInt(endOffset + ZipConstants.ENDOFF) & 0xffffffffL;
+		if(total == ZIP64_MAGICCOUNT || cenSize == ZIP64_MAGICVAL || cenOffset == ZIP64_MAGICVAL) {
+			throw new ZipException("Zip64 archives are not supported");
+		}
+		if(cenOffset + cenSize > length) {
+			throw new ZipException("Invalid central directory");
+		}
+
+		ByteBuffer cen = read(cenOffset, (int) cenSize);
+		int position = 0;
+		for(int i = 0; i < total; i++) {
+			if(position + ZipConstants.CENHDR > cenSize || cen.getInt(position) != (int) ZipConstants.CENSIG) {
+				throw new ZipException("Invalid central directory header");
+			}
+			int nameLength = cen.getShort(position + ZipConstants.CENNAM) & 0xffff;
+			int extraLength = cen.getShort(position + ZipConstants.CENEXT) & 0xffff;
+			int commentLength = cen.getShort(position + ZipConstants.CENCOM) & 0xffff;
+			byte[] rawName = new byte[nameLength];
+			cen.position(position + ZipConstants.CENHDR);
+			cen.get(rawName);
+
+			String name = new String(rawName, charset);
+			if(!Arrays.equals(rawName, name.getBytes(charset))) {
+				// the name could not be written again without changing it
+				throw new ZipException("Entry name is not " + charset.name() + " encoded");
+			}
+			ZipEntry entry = new ZipEntry(name, rawName);
+			entry.flag = cen.getShort(position + ZipConstants.CENFLG) & 0xffff;
+			entry.method = cen.getShort(position + ZipConstants.CENHOW) & 0xffff;
+			entry.time = cen.getInt(position + ZipConstants.CENTIM) & 0xffffffffL;
+			entry.crc = cen.getInt(position + ZipConstants.CENCRC) & 0xffffffffL;
+			entry.csize = cen.getInt(position + ZipConstants.CENSIZ) & 0xffffffffL;
+			entry.size = cen.getInt(position + ZipConstants.CENLEN) & 0xffffffffL;
+			long offset = cen.getInt(position + ZipConstants.CENOFF) & 0xffffffffL;
+			if(entry.csize == ZIP64_MAGICVAL || entry.size == ZIP64_MAGICVAL || offset == ZIP64_MAGICVAL) {
+				throw new ZipException("Zip64 entries are not supported");
+			}
+			if(extraLength > 0) {
+				byte[] extra = new byte[extraLength];
+				cen.get(extra);
+				entry.setExtra(extra);
+			}
+			entries.put(entry.getName(), new RawEntry(entry, offset));
+			position += ZipConstants.CENHDR + nameLength + extraLength + commentLength;
+		}
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position()) == -1) {
+				throw new ZipException("Unexpected end of zip");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * @return All entries in the order of the central directory. The entries contain the sizes,
+	 * crc-32 and compression method needed to write them raw into another zip.
+	 */
+	public List<ZipEntry> getEntries() {
+		List<ZipEntry> result = new ArrayList<>(entries.size());
+		for(RawEntry rawEntry : entries.values()) {
+			result.add(rawEntry.entry);
+		}
+		return result;
+	}
+
+	/**
+	 * @return The entry with the given name or <code>null</code> if there is no such entry.
+	 */
+	public ZipEntry getEntry(String name) {
+		RawEntry rawEntry = entries.get(name);
+		return rawEntry != null ? rawEntry.entry : null;
+	}
+
+	/**
+	 * Opens a stream for the compressed data of the given entry like it's stored in the zip.
+	 * @throws ZipException if there is no such entry or it's local header is invalid.
+	 */
+	public InputStream getRawInputStream(String name) throws IOException {
+		RawEntry rawEntry = entries.get(name);
+		if(rawEntry == null) {
+			throw new ZipException("No entry " + name);
+		}
+		ByteBuffer header = read(rawEntry.offset, ZipConstants.LOCHDR);
+		if(header.getInt(0) != (int) ZipConstants.LOCSIG) {
+			throw new ZipException("Invalid local header for " + name);
+		}
+		long dataOffset = rawEntry.offset + ZipConstants.LOCHDR + (header.getShort(ZipConstants.LOCNAM) & 0xffff)
+				+ (header.getShort(ZipConstants.LOCEXT) & 0xffff);
+		return new ChannelInputStream(channel, dataOffset, rawEntry.entry.csize);
+	}
+
+	/**
+	 * Opens a stream for the uncompressed data of the given entry.
+	 * @throws ZipException if there is no such entry or the compression method is not supported.
+	 */
+	public InputStream getInputStream(String name) throws IOException {
+		ZipEntry entry = getEntry(name);
+		InputStream in = getRawInputStream(name);
+		switch(entry.method) {
+			case ZipEntry.STORED:
+				return in;
+			case ZipEntry.DEFLATED:
+				return new InflaterInputStream(in, new Inflater(true), 8192) {
+
+					private boolean closed;
+
+					private boolean eof;
+
+					@Override
+					protected void fill() throws IOException {
+						if(eof) {
+							throw new EOFException("Unexpected end of ZLIB input stream");
+						}
+						len = in.read(buf, 0, buf.length);
+						if(len == -1) {
+							// the inflater without zlib header may need one more byte after the compressed data
+							buf[0] = 0;
+							len = 1;
+							eof = true;
+						}
+						inf.setInput(buf, 0, len);
+					}
+
+					@Override
+					public void close() throws IOException {
+						if(!closed) {
+							closed = true;
+							inf.end();
+							super.close();
+						}
+					}
+				};
+			default:
+				in.close();
+				throw new ZipException("Unsupported compression method " + entry.method + " for " + name);
+		}
+	}
+
+	/**
+	 * Copies the given entry with it's compressed data into the given zip.
+	 * @throws ZipException if there is no such entry.
+	 */
+	public void copyRawEntry(String name, ZipOutputStream out) throws IOException {
+		ZipEntry entry = getEntry(name);
+		if(entry == null) {
+			throw new ZipException("No entry " + name);
+		}
+		try (InputStream in = getRawInputStream(name)) {
+			out.writeRawEntry(new ZipEntry(entry), in);
+		}
+	}
+
+	/**
+	 * Creates a stream which writes a copy of this zip with new entries appended. The existing entries are copied
+	 * as one block without looking at them, the zip itself is not changed until {@link #commitAppend()} replaces
+	 * it with the copy after the stream is closed. If writing the new entries fails, {@link #discardAppend()}
+	 * deletes the copy.
+	 * @throws ZipException if the zip contains entries which could not be written again.
+	 */
+	public ZipOutputStream append() throws IOException {
+		for(RawEntry rawEntry : entries.values()) {
+			if(rawEntry.entry.method != ZipEntry.STORED && rawEntry.entry.method != ZipEntry.DEFLATED) {
+				throw new ZipException("Unsupported compression method " + rawEntry.entry.method + " for " + rawEntry.entry.getName());
+			}
+		}
+		appendFile = createAppendFile();
+		RandomAccessFile target = new RandomAccessFile(appendFile, "rw");
+		try {
+			FileChannel targetChannel = target.getChannel();
+			for(long position = 0; position < cenOffset;) {
+				position += channel.transferTo(position, cenOffset - position, targetChannel);
+			}
+			ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Channels.newOutputStream(targetChannel)));
+			for(RawEntry rawEntry : entries.values()) {
+				out.addWrittenEntry(new ZipEntry(rawEntry.entry), rawEntry.offset);
+			}
+			out.setOffset(cenOffset);
+			return out;
+		} catch (IOException | RuntimeException e) {
+			target.close();
+			discardAppend();
+			throw e;
+		}
+	}
+
+	private File createAppendFile() throws IOException {
+		File directory = zipFile.getAbsoluteFile().getParentFile();
+		for(int i = 0;; i++) {
+			File candidate = new File(directory, zipFile.getName() + "." + i + ".tmp");
+			if(candidate.createNewFile()) {
+				return candidate;
+			}
+		}
+	}
+
+	/**
+	 * Replaces the zip with the copy written by the stream from {@link #append()} and closes this zip.
+	 * The stream must be closed before, so the central directory of the copy is complete.
+	 */
+	public void commitAppend() throws IOException {
+		if(appendFile == null) {
+			throw new IOException("No entries appended to " + zipFile);
+		}
+		file.close();
+		Files.move(appendFile.toPath(), zipFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		appendFile = null;
+	}
+
+	/**
+	 * Deletes the copy written by the stream from {@link #append()}. The zip is left as it was.
+	 */
+	public void discardAppend() {
+		if(appendFile != null) {
+			appendFile.delete();
+			appendFile = null;
+		}
+	}
+
+	/**
+	 * Closes the zip. A copy from {@link #append()} which is not committed is deleted.
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+		discardAppend();
+	}
+
+	/**
+	 * Reads a range of the zip file with positional reads, so multiple streams could be used at the same time.
+	 */
+	private static class ChannelInputStream extends InputStream {
+
+		private final FileChannel channel;
+
+		private long position;
+
+		private long remaining;
+
+		private ChannelInputStream(FileChannel channel, long position, long length) {
+			this.channel = channel;
+			this.position = position;
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if(remaining <= 0) {
+				return -1;
+			}
+			int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+			if(read > 0) {
+				position += read;
+				remaining -= read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) {
+			long skipped = Math.max(0, Math.min(n, remaining));
+			position += skipped;
+			remaining -= skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(remaining, Integer.MAX_VALUE);
+		}
+	}
+}
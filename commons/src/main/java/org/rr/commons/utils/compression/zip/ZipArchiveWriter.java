@@ -0,0 +1,148 @@
+package org.rr.commons.utils.compression.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Level;
+import java.util.zip.ZipException;
+
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.ResourceHandlerFactory;
+import org.rr.commons.mufs.ResourceHandlerUtils;
+import org.rr.commons.utils.compression.CompressedDataEntry;
+
+/**
+ * Writes many entries to a zip with a single open {@link ZipOutputStream}. Unlike {@link ZipUtils#add(IResourceHandler, String, InputStream)}
+ * which opens and finishes the zip for each entry, the central directory is written only once when the writer is closed.
+ * <br><br>
+ * New zips are created. Existing zips are copied raw to a temporary zip which replaces the zip on {@link #close()},
+ * for local zips the entries are copied as one block with {@link RawZipFile#append()}. Entries which
+ * are already in the zip could not be replaced with this writer and throw a {@link ZipException}.
+ * <br><br>
+ * The writer is not thread safe. The entries must be added from one thread in the order they should have in the zip.
+ */
+public class ZipArchiveWriter implements Closeable {
+
+	private final IResourceHandler zipResource;
+
+	private final ZipOutputStream out;
+
+	/** The zip which is appended or <code>null</code>. */
+	private final RawZipFile appendZip;
+
+	/** The zip which replaces the {@link #zipResource} on close or <code>null</code>. */
+	private final IResourceHandler temporaryResource;
+
+	/** Tells if the zip is created by this writer. */
+	private final boolean created;
+
+	private boolean closed;
+
+	ZipArchiveWriter(IResourceHandler zipResource) throws IOException {
+		this.zipResource = zipResource;
+		RandomAccessZip.closeShared(zipResource);
+		created = !zipResource.exists() || zipResource.size() == 0;
+		if(created) {
+			out = new ZipOutputStream(zipResource.getContentOutputStream(false));
+			appendZip = null;
+			temporaryResource = null;
+		} else if(ResourceHandlerUtils.isLocalFileResource(zipResource)) {
+			appendZip = new RawZipFile(zipResource.toFile());
+			try {
+				out = appendZip.append();
+			} catch(IOException e) {
+				appendZip.close();
+				throw e;
+			}
+			temporaryResource = null;
+		} else {
+			appendZip = null;
+			temporaryResource = ResourceHandlerFactory.getUniqueResourceHandler(zipResource, "tmp");
+			out = new ZipOutputStream(temporaryResource.getContentOutputStream(false));
+			try (ZipInputStream in = new ZipInputStream(zipResource.getContentInputStream())) {
+				while(in.getNextEntry() != null) {
+					in.copyRawEntry(out);
+				}
+			} catch(IOException e) {
+				abort();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Adds a new entry to the zip. Images and other already compressed files are stored without compression.
+	 * @param name The name of the entry, for example '001_page.jpg'.
+	 * @param data The data of the entry. The stream is read completely but not closed.
+	 * @throws ZipException if the zip already contains an entry with the given name.
+	 */
+	public void add(String name, InputStream data) throws IOException {
+		add(new CompressedDataEntry(name, RandomAccessZip.getRawName(name), data));
+	}
+
+	/**
+	 * Adds a new entry to the zip.
+	 * @see #add(String, InputStream)
+	 */
+	public void add(String name, byte[] data) throws IOException {
+		add(new CompressedDataEntry(name, RandomAccessZip.getRawName(name), data));
+	}
+
+	private void add(CompressedDataEntry entry) throws IOException {
+		if(closed) {
+			throw new IOException("Zip writer for " + zipResource + " is already closed");
+		}
+		ZipUtils.writeEntry(out, entry);
+	}
+
+	/**
+	 * Writes the central directory and closes the zip. An existing zip which is not appended is replaced
+	 * with the new zip.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		try {
+			out.close();
+			if(appendZip != null) {
+				appendZip.commitAppend();
+			}
+		} catch(IOException e) {
+			abort();
+			throw e;
+		}
+		if(temporaryResource != null) {
+			temporaryResource.moveTo(zipResource, true);
+		}
+	}
+
+	/**
+	 * Discards the entries added with this writer. An existing zip is left unchanged and a zip created by
+	 * this writer is deleted.
+	 */
+	public void abort() {
+		closed = true;
+		try {
+			out.close();
+		} catch(IOException e) {
+			LoggerFactory.log(Level.FINE, this, "could not close zip " + zipResource, e);
+		}
+		try {
+			if(appendZip != null) {
+				appendZip.close();
+			}
+			if(temporaryResource != null && temporaryResource.exists()) {
+				temporaryResource.delete();
+			}
+			if(created && zipResource.exists()) {
+				zipResource.delete();
+			}
+		} catch(IOException e) {
+			LoggerFactory.log(Level.WARNING, this, "could not restore zip " + zipResource, e);
+		}
+	}
+}
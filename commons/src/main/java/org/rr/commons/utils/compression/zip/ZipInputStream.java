@@ -32,6 +32,8 @@ import static org.rr.commons.utils.compression.zip.ZipConstants64.ZIP64_EXTLEN;
 import static org.rr.commons.utils.compression.zip.ZipConstants64.ZIP64_EXTSIZ;
 import static org.rr.commons.utils.compression.zip.ZipConstants64.ZIP64_MAGICVAL;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -66,6 +68,9 @@ class ZipInputStream extends InflaterInputStream implements ZipConstants {
 
     private ZipCoder zc;
 
+    // the compressed data of the current entry while it's raw copied
+    private ByteArrayOutputStream rawData;
+
     /**
      * Check to make sure that this stream has not been closed
      */
@@ -148,6 +153,69 @@ class ZipInputStream extends InflaterInputStream implements ZipConstants {
         entryEOF = true;
     }
 
+    /**
+     * Copies the current ZIP entry with it's compressed data to the given
+     * ZIP output stream, without inflating and deflating it again. Must be
+     * invoked before any data of the current entry is read. Entries which
+     * sizes are only stored in the data descriptor behind their data are
+     * inflated to find the end of the data.
+     * @param out the ZIP output stream where the entry is written to
+     * @exception ZipException if a ZIP file error has occurred
+     * @exception IOException if an I/O error has occurred
+     */
+    public void copyRawEntry(ZipOutputStream out) throws IOException {
+        ensureOpen();
+        final ZipEntry e = entry;
+        if (e == null) {
+            throw new ZipException("no current ZIP entry");
+        }
+        if ((flag & 8) == 0 && e.csize != -1) {
+            // the compressed size is known, so the data is copied directly
+            out.writeRawEntry(new ZipEntry(e), new InputStream() {
+                private long left = e.csize;
+
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+                }
+
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (left <= 0) {
+                        return -1;
+                    }
+                    len = in.read(b, off, (int) Math.min(len, left));
+                    if (len > 0) {
+                        left -= len;
+                    }
+                    return len;
+                }
+            });
+            entryEOF = true;
+            entry = null;
+        } else {
+            // inflate the entry and keep the compressed data read by the inflater
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            rawData = data;
+            try {
+                while (read(tmpbuf, 0, tmpbuf.length) != -1) ;
+            } finally {
+                rawData = null;
+            }
+            out.writeRawEntry(new ZipEntry(e), new ByteArrayInputStream(data.toByteArray(), 0, (int) e.csize));
+        }
+    }
+
+    /**
+     * Fills the input buffer of the inflater and keeps the compressed data
+     * if it's needed by {@link #copyRawEntry(ZipOutputStream)}.
+     */
+    protected void fill() throws IOException {
+        super.fill();
+        if (rawData != null) {
+            rawData.write(buf, 0, len);
+        }
+    }
+
     /**
      * Returns 0 after EOF has reached for the current entry data,
      * otherwise always return 1.
@@ -33,6 +33,7 @@ import static org.rr.commons.utils.compression.zip.ZipConstants64.ZIP64_MAGICCOU
 import static org.rr.commons.utils.compression.zip.ZipConstants64.ZIP64_MAGICVAL;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.HashSet;
@@ -292,6 +293,70 @@ class ZipOutputStream extends DeflaterOutputStream implements ZipConstants {
         }
     }
 
+    /**
+     * Writes a complete ZIP file entry with data which is already compressed,
+     * for example the data of an entry read with {@link RawZipFile}. The data
+     * is copied as it is, without inflating and deflating it again. Size,
+     * compressed size, crc-32 and compression method of the entry must be set.
+     * Closes the current entry if still active.
+     * @param e the ZIP entry to be written
+     * @param compressedData the compressed data of the entry
+     * @exception ZipException if a ZIP format error has occurred
+     * @exception IOException if an I/O error has occurred
+     */
+    public void writeRawEntry(ZipEntry e, InputStream compressedData) throws IOException {
+        ensureOpen();
+        if (current != null) {
+            closeEntry();       // close previous entry
+        }
+        if (e.size == -1 || e.csize == -1 || e.crc == -1 || e.method == -1) {
+            throw new ZipException(
+                "raw entry missing size, compressed size, crc-32 or method");
+        }
+        version(e);             // fails for unsupported compression methods
+        if (e.time == -1) {
+            e.setTime(System.currentTimeMillis());
+        }
+        // sizes and crc-32 are known, so they're stored in the LOC header
+        // and the data descriptor of the source is not needed
+        e.flag &= ~8;
+        if (! names.add(e.name)) {
+            throw new ZipException("duplicate entry: " + e.name);
+        }
+        XEntry xentry = new XEntry(e, written);
+        xentries.add(xentry);
+        writeLOC(xentry);
+        byte[] buffer = new byte[8192];
+        long remaining = e.csize;
+        while (remaining > 0) {
+            int len = compressedData.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (len == -1) {
+                throw new ZipException("unexpected end of raw entry data: " + e.name);
+            }
+            out.write(buffer, 0, len);
+            written += len;
+            remaining -= len;
+        }
+    }
+
+    /*
+     * Registers an entry which is already written to the underlying stream,
+     * so entries could be appended to a zip without copying the existing ones.
+     */
+    void addWrittenEntry(ZipEntry e, long offset) throws ZipException {
+        if (! names.add(e.name)) {
+            throw new ZipException("duplicate entry: " + e.name);
+        }
+        xentries.add(new XEntry(e, offset));
+    }
+
+    /*
+     * Sets the position in the zip where the next entry is written.
+     */
+    void setOffset(long offset) {
+        written = offset;
+    }
+
     /**
      * Writes an array of bytes to the current ZIP entry data. This method
      * will block until all the bytes are written.
@@ -7,14 +7,22 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.zip.ZipException;
 
 import org.apache.commons.io.IOUtils;
 import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.ResourceHandlerFactory;
 import org.rr.commons.mufs.ResourceHandlerInputStream;
+import org.rr.commons.mufs.ResourceHandlerUtils;
 import org.rr.commons.utils.CommonUtils;
 import org.rr.commons.utils.compression.CompressedDataEntry;
+import org.rr.commons.utils.compression.CompressionUtils;
 import org.rr.commons.utils.compression.FileEntryFilter;
 
 public class ZipUtils {
@@ -184,7 +192,8 @@ public class ZipUtils {
 	}
 	
 	/**
-	 * Adds or replaces the given entry to existing zip data. Note that the whole zip is copied.
+	 * Adds or replaces the given entry to existing zip data. Note that the whole zip is copied,
+	 * the entries which are not replaced are copied with their compressed data.
 	 * The given InputStream and OutputStream is flushed and closed.
 	 * 
 	 * @param zipDateInputStream The zip data where the given entry should be added.
@@ -212,6 +221,11 @@ public class ZipUtils {
 	    	boolean replaceSuccess = false;
 		    ZipEntry zipEntryIn;
 		    while ((zipEntryIn = zipInputStream.getNextEntry()) != null) {
+		    	if(!zipEntryIn.getName().equals(entry.path) && (!storeOnly || zipEntryIn.getMethod() == ZipEntry.STORED)) {
+		    		// keep the entry as it is
+		    		zipInputStream.copyRawEntry(zipOutputStream);
+		    		continue;
+		    	}
 		    	ZipEntry out;
 		    	InputStream read;
 		    	if(zipEntryIn.getName().equals(entry.path)) {
@@ -268,4 +282,188 @@ public class ZipUtils {
 		return success;
 	}
 
+	/**
+	 * Adds or replaces the given entry in the zip resource.
+	 * @see #add(IResourceHandler, List)
+	 */
+	public static boolean add(IResourceHandler zipResource, String name, InputStream data) {
+		return add(zipResource, Collections.singletonList(new CompressedDataEntry(name, RandomAccessZip.getRawName(name), data)));
+	}
+
+	/**
+	 * Adds or replaces the given entries in the zip resource. The entries which are not replaced are copied
+	 * with their compressed data, without inflating and deflating them again. If no entry is replaced, the
+	 * existing entries of local zips are copied as one block and the new entries are appended. Images and other
+	 * already compressed files are stored without compression. The zip is created if it did not exist.
+	 * @return <code>true</code> if the entries are written and <code>false</code> if something went wrong.
+	 */
+	public static boolean add(IResourceHandler zipResource, List<CompressedDataEntry> entries) {
+		IResourceHandler temporaryResource = null;
+		try {
+			RandomAccessZip.closeShared(zipResource);
+			if(!zipResource.exists() || zipResource.size() == 0) {
+				try (ZipOutputStream out = new ZipOutputStream(zipResource.getContentOutputStream(false))) {
+					for(CompressedDataEntry entry : entries) {
+						writeEntry(out, entry);
+					}
+				}
+				return true;
+			}
+
+			RawZipFile zip = openRawZip(zipResource);
+			if(zip != null) {
+				try {
+					if(!containsAny(zip, entries)) {
+						appendEntries(zip, entries);
+						return true;
+					}
+					temporaryResource = ResourceHandlerFactory.getUniqueResourceHandler(zipResource, "tmp");
+					try (ZipOutputStream out = new ZipOutputStream(temporaryResource.getContentOutputStream(false))) {
+						copyEntries(zip, out, entries);
+					}
+				} finally {
+					zip.close();
+				}
+			} else {
+				temporaryResource = ResourceHandlerFactory.getUniqueResourceHandler(zipResource, "tmp");
+				try (ZipInputStream in = new ZipInputStream(zipResource.getContentInputStream());
+						ZipOutputStream out = new ZipOutputStream(temporaryResource.getContentOutputStream(false))) {
+					copyEntries(in, out, entries);
+				}
+			}
+			temporaryResource.moveTo(zipResource, true);
+			return true;
+		} catch (IOException e) {
+			LoggerFactory.logWarning(ZipUtils.class, "could not add data to zip " + zipResource, e);
+			return false;
+		} finally {
+			if(temporaryResource != null && temporaryResource.exists()) {
+				try {
+					temporaryResource.delete();
+				} catch (IOException e) {
+					LoggerFactory.log(Level.WARNING, ZipUtils.class, "could not delete " + temporaryResource, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens a writer which adds many entries to the zip resource with only one pass over the zip.
+	 * The zip is created if it did not exist. The writer must be closed to finish the zip.
+	 * @see ZipArchiveWriter
+	 */
+	public static ZipArchiveWriter openArchiveWriter(IResourceHandler zipResource) throws IOException {
+		return new ZipArchiveWriter(zipResource);
+	}
+
+	/**
+	 * Opens the given zip resource for copying it's entries raw.
+	 * @return The opened zip or <code>null</code> if the zip could only be read as stream.
+	 */
+	private static RawZipFile openRawZip(IResourceHandler zipResource) throws IOException {
+		if(ResourceHandlerUtils.isLocalFileResource(zipResource)) {
+			try {
+				return new RawZipFile(zipResource.toFile());
+			} catch (ZipException e) {
+				LoggerFactory.log(Level.FINE, ZipUtils.class, "could not read the central directory of " + zipResource, e);
+			}
+		}
+		return null;
+	}
+
+	private static boolean containsAny(RawZipFile zip, List<CompressedDataEntry> entries) {
+		for(CompressedDataEntry entry : entries) {
+			if(zip.getEntry(entry.path) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Appends the given entries to the zip. The zip is left unchanged if the entries could not be written.
+	 */
+	private static void appendEntries(RawZipFile zip, List<CompressedDataEntry> entries) throws IOException {
+		ZipOutputStream out = zip.append();
+		boolean success = false;
+		try {
+			for(CompressedDataEntry entry : entries) {
+				writeEntry(out, entry);
+			}
+			out.close();
+			zip.commitAppend();
+			success = true;
+		} finally {
+			if(!success) {
+				IOUtils.closeQuietly(out);
+				zip.discardAppend();
+			}
+		}
+	}
+
+	/**
+	 * Copies all entries of the zip raw to the output, entries with the name of one of the given entries are replaced.
+	 */
+	private static void copyEntries(RawZipFile zip, ZipOutputStream out, List<CompressedDataEntry> entries) throws IOException {
+		Map<String, CompressedDataEntry> newEntries = toMap(entries);
+		for(ZipEntry zipEntry : zip.getEntries()) {
+			CompressedDataEntry entry = newEntries.remove(zipEntry.getName());
+			if(entry != null) {
+				writeEntry(out, entry);
+			} else {
+				zip.copyRawEntry(zipEntry.getName(), out);
+			}
+		}
+		for(CompressedDataEntry entry : newEntries.values()) {
+			writeEntry(out, entry);
+		}
+	}
+
+	/**
+	 * Copies all entries of the zip stream raw to the output, entries with the name of one of the given entries are replaced.
+	 */
+	private static void copyEntries(ZipInputStream in, ZipOutputStream out, List<CompressedDataEntry> entries) throws IOException {
+		Map<String, CompressedDataEntry> newEntries = toMap(entries);
+		ZipEntry zipEntry;
+		while((zipEntry = in.getNextEntry()) != null) {
+			CompressedDataEntry entry = newEntries.remove(zipEntry.getName());
+			if(entry != null) {
+				writeEntry(out, entry);
+			} else {
+				in.copyRawEntry(out);
+			}
+		}
+		for(CompressedDataEntry entry : newEntries.values()) {
+			writeEntry(out, entry);
+		}
+	}
+
+	private static Map<String, CompressedDataEntry> toMap(List<CompressedDataEntry> entries) {
+		Map<String, CompressedDataEntry> result = new LinkedHashMap<>();
+		for(CompressedDataEntry entry : entries) {
+			result.put(entry.path, entry);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the given entry to the zip. Already compressed files like images are only stored.
+	 */
+	static void writeEntry(ZipOutputStream out, CompressedDataEntry entry) throws IOException {
+		ZipEntry zipEntry = new ZipEntry(entry.path, entry.rawPath);
+		if(CompressionUtils.isStoreOnlyFile(entry.path)) {
+			byte[] bytes = IOUtils.toByteArray(entry.getData());
+			zipEntry.setMethod(ZipEntry.STORED);
+			zipEntry.setSize(bytes.length);
+			zipEntry.setCompressedSize(bytes.length);
+			zipEntry.setCrc(CommonUtils.calculateCrc(bytes));
+			out.putNextEntry(zipEntry);
+			out.write(bytes);
+		} else {
+			zipEntry.setMethod(ZipEntry.DEFLATED);
+			out.putNextEntry(zipEntry);
+			IOUtils.copy(entry.getData(), out);
+		}
+		out.closeEntry();
+	}
 }
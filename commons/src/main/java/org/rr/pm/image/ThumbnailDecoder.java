@@ -0,0 +1,88 @@
+package org.rr.pm.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+/**
+ * Decodes images directly near to the size of the thumbnail which should be created. Large images are not
+ * decoded in their full resolution. The thumbnail embedded in the image is used if it's large enough,
+ * otherwise only every n-th pixel of the image is decoded.
+ */
+public class ThumbnailDecoder {
+
+	/**
+	 * The image is decoded with at least this factor of the target height, so the final scaling has
+	 * enough pixels for a smooth result.
+	 */
+	private static final int QUALITY_FACTOR = 2;
+
+	/**
+	 * The maximum difference between the aspect ratio of an embedded thumbnail and the image. Embedded thumbnails
+	 * with another aspect ratio are often padded and could not be used.
+	 */
+	private static final double MAX_ASPECT_DIFFERENCE = 0.02;
+
+	private ThumbnailDecoder() {
+	}
+
+	/**
+	 * Decodes the image from the given stream and scales it to the given height without loosing it's proportions.
+	 * The stream is read only once and is not closed.
+	 *
+	 * @param in The image data.
+	 * @param height The height of the thumbnail.
+	 * @return The thumbnail or <code>null</code> if the image format is not supported.
+	 */
+	public static BufferedImage decodeToHeight(InputStream in, int height) throws IOException {
+		ImageInputStream imageIn = new MemoryCacheImageInputStream(in);
+		try {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+			if(!readers.hasNext()) {
+				return null;
+			}
+
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(imageIn, false, true);
+				BufferedImage image = readEmbeddedThumbnail(reader, height);
+				if(image == null) {
+					ImageReadParam param = reader.getDefaultReadParam();
+					int subsampling = Math.max(1, reader.getHeight(0) / (height * QUALITY_FACTOR));
+					param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+					image = reader.read(0, param);
+				}
+				return image.getHeight() != height ? ImageUtils.scaleToHeight(image, height) : image;
+			} finally {
+				reader.dispose();
+			}
+		} finally {
+			imageIn.close();
+		}
+	}
+
+	/**
+	 * Reads the thumbnail embedded in the image, like the EXIF or JFIF thumbnail of a jpeg.
+	 * @return The embedded thumbnail or <code>null</code> if there is no one which could be used for the given height.
+	 */
+	private static BufferedImage readEmbeddedThumbnail(ImageReader reader, int height) throws IOException {
+		if(reader.readerSupportsThumbnails() && reader.hasThumbnails(0)) {
+			double aspect = (double) reader.getWidth(0) / reader.getHeight(0);
+			for(int i = 0; i < reader.getNumThumbnails(0); i++) {
+				int thumbnailHeight = reader.getThumbnailHeight(0, i);
+				double thumbnailAspect = (double) reader.getThumbnailWidth(0, i) / thumbnailHeight;
+				if(thumbnailHeight >= height && Math.abs(thumbnailAspect - aspect) / aspect <= MAX_ASPECT_DIFFERENCE) {
+					return reader.readThumbnail(0, i);
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,191 @@
+package org.rr.commons.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class PackStoreTest extends TestCase {
+
+	private File directory;
+
+	private int regionSize;
+
+	@Override
+	protected void setUp() throws Exception {
+		regionSize = PackStore.regionSize;
+		directory = File.createTempFile("pack", "store");
+		directory.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		PackStore.regionSize = regionSize;
+		File[] files = directory.listFiles();
+		for(File file : files != null ? files : new File[0]) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private static byte[] data(int length, int value) {
+		byte[] data = new byte[length];
+		Arrays.fill(data, (byte) value);
+		return data;
+	}
+
+	public void testPutAndGet() throws IOException {
+		PackStore store = new PackStore(directory);
+		store.put("a", data(100, 1));
+		store.put("b", data(200, 2));
+		store.put("c", data(100, 1));
+		assertTrue(Arrays.equals(data(100, 1), store.get("a")));
+		assertTrue(Arrays.equals(data(200, 2), store.get("b")));
+		assertTrue(Arrays.equals(data(100, 1), store.get("c")));
+		assertNull(store.get("d"));
+		assertEquals(3, store.size());
+
+		store.put("a", data(50, 3));
+		assertTrue(Arrays.equals(data(50, 3), store.get("a")));
+		assertEquals(0, store.getGarbageBytes());
+		store.close();
+	}
+
+	public void testRenameAndRemove() throws IOException {
+		PackStore store = new PackStore(directory);
+		store.put("a", data(100, 1));
+		store.put("b", data(200, 2));
+		assertTrue(store.rename("a", "c"));
+		assertFalse(store.rename("a", "d"));
+		assertNull(store.get("a"));
+		assertTrue(Arrays.equals(data(100, 1), store.get("c")));
+		assertEquals(0, store.getGarbageBytes());
+
+		assertTrue(store.rename("c", "b"));
+		assertEquals(200, store.getGarbageBytes());
+		assertTrue(Arrays.equals(data(100, 1), store.get("b")));
+
+		assertTrue(store.remove("b"));
+		assertFalse(store.remove("b"));
+		assertFalse(store.contains("b"));
+		assertEquals(300, store.getGarbageBytes());
+		store.close();
+	}
+
+	public void testReopen() throws IOException {
+		PackStore store = new PackStore(directory, 1000);
+		for(int i = 0; i < 20; i++) {
+			store.put(String.valueOf(i), data(300, i));
+		}
+		store.rename("1", "one");
+		store.remove("2");
+		store.close();
+
+		store = new PackStore(directory, 1000);
+		assertEquals(19, store.size());
+		assertNull(store.get("1"));
+		assertNull(store.get("2"));
+		assertTrue(Arrays.equals(data(300, 1), store.get("one")));
+		assertTrue(Arrays.equals(data(300, 19), store.get("19")));
+		assertEquals(300, store.getGarbageBytes());
+		store.put("20", data(300, 20));
+		store.close();
+
+		store = new PackStore(directory, 1000);
+		assertTrue(Arrays.equals(data(300, 20), store.get("20")));
+		store.close();
+	}
+
+	public void testCompact() throws IOException {
+		PackStore store = new PackStore(directory, 1000);
+		for(int i = 0; i < 20; i++) {
+			store.put(String.valueOf(i), data(300, i));
+		}
+		for(int i = 0; i < 20; i += 4) {
+			store.remove(String.valueOf(i));
+			store.remove(String.valueOf(i + 1));
+			store.remove(String.valueOf(i + 2));
+		}
+		int packCount = directory.list().length;
+		assertEquals(4500, store.getGarbageBytes());
+		while(store.compact()) {
+		}
+		assertEquals(0, store.getGarbageBytes());
+		assertTrue(directory.list().length < packCount);
+		for(int i = 3; i < 20; i += 4) {
+			assertTrue(Arrays.equals(data(300, i), store.get(String.valueOf(i))));
+		}
+		store.close();
+
+		store = new PackStore(directory, 1000);
+		assertEquals(5, store.size());
+		assertEquals(0, store.getGarbageBytes());
+		for(int i = 3; i < 20; i += 4) {
+			assertTrue(Arrays.equals(data(300, i), store.get(String.valueOf(i))));
+		}
+		store.close();
+	}
+
+	public void testReadRegions() throws IOException {
+		PackStore.regionSize = 1000;
+		PackStore store = new PackStore(directory, 5000);
+		for(int i = 0; i < 40; i++) {
+			store.put(String.valueOf(i), data(300, i));
+			// the blobs of the growing pack are read before and after their region is complete
+			for(int j = 0; j <= i; j++) {
+				assertTrue(Arrays.equals(data(300, j), store.get(String.valueOf(j))));
+			}
+		}
+		store.close();
+
+		store = new PackStore(directory, 5000);
+		for(int i = 0; i < 40; i++) {
+			assertTrue(Arrays.equals(data(300, i), store.get(String.valueOf(i))));
+		}
+		store.close();
+	}
+
+	public void testCompactMappedPack() throws IOException {
+		PackStore store = new PackStore(directory, 1000);
+		for(int i = 0; i < 8; i++) {
+			store.put(String.valueOf(i), data(300, i));
+		}
+		assertTrue(Arrays.equals(data(300, 0), store.get("0")));
+		store.remove("0");
+		store.remove("1");
+		assertTrue(store.compact());
+		assertTrue(Arrays.equals(data(300, 2), store.get("2")));
+		assertTrue(Arrays.equals(data(300, 3), store.get("3")));
+		store.close();
+
+		// the mapped pack is deleted when the store is opened again
+		assertTrue(new File(directory, "pack-0.dat").isFile());
+		store = new PackStore(directory, 1000);
+		assertFalse(new File(directory, "pack-0.dat").exists());
+		for(int i = 2; i < 8; i++) {
+			assertTrue(Arrays.equals(data(300, i), store.get(String.valueOf(i))));
+		}
+		store.close();
+	}
+
+	public void testRewriteJournal() throws IOException {
+		PackStore store = new PackStore(directory);
+		store.put("a", data(100, 1));
+		for(int i = 0; i < 1100; i++) {
+			store.rename(i % 2 == 0 ? "a" : "b", i % 2 == 0 ? "b" : "a");
+		}
+		long journalLength = new File(directory, "pack.journal").length();
+		store.compact();
+		assertTrue(new File(directory, "pack.journal").length() < journalLength);
+		assertFalse(new File(directory, "pack.journal.tmp").exists());
+		store.put("c", data(100, 3));
+		store.close();
+
+		store = new PackStore(directory);
+		assertTrue(Arrays.equals(data(100, 1), store.get("a")));
+		assertTrue(Arrays.equals(data(100, 3), store.get("c")));
+		assertEquals(2, store.size());
+		store.close();
+	}
+}
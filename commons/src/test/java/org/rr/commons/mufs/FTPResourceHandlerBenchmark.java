@@ -0,0 +1,53 @@
+package org.rr.commons.mufs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Measures writing and reading a large file through the {@link FTPResourceHandler} with the {@link LocalFtpServer}.
+ * Not part of the unit tests, run it with the test classpath:
+ * <code>java -cp target/classes:target/test-classes:&lt;dependencies&gt; org.rr.commons.mufs.FTPResourceHandlerBenchmark [megabytes]</code>
+ */
+class FTPResourceHandlerBenchmark {
+
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) throws IOException {
+		int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		byte[] content = new byte[megabytes * 1024 * 1024 + 17];
+		new Random(42).nextBytes(content);
+
+		File root = Files.createTempDirectory("ftp").toFile();
+		LocalFtpServer server = new LocalFtpServer(root);
+		try {
+			// the first run warms up the jit and the connection pool
+			for(int run = 0; run <= RUNS; run++) {
+				long start = System.nanoTime();
+				try (OutputStream out = new FTPResourceHandler(server.getURL("/large.pdf")).getContentOutputStream(false)) {
+					out.write(content);
+				}
+				long writeTime = (System.nanoTime() - start) / 1000000;
+
+				start = System.nanoTime();
+				try (InputStream in = new FTPResourceHandler(server.getURL("/large.pdf")).getContentInputStream()) {
+					IOUtils.toByteArray(in);
+				}
+				long readTime = (System.nanoTime() - start) / 1000000;
+
+				if(run > 0) {
+					System.out.println("ftp write " + writeTime + "ms, read " + readTime + "ms for " + content.length + " bytes");
+				}
+			}
+		} finally {
+			server.stop();
+			FileUtils.deleteQuietly(root);
+		}
+	}
+}
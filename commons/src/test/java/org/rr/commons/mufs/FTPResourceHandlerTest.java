@@ -0,0 +1,146 @@
+package org.rr.commons.mufs;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+public class FTPResourceHandlerTest extends TestCase {
+
+	private static final int FILE_COUNT = 50;
+
+	private File root;
+
+	private LocalFtpServer server;
+
+	private long listingTimeToLive;
+
+	private long maxIdleTime;
+
+	@Override
+	protected void setUp() throws Exception {
+		listingTimeToLive = FTPConnectionManager.listingTimeToLive;
+		maxIdleTime = FTPConnectionManager.maxIdleTime;
+
+		root = Files.createTempDirectory("ftp").toFile();
+		File books = new File(root, "books");
+		new File(books, "sub").mkdirs();
+		for(int i = 0; i < FILE_COUNT; i++) {
+			FileUtils.writeStringToFile(new File(books, "book" + i + ".epub"), "content " + i, "UTF-8");
+		}
+		server = new LocalFtpServer(root);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		FTPConnectionManager.listingTimeToLive = listingTimeToLive;
+		FTPConnectionManager.maxIdleTime = maxIdleTime;
+		server.stop();
+		FileUtils.deleteQuietly(root);
+	}
+
+	public void testExistsUsesListingCache() throws Exception {
+		for(int i = 0; i < FILE_COUNT; i++) {
+			assertTrue(new FTPResourceHandler(server.getURL("/books/book" + i + ".epub")).exists());
+		}
+		assertTrue(new FTPResourceHandler(server.getURL("/books/sub")).exists());
+		assertTrue(new FTPResourceHandler(server.getURL("/books/sub")).isDirectoryResource());
+		assertFalse(new FTPResourceHandler(server.getURL("/books/missing.epub")).exists());
+
+		// the listing of the parent is shared by all handlers of the host
+		assertEquals(1, server.getCommandCount("LIST"));
+	}
+
+	public void testListingsAreShared() throws Exception {
+		IResourceHandler[] files = new FTPResourceHandler(server.getURL("/books")).listFileResources();
+		assertEquals(FILE_COUNT, files.length);
+		assertEquals(1, new FTPResourceHandler(server.getURL("/books")).listDirectoryResources().length);
+		for(IResourceHandler file : files) {
+			assertEquals(file.getName().length() - 1, file.size());
+		}
+		assertEquals(1, server.getCommandCount("LIST"));
+	}
+
+	public void testListingExpires() throws Exception {
+		FTPConnectionManager.listingTimeToLive = 50;
+		assertEquals(FILE_COUNT, new FTPResourceHandler(server.getURL("/books")).listFileResources().length);
+		Thread.sleep(100);
+		assertEquals(FILE_COUNT, new FTPResourceHandler(server.getURL("/books")).listFileResources().length);
+		assertEquals(2, server.getCommandCount("LIST"));
+	}
+
+	public void testChangesInvalidateListing() throws Exception {
+		assertFalse(new FTPResourceHandler(server.getURL("/books/new.epub")).exists());
+
+		new FTPResourceHandler(server.getURL("/books/new.epub")).writeStringContent("new", "UTF-8");
+		assertTrue(new FTPResourceHandler(server.getURL("/books/new.epub")).exists());
+		assertEquals(FILE_COUNT + 1, new FTPResourceHandler(server.getURL("/books")).listFileResources().length);
+
+		FTPResourceHandler target = new FTPResourceHandler(server.getURL("/books/sub/new.epub"));
+		new FTPResourceHandler(server.getURL("/books/new.epub")).moveTo(target, false);
+		assertFalse(new FTPResourceHandler(server.getURL("/books/new.epub")).exists());
+		assertTrue(new FTPResourceHandler(server.getURL("/books/sub/new.epub")).exists());
+		assertEquals("new", FileUtils.readFileToString(new File(root, "books/sub/new.epub"), "UTF-8"));
+
+		new FTPResourceHandler(server.getURL("/books/sub/new.epub")).delete();
+		assertFalse(new FTPResourceHandler(server.getURL("/books/sub/new.epub")).exists());
+		assertFalse(new File(root, "books/sub/new.epub").exists());
+	}
+
+	public void testMkdirs() throws Exception {
+		FTPResourceHandler folder = new FTPResourceHandler(server.getURL("/books/a/b/c"));
+		assertFalse(folder.exists());
+		assertTrue(folder.mkdirs());
+		assertTrue(new File(root, "books/a/b/c").isDirectory());
+		assertTrue(new FTPResourceHandler(server.getURL("/books/a/b/c")).exists());
+	}
+
+	public void testStreams() throws Exception {
+		byte[] content = new byte[4 * 1024 * 1024 + 17];
+		new Random(42).nextBytes(content);
+
+		FTPResourceHandler handler = new FTPResourceHandler(server.getURL("/books/large.pdf"));
+		try (OutputStream out = handler.getContentOutputStream(false)) {
+			out.write(content);
+		}
+		assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(new File(root, "books/large.pdf"))));
+
+		try (InputStream in = new FTPResourceHandler(server.getURL("/books/large.pdf")).getContentInputStream()) {
+			assertTrue(Arrays.equals(content, IOUtils.toByteArray(in)));
+		}
+	}
+
+	public void testConnectionsArePooled() throws Exception {
+		for(int i = 0; i < 10; i++) {
+			try (InputStream in = new FTPResourceHandler(server.getURL("/books/book" + i + ".epub")).getContentInputStream()) {
+				assertEquals("content " + i, IOUtils.toString(in, "UTF-8"));
+			}
+			new FTPResourceHandler(server.getURL("/books")).refresh();
+			new FTPResourceHandler(server.getURL("/books")).listFileResources();
+		}
+		assertEquals(1, server.getConnectionCount());
+	}
+
+	public void testKeepAlive() throws Exception {
+		new FTPResourceHandler(server.getURL("/books")).listFileResources();
+		FTPConnectionManager connectionManager = FTPConnectionManager.getInstance(new URL(server.getURL("/")));
+		connectionManager.keepAlive();
+		assertEquals(1, server.getCommandCount("NOOP"));
+
+		// connections which are idle too long are closed and a new one is opened with the next access
+		FTPConnectionManager.maxIdleTime = 0;
+		connectionManager.keepAlive();
+		assertEquals(1, server.getCommandCount("NOOP"));
+		new FTPResourceHandler(server.getURL("/books/sub")).refresh();
+		new FTPResourceHandler(server.getURL("/books/sub")).listFileResources();
+		assertEquals(2, server.getConnectionCount());
+	}
+}
@@ -0,0 +1,98 @@
+package org.rr.commons.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class InvertedIndexTest extends TestCase {
+
+	private InvertedIndex createIndex() {
+		InvertedIndex index = new InvertedIndex("title", "author");
+		index.setBoost("title", 3f);
+		index.put("1", 1, fields("The Lord of the Rings", "Tolkien"));
+		index.put("2", 2, fields("The Hobbit", "Tolkien"));
+		index.put("3", 3, fields("Ringworld", "Niven"));
+		index.put("4", 4, fields("Über Tolkien", "Carpenter"));
+		return index;
+	}
+
+	private Map<String, String> fields(String title, String author) {
+		Map<String, String> result = new HashMap<>();
+		result.put("title", title);
+		result.put("author", author);
+		return result;
+	}
+
+	private List<String> keys(List<InvertedIndex.Hit> hits) {
+		String[] result = new String[hits.size()];
+		for(int i = 0; i < hits.size(); i++) {
+			result[i] = hits.get(i).getKey();
+		}
+		return Arrays.asList(result);
+	}
+
+	public void testTokenize() {
+		assertEquals(Arrays.asList("uber", "book", "story", "glass"), InvertedIndex.tokenize("Über-Books; stories GLASS"));
+	}
+
+	public void testSearch() {
+		InvertedIndex index = createIndex();
+		assertEquals(Arrays.asList("1"), keys(index.search("ring", 10)));
+		assertEquals(Arrays.asList("1", "2"), keys(index.search("tolkien the", 10)));
+		assertEquals(Arrays.asList("4"), keys(index.search("uber", 10)));
+		assertEquals(0, index.search("unknown", 10).size());
+	}
+
+	public void testRanking() {
+		InvertedIndex index = createIndex();
+		// the title is boosted, so the match in the title is the first one.
+		assertEquals("4", index.search("tolkien", 10).get(0).getKey());
+		assertEquals(1, index.search("tolkien", 1).size());
+	}
+
+	public void testFieldSearch() {
+		InvertedIndex index = createIndex();
+		assertEquals(Arrays.asList("1", "2"), keys(index.search("author:tolkien", 10)));
+		assertEquals(Arrays.asList("4"), keys(index.search("title:tolkien", 10)));
+	}
+
+	public void testPrefixAndFuzzySearch() {
+		InvertedIndex index = createIndex();
+		assertEquals(Arrays.asList("1", "3"), keys(index.search("ring*", 10)));
+		assertEquals(Arrays.asList("2"), keys(index.search("hobit~", 10)));
+	}
+
+	public void testReplaceAndRemove() {
+		InvertedIndex index = createIndex();
+		index.put("2", 5, fields("The Silmarillion", "Tolkien"));
+		assertEquals(5, index.getVersion("2"));
+		assertEquals(0, index.search("hobbit", 10).size());
+		assertEquals(Arrays.asList("2"), keys(index.search("silmarillion", 10)));
+
+		assertTrue(index.remove("3"));
+		assertFalse(index.remove("3"));
+		assertEquals(-1, index.getVersion("3"));
+		assertEquals(0, index.search("niven", 10).size());
+		assertEquals(3, index.size());
+	}
+
+	public void testWriteAndRead() throws IOException {
+		InvertedIndex index = createIndex();
+		index.remove("1");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		index.write(out);
+
+		InvertedIndex read = new InvertedIndex("title", "author");
+		read.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(3, read.size());
+		assertEquals(4, read.getVersion("4"));
+		assertEquals(Arrays.asList("2"), keys(read.search("hobbit", 10)));
+		assertEquals(Arrays.asList("3"), keys(read.search("ring*", 10)));
+	}
+}
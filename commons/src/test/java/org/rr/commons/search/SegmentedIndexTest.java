@@ -0,0 +1,124 @@
+package org.rr.commons.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SegmentedIndexTest extends TestCase {
+
+	private File directory;
+
+	@Override
+	protected void setUp() throws Exception {
+		directory = File.createTempFile("segmented", "index");
+		directory.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		File[] files = directory.listFiles();
+		for(File file : files != null ? files : new File[0]) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private void add(SegmentedIndex index, String key, long version, String... texts) throws IOException {
+		SegmentedIndex.Document document = index.createDocument(key, version);
+		for(String text : texts) {
+			document.addText(text);
+		}
+		index.add(document);
+	}
+
+	private void fill(SegmentedIndex index) throws IOException {
+		add(index, "1", 1, "In a hole in the ground there lived a hobbit.", "Not a nasty, dirty, wet hole.");
+		add(index, "2", 2, "It was a bright cold day in April, and the clocks were striking thirteen.");
+		add(index, "3", 3, "Call me Ishmael. Some years ago, never mind how long precisely.");
+		add(index, "4", 4, "The hobbit was a very well-to-do hobbit, and his name was Baggins.");
+		add(index, "5", 5, "Ishmael was not his name.");
+	}
+
+	private List<String> sorted(List<String> keys) {
+		Collections.sort(keys);
+		return keys;
+	}
+
+	public void testSearch() throws IOException {
+		SegmentedIndex index = new SegmentedIndex(directory, 2, 10);
+		fill(index);
+		assertEquals(Arrays.asList("4", "1"), index.search("hobbit", 10));
+		assertEquals(Arrays.asList("1"), index.search("hobbit ground", 10));
+		assertEquals(Arrays.asList("3", "5"), sorted(index.search("ishmael", 10)));
+		assertEquals(Arrays.asList("2"), index.search("clock*", 10));
+		assertEquals(Arrays.asList("4", "5"), sorted(index.search("name", 10)));
+		assertEquals(0, index.search("unknown", 10).size());
+		assertEquals(1, index.search("hobbit", 1).size());
+		index.close();
+	}
+
+	public void testReplaceAndRemove() throws IOException {
+		SegmentedIndex index = new SegmentedIndex(directory, 2, 10);
+		fill(index);
+		add(index, "1", 6, "Far over the misty mountains cold.");
+		assertEquals(6, index.getVersion("1"));
+		assertEquals(Arrays.asList("4"), index.search("hobbit", 10));
+		assertEquals(Arrays.asList("1", "2"), sorted(index.search("cold", 10)));
+
+		assertTrue(index.remove("3"));
+		assertFalse(index.remove("3"));
+		assertEquals(-1, index.getVersion("3"));
+		assertEquals(Arrays.asList("5"), index.search("ishmael", 10));
+		assertEquals(4, index.size());
+		index.close();
+	}
+
+	public void testReopen() throws IOException {
+		SegmentedIndex index = new SegmentedIndex(directory, 2, 10);
+		fill(index);
+		index.remove("3");
+		add(index, "1", 6, "Far over the misty mountains cold.");
+		index.close();
+
+		index = new SegmentedIndex(directory, 2, 10);
+		assertEquals(4, index.size());
+		assertEquals(6, index.getVersion("1"));
+		assertEquals(-1, index.getVersion("3"));
+		assertEquals(Arrays.asList("4"), index.search("hobbit", 10));
+		assertEquals(Arrays.asList("5"), index.search("ishmael", 10));
+
+		// a removed document which is added again is not hidden by the deletion.
+		add(index, "3", 7, "Call me Ishmael.");
+		index.close();
+		index = new SegmentedIndex(directory, 2, 10);
+		assertEquals(Arrays.asList("3", "5"), sorted(index.search("ishmael", 10)));
+		index.close();
+	}
+
+	public void testMerge() throws IOException {
+		SegmentedIndex index = new SegmentedIndex(directory, 1, 2);
+		fill(index);
+		index.remove("2");
+		for(int i = 0; i < 20; i++) {
+			add(index, "x" + i, i, "word" + i + " common");
+		}
+		index.flush();
+		assertTrue(directory.listFiles().length <= 4);
+		assertEquals(24, index.size());
+		assertEquals(20, index.search("common", 100).size());
+		assertEquals(Arrays.asList("x7"), index.search("word7", 10));
+		assertEquals(Arrays.asList("4", "1"), index.search("hobbit", 10));
+		assertEquals(0, index.search("april", 10).size());
+		index.close();
+
+		index = new SegmentedIndex(directory, 1, 2);
+		assertEquals(24, index.size());
+		assertEquals(-1, index.getVersion("2"));
+		assertEquals(Arrays.asList("x13"), index.search("word13", 10));
+		index.close();
+	}
+}
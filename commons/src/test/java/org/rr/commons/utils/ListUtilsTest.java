@@ -1,6 +1,7 @@
 package org.rr.commons.utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -30,6 +31,16 @@ public class ListUtilsTest extends TestCase {
 		assertEquals("g  ", chunkSplit.get(3));
 	}
 
+	public void testChunkSplitList() {
+		List<List<Integer>> chunkSplit = ListUtils.chunkSplit(Arrays.asList(1, 2, 3, 4, 5), 2);
+		assertEquals(3, chunkSplit.size());
+		assertEquals(Arrays.asList(1, 2), chunkSplit.get(0));
+		assertEquals(Arrays.asList(3, 4), chunkSplit.get(1));
+		assertEquals(Arrays.asList(5), chunkSplit.get(2));
+
+		assertEquals(0, ListUtils.chunkSplit(new ArrayList<Integer>(), 2).size());
+	}
+
 	public void testSet() {
 		ArrayList<String> l = new ArrayList<>();
 		l.add("1");
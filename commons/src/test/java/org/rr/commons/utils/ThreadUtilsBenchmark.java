@@ -0,0 +1,137 @@
+package org.rr.commons.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.rr.commons.utils.ThreadUtils.RunnableImpl;
+
+/**
+ * Compares {@link ThreadUtils#loopAndWait(List, RunnableImpl, int)} with the former implementation which started
+ * a thread for each element and polled for free slots every 100ms. Not part of the unit tests, run it with the
+ * test classpath:
+ * <code>java -cp target/classes:target/test-classes:&lt;dependencies&gt; org.rr.commons.utils.ThreadUtilsBenchmark [elements]</code>
+ */
+public class ThreadUtilsBenchmark {
+
+	private static final int RUNS = 5;
+
+	private static final int THREADS = 8;
+
+	public static void main(String[] args) {
+		final List<Integer> values = new ArrayList<>();
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		for(int i = 0; i < count; i++) {
+			values.add(i);
+		}
+		RunnableImpl<Integer, Integer> work = new RunnableImpl<Integer, Integer>() {
+
+			@Override
+			public Integer run(Integer entry) {
+				int result = entry;
+				for(int i = 0; i < 20000; i++) {
+					result = result * 31 + i;
+				}
+				return result;
+			}
+		};
+
+		// the first run warms up the jit and the pool
+		for(int run = 0; run <= RUNS; run++) {
+			long start = System.nanoTime();
+			List<Integer> parallel = ThreadUtils.loopAndWait(values, work, THREADS);
+			long parallelTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			List<Integer> former = FormerThreadUtils.loopAndWait(values, work, THREADS);
+			long formerTime = System.nanoTime() - start;
+
+			if(!parallel.equals(former)) {
+				throw new IllegalStateException("Different results");
+			}
+			if(run > 0) {
+				System.out.println("loopAndWait " + TimeUnit.NANOSECONDS.toMillis(parallelTime) + "ms, former loopAndWait "
+						+ TimeUnit.NANOSECONDS.toMillis(formerTime) + "ms for " + values.size() + " elements");
+			}
+		}
+	}
+
+	/**
+	 * The former implementation of {@link ThreadUtils#loopAndWait(List, RunnableImpl, int)} as it was before the shared pool.
+	 */
+	private static class FormerThreadUtils {
+
+		private static final Object MUTEX = new Object();
+
+		private static <S, T> List<T> loopAndWait(final List<S> l, final RunnableImpl<S, T> each, int maxThreads) {
+			return loop(l, each, maxThreads, true);
+		}
+
+		private static <S, T> List<T> loop(final List<S> l, final RunnableImpl<S, T> each, int maxThreads, boolean wait) {
+			final Thread[] slots = new Thread[maxThreads];
+			final List<T> results = Collections.synchronizedList(l != null ? new ArrayList<T>(l.size()) : Collections.<T>emptyList());
+			final List<S> working = Collections.synchronizedList(l != null ? new ArrayList<S>(l) : Collections.<S>emptyList());
+			while(!working.isEmpty()) {
+				//thread slot searching and execution must be synchronized.
+				synchronized(MUTEX) {
+					boolean emptySlotFound = false;
+					for(int i = 0; i < slots.length; i++) {
+						final int slot = i;
+						if(slots[slot] == null) {
+							//free slot to use.
+							slots[slot] = new Thread(new Runnable() {
+
+								@Override
+								public void run() {
+									S entry = null;
+									try {
+										entry = working.remove(0);
+									} catch(IndexOutOfBoundsException e) {
+									}
+
+									if(entry != null) {
+										int index = l.indexOf(entry);
+										ListUtils.set(results, each.run(entry), index);
+									}
+									slots[slot] = null;
+								}
+							});
+							slots[slot].start();
+							emptySlotFound = true;
+						} else {
+							//no free slot
+							emptySlotFound = false;
+						}
+					}
+
+					if(!emptySlotFound && !working.isEmpty()) {
+						try {
+							Thread.sleep(100);
+						} catch (InterruptedException e) {
+						}
+					}
+				}
+			}
+
+			if(wait) {
+				while(!containsOnlyNull(slots)) {
+					try {
+						Thread.sleep(100);
+					} catch (InterruptedException e) {
+					}
+				}
+			}
+			return results;
+		}
+
+		private static boolean containsOnlyNull(Object[] values) {
+			for (int i = 0; i < values.length; i++) {
+				if(values[i] != null) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package org.rr.commons.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.rr.commons.utils.ThreadUtils.RunnableImpl;
+
+public class ThreadUtilsTest extends TestCase {
+
+	private static final RunnableImpl<Integer, Integer> SQUARE = new RunnableImpl<Integer, Integer>() {
+
+		@Override
+		public Integer run(Integer entry) {
+			return entry * entry;
+		}
+	};
+
+	public void testOrder() {
+		List<Integer> values = new ArrayList<>();
+		for(int i = 0; i < 1000; i++) {
+			values.add(i % 7);
+		}
+		List<Integer> results = ThreadUtils.loopAndWait(values, SQUARE, 8);
+		assertEquals(values.size(), results.size());
+		for(int i = 0; i < values.size(); i++) {
+			assertEquals(values.get(i) * values.get(i), results.get(i).intValue());
+		}
+	}
+
+	public void testEmpty() {
+		assertTrue(ThreadUtils.loopAndWait(new ArrayList<Integer>(), SQUARE, 8).isEmpty());
+		assertTrue(ThreadUtils.loopAndWait((List<Integer>) null, SQUARE, 8).isEmpty());
+	}
+
+	public void testFailureIsLogged() {
+		List<Integer> results = ThreadUtils.loopAndWait(Arrays.asList(1, 0, 2), new RunnableImpl<Integer, Integer>() {
+
+			@Override
+			public Integer run(Integer entry) {
+				return 2 / entry;
+			}
+		}, 2);
+		assertEquals(Arrays.asList(2, null, 1), results);
+	}
+
+	public void testFailureStopsParallelMap() throws Exception {
+		final AtomicInteger processed = new AtomicInteger();
+		List<Integer> values = new ArrayList<>();
+		for(int i = 0; i < 1000; i++) {
+			values.add(i);
+		}
+		try {
+			ThreadUtils.parallelMap(values.iterator(), new RunnableImpl<Integer, Integer>() {
+
+				@Override
+				public Integer run(Integer entry) {
+					if(entry == 10) {
+						throw new IllegalArgumentException("failed " + entry);
+					}
+					processed.incrementAndGet();
+					return entry;
+				}
+			}, 2, 0, TimeUnit.SECONDS);
+			fail("ExecutionException expected");
+		} catch(ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+		assertTrue(processed.get() < values.size() - 1);
+	}
+
+	public void testTimeout() throws Exception {
+		final AtomicInteger interrupted = new AtomicInteger();
+		long start = System.currentTimeMillis();
+		try {
+			ThreadUtils.parallelMap(Arrays.asList(1, 2, 3, 4).iterator(), new RunnableImpl<Integer, Integer>() {
+
+				@Override
+				public Integer run(Integer entry) {
+					try {
+						Thread.sleep(10000);
+					} catch (InterruptedException e) {
+						interrupted.incrementAndGet();
+					}
+					return entry;
+				}
+			}, 2, 200, TimeUnit.MILLISECONDS);
+			fail("TimeoutException expected");
+		} catch(TimeoutException e) {
+		}
+		assertTrue(System.currentTimeMillis() - start < 5000);
+
+		// the running elements get interrupted
+		for(int i = 0; i < 50 && interrupted.get() < 2; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(2, interrupted.get());
+	}
+
+	public void testNested() throws Exception {
+		final List<Integer> values = new ArrayList<>();
+		for(int i = 0; i < 64; i++) {
+			values.add(i);
+		}
+		List<Integer> results = ThreadUtils.parallelMap(values.iterator(), new RunnableImpl<Integer, Integer>() {
+
+			@Override
+			public Integer run(Integer entry) {
+				int sum = 0;
+				for(Integer value : ThreadUtils.loopAndWait(values, SQUARE, 64)) {
+					sum += value;
+				}
+				return sum;
+			}
+		}, 64, 30, TimeUnit.SECONDS);
+		assertEquals(64, results.size());
+		assertEquals(results.get(0), results.get(63));
+	}
+
+	public void testInterruptIsPropagated() {
+		final List<Integer> values = Arrays.asList(1, 2, 3, 4);
+		Thread.currentThread().interrupt();
+		try {
+			ThreadUtils.loopAndWait(values, new RunnableImpl<Integer, Integer>() {
+
+				@Override
+				public Integer run(Integer entry) {
+					try {
+						Thread.sleep(10000);
+					} catch (InterruptedException e) {
+						return null;
+					}
+					return entry;
+				}
+			}, 2);
+			fail("RuntimeException expected");
+		} catch(RuntimeException e) {
+			assertTrue(e.getCause() instanceof InterruptedException);
+			assertTrue(Thread.interrupted());
+		}
+	}
+}
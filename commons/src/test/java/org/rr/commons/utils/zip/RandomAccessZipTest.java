@@ -0,0 +1,106 @@
+package org.rr.commons.utils.zip;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.IOUtils;
+import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.ResourceHandlerFactory;
+import org.rr.commons.utils.compression.zip.LazyZipEntryStream;
+import org.rr.commons.utils.compression.zip.RandomAccessZip;
+
+public class RandomAccessZipTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("randomaccess", ".zip");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+			out.putNextEntry(new ZipEntry("META-INF/"));
+			out.putNextEntry(new ZipEntry("META-INF/container.xml"));
+			out.write("<container/>".getBytes());
+			out.putNextEntry(new ZipEntry("OEBPS/content.opf"));
+			out.write("<package/>".getBytes());
+			out.putNextEntry(new ZipEntry("OEBPS/Kapitel Ä.html"));
+			out.write(new byte[100000]);
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	public void testExtract() throws IOException {
+		IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+		try (RandomAccessZip zip = RandomAccessZip.open(resource)) {
+			assertEquals(Arrays.asList("META-INF/container.xml", "OEBPS/content.opf", "OEBPS/Kapitel Ä.html"), zip.getEntryNames());
+			assertEquals("<package/>", new String(IOUtils.toByteArray(zip.extract("OEBPS/content.opf").getData())));
+			assertEquals(100000, IOUtils.toByteArray(zip.extract("OEBPS/Kapitel Ä.html").getData()).length);
+			assertTrue(zip.contains("META-INF/container.xml"));
+			assertNull(zip.extract("missing"));
+		}
+	}
+
+	public void testLazyEntryStream() throws IOException {
+		IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+		try (LazyZipEntryStream in = new LazyZipEntryStream(resource, "META-INF/container.xml")) {
+			assertEquals("<container/>", new String(IOUtils.toByteArray(in)));
+		}
+	}
+
+	public void testLazyEntryStreamReset() throws IOException {
+		IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+		try (LazyZipEntryStream in = new LazyZipEntryStream(resource, "OEBPS/content.opf")) {
+			assertEquals('<', in.read());
+			in.mark(0);
+			assertEquals("package/>", new String(IOUtils.toByteArray(in)));
+			in.reset();
+			assertEquals("package/>", new String(IOUtils.toByteArray(in)));
+		}
+	}
+
+	public void testSharedZip() throws IOException {
+		IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+		RandomAccessZip first = RandomAccessZip.acquire(resource);
+		RandomAccessZip second = RandomAccessZip.acquire(resource);
+		assertSame(first, second);
+		first.close();
+		RandomAccessZip.closeShared(resource);
+		assertTrue(second.contains("OEBPS/content.opf"));
+		second.close();
+		try {
+			second.contains("OEBPS/content.opf");
+			fail("zip not closed");
+		} catch (IllegalStateException e) {
+		}
+		RandomAccessZip third = RandomAccessZip.acquire(resource);
+		assertNotSame(first, third);
+		third.close();
+	}
+
+	public void testSharedZipClosedByDelete() throws IOException {
+		IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+		RandomAccessZip zip = RandomAccessZip.acquire(resource);
+		zip.close();
+		assertTrue(zip.contains("OEBPS/content.opf"));
+		resource.delete();
+		assertFalse(file.exists());
+		try {
+			zip.contains("OEBPS/content.opf");
+			fail("zip not closed");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	public void testNoLocalFile() throws IOException {
+		assertNull(RandomAccessZip.open(ResourceHandlerFactory.getVirtualResourceHandler("virtual.zip", new byte[0])));
+	}
+}
@@ -0,0 +1,82 @@
+package org.rr.commons.utils.zip;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.rr.commons.utils.compression.zip.RawZipFile;
+
+/**
+ * Compares the copy of a zip file by recompressing each entry with the raw copy of {@link RawZipFile}.
+ * Not part of the unit tests, run it with the test classpath:
+ * <code>java -cp target/classes:target/test-classes:&lt;dependencies&gt; org.rr.commons.utils.zip.RawZipFileBenchmark [entries]</code>
+ */
+public class RawZipFileBenchmark {
+
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) throws IOException {
+		int entries = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		File large = File.createTempFile("rawlarge", ".zip");
+		File target = File.createTempFile("rawcopy", ".zip");
+		try {
+			try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(large))) {
+				for(int i = 0; i < entries; i++) {
+					out.putNextEntry(new ZipEntry("OEBPS/chapter" + i + ".html"));
+					out.write(createText(200000 + i));
+				}
+			}
+
+			// the first run warms up the jit and the file cache
+			for(int run = 0; run <= RUNS; run++) {
+				long recompress = recompress(large, target);
+				long rawCopy = rawCopy(large, target);
+				if(run > 0) {
+					System.out.println("Copy of " + large.length() / 1024 + "KB zip: recompress " + recompress + "ms, raw copy " + rawCopy + "ms");
+				}
+			}
+		} finally {
+			large.delete();
+			target.delete();
+		}
+	}
+
+	private static long recompress(File source, File target) throws IOException {
+		long start = System.nanoTime();
+		try (ZipFile zip = new ZipFile(source);
+				org.rr.commons.utils.compression.zip.ZipOutputStream out = new org.rr.commons.utils.compression.zip.ZipOutputStream(new FileOutputStream(target))) {
+			for(ZipEntry entry : Collections.list(zip.entries())) {
+				out.putNextEntry(new org.rr.commons.utils.compression.zip.ZipEntry(entry.getName(), null));
+				IOUtils.copy(zip.getInputStream(entry), out);
+				out.closeEntry();
+			}
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	private static long rawCopy(File source, File target) throws IOException {
+		long start = System.nanoTime();
+		try (RawZipFile zip = new RawZipFile(source);
+				org.rr.commons.utils.compression.zip.ZipOutputStream out = new org.rr.commons.utils.compression.zip.ZipOutputStream(new FileOutputStream(target))) {
+			for(org.rr.commons.utils.compression.zip.ZipEntry entry : zip.getEntries()) {
+				zip.copyRawEntry(entry.getName(), out);
+			}
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	private static byte[] createText(int words) {
+		Random random = new Random(words);
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < words; i++) {
+			text.append("word").append(random.nextInt(10000)).append(' ');
+		}
+		return text.toString().getBytes();
+	}
+}
@@ -0,0 +1,95 @@
+package org.rr.commons.utils.zip;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.IOUtils;
+import org.rr.commons.utils.compression.zip.RawZipFile;
+
+public class RawZipFileTest extends TestCase {
+
+	private File file;
+
+	private File target;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("raw", ".zip");
+		target = File.createTempFile("rawcopy", ".zip");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+			byte[] mimetype = "application/epub+zip".getBytes();
+			CRC32 crc = new CRC32();
+			crc.update(mimetype);
+			ZipEntry stored = new ZipEntry("mimetype");
+			stored.setMethod(ZipEntry.STORED);
+			stored.setSize(mimetype.length);
+			stored.setCrc(crc.getValue());
+			out.putNextEntry(stored);
+			out.write(mimetype);
+			out.putNextEntry(new ZipEntry("OEBPS/content.opf"));
+			out.write("<package/>".getBytes());
+			out.putNextEntry(new ZipEntry("OEBPS/Kapitel Ä.html"));
+			out.write(createText(100000));
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+		target.delete();
+	}
+
+	private static byte[] createText(int words) {
+		Random random = new Random(words);
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < words; i++) {
+			text.append("word").append(random.nextInt(10000)).append(' ');
+		}
+		return text.toString().getBytes();
+	}
+
+	public void testRead() throws IOException {
+		try (RawZipFile zip = new RawZipFile(file)) {
+			assertEquals(3, zip.getEntries().size());
+			assertEquals("mimetype", zip.getEntries().get(0).getName());
+			assertEquals("application/epub+zip", new String(IOUtils.toByteArray(zip.getRawInputStream("mimetype"))));
+			assertEquals("<package/>", new String(IOUtils.toByteArray(zip.getInputStream("OEBPS/content.opf"))));
+			assertTrue(zip.getEntry("OEBPS/Kapitel Ä.html").getCompressedSize() < zip.getEntry("OEBPS/Kapitel Ä.html").getSize());
+			assertNull(zip.getEntry("missing"));
+		}
+	}
+
+	public void testCopyRawEntries() throws IOException {
+		try (RawZipFile zip = new RawZipFile(file);
+				org.rr.commons.utils.compression.zip.ZipOutputStream out = new org.rr.commons.utils.compression.zip.ZipOutputStream(new FileOutputStream(target))) {
+			for(org.rr.commons.utils.compression.zip.ZipEntry entry : zip.getEntries()) {
+				if(entry.getName().endsWith(".opf")) {
+					out.putNextEntry(new org.rr.commons.utils.compression.zip.ZipEntry(entry.getName(), entry.getRawName()));
+					out.write("<package version=\"2.0\"/>".getBytes());
+					out.closeEntry();
+				} else {
+					zip.copyRawEntry(entry.getName(), out);
+				}
+			}
+		}
+
+		try (ZipFile zip = new ZipFile(target); ZipFile source = new ZipFile(file)) {
+			assertEquals("mimetype", zip.entries().nextElement().getName());
+			assertEquals(ZipEntry.STORED, zip.getEntry("mimetype").getMethod());
+			assertEquals("<package version=\"2.0\"/>", new String(IOUtils.toByteArray(zip.getInputStream(zip.getEntry("OEBPS/content.opf")))));
+			try (InputStream copied = zip.getInputStream(zip.getEntry("OEBPS/Kapitel Ä.html"));
+					InputStream original = source.getInputStream(source.getEntry("OEBPS/Kapitel Ä.html"))) {
+				assertTrue(IOUtils.contentEquals(original, copied));
+			}
+		}
+	}
+}
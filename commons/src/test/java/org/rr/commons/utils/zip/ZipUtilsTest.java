@@ -0,0 +1,154 @@
+package org.rr.commons.utils.zip;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.ResourceHandlerFactory;
+import org.rr.commons.utils.compression.CompressedDataEntry;
+import org.rr.commons.utils.compression.zip.ZipArchiveWriter;
+import org.rr.commons.utils.compression.zip.ZipUtils;
+
+public class ZipUtilsTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("ziputils", ".cbz");
+		// java.util.zip writes the sizes of deflated entries in a data descriptor behind the data
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+			out.putNextEntry(new ZipEntry("ComicInfo.xml"));
+			out.write("<ComicInfo/>".getBytes());
+			out.putNextEntry(new ZipEntry("page01.txt"));
+			out.write(new byte[50000]);
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	private String read(String entry) throws IOException {
+		try (ZipFile zip = new ZipFile(file)) {
+			ZipEntry zipEntry = zip.getEntry(entry);
+			return zipEntry != null ? new String(IOUtils.toByteArray(zip.getInputStream(zipEntry))) : null;
+		}
+	}
+
+	public void testAppend() throws IOException {
+		IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+		long length = file.length();
+		assertTrue(ZipUtils.add(resource, "page02.jpg", new ByteArrayInputStream("jpeg".getBytes())));
+		assertTrue(file.length() > length);
+
+		try (ZipFile zip = new ZipFile(file)) {
+			assertEquals(3, zip.size());
+			assertEquals(ZipEntry.STORED, zip.getEntry("page02.jpg").getMethod());
+		}
+		assertEquals("jpeg", read("page02.jpg"));
+		assertEquals("<ComicInfo/>", read("ComicInfo.xml"));
+		assertEquals(50000, read("page01.txt").length());
+	}
+
+	public void testFailedAppendKeepsZip() throws IOException {
+		IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+		byte[] original = FileUtils.readFileToByteArray(file);
+		InputStream failing = new InputStream() {
+
+			private int count;
+
+			@Override
+			public int read() throws IOException {
+				if(++count > 1000) {
+					throw new IOException("read failed");
+				}
+				return 'x';
+			}
+		};
+		assertFalse(ZipUtils.add(resource, "page02.txt", failing));
+		assertTrue(Arrays.equals(original, FileUtils.readFileToByteArray(file)));
+		assertNoTemporaryFiles();
+	}
+
+	private void assertNoTemporaryFiles() {
+		String[] temporary = file.getAbsoluteFile().getParentFile().list(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith(file.getName()) && !name.equals(file.getName());
+			}
+		});
+		assertEquals(0, temporary.length);
+	}
+
+	public void testReplace() throws IOException {
+		IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+		assertTrue(ZipUtils.add(resource, Arrays.asList(
+				new CompressedDataEntry("ComicInfo.xml", "ComicInfo.xml".getBytes(), new ByteArrayInputStream("<ComicInfo><Title/></ComicInfo>".getBytes())),
+				new CompressedDataEntry("page02.txt", "page02.txt".getBytes(), new ByteArrayInputStream("text".getBytes())))));
+
+		assertEquals("<ComicInfo><Title/></ComicInfo>", read("ComicInfo.xml"));
+		assertEquals(50000, read("page01.txt").length());
+		assertEquals("text", read("page02.txt"));
+	}
+
+	public void testCreate() throws IOException {
+		file.delete();
+		IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+		assertTrue(ZipUtils.add(resource, "ComicInfo.xml", new ByteArrayInputStream("<ComicInfo/>".getBytes())));
+		assertEquals("<ComicInfo/>", read("ComicInfo.xml"));
+	}
+
+	public void testArchiveWriter() throws IOException {
+		IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+		try (ZipArchiveWriter writer = ZipUtils.openArchiveWriter(resource)) {
+			for(int i = 2; i < 10; i++) {
+				writer.add("page0" + i + ".jpg", ("jpeg" + i).getBytes());
+			}
+		}
+
+		try (ZipFile zip = new ZipFile(file)) {
+			assertEquals(10, zip.size());
+		}
+		assertEquals("jpeg9", read("page09.jpg"));
+		assertEquals("<ComicInfo/>", read("ComicInfo.xml"));
+
+		byte[] written = FileUtils.readFileToByteArray(file);
+		ZipArchiveWriter writer = ZipUtils.openArchiveWriter(resource);
+		writer.add("page10.jpg", "jpeg10".getBytes());
+		try {
+			writer.add("page10.jpg", "jpeg10".getBytes());
+			fail("duplicate entry");
+		} catch(ZipException e) {
+			writer.abort();
+		}
+		assertTrue(Arrays.equals(written, FileUtils.readFileToByteArray(file)));
+		assertNoTemporaryFiles();
+	}
+
+	public void testStreamedAdd() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CompressedDataEntry entry = new CompressedDataEntry("ComicInfo.xml", "ComicInfo.xml".getBytes(), new ByteArrayInputStream("<new/>".getBytes()));
+		assertTrue(ZipUtils.add(new ByteArrayInputStream(FileUtils.readFileToByteArray(file)), out, entry));
+		FileUtils.writeByteArrayToFile(file, out.toByteArray());
+
+		assertEquals("<new/>", read("ComicInfo.xml"));
+		assertEquals(50000, read("page01.txt").length());
+	}
+}
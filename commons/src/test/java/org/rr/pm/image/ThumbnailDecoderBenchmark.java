@@ -0,0 +1,35 @@
+package org.rr.pm.image;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Compares the subsampled decoding of the {@link ThumbnailDecoder} with decoding the full image and scaling it afterwards.
+ * Not part of the unit tests, run it with the test classpath:
+ * <code>java -cp target/classes:target/test-classes:&lt;dependencies&gt; org.rr.pm.image.ThumbnailDecoderBenchmark</code>
+ */
+public class ThumbnailDecoderBenchmark {
+
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) throws IOException {
+		byte[] image = ThumbnailDecoderTest.createImage(2000, 3000, "jpg");
+
+		// the first run warms up the jit
+		for(int run = 0; run <= RUNS; run++) {
+			long start = System.nanoTime();
+			ImageUtils.scaleToHeight(ImageIO.read(new ByteArrayInputStream(image)), 100);
+			long fullDecode = (System.nanoTime() - start) / 1000000;
+
+			start = System.nanoTime();
+			ThumbnailDecoder.decodeToHeight(new ByteArrayInputStream(image), 100);
+			long subsampledDecode = (System.nanoTime() - start) / 1000000;
+
+			if(run > 0) {
+				System.out.println("Thumbnail of 2000x3000 jpeg: full decode " + fullDecode + "ms, subsampled decode " + subsampledDecode + "ms");
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package org.rr.pm.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+
+public class ThumbnailDecoderTest extends TestCase {
+
+	static byte[] createImage(int width, int height, String format) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(Color.BLUE);
+		graphics.fillRect(0, 0, width, height);
+		graphics.setColor(Color.RED);
+		graphics.fillOval(width / 4, height / 4, width / 2, height / 2);
+		graphics.dispose();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, format, out);
+		return out.toByteArray();
+	}
+
+	public void testDecodeToHeight() throws IOException {
+		BufferedImage thumbnail = ThumbnailDecoder.decodeToHeight(new ByteArrayInputStream(createImage(1000, 1500, "jpg")), 100);
+		assertEquals(100, thumbnail.getHeight());
+		assertEquals(67, thumbnail.getWidth(), 1);
+		assertEquals(Color.RED.getRGB() & 0xF00000, thumbnail.getRGB(33, 50) & 0xF00000);
+
+		thumbnail = ThumbnailDecoder.decodeToHeight(new ByteArrayInputStream(createImage(300, 150, "png")), 100);
+		assertEquals(100, thumbnail.getHeight());
+		assertEquals(200, thumbnail.getWidth(), 1);
+	}
+
+	public void testSmallImage() throws IOException {
+		BufferedImage thumbnail = ThumbnailDecoder.decodeToHeight(new ByteArrayInputStream(createImage(40, 50, "png")), 100);
+		assertEquals(100, thumbnail.getHeight());
+		assertEquals(80, thumbnail.getWidth(), 1);
+	}
+
+	public void testUnsupportedImage() throws IOException {
+		assertNull(ThumbnailDecoder.decodeToHeight(new ByteArrayInputStream("no image".getBytes()), 100));
+	}
+}
@@ -1,11 +1,15 @@
 package nl.siegmann.epublib.epub;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.xml.namespace.QName;
 
+import nl.siegmann.epublib.Constants;
 import nl.siegmann.epublib.domain.Author;
 import nl.siegmann.epublib.domain.Book;
 import nl.siegmann.epublib.domain.Date;
@@ -17,7 +21,83 @@ import org.xmlpull.v1.XmlSerializer;
 
 public class PackageDocumentMetadataWriter extends PackageDocumentBase {
 
-	
+	private static final Pattern ENCODING_PATTERN = Pattern.compile("^\\uFEFF?\\s*<\\?xml[^>]*\\bencoding\\s*=\\s*[\"']([^\"']*)[\"']");
+
+	private static final Pattern PACKAGE_PATTERN = Pattern.compile("<(?:[\\w.-]+:)?package\\b[^>]*>");
+
+	private static final Pattern METADATA_PATTERN = Pattern.compile("<((?:[\\w.-]+:)?metadata)\\b[^>]*?(?:/>|>.*?</\\1\\s*>)", Pattern.DOTALL);
+
+	private static final Pattern NAMESPACE_PATTERN = Pattern.compile("\\sxmlns(:[\\w.-]+)?\\s*=\\s*(?:\"[^\"]*\"|'[^']*')");
+
+	private static final Pattern UNIQUE_IDENTIFIER_PATTERN = Pattern.compile("(\\sunique-identifier\\s*=\\s*)(?:\"[^\"]*\"|'[^']*')");
+
+	/**
+	 * Replaces the metadata element of the given package document with the metadata of the book. All other
+	 * parts of the package document like the manifest, the spine and the guide are kept as they are, so the
+	 * package document could be updated without writing the whole book again.
+	 *
+	 * @param book The book which metadata should be written.
+	 * @param packageDocument The UTF-8 encoded package document (opf file) of the book.
+	 * @return The UTF-8 encoded package document with the new metadata.
+	 * @throws IllegalArgumentException if the package document is not UTF-8 encoded or has no metadata element.
+	 */
+	public static byte[] replaceMetaData(Book book, byte[] packageDocument) throws IllegalArgumentException, IOException {
+		final String document = new String(packageDocument, Constants.ENCODING);
+		final Matcher encoding = ENCODING_PATTERN.matcher(document);
+		if(encoding.find() && !Constants.ENCODING.equalsIgnoreCase(encoding.group(1))) {
+			throw new IllegalArgumentException("Unsupported package document encoding " + encoding.group(1));
+		}
+		final Matcher packageTag = PACKAGE_PATTERN.matcher(document);
+		final Matcher metadata = METADATA_PATTERN.matcher(document);
+		if(!packageTag.find() || !metadata.find(packageTag.end())) {
+			throw new IllegalArgumentException("No metadata element in package document");
+		}
+
+		// the book id identifier is always written with the BOOK_ID_ID
+		final String packageStartTag = UNIQUE_IDENTIFIER_PATTERN.matcher(packageTag.group()).replaceFirst("$1\"" + BOOK_ID_ID + "\"");
+		final StringBuilder result = new StringBuilder(document.length() + 1024);
+		result.append(document, 0, packageTag.start());
+		result.append(packageStartTag);
+		result.append(document, packageTag.end(), metadata.start());
+		result.append(writeMetaData(book));
+		result.append(document, metadata.end(), document.length());
+		return result.toString().getBytes(Constants.ENCODING);
+	}
+
+	/**
+	 * Writes the metadata element of the book. The namespaces declared by the package element are
+	 * declared at the metadata element, so it could be inserted in any package document.
+	 */
+	private static String writeMetaData(Book book) throws IOException {
+		final StringWriter out = new StringWriter();
+		final XmlSerializer serializer = EpubProcessorSupport.createXmlSerializer(out);
+		serializer.startDocument(Constants.ENCODING, false);
+		serializer.setPrefix(PREFIX_OPF, NAMESPACE_OPF);
+		serializer.setPrefix(PREFIX_DUBLIN_CORE, NAMESPACE_DUBLIN_CORE);
+		serializer.startTag(NAMESPACE_OPF, OPFTags.packageTag);
+		writeMetaData(book, serializer);
+		serializer.endTag(NAMESPACE_OPF, OPFTags.packageTag);
+		serializer.endDocument();
+		serializer.flush();
+
+		final String document = out.toString();
+		final Matcher packageTag = PACKAGE_PATTERN.matcher(document);
+		final Matcher metadata = METADATA_PATTERN.matcher(document);
+		if(!packageTag.find() || !metadata.find(packageTag.end())) {
+			throw new IOException("Could not write metadata element");
+		}
+		final int nameEnd = metadata.start() + 1 + metadata.group(1).length();
+		final String metadataStartTag = document.substring(metadata.start(), document.indexOf('>', nameEnd));
+		final StringBuilder namespaces = new StringBuilder();
+		final Matcher namespace = NAMESPACE_PATTERN.matcher(packageTag.group());
+		while(namespace.find()) {
+			if(!metadataStartTag.contains("xmlns" + (namespace.group(1) != null ? namespace.group(1) : "") + "=")) {
+				namespaces.append(namespace.group());
+			}
+		}
+		return document.substring(metadata.start(), nameEnd) + namespaces + document.substring(nameEnd, metadata.end());
+	}
+
 	/**
 	 * Writes the book's metadata.
 	 *
@@ -123,6 +123,18 @@ public class SearchIndex {
 	
 	
 	public static String getSearchContent(Reader content) {
+		return getSearchContent(content, "");
+	}
+	
+	/**
+	 * Gets the text of the given html without the tags.
+	 * 
+	 * @param content The html to read.
+	 * @param separator The text added between the text of two tags, for example a space, so the words of
+	 * 	two paragraphs are not joined.
+	 * @return The cleaned text.
+	 */
+	public static String getSearchContent(Reader content, String separator) {
 		StringBuilder result = new StringBuilder();
 		Scanner scanner = new Scanner(content);
 		scanner.useDelimiter("<");
@@ -132,6 +144,9 @@ public class SearchIndex {
 			String chunk = text.substring(closePos + 1).trim();
 			chunk = StringEscapeUtils.unescapeHtml(chunk);
 			chunk = cleanText(chunk);
+			if (result.length() > 0 && chunk.length() > 0) {
+				result.append(separator);
+			}
 			result.append(chunk);
 		}
 		return result.toString();
@@ -0,0 +1,92 @@
+package nl.siegmann.epublib.epub;
+
+import java.io.ByteArrayInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+import nl.siegmann.epublib.Constants;
+import nl.siegmann.epublib.domain.Author;
+import nl.siegmann.epublib.domain.Book;
+import nl.siegmann.epublib.domain.Identifier;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+public class PackageDocumentMetadataWriterTest extends TestCase {
+
+	private static final String MANIFEST = "<manifest><item id=\"ch1\" href=\"ch1.html\" media-type=\"application/xhtml+xml\"/></manifest>"
+			+ "<spine toc=\"ncx\"><itemref idref=\"ch1\"/></spine>";
+
+	private static final String PREFIXED_MANIFEST = "<opf:manifest><opf:item id=\"ch1\" href=\"ch1.html\" media-type=\"application/xhtml+xml\"/></opf:manifest>"
+			+ "<opf:spine toc=\"ncx\"><opf:itemref idref=\"ch1\"/></opf:spine>";
+
+	private static Book createBook() {
+		Book book = new Book();
+		book.getMetadata().addTitle("New Title");
+		book.getMetadata().addAuthor(new Author("Jane", "Doe"));
+		book.getMetadata().addIdentifier(new Identifier(Identifier.Scheme.ISBN, "1234567890"));
+		return book;
+	}
+
+	private static Document replace(String opf) throws Exception {
+		byte[] result = PackageDocumentMetadataWriter.replaceMetaData(createBook(), opf.getBytes(Constants.ENCODING));
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newDocumentBuilder().parse(new ByteArrayInputStream(result));
+	}
+
+	private static void assertMetadata(Document document) {
+		NodeList metadata = document.getElementsByTagNameNS(PackageDocumentBase.NAMESPACE_OPF, "metadata");
+		assertEquals(1, metadata.getLength());
+		Element element = (Element) metadata.item(0);
+		assertEquals(PackageDocumentBase.NAMESPACE_OPF, element.getParentNode().getNamespaceURI());
+
+		NodeList titles = element.getElementsByTagNameNS(PackageDocumentBase.NAMESPACE_DUBLIN_CORE, "title");
+		assertEquals(1, titles.getLength());
+		assertEquals("New Title", titles.item(0).getTextContent());
+		NodeList creators = element.getElementsByTagNameNS(PackageDocumentBase.NAMESPACE_DUBLIN_CORE, "creator");
+		assertEquals(1, creators.getLength());
+		assertEquals("Jane Doe", creators.item(0).getTextContent());
+		assertEquals(0, element.getElementsByTagNameNS(PackageDocumentBase.NAMESPACE_DUBLIN_CORE, "subject").getLength());
+
+		// the manifest and the spine are kept
+		assertEquals(1, document.getElementsByTagNameNS(PackageDocumentBase.NAMESPACE_OPF, "itemref").getLength());
+		assertEquals("ch1.html", ((Element) document.getElementsByTagNameNS(PackageDocumentBase.NAMESPACE_OPF, "item").item(0)).getAttribute("href"));
+		assertEquals(PackageDocumentBase.BOOK_ID_ID, document.getDocumentElement().getAttribute("unique-identifier"));
+	}
+
+	public void testDefaultNamespace() throws Exception {
+		Document document = replace("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<package xmlns=\"http://www.idpf.org/2007/opf\" unique-identifier=\"uid\" version=\"2.0\">"
+				+ "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\" xmlns:opf=\"http://www.idpf.org/2007/opf\">"
+				+ "<dc:title>Old Title</dc:title><dc:subject>Old Subject</dc:subject><dc:identifier id=\"uid\">old</dc:identifier>"
+				+ "</metadata>" + MANIFEST + "</package>");
+		assertMetadata(document);
+	}
+
+	public void testPrefixedMetadata() throws Exception {
+		Document document = replace("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<opf:package xmlns:opf=\"http://www.idpf.org/2007/opf\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\" unique-identifier=\"uid\" version=\"2.0\">"
+				+ "<opf:metadata><dc:title>Old Title</dc:title><dc:subject>Old Subject</dc:subject><dc:identifier id=\"uid\">old</dc:identifier></opf:metadata>"
+				+ PREFIXED_MANIFEST + "</opf:package>");
+		assertMetadata(document);
+	}
+
+	public void testSelfClosingMetadata() throws Exception {
+		Document document = replace("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<package xmlns=\"http://www.idpf.org/2007/opf\" unique-identifier=\"uid\" version=\"2.0\">"
+				+ "<metadata/>" + MANIFEST + "</package>");
+		assertMetadata(document);
+	}
+
+	public void testMissingMetadata() throws Exception {
+		try {
+			replace("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<package xmlns=\"http://www.idpf.org/2007/opf\">" + MANIFEST + "</package>");
+			fail();
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
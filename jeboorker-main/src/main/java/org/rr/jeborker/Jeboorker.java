@@ -21,18 +21,12 @@ import java.net.URL;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import static org.rr.commons.utils.StringUtil.EMPTY;
 
 public class Jeboorker {
 
-    public static final ExecutorService APPLICATION_THREAD_POOL = new ThreadPoolExecutor(0, 1024,
-            60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ApplicationThreadFactory()) {
-    };
-
     public static final String APP = "Jeboorker";
 
     public static final String URL = "https://github.com/meerkatzenwildschein/jeboorker";
@@ -151,32 +145,4 @@ public class Jeboorker {
         return System.getProperties().getProperty("user.dir");
     }
 
-    private static class ApplicationThreadFactory implements ThreadFactory {
-
-        private static final AtomicInteger poolNumber = new AtomicInteger(1);
-
-        private final ThreadGroup group;
-
-        private final AtomicInteger threadNumber = new AtomicInteger(1);
-
-        private final String namePrefix;
-
-        ApplicationThreadFactory() {
-            SecurityManager s = System.getSecurityManager();
-            group = (s != null) ? s.getThreadGroup() : Thread.currentThread().getThreadGroup();
-            namePrefix = "pool-" + poolNumber.getAndIncrement() + "-thread-";
-        }
-
-        public Thread newThread(final Runnable r) {
-            Thread t = new Thread(group, r, namePrefix + threadNumber.getAndIncrement(), 0);
-            if (t.isDaemon()) {
-                t.setDaemon(false);
-            }
-            if (t.getPriority() != Thread.NORM_PRIORITY) {
-                t.setPriority(Thread.NORM_PRIORITY);
-            }
-            return t;
-        }
-    }
-
 }
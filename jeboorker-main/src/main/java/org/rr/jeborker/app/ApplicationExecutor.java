@@ -0,0 +1,160 @@
+package org.rr.jeborker.app;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+
+import org.rr.commons.utils.ThreadUtils;
+import org.rr.jeborker.app.preferences.APreferenceStore;
+import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+
+/**
+ * The thread pools of the application. Each pool has a bounded number of threads and, excepting the pools
+ * for the user actions, a bounded queue, so a burst of tasks could not create an unlimited number of threads
+ * or fill the memory. The number of threads and the
+ * queue size can be configured with the <code>executor.&lt;name&gt;.threads</code> and
+ * <code>executor.&lt;name&gt;.queue</code> system preferences.
+ */
+public enum ApplicationExecutor {
+
+	/** The actions invoked by the user. The queue is not bounded, so no action of the user is lost. */
+	ACTIONS("Action", 4, Integer.MAX_VALUE, Thread.NORM_PRIORITY, false),
+
+	/** The actions invoked by the user which are running for a long time, like imports or refreshing a base path. */
+	LONG_ACTIONS("Long-Action", 2, Integer.MAX_VALUE, Thread.NORM_PRIORITY, false),
+
+	/** File system and database work in the background, like prefetching table rows or scanning folders. */
+	BACKGROUND_IO("Background-IO", 4, 1024, Thread.NORM_PRIORITY - 1, true),
+
+	/** CPU bound work like conversions or rebuilding indices. */
+	CPU("CPU", Math.max(1, ThreadUtils.availableProcessors() - 1), 256, Thread.MIN_PRIORITY, true),
+
+	/** Downloads and other network access. */
+	NETWORK("Network", 8, 256, Thread.NORM_PRIORITY - 1, true),
+
+	/**
+	 * The loops which are running as long as the application, like the file watcher or the cover loader, and other
+	 * tasks which need a thread of their own, like the writer of an import. Each loop occupies a thread of the pool
+	 * for ever, so the pool must have more threads than there are loops.
+	 * @see #execute(String, Runnable)
+	 */
+	LONG_RUNNING("Long-Running", 16, Integer.MAX_VALUE, Thread.NORM_PRIORITY, true);
+
+	private final String name;
+
+	private final int threads;
+
+	private final int queueSize;
+
+	private final int priority;
+
+	private final boolean daemon;
+
+	private InstrumentedExecutor executor;
+
+	private ApplicationExecutor(String name, int threads, int queueSize, int priority, boolean daemon) {
+		this.name = name;
+		this.threads = threads;
+		this.queueSize = queueSize;
+		this.priority = priority;
+		this.daemon = daemon;
+	}
+
+	/**
+	 * Submits the given task to this pool.
+	 * @throws java.util.concurrent.RejectedExecutionException if the queue of the pool is full.
+	 */
+	public void execute(Runnable task) {
+		getExecutor().execute(task);
+	}
+
+	/**
+	 * Submits the given task to this pool. The name of the task is appended to the name of the thread which
+	 * is running it, so the loops of the {@link #LONG_RUNNING} pool could be told apart in thread dumps.
+	 * @throws java.util.concurrent.RejectedExecutionException if the queue of the pool is full.
+	 */
+	public void execute(final String taskName, final Runnable task) {
+		execute(new Runnable() {
+
+			@Override
+			public void run() {
+				Thread thread = Thread.currentThread();
+				String threadName = thread.getName();
+				thread.setName(threadName + "-" + taskName);
+				try {
+					task.run();
+				} finally {
+					thread.setName(threadName);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Submits the given task to this pool.
+	 * @return The {@link Future} for the result of the task.
+	 * @throws java.util.concurrent.RejectedExecutionException if the queue of the pool is full.
+	 */
+	public <T> Future<T> submit(Callable<T> task) {
+		return getExecutor().submit(task);
+	}
+
+	/**
+	 * Submits the given task to this pool. If the queue of the pool is full, the task is run by the invoking thread,
+	 * so the invoking thread is slowed down instead of losing the task.
+	 * @return The future for the result of the task. The invoking thread could also {@link RunnableFuture#run() run}
+	 *   it instead of waiting for a free thread of the pool. The task is only run once.
+	 */
+	public <T> RunnableFuture<T> submitOrRun(Callable<T> task) {
+		FutureTask<T> future = new FutureTask<>(task);
+		try {
+			getExecutor().execute(future);
+		} catch(RejectedExecutionException e) {
+			future.run();
+		}
+		return future;
+	}
+
+	/**
+	 * Gets the pool which is created with the first access.
+	 */
+	public synchronized InstrumentedExecutor getExecutor() {
+		if(executor == null) {
+			APreferenceStore preferenceStore = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE);
+			int configuredThreads = preferenceStore.getGenericEntryAsNumber("executor." + name + ".threads", threads).intValue();
+			int configuredQueueSize = preferenceStore.getGenericEntryAsNumber("executor." + name + ".queue", queueSize).intValue();
+			executor = new InstrumentedExecutor(name, Math.max(1, configuredThreads), configuredQueueSize, priority, daemon);
+		}
+		return executor;
+	}
+
+	/**
+	 * @return The statistics of all pools which have been used.
+	 */
+	public static String getStatistics() {
+		StringBuilder result = new StringBuilder();
+		for(ApplicationExecutor pool : values()) {
+			synchronized(pool) {
+				if(pool.executor != null) {
+					result.append(pool.executor.getStatistics()).append('\n');
+				}
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Stops all pools. Tasks which are already queued are still executed.
+	 */
+	public static void shutdown() {
+		for(ApplicationExecutor pool : values()) {
+			synchronized(pool) {
+				if(pool.executor != null) {
+					pool.executor.shutdown();
+				}
+			}
+		}
+	}
+}
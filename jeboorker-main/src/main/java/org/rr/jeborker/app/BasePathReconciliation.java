@@ -0,0 +1,129 @@
+package org.rr.jeborker.app;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.ResourceHandlerFactory;
+import org.rr.jeborker.app.preferences.APreferenceStore;
+import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+import org.rr.jeborker.db.item.EbookPropertyItem;
+import org.rr.jeborker.db.item.EbookPropertyItemUtils;
+
+/**
+ * Finds the files which are added, changed or removed in the base paths while the application was not running.
+ * At each startup the base paths are scanned and compared with the {@link DirectorySnapshot} of the last startup.
+ * Only the differences are transferred to the database, so no full refresh of the base paths is needed.
+ * There is nothing to compare at the first startup, the snapshot is only written then.
+ */
+public class BasePathReconciliation {
+
+	private static final String ENABLED_KEY = "startupReconciliation";
+
+	private static final String SNAPSHOT_DIRECTORY_NAME = "snapshots";
+
+	private BasePathReconciliation() {
+	}
+
+	/**
+	 * Starts the reconciliation of all base paths in the background.
+	 */
+	public static void start() {
+		String enabled = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE).getGenericEntryAsString(ENABLED_KEY, "true");
+		if (!Boolean.parseBoolean(enabled)) {
+			return;
+		}
+
+		ApplicationExecutor.BACKGROUND_IO.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				BasePathList basePaths = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.DB_STORE).getBasePath();
+				for (String basePath : new ArrayList<>(basePaths)) {
+					try {
+						reconcile(new File(basePath).getAbsolutePath());
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					} catch (Exception e) {
+						LoggerFactory.log(Level.WARNING, BasePathReconciliation.class, "Failed to reconcile " + basePath, e);
+					}
+				}
+			}
+		});
+	}
+
+	private static void reconcile(String basePath) throws Exception {
+		if (!new File(basePath).isDirectory()) {
+			return;
+		}
+
+		long start = System.currentTimeMillis();
+		File snapshotFile = getSnapshotFile(basePath);
+		DirectorySnapshot previous = DirectorySnapshot.read(snapshotFile, basePath);
+		DirectorySnapshot current = DirectorySnapshot.scan(Paths.get(basePath));
+		if (previous != null) {
+			DirectorySnapshot.Diff diff = current.diff(previous);
+			if (!diff.isEmpty()) {
+				transfer(diff);
+			}
+			LoggerFactory.log(Level.INFO, BasePathReconciliation.class, "Reconciled " + current.size() + " files in " + basePath + " with "
+					+ diff + " in " + (System.currentTimeMillis() - start) + "ms");
+		}
+		current.write(snapshotFile);
+	}
+
+	/**
+	 * Transfers the differences to the database. The files which are changed since the last snapshot could
+	 * already be handled by the {@link FileWatchService}, so only these ebooks are refreshed which are
+	 * older than their file.
+	 */
+	private static void transfer(DirectorySnapshot.Diff diff) {
+		List<String> files = new ArrayList<>(diff.getAdded());
+		files.addAll(diff.getChanged());
+		files.addAll(diff.getRemoved());
+		Map<String, IResourceHandler> resources = new HashMap<>();
+		for (String file : files) {
+			IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+			resources.put(resource.toString(), resource);
+		}
+
+		final List<EbookPropertyItem> changedItems = new ArrayList<>();
+		for (EbookPropertyItem item : EbookPropertyItemUtils.getEbookPropertyItemsByResources(resources.values())) {
+			IResourceHandler resource = resources.remove(item.getFile());
+			if (resource == null || !resource.exists() || item.getTimestamp() < resource.getModifiedAt().getTime()) {
+				changedItems.add(item);
+			}
+		}
+
+		final List<IResourceHandler> addedResources = new ArrayList<>();
+		for (IResourceHandler resource : resources.values()) {
+			if (resource.exists()) {
+				addedResources.add(resource);
+			}
+		}
+
+		FileRefreshBackground.runWithDisabledRefresh(new Runnable() {
+
+			@Override
+			public void run() {
+				FileWatchService.transferDeleteAndRefresh(changedItems);
+				FileWatchService.transferNewEbookFiles(addedResources);
+			}
+		});
+	}
+
+	private static File getSnapshotFile(String basePath) {
+		File directory = new File(APreferenceStore.getConfigDirectory(), SNAPSHOT_DIRECTORY_NAME);
+		if (!directory.isDirectory()) {
+			directory.mkdirs();
+		}
+		return new File(directory, Integer.toHexString(basePath.hashCode()) + ".snap");
+	}
+}
@@ -0,0 +1,388 @@
+package org.rr.jeborker.app;
+
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.MimeUtils;
+import org.rr.commons.mufs.ResourceHandlerUtils;
+import org.rr.commons.search.SegmentedIndex;
+import org.rr.commons.utils.ReflectionUtils;
+import org.rr.commons.utils.compression.zip.RandomAccessZip;
+import org.rr.jeborker.app.preferences.APreferenceStore;
+import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+import org.rr.jeborker.converter.ITextHandler;
+import org.rr.jeborker.converter.MobiToTxtConverter;
+import org.rr.jeborker.converter.PdfToTxtConverter;
+import org.rr.jeborker.db.ContentIndex;
+import org.rr.jeborker.db.DefaultDBManager;
+import org.rr.jeborker.db.item.EbookPropertyItem;
+
+import com.j256.ormlite.dao.CloseableIterator;
+
+import nl.siegmann.epublib.domain.MediaType;
+import nl.siegmann.epublib.search.SearchIndex;
+import nl.siegmann.epublib.service.MediatypeService;
+import nl.siegmann.epublib.util.commons.io.XmlStreamReader;
+
+/**
+ * Fills the {@link ContentIndex} with the text of the local epub, pdf and mobi books in the database. At start,
+ * the timestamps of the books in the database are compared with the index, so the indexing continues where it
+ * was stopped at the last shutdown. After that, the books which are stored to or deleted from the database,
+ * also by the {@link FileRefreshBackground}, are picked up by the {@link ContentIndex.ChangeListener}.
+ * Each book is indexed by a separate task of the {@link ApplicationExecutor#CPU} pool which submits the task
+ * for the next book, so the indexing never occupies more than one thread of the pool.
+ */
+public class ContentIndexBackground implements ContentIndex.ChangeListener {
+
+	private static final String INDEX_DELAY_KEY = "contentIndexDelay";
+
+	private static final int DEFAULT_INDEX_DELAY = 50;
+
+	private static final String MAX_CHARACTERS_KEY = "contentIndexMaxCharacters";
+
+	private static final int DEFAULT_MAX_CHARACTERS = 2000000;
+
+	private static ContentIndexBackground singleton;
+
+	private final ContentIndex contentIndex;
+
+	private final APreferenceStore preferenceStore = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE);
+
+	/** The books to be indexed mapped by their files. Guarded by <code>this</code>. */
+	private final Map<String, EbookPropertyItem> pending = new LinkedHashMap<>();
+
+	/** The task which is submitted or running, <code>null</code> if there is none. Guarded by <code>this</code>. */
+	private Future<?> current;
+
+	/** Tells if the {@link #current} task is running. Guarded by <code>this</code>. */
+	private boolean running = false;
+
+	private volatile boolean stopped = false;
+
+	private int indexed = 0;
+
+	private ContentIndexBackground(ContentIndex contentIndex) {
+		this.contentIndex = contentIndex;
+	}
+
+	/**
+	 * Starts indexing the content of the books if the {@link ContentIndex} is enabled.
+	 */
+	public static synchronized void start() {
+		ContentIndex contentIndex = DefaultDBManager.getInstance().getContentIndex();
+		if (singleton == null && contentIndex != null) {
+			singleton = new ContentIndexBackground(contentIndex);
+			contentIndex.setChangeListener(singleton);
+			singleton.submit(singleton.new CatchUp());
+		}
+	}
+
+	/**
+	 * Stops the indexing and waits until the book which is currently indexed is finished.
+	 * Must be invoked before the database is shut down.
+	 */
+	public static synchronized void shutdown() {
+		if (singleton != null) {
+			singleton.contentIndex.setChangeListener(null);
+			singleton.stopped = true;
+			Future<?> running;
+			synchronized (singleton) {
+				running = singleton.current;
+			}
+			if (running != null) {
+				running.cancel(true);
+				singleton.awaitTermination();
+			}
+			singleton = null;
+		}
+	}
+
+	@Override
+	public void stored(List<EbookPropertyItem> items) {
+		boolean added = false;
+		synchronized (this) {
+			for (EbookPropertyItem item : items) {
+				if (contentIndex.getVersion(item) != item.getTimestamp()) {
+					pending.put(item.getFile(), item);
+					added = true;
+				}
+			}
+		}
+		if (added) {
+			scheduleNext();
+		}
+	}
+
+	@Override
+	public synchronized void deleted(List<EbookPropertyItem> items) {
+		for (EbookPropertyItem item : items) {
+			pending.remove(item.getFile());
+		}
+	}
+
+	/**
+	 * Submits the task for the next pending book if no task is submitted or running.
+	 */
+	private void scheduleNext() {
+		synchronized (this) {
+			if (current != null || pending.isEmpty()) {
+				return;
+			}
+		}
+		submit(new IndexNext());
+	}
+
+	private void submit(Runnable task) {
+		synchronized (this) {
+			if (stopped || current != null) {
+				return;
+			}
+			try {
+				current = ApplicationExecutor.CPU.submit(new TaskCallable(task));
+			} catch (RejectedExecutionException e) {
+				// the pending books are submitted again with the next change of the database.
+				LoggerFactory.log(Level.WARNING, this, "Failed to submit content index task, " + pending.size() + " books pending", e);
+			}
+		}
+	}
+
+	/**
+	 * Waits until the running task has finished after it has been stopped.
+	 */
+	private synchronized void awaitTermination() {
+		long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+		try {
+			while (running && System.currentTimeMillis() < timeout) {
+				wait(Math.max(1, timeout - System.currentTimeMillis()));
+			}
+		} catch (InterruptedException e) {
+			LoggerFactory.log(Level.WARNING, this, "Waiting for content index has been interrupted", e);
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (running) {
+			LoggerFactory.log(Level.WARNING, this, "Content index task has not finished after 10 seconds");
+		}
+	}
+
+	/**
+	 * Runs the given task and submits the task for the next pending book afterwards.
+	 */
+	private class TaskCallable implements Callable<Void> {
+
+		private final Runnable task;
+
+		TaskCallable(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public Void call() throws Exception {
+			synchronized (ContentIndexBackground.this) {
+				if (stopped) {
+					return null;
+				}
+				running = true;
+			}
+			try {
+				task.run();
+			} catch (Exception e) {
+				LoggerFactory.log(Level.WARNING, this, "Failed to index book contents", e);
+			} finally {
+				synchronized (ContentIndexBackground.this) {
+					current = null;
+					running = false;
+					ContentIndexBackground.this.notifyAll();
+				}
+			}
+			if (!stopped) {
+				scheduleNext();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Queues the books which are not yet indexed or changed since they were indexed and removes the
+	 * books which are no longer in the database from the index. Only the file and timestamp columns
+	 * are fetched and no file is touched.
+	 */
+	private class CatchUp implements Runnable {
+
+		@Override
+		public void run() {
+			Set<String> files = new HashSet<>();
+			CloseableIterator<EbookPropertyItem> iterator;
+			try {
+				iterator = DefaultDBManager.getInstance().getQueryBuilder(EbookPropertyItem.class).selectColumns("file", "timestamp").iterator();
+			} catch (Exception e) {
+				LoggerFactory.log(Level.WARNING, this, "Failed to read the books to be indexed", e);
+				return;
+			}
+			try {
+				while (iterator.hasNext() && !stopped) {
+					EbookPropertyItem item = iterator.next();
+					files.add(item.getFile());
+					if (contentIndex.getVersion(item) != item.getTimestamp()) {
+						synchronized (ContentIndexBackground.this) {
+							if (!pending.containsKey(item.getFile())) {
+								pending.put(item.getFile(), item);
+							}
+						}
+					}
+				}
+			} catch (Exception e) {
+				LoggerFactory.log(Level.WARNING, this, "Failed to read the books to be indexed", e);
+				return;
+			} finally {
+				iterator.closeQuietly();
+			}
+			if (stopped) {
+				return;
+			}
+
+			for (String file : contentIndex.getKeys()) {
+				if (!files.contains(file)) {
+					contentIndex.remove(file);
+				}
+			}
+			synchronized (ContentIndexBackground.this) {
+				LoggerFactory.log(Level.INFO, this, pending.size() + " books to be content indexed");
+			}
+		}
+	}
+
+	/**
+	 * Indexes the next pending book.
+	 */
+	private class IndexNext implements Runnable {
+
+		@Override
+		public void run() {
+			EbookPropertyItem item;
+			synchronized (ContentIndexBackground.this) {
+				Iterator<EbookPropertyItem> iterator = pending.values().iterator();
+				if (!iterator.hasNext()) {
+					return;
+				}
+				item = iterator.next();
+				iterator.remove();
+			}
+
+			IResourceHandler resource = item.getResourceHandler();
+			if (!ResourceHandlerUtils.isLocalFileResource(resource) || !resource.exists()) {
+				return;
+			}
+			indexBook(item, resource);
+			if (++indexed % 100 == 0) {
+				LoggerFactory.log(Level.INFO, this, "Content of " + indexed + " books indexed");
+			}
+			ReflectionUtils.sleepSilent(preferenceStore.getGenericEntryAsNumber(INDEX_DELAY_KEY, DEFAULT_INDEX_DELAY).intValue());
+		}
+
+		private void indexBook(EbookPropertyItem item, IResourceHandler resource) {
+			SegmentedIndex.Document document = contentIndex.createDocument(item, item.getTimestamp());
+			int maxCharacters = preferenceStore.getGenericEntryAsNumber(MAX_CHARACTERS_KEY, DEFAULT_MAX_CHARACTERS).intValue();
+			TextCollector collector = new TextCollector(document, maxCharacters);
+			try {
+				String mime = resource.getMimeType(true);
+				if (MimeUtils.MIME_EPUB.equals(mime)) {
+					readEpubText(resource, collector);
+				} else if (MimeUtils.MIME_PDF.equals(mime)) {
+					PdfToTxtConverter.extractText(resource, collector);
+				} else if (MimeUtils.MIME_MOBI.equals(mime) || MimeUtils.MIME_AZW.equals(mime)) {
+					collector.add(MobiToTxtConverter.readText(resource));
+				}
+			} catch (Throwable e) {
+				if (isStopped(e)) {
+					return;
+				}
+				// the book is indexed anyway, so it's not read again until it's changed.
+				LoggerFactory.log(Level.INFO, this, "Failed to read the content of " + resource, e);
+			}
+			if (isStopped(null)) {
+				// the text is incomplete, so the book is indexed again with the next start.
+				return;
+			}
+			contentIndex.add(document);
+		}
+
+		/**
+		 * Tells if the indexing has been stopped or interrupted, also if the given failure is caused by an interrupt.
+		 */
+		private boolean isStopped(Throwable failure) {
+			if (stopped || Thread.currentThread().isInterrupted()) {
+				return true;
+			}
+			for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+				if (cause instanceof InterruptedException || (cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException)) || cause instanceof ClosedByInterruptException) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Reads the xhtml documents of the epub with the text extraction of the epub search index.
+		 */
+		private void readEpubText(IResourceHandler resource, TextCollector collector) throws Exception {
+			try (RandomAccessZip zip = RandomAccessZip.open(resource)) {
+				for (String entry : zip.getEntryNames()) {
+					if (collector.isFull() || stopped) {
+						break;
+					}
+					MediaType mediaType = MediatypeService.determineMediaType(entry);
+					if (mediaType == MediatypeService.XHTML && !entry.startsWith("META-INF/")) {
+						try (Reader reader = new XmlStreamReader(zip.getInputStream(entry), true, "UTF-8")) {
+							collector.add(SearchIndex.getSearchContent(reader, " "));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds text to a document until the maximum number of characters is reached.
+	 */
+	private static class TextCollector implements ITextHandler {
+
+		private final SegmentedIndex.Document document;
+
+		private int remaining;
+
+		private TextCollector(SegmentedIndex.Document document, int maxCharacters) {
+			this.document = document;
+			this.remaining = maxCharacters;
+		}
+
+		@Override
+		public boolean add(String text) {
+			if (text.length() > remaining) {
+				text = text.substring(0, remaining);
+			}
+			remaining -= text.length();
+			document.addText(text);
+			return !isFull();
+		}
+
+		private boolean isFull() {
+			return remaining <= 0;
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package org.rr.jeborker.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.rr.commons.log.LoggerFactory;
+
+/**
+ * The files below a base path with their size, modification time and file key (the inode where available).
+ * A snapshot is written at startup and compared with the next one, so the files changed while
+ * the application was not running could be found without reading them.
+ */
+class DirectorySnapshot {
+
+	/**
+	 * The attributes of one file in the snapshot.
+	 */
+	private static class Entry {
+
+		private final long size;
+
+		private final long modified;
+
+		private final String fileKey;
+
+		private Entry(long size, long modified, String fileKey) {
+			this.size = size;
+			this.modified = modified;
+			this.fileKey = fileKey;
+		}
+
+		private boolean isSame(Entry other) {
+			return size == other.size && modified == other.modified && fileKey.equals(other.fileKey);
+		}
+	}
+
+	/**
+	 * The differences between two snapshots. All files are absolute paths.
+	 */
+	static class Diff {
+
+		private final List<String> added = new ArrayList<>();
+
+		private final List<String> changed = new ArrayList<>();
+
+		private final List<String> removed = new ArrayList<>();
+
+		List<String> getAdded() {
+			return added;
+		}
+
+		List<String> getChanged() {
+			return changed;
+		}
+
+		List<String> getRemoved() {
+			return removed;
+		}
+
+		boolean isEmpty() {
+			return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+		}
+
+		@Override
+		public String toString() {
+			return "added=" + added.size() + ", changed=" + changed.size() + ", removed=" + removed.size();
+		}
+	}
+
+	private static final int MAGIC = 0x4A424453;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private final String basePath;
+
+	/** The entries with the path relative to the base path. */
+	private final Map<String, Entry> entries;
+
+	private DirectorySnapshot(String basePath, Map<String, Entry> entries) {
+		this.basePath = basePath;
+		this.entries = entries;
+	}
+
+	/**
+	 * Reads the attributes of all files below the given base path. Each folder is read by a separate task
+	 * of the {@link ApplicationExecutor#BACKGROUND_IO} pool.
+	 * @throws InterruptedException if the invoking thread is interrupted while waiting for a folder.
+	 */
+	static DirectorySnapshot scan(final Path basePath) throws InterruptedException {
+		final Map<String, Entry> entries = new ConcurrentHashMap<>();
+		final int prefixLength = basePath.toString().length() + 1;
+		new FolderWalk<Path>() {
+
+			@Override
+			protected List<Path> readFolder(Path folder) {
+				List<Path> subFolders = new ArrayList<>();
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+					for (Path path : stream) {
+						try {
+							BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+							if (attributes.isDirectory()) {
+								subFolders.add(path);
+							} else if (attributes.isRegularFile()) {
+								Object fileKey = attributes.fileKey();
+								entries.put(path.toString().substring(prefixLength), new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(),
+										fileKey != null ? fileKey.toString() : ""));
+							}
+						} catch (IOException e) {
+							LoggerFactory.log(Level.INFO, this, "Failed to read attributes of " + path, e);
+						}
+					}
+				} catch (IOException e) {
+					LoggerFactory.log(Level.INFO, this, "Failed to read folder " + folder, e);
+				}
+				return subFolders;
+			}
+		}.walk(basePath);
+		return new DirectorySnapshot(basePath.toString(), new HashMap<>(entries));
+	}
+
+	/**
+	 * Compares this snapshot with the given previous one.
+	 */
+	Diff diff(DirectorySnapshot previous) {
+		Diff diff = new Diff();
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			Entry previousEntry = previous.entries.get(entry.getKey());
+			if (previousEntry == null) {
+				diff.added.add(toAbsolutePath(entry.getKey()));
+			} else if (!previousEntry.isSame(entry.getValue())) {
+				diff.changed.add(toAbsolutePath(entry.getKey()));
+			}
+		}
+		for (String path : previous.entries.keySet()) {
+			if (!entries.containsKey(path)) {
+				diff.removed.add(toAbsolutePath(path));
+			}
+		}
+		return diff;
+	}
+
+	private String toAbsolutePath(String relativePath) {
+		return basePath + File.separator + relativePath;
+	}
+
+	/**
+	 * @return The number of files in the snapshot.
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Reads a snapshot previously written with {@link #write(File)}.
+	 * @return The snapshot or <code>null</code> if there is no valid snapshot for the given base path.
+	 */
+	static DirectorySnapshot read(File file, String basePath) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new InflaterInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(basePath)) {
+				return null;
+			}
+			int count = in.readInt();
+			Map<String, Entry> entries = new HashMap<>(count * 4 / 3 + 1);
+			for (int i = 0; i < count; i++) {
+				entries.put(in.readUTF(), new Entry(in.readLong(), in.readLong(), in.readUTF()));
+			}
+			return new DirectorySnapshot(basePath, entries);
+		} catch (IOException e) {
+			LoggerFactory.log(Level.WARNING, DirectorySnapshot.class, "Failed to read snapshot " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes this snapshot to the given file. The previous snapshot is replaced only if the new one could be written.
+	 */
+	void write(File file) throws IOException {
+		File tmpFile = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(basePath);
+			out.writeInt(entries.size());
+			for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeLong(entry.getValue().size);
+				out.writeLong(entry.getValue().modified);
+				out.writeUTF(entry.getValue().fileKey);
+			}
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Could not delete " + file);
+		}
+		if (!tmpFile.renameTo(file)) {
+			throw new IOException("Could not rename " + tmpFile);
+		}
+	}
+}
@@ -1,23 +1,27 @@
 package org.rr.jeborker.app;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
+import org.rr.commons.collection.LRUCacheMap;
 import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.mufs.ResourceHandlerFactory;
 import org.rr.commons.utils.DateUtils;
-import org.rr.commons.utils.ReflectionUtils;
 import org.rr.commons.utils.UtilConstants;
-import org.rr.jeborker.Jeboorker;
+import org.rr.jeborker.app.preferences.APreferenceStore;
 import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
 import org.rr.jeborker.db.item.EbookPropertyItem;
 import org.rr.jeborker.db.item.EbookPropertyItemUtils;
@@ -25,41 +29,262 @@ import org.rr.jeborker.gui.action.ActionFactory;
 import org.rr.jeborker.gui.action.ActionUtils;
 import org.rr.jeborker.gui.action.ApplicationAction;
 
+/**
+ * Checks the ebooks in the background if their files are changed or deleted. The ebooks are queued
+ * with a {@link Priority}, so the rows visible in the table are checked before the files reported by the
+ * {@link FileWatchService}. An ebook is queued only once and visible ebooks which are checked recently
+ * are not queued again. The queue is processed by a small pool of worker threads.
+ */
 public class FileRefreshBackground {
 
+	/**
+	 * The priority of a queued ebook. The ebooks with a lower ordinal are processed first.
+	 */
+	public static enum Priority {
+		/** Ebooks visible in the table. */
+		VISIBLE,
+		/** Ebooks reported by the {@link FileWatchService}. */
+		WATCH
+	}
+
+	private static class QueueEntry implements Comparable<QueueEntry> {
+
+		private final EbookPropertyItem item;
+
+		private final Priority priority;
+
+		private final long sequence;
+
+		private QueueEntry(EbookPropertyItem item, Priority priority, long sequence) {
+			this.item = item;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(QueueEntry o) {
+			int compare = priority.compareTo(o.priority);
+			return compare != 0 ? compare : Long.compare(sequence, o.sequence);
+		}
+	}
+
+	private static final String QUEUE_SIZE_KEY = "fileRefreshQueueSize";
+
+	private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+	private static final String CHECK_TTL_KEY = "fileRefreshTtl";
+
+	private static final int DEFAULT_CHECK_TTL = 30000;
+
+	private static final String WORKER_COUNT_KEY = "fileRefreshWorkers";
+
+	private static final int DEFAULT_WORKER_COUNT = 2;
+
+	private static final int RATE_WINDOW = 60000;
+
 	private static FileRefreshBackground singleton;
 
-	private static final Set<EbookPropertyItem> items = Collections.synchronizedSet(new HashSet<EbookPropertyItem>());
+	private static final AtomicInteger isDisabled = new AtomicInteger();
+
+	private static final ReentrantLock lock = new ReentrantLock();
+
+	private static final Condition available = lock.newCondition();
+
+	/** The queued ebooks in the order they should be processed. */
+	private static final TreeSet<QueueEntry> queue = new TreeSet<>();
+
+	/** The queued ebooks by their file. */
+	private static final Map<String, QueueEntry> queued = new HashMap<>();
+
+	/** The files which are currently processed by a worker. */
+	private static final Set<String> processing = new HashSet<>();
+
+	/** The time when the files were checked the last time. */
+	private static final Map<String, Long> checked = new LRUCacheMap<>(10000);
+
+	private static long sequence = 0;
+
+	private static final AtomicLong processedCount = new AtomicLong();
+
+	private static final AtomicLong droppedCount = new AtomicLong();
+
+	private static long rateWindowStart = System.currentTimeMillis();
+
+	private static long rateWindowCount = 0;
+
+	private static double rate = 0;
+
+	private final int queueSize;
+
+	private final long checkTtl;
 
-	private static int isDisabled = 0;
-	
 	private FileRefreshBackground() {
+		APreferenceStore preferenceStore = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE);
+		queueSize = preferenceStore.getGenericEntryAsNumber(QUEUE_SIZE_KEY, DEFAULT_QUEUE_SIZE).intValue();
+		checkTtl = preferenceStore.getGenericEntryAsNumber(CHECK_TTL_KEY, DEFAULT_CHECK_TTL).longValue();
 	}
-	
+
 	public static synchronized FileRefreshBackground getInstance() {
 		if (singleton == null) {
 			singleton = new FileRefreshBackground();
-			Jeboorker.APPLICATION_THREAD_POOL.submit(new Worker());
+			int workers = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE)
+					.getGenericEntryAsNumber(WORKER_COUNT_KEY, DEFAULT_WORKER_COUNT).intValue();
+			for (int i = 0; i < Math.max(1, workers); i++) {
+				ApplicationExecutor.LONG_RUNNING.execute("FileRefreshBackground-" + i, new Worker());
+			}
 		}
 		return singleton;
 	}
 
+	/**
+	 * Queues the given ebook which is visible to the user.
+	 */
 	public void addEbook(EbookPropertyItem item) {
-		if(isDisabled == 0) {
-			synchronized (items) {
-				items.add(item);
+		addEbook(item, Priority.VISIBLE);
+	}
+
+	/**
+	 * Queues the given ebooks which are reported as changed by the {@link FileWatchService}.
+	 */
+	public void addEbooks(List<EbookPropertyItem> changedResources) {
+		for (EbookPropertyItem item : changedResources) {
+			addEbook(item, Priority.WATCH);
+		}
+	}
+
+	/**
+	 * Queues the given ebook with the given priority. Visible ebooks are not queued if they are checked
+	 * within the configured <code>fileRefreshTtl</code>. If the queue is full, the ebook with the lowest
+	 * priority is dropped.
+	 */
+	public void addEbook(EbookPropertyItem item, Priority priority) {
+		if (isDisabled.get() != 0 || item == null) {
+			return;
+		}
+
+		String file = item.getFile();
+		lock.lock();
+		try {
+			QueueEntry entry = queued.get(file);
+			if (entry != null) {
+				if (priority.compareTo(entry.priority) >= 0) {
+					return;
+				}
+				queue.remove(entry);
+			} else if (priority == Priority.VISIBLE) {
+				Long lastCheck = checked.get(file);
+				if (lastCheck != null && System.currentTimeMillis() - lastCheck.longValue() < checkTtl) {
+					return;
+				}
 			}
+
+			entry = new QueueEntry(item, priority, sequence++);
+			if (queue.size() >= queueSize) {
+				QueueEntry last = queue.last();
+				if (entry.compareTo(last) > 0) {
+					droppedCount.incrementAndGet();
+					return;
+				}
+				queue.remove(last);
+				queued.remove(last.item.getFile());
+				droppedCount.incrementAndGet();
+			}
+			queue.add(entry);
+			queued.put(file, entry);
+			available.signal();
+		} finally {
+			lock.unlock();
 		}
 	}
-	
-	public void addEbooks(List<EbookPropertyItem> changedResources) {
-		if(isDisabled == 0 && !changedResources.isEmpty()) {
-			synchronized (items) {
-				items.addAll(changedResources);
+
+	/**
+	 * Waits until there is an ebook to process which is not already processed by another worker.
+	 */
+	private static EbookPropertyItem take() throws InterruptedException {
+		lock.lock();
+		try {
+			while (true) {
+				if (isDisabled.get() == 0) {
+					for (QueueEntry entry : queue) {
+						String file = entry.item.getFile();
+						if (!processing.contains(file)) {
+							queue.remove(entry);
+							queued.remove(file);
+							processing.add(file);
+							return entry.item;
+						}
+					}
+				}
+				available.await();
 			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static void processed(EbookPropertyItem item) {
+		lock.lock();
+		try {
+			String file = item.getFile();
+			processing.remove(file);
+			checked.put(file, Long.valueOf(System.currentTimeMillis()));
+			processedCount.incrementAndGet();
+
+			long now = System.currentTimeMillis();
+			rateWindowCount++;
+			if (now - rateWindowStart >= RATE_WINDOW) {
+				rate = rateWindowCount * 1000d / (now - rateWindowStart);
+				rateWindowStart = now;
+				rateWindowCount = 0;
+			}
+			if (queued.containsKey(file)) {
+				available.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return The number of queued ebooks.
+	 */
+	public static int getQueueSize() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return The number of processed ebooks since the application has been started.
+	 */
+	public static long getProcessedCount() {
+		return processedCount.get();
+	}
+
+	/**
+	 * @return The number of processed ebooks per second, measured over the last minute.
+	 */
+	public static double getProcessingRate() {
+		lock.lock();
+		try {
+			long elapsed = System.currentTimeMillis() - rateWindowStart;
+			return elapsed >= RATE_WINDOW || rate == 0 ? rateWindowCount * 1000d / Math.max(1, elapsed) : rate;
+		} finally {
+			lock.unlock();
 		}
 	}
-	
+
+	/**
+	 * @return The statistics of the queue as human readable text.
+	 */
+	public static String getStatistics() {
+		return "queued=" + getQueueSize() + ", processed=" + getProcessedCount() + ", dropped=" + droppedCount.get()
+				+ ", rate=" + String.format("%.1f", getProcessingRate()) + "/s";
+	}
+
 	/**
 	 * Disabled the {@link FileRefreshBackground}. The {@link #addEbook(EbookPropertyItem)} method
 	 * did no longer add books if the {@link FileRefreshBackground} is set to disabled.
@@ -68,12 +293,17 @@ public class FileRefreshBackground {
 	 */
 	public static void setDisabled(boolean disabled) {
 		if(disabled) {
-			isDisabled ++;
-		} else {
-			isDisabled --;
+			isDisabled.incrementAndGet();
+		} else if(isDisabled.decrementAndGet() == 0) {
+			lock.lock();
+			try {
+				available.signalAll();
+			} finally {
+				lock.unlock();
+			}
 		}
 	}
-	
+
 	/**
 	 * Starts the given {@link Runnable} and takes sure that the background refresh is disabled while running.
 	 * @param run The {@link Runnable} to be started while no file refresh will be detected.
@@ -86,12 +316,12 @@ public class FileRefreshBackground {
 			setDisabled(false);
 		}
 	}
-	
+
 	/**
 	 * Tells if the background refresh is currently disabled or not.
 	 */
 	public static boolean isDisabled() {
-		return isDisabled != 0;
+		return isDisabled.get() != 0;
 	}
 
 	private static class Worker implements Runnable {
@@ -99,29 +329,19 @@ public class FileRefreshBackground {
 		@Override
 		public void run() {
 			while (true) {
-				while (!items.isEmpty() && isDisabled == 0) {
-					EbookPropertyItem ebookPropertyItem = null;
-					try {
-						synchronized (items) {
-							List<EbookPropertyItem> processedItems = new ArrayList<>();
-							Iterator<EbookPropertyItem> itemsIter = items.iterator();
-							while(itemsIter.hasNext()) {
-								ebookPropertyItem = itemsIter.next();
-								if(ebookPropertyItem != null) {
-									this.processItem(ebookPropertyItem);
-									processedItems.add(ebookPropertyItem);
-								}
-							}
-							items.removeAll(processedItems);
-							items.remove(null);
-						}
-					} catch(Exception e) {
-						LoggerFactory.log(Level.WARNING, this, "Failed to handle " + ebookPropertyItem + " in background process", e);
+				EbookPropertyItem ebookPropertyItem = null;
+				try {
+					ebookPropertyItem = take();
+					this.processItem(ebookPropertyItem);
+				} catch(InterruptedException e) {
+					return;
+				} catch(Exception e) {
+					LoggerFactory.log(Level.WARNING, this, "Failed to handle " + ebookPropertyItem + " in background process", e);
+				} finally {
+					if(ebookPropertyItem != null) {
+						processed(ebookPropertyItem);
 					}
 				}
-				
-				// wait a moment before restart
-				ReflectionUtils.sleepSilent(1000);
 			}
 		}
 
@@ -3,21 +3,33 @@ package org.rr.jeborker.app;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchEvent.Kind;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import javax.swing.SwingUtilities;
@@ -25,25 +37,33 @@ import javax.swing.SwingUtilities;
 import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.mufs.ResourceHandlerFactory;
-import org.rr.commons.utils.ReflectionUtils;
-import org.rr.jeborker.Jeboorker;
 import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
 import org.rr.jeborker.db.DefaultDBManager;
 import org.rr.jeborker.db.item.EbookPropertyItem;
 import org.rr.jeborker.db.item.EbookPropertyItemUtils;
 import org.rr.jeborker.gui.MainController;
-import org.rr.jeborker.gui.action.ActionUtils;
+import org.rr.jeborker.gui.action.EbookImportPipeline;
 
+/**
+ * Watches the folders of the ebooks for changes. Folders which are created in a watched folder are
+ * watched too. The events are collected per file until no further event for that file is received within the
+ * <code>fileWatchDebounce</code> time. The settled files are then handled together, so copying a folder with
+ * many ebooks results in a few database queries and not in one per event.
+ */
 public class FileWatchService {
 
+	private static final String DEBOUNCE_KEY = "fileWatchDebounce";
+
+	private static final int DEFAULT_DEBOUNCE = 1000;
+
 	private static WatchService watchService;
 
-	private static final HashMap<String, WatchKey> items = new HashMap<String, WatchKey>();
+	private static final Map<String, WatchKey> items = new ConcurrentHashMap<String, WatchKey>();
 
 	static {
 		try {
 			watchService = FileSystems.getDefault().newWatchService();
-			Jeboorker.APPLICATION_THREAD_POOL.submit(new WatchFolderRunnable());
+			ApplicationExecutor.LONG_RUNNING.execute("FileWatchService", new WatchFolderRunnable());
 		} catch (IOException e) {
 			LoggerFactory.getLogger(FileWatchService.class).log(Level.WARNING, "Failed to add file watch service", e);
 		}
@@ -60,15 +80,19 @@ public class FileWatchService {
 	}
 
 	/**
-	 * Removes the given path from the watch
+	 * Removes the given path and all watched folders below from the watch
 	 * @param path The path to be removed from watch.
 	 */
 	public static void removeWatchPath(String path) {
 		path = new File(path).getAbsolutePath();
-		WatchKey watchKey = items.remove(path);
-		if(watchKey != null) {
-			watchKey.cancel();
-			LoggerFactory.getLogger(FileWatchService.class).log(Level.INFO, "Removing " + path + " from watch service.");
+		Iterator<Map.Entry<String, WatchKey>> iterator = items.entrySet().iterator();
+		while(iterator.hasNext()) {
+			Map.Entry<String, WatchKey> item = iterator.next();
+			if(item.getKey().equals(path) || item.getKey().startsWith(path + File.separator)) {
+				item.getValue().cancel();
+				iterator.remove();
+				LoggerFactory.getLogger(FileWatchService.class).log(Level.INFO, "Removing " + item.getKey() + " from watch service.");
+			}
 		}
 	}
 
@@ -82,8 +106,7 @@ public class FileWatchService {
 				path = new File(path).getAbsolutePath();
 				File pathFile = new File(path);
 				if(!isAlreadyWatched(path) && pathFile.isDirectory()) {
-					WatchKey watchKey = Paths.get(path).register(watchService, new Kind<?>[] { ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE });
-					items.put(path, watchKey);
+					register(Paths.get(path));
 					LoggerFactory.getLogger(FileWatchService.class).log(Level.INFO, "Added " + path + " to watch service.");
 				}
 			} catch (Exception e) {
@@ -93,6 +116,41 @@ public class FileWatchService {
 		}
 	}
 
+	private static void register(Path path) throws IOException {
+		WatchKey watchKey = path.register(watchService, new Kind<?>[] { ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE });
+		items.put(path.toString(), watchKey);
+	}
+
+	/**
+	 * Watches the given folder and all folders below which are not already watched.
+	 * @param files Takes all files found in the folders.
+	 */
+	private static void registerRecursive(Path folder, final List<Path> files) throws IOException {
+		Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				if(!isAlreadyWatched(dir.toString())) {
+					register(dir);
+					LoggerFactory.getLogger(FileWatchService.class).log(Level.INFO, "Added " + dir + " to watch service.");
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				files.add(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+				LoggerFactory.getLogger(FileWatchService.class).log(Level.WARNING, "Failed to visit " + file, e);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
 	/**
 	 * Shutdown the watch service. No file change is detected after shutting down the service.
 	 */
@@ -110,103 +168,211 @@ public class FileWatchService {
 		return items.containsKey(path);
 	}
 
+	/**
+	 * The last event of a file which is not yet handled.
+	 */
+	private static class PendingEvent {
+
+		private Kind<?> kind;
+
+		private long time;
+
+		private PendingEvent(Kind<?> kind) {
+			this.kind = kind;
+			this.time = System.currentTimeMillis();
+		}
+	}
+
 	private static class WatchFolderRunnable implements Runnable {
 
+		private final Map<Path, PendingEvent> pending = new LinkedHashMap<>();
+
 		@Override
 		public void run() {
 	        while (true) {
 	        	try {
-	        		WatchKey watchKey = watchService.take();
-
-	        		final List<EbookPropertyItem> changedEbooks = new ArrayList<>();
-	        		final List<IResourceHandler> addedResources = new ArrayList<>();
-		            for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
-		            	if(!FileRefreshBackground.isDisabled()) {
-			            	final Path fullPath = ((Path)watchKey.watchable()).resolve((Path)watchEvent.context());
-			            	final IResourceHandler resourceHandler = ResourceHandlerFactory.getResourceHandler(fullPath.toFile());
-	            			final List<EbookPropertyItem> ebookPropertyItemByResource = EbookPropertyItemUtils.getEbookPropertyItemByResource(resourceHandler);
-
-	            			if(ebookPropertyItemByResource.isEmpty() && watchEvent.kind() == ENTRY_CREATE) {
-	            				addedResources.add(resourceHandler);
-	            			} else if(watchEvent.kind() == ENTRY_DELETE || watchEvent.kind() == ENTRY_MODIFY) {
-	            				changedEbooks.addAll(ebookPropertyItemByResource);
-	            			}
-		            	}
-		            }
-		            watchKey.reset();
-
-					FileRefreshBackground.runWithDisabledRefresh(new Runnable() {
-
-						@Override
-						public void run() {
-							//seems the file may be not ready to read, wait...
-							ReflectionUtils.sleepSilent(500);
-
-				            transferDeleteAndRefresh(changedEbooks);
-				            transferNewEbookFiles(addedResources);
-						}
-					});
+	        		long debounce = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE)
+	        				.getGenericEntryAsNumber(DEBOUNCE_KEY, DEFAULT_DEBOUNCE).longValue();
+	        		WatchKey watchKey = pending.isEmpty() ? watchService.take() : watchService.poll(Math.max(10, debounce / 4), TimeUnit.MILLISECONDS);
+	        		if(watchKey != null) {
+	        			collectEvents(watchKey);
+	        		}
+	        		handleSettledEvents(debounce);
+	        	} catch(ClosedWatchServiceException e) {
+	        		return;
 	        	} catch(Exception e) {
 	        		LoggerFactory.getLogger(FileWatchService.class).log(Level.WARNING, "WatchFolderRunnable", e);
 	        	}
 	        }
 		}
 
-		private void transferNewEbookFiles(final List<IResourceHandler> addedResources) {
-			for (IResourceHandler resource : addedResources) {
-				if(EbookPropertyItemUtils.getEbookPropertyItemByResource(resource).isEmpty()) {
-					IResourceHandler basePathForFile = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.DB_STORE).getBasePath().getBasePathForFile(resource);
-					if( basePathForFile != null && resource.exists() && ActionUtils.isSupportedEbookFormat(resource, true) ) {
-						final EbookPropertyItem item = EbookPropertyItemUtils.createEbookPropertyItem(resource, basePathForFile);
-						DefaultDBManager.getInstance().storeObject(item);
-						ActionUtils.addAndStoreEbookPropertyItem(item);
-						MainController.getController().getMainTreeHandler().refreshFileSystemTreeEntry(basePathForFile);
-						LoggerFactory.getLogger().log(Level.INFO, "add " + resource);
-					}
-				}
+		private void collectEvents(WatchKey watchKey) {
+			Path folder = (Path) watchKey.watchable();
+            for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+            	if(watchEvent.kind() == OVERFLOW) {
+            		LoggerFactory.getLogger(FileWatchService.class).log(Level.INFO, "Lost file events for " + folder);
+            	} else if(!FileRefreshBackground.isDisabled()) {
+	            	final Path fullPath = folder.resolve((Path) watchEvent.context());
+	            	if(watchEvent.kind() == ENTRY_CREATE && Files.isDirectory(fullPath)) {
+	            		// the files could be created before the folder is watched, so all of them are handled.
+	            		List<Path> files = new ArrayList<>();
+	            		try {
+	            			registerRecursive(fullPath, files);
+	            		} catch(IOException e) {
+	            			LoggerFactory.getLogger(FileWatchService.class).log(Level.WARNING, "Failed to watch " + fullPath, e);
+	            		}
+	            		for(Path file : files) {
+	            			addEvent(file, ENTRY_CREATE);
+	            		}
+	            	} else {
+	            		addEvent(fullPath, watchEvent.kind());
+	            	}
+            	}
+            }
+            if(!watchKey.reset()) {
+            	items.remove(folder.toString());
+            }
+		}
+
+		/**
+		 * Merges the given event with the pending event of the same file.
+		 */
+		private void addEvent(Path path, Kind<?> kind) {
+			PendingEvent event = pending.remove(path);
+			if(event == null) {
+				event = new PendingEvent(kind);
+			} else if(kind == ENTRY_DELETE && event.kind == ENTRY_CREATE) {
+				// created and deleted again, nothing to do.
+				return;
+			} else if(kind == ENTRY_CREATE && event.kind == ENTRY_DELETE) {
+				event.kind = ENTRY_MODIFY;
+			} else if(event.kind != ENTRY_CREATE) {
+				event.kind = kind;
 			}
+			event.time = System.currentTimeMillis();
+			pending.put(path, event);
 		}
 
-		private void transferDeleteAndRefresh(final List<EbookPropertyItem> ebooks) {
-			final MainController controller = MainController.getController();
-			for(final EbookPropertyItem item : ebooks) {
-				//do not process items younger than 10 seconds since jeboorker has touched them.
-				if(isTimeLeft(item, 10000)) {
-					final IResourceHandler resourceHandler = item.getResourceHandler();
-					if(!resourceHandler.exists()) {
-						//remove
-						SwingUtilities.invokeLater(new Runnable() {
-
-							@Override
-							public void run() {
-								boolean removed = controller.removeEbookPropertyItem(item);
-								controller.getMainTreeHandler().refreshFileSystemTreeEntry(item.getResourceHandler());
-								if(!removed) {
-									DefaultDBManager.getInstance().deleteObject(item);
-								}
-								LoggerFactory.getLogger().log(Level.INFO, "remove " + resourceHandler + " " + removed);
+		/**
+		 * Handles all files which got no further event within the debounce time.
+		 */
+		private void handleSettledEvents(long debounce) {
+			final Map<IResourceHandler, Kind<?>> settled = new LinkedHashMap<>();
+			long now = System.currentTimeMillis();
+			Iterator<Map.Entry<Path, PendingEvent>> iterator = pending.entrySet().iterator();
+			while(iterator.hasNext()) {
+				Map.Entry<Path, PendingEvent> entry = iterator.next();
+				if(now - entry.getValue().time >= debounce) {
+					settled.put(ResourceHandlerFactory.getResourceHandler(entry.getKey().toFile()), entry.getValue().kind);
+					iterator.remove();
+				}
+			}
+
+			if(!settled.isEmpty()) {
+				FileRefreshBackground.runWithDisabledRefresh(new Runnable() {
+
+					@Override
+					public void run() {
+						List<EbookPropertyItem> changedEbooks = EbookPropertyItemUtils.getEbookPropertyItemsByResources(settled.keySet());
+						List<IResourceHandler> addedResources = new ArrayList<>();
+						Set<String> knownFiles = new HashSet<>();
+						for(EbookPropertyItem item : changedEbooks) {
+							knownFiles.add(item.getFile());
+						}
+						for(Map.Entry<IResourceHandler, Kind<?>> entry : settled.entrySet()) {
+							if(entry.getValue() != ENTRY_DELETE && !knownFiles.contains(entry.getKey().toString())) {
+								addedResources.add(entry.getKey());
 							}
-						});
-					} else {
-						//refresh
-						EbookPropertyItemUtils.refreshEbookPropertyItem(item, resourceHandler, true);
-						DefaultDBManager.getInstance().updateObject(item);
-						LoggerFactory.getLogger().log(Level.INFO, "refresh " + resourceHandler);
+						}
+
+			            transferDeleteAndRefresh(changedEbooks);
+			            transferNewEbookFiles(addedResources);
 					}
+				});
+			}
+		}
+	}
 
-					FileRefreshBackground.getInstance().addEbooks(ebooks);
-				}
+	/**
+	 * Adds the given files to the database and to the ui if they are supported ebooks in one of the base paths.
+	 * The metadata is read in parallel by the {@link EbookImportPipeline} which refreshes the table once for each
+	 * stored batch.
+	 */
+	static void transferNewEbookFiles(final List<IResourceHandler> addedResources) {
+		Map<IResourceHandler, IResourceHandler> importResources = new LinkedHashMap<>();
+		Set<IResourceHandler> basePaths = new HashSet<>();
+		BasePathList basePathList = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.DB_STORE).getBasePath();
+		for (IResourceHandler resource : addedResources) {
+			IResourceHandler basePathForFile = basePathList.getBasePathForFile(resource);
+			if( basePathForFile != null && resource.exists() ) {
+				importResources.put(resource, basePathForFile);
+				basePaths.add(basePathForFile);
 			}
 		}
 
-		private boolean isTimeLeft(EbookPropertyItem item, long time) {
-			long timestamp = item.getTimestamp();
-			if(System.currentTimeMillis() - timestamp < time) {
-				return false;
+		if(!importResources.isEmpty() && new EbookImportPipeline().importFiles(importResources) > 0) {
+			for(IResourceHandler basePath : basePaths) {
+				MainController.getController().getMainTreeHandler().refreshFileSystemTreeEntry(basePath);
 			}
-			return true;
 		}
+	}
 
+	/**
+	 * Removes the given ebooks from the database and the ui if their files no longer exist and refreshes
+	 * the other ones.
+	 */
+	static void transferDeleteAndRefresh(final List<EbookPropertyItem> ebooks) {
+		final List<EbookPropertyItem> removedItems = new ArrayList<>();
+		final List<EbookPropertyItem> refreshedItems = new ArrayList<>();
+		for(final EbookPropertyItem item : ebooks) {
+			//do not process items younger than 10 seconds since jeboorker has touched them.
+			if(isTimeLeft(item, 10000)) {
+				final IResourceHandler resourceHandler = item.getResourceHandler();
+				if(!resourceHandler.exists()) {
+					removedItems.add(item);
+				} else {
+					EbookPropertyItemUtils.refreshEbookPropertyItem(item, resourceHandler, true);
+					refreshedItems.add(item);
+				}
+			}
+		}
+
+		if(!refreshedItems.isEmpty()) {
+			DefaultDBManager.getInstance().storeObjects(refreshedItems);
+			LoggerFactory.getLogger().log(Level.INFO, "refresh " + refreshedItems.size() + " ebooks");
+		}
+		if(!removedItems.isEmpty()) {
+			final MainController controller = MainController.getController();
+			SwingUtilities.invokeLater(new Runnable() {
+
+				@Override
+				public void run() {
+					List<EbookPropertyItem> notRemoved = new ArrayList<>();
+					for(EbookPropertyItem item : removedItems) {
+						if(!controller.removeEbookPropertyItem(item)) {
+							notRemoved.add(item);
+						}
+						controller.getMainTreeHandler().refreshFileSystemTreeEntry(item.getResourceHandler());
+					}
+					if(!notRemoved.isEmpty()) {
+						DefaultDBManager.getInstance().deleteObjects(notRemoved, true);
+					}
+					LoggerFactory.getLogger().log(Level.INFO, "remove " + removedItems.size() + " ebooks");
+				}
+			});
+		}
+		if(!removedItems.isEmpty() || !refreshedItems.isEmpty()) {
+			List<EbookPropertyItem> handledItems = new ArrayList<>(refreshedItems);
+			handledItems.addAll(removedItems);
+			FileRefreshBackground.getInstance().addEbooks(handledItems);
+		}
 	}
 
+	private static boolean isTimeLeft(EbookPropertyItem item, long time) {
+		long timestamp = item.getTimestamp();
+		if(System.currentTimeMillis() - timestamp < time) {
+			return false;
+		}
+		return true;
+	}
 }
@@ -0,0 +1,72 @@
+package org.rr.jeborker.app;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RunnableFuture;
+
+/**
+ * Walks a folder tree in parallel with the {@link ApplicationExecutor#BACKGROUND_IO} pool. Each folder is read
+ * by a separate task which returns the sub folders. The tasks never wait for each other, the thread which
+ * invokes {@link #walk(Object)} submits the sub folders and runs the tasks itself which no thread of the pool
+ * has started yet. So the walk could not dead lock the bounded pool, also if it's invoked by a thread of the pool.
+ *
+ * @param <F> The type of the folders.
+ */
+public abstract class FolderWalk<F> {
+
+	/** The number of folders which are submitted to the pool at the same time. */
+	private static final int MAX_PENDING_FOLDERS = 16;
+
+	/**
+	 * Reads the given folder. Invoked in parallel by the threads of the pool and the walking thread.
+	 * @return The sub folders of the given folder which should also be read.
+	 */
+	protected abstract List<F> readFolder(F folder);
+
+	/**
+	 * Reads the given folder and all sub folders and waits until all are done.
+	 * @throws InterruptedException if the invoking thread is interrupted while waiting for a folder.
+	 * @throws RuntimeException with the cause if reading a folder has failed.
+	 */
+	public void walk(F root) throws InterruptedException {
+		Deque<F> folders = new ArrayDeque<>();
+		Deque<RunnableFuture<List<F>>> pending = new ArrayDeque<>();
+		folders.add(root);
+		try {
+			while(!folders.isEmpty() || !pending.isEmpty()) {
+				while(!folders.isEmpty() && pending.size() < MAX_PENDING_FOLDERS) {
+					pending.add(ApplicationExecutor.BACKGROUND_IO.submitOrRun(new ReadFolderCallable(folders.remove())));
+				}
+				RunnableFuture<List<F>> next = pending.remove();
+				next.run();
+				try {
+					folders.addAll(next.get());
+				} catch(ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		} finally {
+			// only left if the walk has failed
+			for(RunnableFuture<List<F>> future : pending) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private class ReadFolderCallable implements Callable<List<F>> {
+
+		private final F folder;
+
+		ReadFolderCallable(F folder) {
+			this.folder = folder;
+		}
+
+		@Override
+		public List<F> call() throws Exception {
+			return readFolder(folder);
+		}
+	}
+}
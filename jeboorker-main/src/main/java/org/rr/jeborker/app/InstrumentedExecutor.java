@@ -0,0 +1,169 @@
+package org.rr.jeborker.app;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link ThreadPoolExecutor} with named threads of a fixed priority and a bounded queue. It records
+ * the time the tasks are waiting in the queue and the time they are running. Tasks which did not fit
+ * into the queue are rejected with a {@link RejectedExecutionException}.
+ */
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+
+	/**
+	 * Counts durations in buckets with upper bounds of 1, 10, 100, 1000 and 10000 milliseconds and one bucket
+	 * for all longer durations.
+	 */
+	static class LatencyHistogram {
+
+		private static final long[] BOUNDS = new long[] { 1, 10, 100, 1000, 10000 };
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+
+		private final AtomicLong totalNanos = new AtomicLong();
+
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		void record(long nanos) {
+			long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+			int bucket = 0;
+			while(bucket < BOUNDS.length && millis >= BOUNDS[bucket]) {
+				bucket++;
+			}
+			buckets.incrementAndGet(bucket);
+			totalNanos.addAndGet(nanos);
+			long max = maxNanos.get();
+			while(nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+				max = maxNanos.get();
+			}
+		}
+
+		long getCount() {
+			long count = 0;
+			for(int i = 0; i < buckets.length(); i++) {
+				count += buckets.get(i);
+			}
+			return count;
+		}
+
+		@Override
+		public String toString() {
+			long count = getCount();
+			StringBuilder result = new StringBuilder();
+			result.append("avg=").append(count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / count) : 0).append("ms");
+			result.append(", max=").append(TimeUnit.NANOSECONDS.toMillis(maxNanos.get())).append("ms [");
+			for(int i = 0; i < buckets.length(); i++) {
+				if(i > 0) {
+					result.append(", ");
+				}
+				result.append(i < BOUNDS.length ? "<" + BOUNDS[i] : ">=" + BOUNDS[BOUNDS.length - 1]).append("ms=").append(buckets.get(i));
+			}
+			return result.append(']').toString();
+		}
+	}
+
+	/**
+	 * Records the time the wrapped task has been waiting and running.
+	 */
+	private class TimedTask implements Runnable {
+
+		private final Runnable task;
+
+		private final long queuedAt = System.nanoTime();
+
+		private TimedTask(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			waitTime.record(start - queuedAt);
+			try {
+				task.run();
+			} finally {
+				runTime.record(System.nanoTime() - start);
+			}
+		}
+	}
+
+	private final String name;
+
+	private final LatencyHistogram waitTime = new LatencyHistogram();
+
+	private final LatencyHistogram runTime = new LatencyHistogram();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	/**
+	 * @param name The name of the pool which is also the prefix of the thread names.
+	 * @param threads The maximum number of threads. Idle threads are terminated after a minute.
+	 * @param queueSize The maximum number of waiting tasks or {@link Integer#MAX_VALUE} for no limit.
+	 * @param priority The priority of the threads.
+	 * @param daemon <code>true</code> if the threads should not prevent the application from exiting.
+	 */
+	public InstrumentedExecutor(final String name, int threads, int queueSize, final int priority, final boolean daemon) {
+		super(threads, threads, 60L, TimeUnit.SECONDS, InstrumentedExecutor.<Runnable>createQueue(queueSize), new ThreadFactory() {
+
+			private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, name + "-" + threadNumber.getAndIncrement());
+				thread.setDaemon(daemon);
+				thread.setPriority(priority);
+				return thread;
+			}
+		});
+		this.name = name;
+		allowCoreThreadTimeOut(true);
+		setRejectedExecutionHandler(new RejectedExecutionHandler() {
+
+			@Override
+			public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+				rejectedCount.incrementAndGet();
+				throw new RejectedExecutionException(InstrumentedExecutor.this.name + " is " + (isShutdown() ? "shut down" : "exhausted"));
+			}
+		});
+	}
+
+	private static <E> BlockingQueue<E> createQueue(int queueSize) {
+		if(queueSize == Integer.MAX_VALUE) {
+			return new LinkedBlockingQueue<>();
+		}
+		return new ArrayBlockingQueue<>(Math.max(1, queueSize));
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		super.execute(new TimedTask(command));
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The number of tasks which are rejected because the queue was full.
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * @return The number of active, queued, completed and rejected tasks with the histograms of their wait and run times.
+	 */
+	public String getStatistics() {
+		return name + ": threads=" + getPoolSize() + "/" + getMaximumPoolSize() + ", active=" + getActiveCount() + ", queued=" + getQueue().size()
+				+ ", completed=" + getCompletedTaskCount() + ", rejected=" + getRejectedCount() + "\n  wait " + waitTime + "\n  run  " + runTime;
+	}
+}
@@ -37,6 +37,8 @@ public abstract class AArchiveToArchiveConverter implements IEBookConverter {
 	private ConverterPreferenceController converterPreferenceController;
 	
 	private IResourceHandler archiveResource;
+
+	private IResourceHandler targetResource;
 	
 	public AArchiveToArchiveConverter(IResourceHandler archiveResource) {
 		this.archiveResource = archiveResource;
@@ -60,19 +62,29 @@ public abstract class AArchiveToArchiveConverter implements IEBookConverter {
 	
 	protected IResourceHandler convertAndWriteToTargetArchive(ConverterPreferenceController converterPreferenceController,
 			List<CompressedDataEntry> sourceFiles) throws IOException {
-		IResourceHandler targetArchiveResource = ResourceHandlerFactory.getUniqueResourceHandler(archiveResource, getTargetArchiveExtension());
+		IResourceHandler targetArchiveResource = getConversionTarget();
 		IResourceHandler workingFolder = ResourceHandlerFactory.getTemporaryResourceFolder("conv");
 		try {
 			List<IResourceHandler> converted = convert(sourceFiles, workingFolder);
-			for (IResourceHandler convertedSourceFile : converted) {
-				String archiveFile = ResourceHandlerUtils.makeRelative(workingFolder, convertedSourceFile);
-				addToArchive(targetArchiveResource, archiveFile, convertedSourceFile.toFile());
-			}
+			addToArchive(targetArchiveResource, workingFolder, converted);
 		} finally {
 			workingFolder.delete();
 		}
 		return targetArchiveResource;
 	}
+
+	/**
+	 * Adds all converted files to the target archive. The default implementation adds them one by one with
+	 * {@link #addToArchive(IResourceHandler, String, File)}.
+	 * @param workingFolder The folder which contains the converted files.
+	 */
+	protected void addToArchive(IResourceHandler targetArchiveResource, IResourceHandler workingFolder, List<IResourceHandler> converted) throws IOException {
+		for (IResourceHandler convertedSourceFile : converted) {
+			ConverterUtils.checkCanceled();
+			String archiveFile = ResourceHandlerUtils.makeRelative(workingFolder, convertedSourceFile);
+			addToArchive(targetArchiveResource, archiveFile, convertedSourceFile.toFile());
+		}
+	}
 	
 	private List<IResourceHandler> convert(List<CompressedDataEntry> sourceFiles, final IResourceHandler workingFolder) {
 		List<List<IResourceHandler>> results = ThreadUtils.loopAndWait(sourceFiles, new RunnableImpl<CompressedDataEntry, List<IResourceHandler>>() {
@@ -121,6 +133,14 @@ public abstract class AArchiveToArchiveConverter implements IEBookConverter {
 		return flattenResult;
 	}
 
+	@Override
+	public IResourceHandler getConversionTarget() {
+		if(targetResource == null) {
+			targetResource = ResourceHandlerFactory.getUniqueResourceHandler(archiveResource, getTargetArchiveExtension());
+		}
+		return targetResource;
+	}
+
 	protected abstract String getTargetArchiveExtension();
 	
 	protected abstract void addToArchive(IResourceHandler targetCbzResource, String archiveFile, File imageBytes);
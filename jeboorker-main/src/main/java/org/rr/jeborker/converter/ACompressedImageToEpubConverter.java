@@ -42,9 +42,11 @@ abstract class ACompressedImageToEpubConverter implements IEBookConverter {
 
 	protected IResourceHandler comicBookResource;
 
+	private IResourceHandler targetResource;
+
 	private ConverterPreferenceController converterPreferenceController;
 
-	private ArrayList<IResourceHandler> tempFiles = new ArrayList<>();
+	private List<IResourceHandler> tempFiles = Collections.synchronizedList(new ArrayList<IResourceHandler>());
 
 	public ACompressedImageToEpubConverter(IResourceHandler comicBookResource) {
 		this.comicBookResource = comicBookResource;
@@ -62,19 +64,21 @@ abstract class ACompressedImageToEpubConverter implements IEBookConverter {
 			LoggerFactory.getLogger(this).log(Level.WARNING, "The Comic book archive " + comicBookResource.getName() + " is empty.");
 			return null;
 		}
-		final Book epub = this.createEpub(compressedImageEntries);
-		final EpubWriter writer = new EpubWriter();
-
-		IResourceHandler targetEpubResource = ResourceHandlerFactory.getUniqueResourceHandler(this.comicBookResource, "epub");
-		OutputStream contentOutputStream = targetEpubResource.getContentOutputStream(false);
+		IResourceHandler targetEpubResource = getConversionTarget();
 		try {
-			writer.write(epub, contentOutputStream);
+			final Book epub = this.createEpub(compressedImageEntries);
+			final EpubWriter writer = new EpubWriter();
+
+			OutputStream contentOutputStream = targetEpubResource.getContentOutputStream(false);
+			try {
+				writer.write(epub, contentOutputStream);
+			} finally {
+				contentOutputStream.flush();
+				contentOutputStream.close();
+			}
 		} finally {
-			contentOutputStream.flush();
-			contentOutputStream.close();
+			deleteTemporaryFiles();
 		}
-
-		deleteTemporaryFiles();
 		ConverterUtils.transferMetadata(this.comicBookResource, targetEpubResource);
 		
 		preferenceStore.addGenericEntryAsNumber(IMAGE_QUALITY_KEY, getImageQuality());
@@ -82,50 +86,92 @@ abstract class ACompressedImageToEpubConverter implements IEBookConverter {
 		return targetEpubResource;
 	}
 
+	@Override
+	public IResourceHandler getConversionTarget() {
+		if(targetResource == null) {
+			targetResource = ResourceHandlerFactory.getUniqueResourceHandler(this.comicBookResource, "epub");
+		}
+		return targetResource;
+	}
+
 	private Book createEpub(List<String> cbzEntries) throws IOException {
 		final Book epub = new Book();
 		final Spine spine = new Spine();
+		final String spineTemplate = loadSpineTemplate();
+
+		if(isImageConversion()) {
+			final int imageQuality = getImageQuality();
+			final ConverterPreferenceController preferenceController = getConverterPreferenceController();
+			new ImagePagePipeline<List<IResourceHandler>>() {
+
+				@Override
+				protected byte[] read(String entry) throws IOException {
+					try (InputStream imageInputStream = getCompressionEntryStream(comicBookResource, entry)) {
+						return IOUtils.toByteArray(imageInputStream);
+					}
+				}
+
+				@Override
+				protected List<IResourceHandler> process(String entry, byte[] data) throws Exception {
+					return convertImage(data, entry, imageQuality, preferenceController);
+				}
 
-		List<Resource> resources = new ArrayList<>(cbzEntries.size());
-		for(int i = 0; i < cbzEntries.size(); i++) {
-			final String cbzEntry = cbzEntries.get(i);
-			if(ConverterUtils.isImageFileName(cbzEntry)) {
-				final InputStream imageInputStream = getCompressionEntryStream(this.comicBookResource, cbzEntry);
-				final List<InputStream> convertedImageInputStream = getConvertedImageInputStream(imageInputStream, cbzEntry);
-				for(int j = 0; j < convertedImageInputStream.size(); j++) {
-					final InputStream imageIn = convertedImageInputStream.get(j);
-					final String cbzHrefEntry = createHrefEntry(cbzEntry, epub, j);
-					final Resource imageResource = new Resource(imageIn, cbzHrefEntry);
-
-					resources.add(imageResource);
-					epub.addResource(imageResource);
-
-					this.attachSpineEntry(epub, spine, imageResource);
-
-					//the first image from the cbz is the cover image.
-					if(i == 0) {
-						epub.setCoverImage(imageResource);
+				@Override
+				protected void write(String entry, int index, List<IResourceHandler> images) throws IOException {
+					for(int j = 0; j < images.size(); j++) {
+						addImage(epub, spine, spineTemplate, entry, index, j, images.get(j).getContentInputStream());
 					}
 				}
+			}.run(cbzEntries);
+		} else {
+			for(int i = 0; i < cbzEntries.size(); i++) {
+				final String cbzEntry = cbzEntries.get(i);
+				if(ConverterUtils.isImageFileName(cbzEntry)) {
+					ConverterUtils.checkCanceled();
+					addImage(epub, spine, spineTemplate, cbzEntry, i, 0, getCompressionEntryStream(this.comicBookResource, cbzEntry));
+				}
 			}
 		}
 		epub.setSpine(spine);
 		return epub;
 	}
 
+	/**
+	 * Adds an image with it's spine entry to the epub.
+	 * @param cbzEntry The archive entry of the image.
+	 * @param entryIndex The index of the archive entry. The image of the first archive entry is the cover.
+	 * @param imageIndex The index of the image if the archive entry is split into multiple images.
+	 */
+	private void addImage(Book epub, Spine spine, String spineTemplate, String cbzEntry, int entryIndex, int imageIndex, InputStream imageIn) throws IOException {
+		final String cbzHrefEntry = createHrefEntry(cbzEntry, epub, imageIndex);
+		final Resource imageResource = new Resource(imageIn, cbzHrefEntry);
+		epub.addResource(imageResource);
+
+		this.attachSpineEntry(epub, spine, spineTemplate, imageResource);
+
+		//the first image from the cbz is the cover image.
+		if(entryIndex == 0) {
+			epub.setCoverImage(imageResource);
+		}
+	}
+
+	private String loadSpineTemplate() throws IOException {
+		try (InputStream spineTemplateIn = ACompressedImageToEpubConverter.class.getResourceAsStream("CbzToEpubSpineImageTemplate")) {
+			return IOUtils.toString(spineTemplateIn);
+		}
+	}
+
 	/**
 	 * Creates a xhtml doc for the given image and add it as spine to the given epub.
 	 * @throws IOException
 	 */
-	private void attachSpineEntry(final Book epub, final Spine spine, final Resource imageResource) throws IOException {
+	private void attachSpineEntry(final Book epub, final Spine spine, final String spineTemplate, final Resource imageResource) throws IOException {
 		String imageName = imageResource.getHref();
 		if(ConverterUtils.isImageFileName(imageName)) {
 			if(imageName.lastIndexOf('.') != -1) {
 				imageName = imageName.substring(0, imageName.lastIndexOf('.'));
 			}
 			Resource spineResource = new Resource(imageName + ".xhtml");
-			InputStream spineTemplateIn = ACompressedImageToEpubConverter.class.getResourceAsStream("CbzToEpubSpineImageTemplate");
-			String spineTemplate = IOUtils.toString(spineTemplateIn);
 			String spineDoc = MessageFormat.format(spineTemplate, new Object[] {imageResource.getHref()});
 			spineResource.setData(spineDoc.getBytes(StandardCharsets.UTF_8));
 			spine.addResource(spineResource);
@@ -134,28 +180,24 @@ abstract class ACompressedImageToEpubConverter implements IEBookConverter {
 	}
 
 	/**
-	 * Takes the given InputStream with image data and does the desired image conversion if necessary.
-	 * @return The converted image(s). If no conversion is necessary, the original input stream is returned.
+	 * Does the desired image conversion with the given image data. Invoked in parallel for multiple images.
+	 * @return The temporary files with the converted image(s).
 	 */
-	private List<InputStream> getConvertedImageInputStream(InputStream imageIn, String imageName) throws IOException {
-		if(isImageConversion()) {
-			ArrayList<InputStream> result = new ArrayList<>();
-			IImageProvider imageProvider = ImageProviderFactory.getImageProvider(ResourceHandlerFactory.getResourceHandler(imageIn));
-			List<BufferedImage> processImageModifications = ConverterUtils.processImageModifications(imageProvider.getImage(), getImageQuality(), getConverterPreferenceController());
-			for(BufferedImage image : processImageModifications) {
-				String mime = MimeUtils.getImageMimeFromFileName(imageName, MimeUtils.MIME_JPEG);
-				byte[] imageBytes = ImageUtils.getImageBytes(image, mime);
-
-				//copy the converted data to HD because we possibly have not enough memory for the whole boo.
-				IResourceHandler temporaryResource = ResourceHandlerFactory.getTemporaryResource(mime.substring(mime.indexOf('/') + 1));
-				tempFiles.add(temporaryResource);
-				temporaryResource.setContent(imageBytes);
-				result.add(temporaryResource.getContentInputStream());
-			}
-			return result;
-		} else {
-			return Collections.singletonList(imageIn);
+	private List<IResourceHandler> convertImage(byte[] imageData, String imageName, int imageQuality, ConverterPreferenceController preferenceController) throws IOException {
+		ArrayList<IResourceHandler> result = new ArrayList<>();
+		IImageProvider imageProvider = ImageProviderFactory.getImageProvider(ResourceHandlerFactory.getResourceHandler(imageData));
+		List<BufferedImage> processImageModifications = ConverterUtils.processImageModifications(imageProvider.getImage(), imageQuality, preferenceController);
+		for(BufferedImage image : processImageModifications) {
+			String mime = MimeUtils.getImageMimeFromFileName(imageName, MimeUtils.MIME_JPEG);
+			byte[] imageBytes = ImageUtils.getImageBytes(image, mime);
+
+			//copy the converted data to HD because we possibly have not enough memory for the whole boo.
+			IResourceHandler temporaryResource = ResourceHandlerFactory.getTemporaryResource(mime.substring(mime.indexOf('/') + 1));
+			tempFiles.add(temporaryResource);
+			temporaryResource.setContent(imageBytes);
+			result.add(temporaryResource);
 		}
+		return result;
 	}
 
 	/**
@@ -206,13 +248,14 @@ abstract class ACompressedImageToEpubConverter implements IEBookConverter {
 	}
 
 	private void deleteTemporaryFiles() {
-		for(IResourceHandler tempFile : tempFiles) {
+		for(IResourceHandler tempFile : new ArrayList<>(tempFiles)) {
 			try {
 				tempFile.delete();
 			} catch (IOException e) {
 				LoggerFactory.getLogger().log(Level.WARNING, "Could not delete temporary file " + tempFile.toString(), e);
 			}
 		}
+		tempFiles.clear();
 	}
 
 
@@ -35,6 +35,8 @@ abstract class ACompressedImageToPdfConverter implements IEBookConverter {
 	private APreferenceStore preferenceStore = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.DB_STORE);
 
 	protected IResourceHandler comicBookResource;
+
+	private IResourceHandler targetResource;
 	
 	private ConverterPreferenceController converterPreferenceController = null;
 	
@@ -55,7 +57,7 @@ abstract class ACompressedImageToPdfConverter implements IEBookConverter {
 			return null;
 		}
 		final Document document = new Document();
-		final IResourceHandler targetPdfResource = ResourceHandlerFactory.getUniqueResourceHandler(this.comicBookResource, "pdf");
+		final IResourceHandler targetPdfResource = getConversionTarget();
 		
 		OutputStream contentOutputStream = null;
 		PdfWriter pdfWriter = null;
@@ -77,6 +79,14 @@ abstract class ACompressedImageToPdfConverter implements IEBookConverter {
 		return targetPdfResource;
 	}
 
+	@Override
+	public IResourceHandler getConversionTarget() {
+		if(targetResource == null) {
+			targetResource = ResourceHandlerFactory.getUniqueResourceHandler(this.comicBookResource, "pdf");
+		}
+		return targetResource;
+	}
+
 	protected void closePdfWriter(PdfWriter pdfWriter) {
 		if(pdfWriter != null) {
 			pdfWriter.flush();
@@ -95,45 +105,57 @@ abstract class ACompressedImageToPdfConverter implements IEBookConverter {
 		return writer;
 	}
 
-    private void attachImagesToPdf(final List<String> compressedImageEntries, final Document document, final PdfWriter pdfWriter) throws IOException, DocumentException {
-    	boolean documentOpen = false;
-        for(int i= 0; i < compressedImageEntries.size(); i++) {
-        	String imageEntry = compressedImageEntries.get(i);
-        	if(ConverterUtils.isImageFileName(imageEntry)) {
-	        	BufferedImage image = getBufferedImageFromArchive(imageEntry);
-	        	List<BufferedImage> processImageModifications = ConverterUtils.processImageModifications(image, getImageQuality(), getConverterPreferenceController());
-	        	for(BufferedImage bufferedImage : processImageModifications) {
-		        	float pageWidth = ((float)bufferedImage.getWidth());
-		        	float pageHeight = ((float)bufferedImage.getHeight());
-		        	document.setPageSize(new Rectangle(pageWidth, pageHeight));
-		
-		        	if(!documentOpen) {
-		        		documentOpen = true;
-		        		document.open();
-		        	} else {
-		        		document.newPage();
-		        	}
-		        	
-		            PdfContentByte cb = pdfWriter.getDirectContent();
-		            Image pdfImage = Image.getInstance(cb, bufferedImage, 1);
-		
-		            pdfImage.setAlignment(Element.ALIGN_CENTER);
-		            pdfImage.setAbsolutePosition(0, 0);
-		            
-		            cb.addImage(pdfImage);
-	        	}
-	    		pdfWriter.flush();
-        	}
-        }
-    }
-    
-    private BufferedImage getBufferedImageFromArchive(String imageEntry) {
-    	InputStream compressionEntryStream = getCompressionEntryStream(this.comicBookResource, imageEntry);
-    	IImageProvider imageProvider = ImageProviderFactory.getImageProvider(ResourceHandlerFactory.getResourceHandler(compressionEntryStream));
-    	BufferedImage bufferedImage = imageProvider.getImage();
-    	return bufferedImage;
-    }
-    
+	private void attachImagesToPdf(final List<String> compressedImageEntries, final Document document, final PdfWriter pdfWriter) throws IOException {
+		final int imageQuality = getImageQuality();
+		final ConverterPreferenceController preferenceController = getConverterPreferenceController();
+		new ImagePagePipeline<List<BufferedImage>>() {
+
+			private boolean documentOpen = false;
+
+			@Override
+			protected byte[] read(String entry) throws IOException {
+				try (InputStream compressionEntryStream = getCompressionEntryStream(comicBookResource, entry)) {
+					return IOUtils.toByteArray(compressionEntryStream);
+				}
+			}
+
+			@Override
+			protected List<BufferedImage> process(String entry, byte[] data) throws Exception {
+				IImageProvider imageProvider = ImageProviderFactory.getImageProvider(ResourceHandlerFactory.getResourceHandler(data));
+				return ConverterUtils.processImageModifications(imageProvider.getImage(), imageQuality, preferenceController);
+			}
+
+			@Override
+			protected void write(String entry, int index, List<BufferedImage> images) throws IOException {
+				try {
+					for(BufferedImage bufferedImage : images) {
+						float pageWidth = ((float)bufferedImage.getWidth());
+						float pageHeight = ((float)bufferedImage.getHeight());
+						document.setPageSize(new Rectangle(pageWidth, pageHeight));
+
+						if(!documentOpen) {
+							documentOpen = true;
+							document.open();
+						} else {
+							document.newPage();
+						}
+
+						PdfContentByte cb = pdfWriter.getDirectContent();
+						Image pdfImage = Image.getInstance(cb, bufferedImage, 1);
+
+						pdfImage.setAlignment(Element.ALIGN_CENTER);
+						pdfImage.setAbsolutePosition(0, 0);
+
+						cb.addImage(pdfImage);
+					}
+					pdfWriter.flush();
+				} catch(DocumentException e) {
+					throw new IOException("Could not add " + entry + " to Pdf.", e);
+				}
+			}
+		}.run(compressedImageEntries);
+	}
+
 	/**
 	 * Gets the {@link ConverterPreferenceController} for this instance. Creates a new
 	 * {@link ConverterPreferenceController} if no one is created previously.
@@ -1,15 +1,18 @@
 package org.rr.jeborker.converter;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
-import org.apache.commons.io.FileUtils;
 import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.ResourceHandlerUtils;
 import org.rr.commons.utils.compression.CompressedDataEntry;
 import org.rr.commons.utils.compression.FileEntryFilter;
 import org.rr.commons.utils.compression.truezip.TrueZipUtils;
+import org.rr.commons.utils.compression.zip.ZipArchiveWriter;
+import org.rr.commons.utils.compression.zip.ZipUtils;
 import org.rr.jeborker.app.JeboorkerConstants;
 import org.rr.jeborker.app.JeboorkerConstants.SUPPORTED_MIMES;
 
@@ -39,10 +42,30 @@ public class CbzToCbzConverter extends AArchiveToArchiveConverter {
 		return JeboorkerConstants.SUPPORTED_MIMES.MIME_CBZ;
 	}
 
+	/**
+	 * Writes all pages with one {@link ZipArchiveWriter}, so the growing archive is not copied for each page.
+	 */
 	@Override
-	protected void addToArchive(IResourceHandler targetCbzResource, String archiveFile, File imageBytes) {
+	protected void addToArchive(IResourceHandler targetCbzResource, IResourceHandler workingFolder, List<IResourceHandler> converted) throws IOException {
+		ZipArchiveWriter cbz = ZipUtils.openArchiveWriter(targetCbzResource);
 		try {
-			TrueZipUtils.add(targetCbzResource, archiveFile, new ByteArrayInputStream(FileUtils.readFileToByteArray(imageBytes)));
+			for (IResourceHandler convertedSourceFile : converted) {
+				ConverterUtils.checkCanceled();
+				try (InputStream in = convertedSourceFile.getContentInputStream()) {
+					cbz.add(ResourceHandlerUtils.makeRelative(workingFolder, convertedSourceFile), in);
+				}
+			}
+			cbz.close();
+		} catch (IOException | RuntimeException e) {
+			cbz.abort();
+			throw e;
+		}
+	}
+
+	@Override
+	protected void addToArchive(IResourceHandler targetCbzResource, String archiveFile, File imageBytes) {
+		try (InputStream in = new FileInputStream(imageBytes)) {
+			ZipUtils.add(targetCbzResource, archiveFile, in);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -4,8 +4,8 @@ import java.io.InputStream;
 import java.util.List;
 
 import org.rr.commons.mufs.IResourceHandler;
-import org.rr.commons.utils.compression.truezip.LazyTrueZipEntryStream;
 import org.rr.commons.utils.compression.truezip.TrueZipUtils;
+import org.rr.commons.utils.compression.zip.LazyZipEntryStream;
 import org.rr.jeborker.app.JeboorkerConstants;
 import org.rr.jeborker.app.JeboorkerConstants.SUPPORTED_MIMES;
 
@@ -19,7 +19,7 @@ class CbzToEpubConverter extends ACompressedImageToEpubConverter {
 	}
 	
 	protected InputStream getCompressionEntryStream(IResourceHandler resourceHandler, String entry) {
-		return new LazyTrueZipEntryStream(resourceHandler, entry);
+		return new LazyZipEntryStream(resourceHandler, entry);
 	}
 	
 	protected List<String> listEntries(IResourceHandler cbzResource) {
@@ -0,0 +1,356 @@
+package org.rr.jeborker.converter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.ResourceHandlerFactory;
+import org.rr.commons.utils.ThreadUtils;
+import org.rr.jeborker.app.InstrumentedExecutor;
+import org.rr.jeborker.app.JeboorkerConstants.SUPPORTED_MIMES;
+import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+import org.rr.jeborker.db.DefaultDBManager;
+import org.rr.jeborker.db.item.ConversionJobItem;
+import org.rr.jeborker.db.item.ConversionJobItem.State;
+import org.rr.jeborker.gui.ConverterPreferenceController;
+
+/**
+ * Runs queued ebook conversions in the background. The state of each job is stored in the database, so the jobs
+ * which are not finished when the application ends could be continued with {@link #resume()}.
+ * <br><br>
+ * Conversions between comic book archives mostly unpack and pack the pages and are limited by the
+ * <code>conversionIoJobs</code> system preference. All other conversions render or transform the pages and are
+ * limited by the <code>conversionCpuJobs</code> system preference. These converters already process the pages
+ * of a single book in parallel, so only a few of them should run at the same time.
+ */
+public class ConversionJobScheduler {
+
+	private static final String CPU_JOBS_KEY = "conversionCpuJobs";
+
+	private static final String IO_JOBS_KEY = "conversionIoJobs";
+
+	private static ConversionJobScheduler instance;
+
+	private final InstrumentedExecutor cpuExecutor;
+
+	private final InstrumentedExecutor ioExecutor;
+
+	/** The futures of the jobs which are queued or running, the key is the job id. */
+	private final Map<String, Future<?>> jobs = new ConcurrentHashMap<>();
+
+	private final List<ConversionJobListener> listeners = new CopyOnWriteArrayList<>();
+
+	private final AtomicInteger doneCount = new AtomicInteger();
+
+	private final AtomicInteger failedCount = new AtomicInteger();
+
+	private final AtomicLong totalDuration = new AtomicLong();
+
+	private final AtomicLong totalTargetSize = new AtomicLong();
+
+	/**
+	 * Gets notified about finished conversion jobs. The listener is invoked by the conversion threads.
+	 */
+	public interface ConversionJobListener {
+
+		/**
+		 * Invoked when a job is finished, failed or canceled.
+		 * @param job The job with it's final state.
+		 * @param target The converted file or <code>null</code> if the conversion has failed or was canceled.
+		 */
+		void jobFinished(ConversionJobItem job, IResourceHandler target);
+	}
+
+	private ConversionJobScheduler() {
+		int cpuJobs = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE)
+				.getGenericEntryAsNumber(CPU_JOBS_KEY, Math.max(1, ThreadUtils.availableProcessors() / 4)).intValue();
+		int ioJobs = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE).getGenericEntryAsNumber(IO_JOBS_KEY, 2).intValue();
+		// the jobs are persistent and could be queued in any number, so the queues are not bounded
+		cpuExecutor = new InstrumentedExecutor("Conversion-CPU", Math.max(1, cpuJobs), Integer.MAX_VALUE, Thread.MIN_PRIORITY, true);
+		ioExecutor = new InstrumentedExecutor("Conversion-IO", Math.max(1, ioJobs), Integer.MAX_VALUE, Thread.MIN_PRIORITY, true);
+	}
+
+	public static synchronized ConversionJobScheduler getInstance() {
+		if(instance == null) {
+			instance = new ConversionJobScheduler();
+		}
+		return instance;
+	}
+
+	public void addListener(ConversionJobListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(ConversionJobListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Queues the conversion of the given resources to the given target type. Resources which could not be converted
+	 * to the target type are skipped.
+	 * @param preferenceController The confirmed preferences which are used for all conversions.
+	 * @return The queued jobs.
+	 */
+	public List<ConversionJobItem> submit(List<IResourceHandler> resources, SUPPORTED_MIMES targetType, ConverterPreferenceController preferenceController) {
+		List<ConversionJobItem> result = new ArrayList<>(resources.size());
+		List<IEBookConverter> converters = new ArrayList<>(resources.size());
+		for(IResourceHandler resource : resources) {
+			IEBookConverter converter = getConverter(resource, targetType);
+			if(converter == null) {
+				LoggerFactory.log(Level.WARNING, this, "No converter from " + resource + " to " + targetType.getName());
+			} else if(jobs.containsKey(new ConversionJobItem(resource.toString(), converter.getClass()).getId())) {
+				LoggerFactory.log(Level.INFO, this, "Conversion of " + resource + " to " + targetType.getName() + " is already queued");
+			} else {
+				converter.setConverterPreferenceController(preferenceController);
+				result.add(new ConversionJobItem(resource.toString(), converter.getClass()));
+				converters.add(converter);
+			}
+		}
+
+		DefaultDBManager.getInstance().storeObjects(result);
+		for(int i = 0; i < result.size(); i++) {
+			schedule(result.get(i), converters.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Queues all jobs which are stored as queued or running in the database, for example because the application
+	 * has ended before they're finished. The jobs are converted with the last used preferences of their converter.
+	 * @return The number of continued jobs.
+	 */
+	public int resume() {
+		List<ConversionJobItem> stored = DefaultDBManager.getInstance().getObjects(ConversionJobItem.class, ConversionJobItem.STATE_FIELD,
+				Arrays.asList(State.QUEUED.name(), State.RUNNING.name()));
+		Map<String, ConverterPreferenceController> preferenceControllers = new HashMap<>();
+		int count = 0;
+		for(ConversionJobItem job : stored) {
+			if(jobs.containsKey(job.getId())) {
+				continue;
+			}
+			IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(job.getSource());
+			IEBookConverter converter = null;
+			try {
+				converter = ConverterFactory.getConverterbyClass(Class.forName(job.getConverterClass()), resource);
+			} catch(ClassNotFoundException | RuntimeException e) {
+				LoggerFactory.log(Level.WARNING, this, "Could not create converter for " + job, e);
+			}
+			if(converter == null || !resource.exists()) {
+				finish(job, State.FAILED, null, "Could not continue conversion of " + job.getSource());
+				continue;
+			}
+
+			if(job.getState() == State.RUNNING) {
+				// the conversion was aborted when the application has ended, so it's started again from the beginning
+				deleteTarget(job, null);
+			}
+
+			ConverterPreferenceController preferenceController = preferenceControllers.get(job.getConverterClass());
+			if(preferenceController == null) {
+				preferenceController = converter.createConverterPreferenceController();
+				preferenceController.confirm();
+				preferenceControllers.put(job.getConverterClass(), preferenceController);
+			}
+			converter.setConverterPreferenceController(preferenceController);
+			job.setState(State.QUEUED);
+			schedule(job, converter);
+			count++;
+		}
+		if(count > 0) {
+			LoggerFactory.log(Level.INFO, this, "Continue " + count + " queued conversions");
+		}
+		return count;
+	}
+
+	private IEBookConverter getConverter(IResourceHandler resource, SUPPORTED_MIMES targetType) {
+		for(IEBookConverter converter : ConverterFactory.getConverter(resource)) {
+			if(converter.getConversionTargetType() == targetType) {
+				return converter;
+			}
+		}
+		return null;
+	}
+
+	private void schedule(ConversionJobItem job, IEBookConverter converter) {
+		ThreadPoolExecutor executor = isIoBound(converter) ? ioExecutor : cpuExecutor;
+		// the job removes itself from the jobs when it's finished, so it must not finish before it's added
+		synchronized(jobs) {
+			jobs.put(job.getId(), executor.submit(new ConversionJob(job, converter)));
+		}
+	}
+
+	/**
+	 * Tells if the given converter only moves pages between comic book archives.
+	 */
+	private boolean isIoBound(IEBookConverter converter) {
+		return isComicBookArchive(converter.getConversionSourceType()) && isComicBookArchive(converter.getConversionTargetType());
+	}
+
+	private boolean isComicBookArchive(SUPPORTED_MIMES type) {
+		return type == SUPPORTED_MIMES.MIME_CBZ || type == SUPPORTED_MIMES.MIME_CBR;
+	}
+
+	/**
+	 * Cancels the given job, also if it's only stored and not continued yet. A running conversion is interrupted
+	 * and stops before the next page, the conversion thread deletes it's unfinished target. The target of a job
+	 * which was running when the application has ended is deleted here.
+	 */
+	public void cancel(ConversionJobItem job) {
+		Future<?> future;
+		synchronized(jobs) {
+			future = jobs.remove(job.getId());
+		}
+		if(future != null) {
+			future.cancel(true);
+		} else if(job.getState() == State.RUNNING) {
+			deleteTarget(job, null);
+		}
+		if(future != null || job.getState() == State.QUEUED || job.getState() == State.RUNNING) {
+			finish(job, State.CANCELED, null, null);
+		}
+	}
+
+	/**
+	 * Cancels all queued and running jobs.
+	 */
+	public void cancelAll() {
+		List<ConversionJobItem> stored = DefaultDBManager.getInstance().getObjects(ConversionJobItem.class, ConversionJobItem.STATE_FIELD,
+				Arrays.asList(State.QUEUED.name(), State.RUNNING.name()));
+		for(ConversionJobItem job : stored) {
+			cancel(job);
+		}
+	}
+
+	/**
+	 * @return The number of jobs which are queued or running.
+	 */
+	public int getPendingCount() {
+		return jobs.size();
+	}
+
+	/**
+	 * @return A short human readable summary of the conversions since the application has started.
+	 */
+	public String getStatistics() {
+		int done = doneCount.get();
+		return "pending=" + getPendingCount() + ", running=" + (cpuExecutor.getActiveCount() + ioExecutor.getActiveCount()) + ", done=" + done
+				+ ", failed=" + failedCount.get() + ", timeAvg=" + (done > 0 ? totalDuration.get() / done : 0) + "ms, size="
+				+ totalTargetSize.get() / 1024 + "KB";
+	}
+
+	/**
+	 * @return The statistics of the conversion thread pools.
+	 */
+	public String getExecutorStatistics() {
+		return cpuExecutor.getStatistics() + "\n" + ioExecutor.getStatistics();
+	}
+
+	/**
+	 * Deletes the unfinished target of the given job.
+	 * @param target The target of the running converter or <code>null</code> for the target stored with the job.
+	 */
+	private void deleteTarget(ConversionJobItem job, IResourceHandler target) {
+		if(target == null && job.getTarget() != null) {
+			target = ResourceHandlerFactory.getResourceHandler(job.getTarget());
+		}
+		job.setTarget(null);
+		try {
+			if(target != null && target.exists()) {
+				target.delete();
+				LoggerFactory.log(Level.INFO, this, "Deleted unfinished conversion " + target);
+			}
+		} catch(IOException e) {
+			LoggerFactory.log(Level.WARNING, this, "Could not delete unfinished conversion " + target, e);
+		}
+	}
+
+	private void finish(ConversionJobItem job, State state, IResourceHandler target, String message) {
+		job.setState(state);
+		job.setMessage(message);
+		DefaultDBManager.getInstance().storeObject(job);
+		for(ConversionJobListener listener : listeners) {
+			try {
+				listener.jobFinished(job, target);
+			} catch(Exception e) {
+				LoggerFactory.log(Level.WARNING, this, "Conversion job listener has failed for " + job, e);
+			}
+		}
+	}
+
+	private class ConversionJob implements Runnable {
+
+		private final ConversionJobItem job;
+
+		private final IEBookConverter converter;
+
+		ConversionJob(ConversionJobItem job, IEBookConverter converter) {
+			this.job = job;
+			this.converter = converter;
+		}
+
+		@Override
+		public void run() {
+			// the target is stored before it's written, so it could be deleted if the application ends before the job is finished
+			IResourceHandler conversionTarget = converter.getConversionTarget();
+			synchronized(jobs) {
+				if(!jobs.containsKey(job.getId())) {
+					// canceled before it has started
+					return;
+				}
+				job.setState(State.RUNNING);
+				job.setTarget(conversionTarget.toString());
+				DefaultDBManager.getInstance().storeObject(job);
+			}
+
+			long start = System.currentTimeMillis();
+			IResourceHandler target = null;
+			String message = null;
+			try {
+				target = converter.convert();
+			} catch(InterruptedIOException e) {
+				LoggerFactory.log(Level.INFO, ConversionJobScheduler.this, "Converting " + job.getSource() + " has been canceled.");
+			} catch(Exception e) {
+				message = e.getMessage();
+				LoggerFactory.log(Level.WARNING, ConversionJobScheduler.this, "Converting " + job.getSource() + " has failed.", e);
+			}
+			job.setDuration(System.currentTimeMillis() - start);
+
+			synchronized(jobs) {
+				if(jobs.remove(job.getId()) == null) {
+					// the job was canceled while it was running
+					deleteTarget(job, target != null ? target : conversionTarget);
+					return;
+				}
+			}
+			if(target == null) {
+				deleteTarget(job, conversionTarget);
+			}
+			if(target != null) {
+				job.setTarget(target.toString());
+				job.setTargetSize(target.size());
+				doneCount.incrementAndGet();
+				totalDuration.addAndGet(job.getDuration());
+				totalTargetSize.addAndGet(job.getTargetSize());
+				LoggerFactory.log(Level.INFO, ConversionJobScheduler.this, "Converted " + job.getSource() + " to " + target.getName() + " in "
+						+ job.getDuration() + "ms, " + job.getTargetSize() / 1024 + "KB");
+				finish(job, State.DONE, target, null);
+			} else {
+				failedCount.incrementAndGet();
+				finish(job, State.FAILED, null, message);
+			}
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package org.rr.jeborker.converter;
 
 import java.awt.image.BufferedImage;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -80,6 +81,16 @@ public class ConverterUtils {
     	return Collections.singletonList(bufferedImage);
     }
 
+	/**
+	 * Throws an {@link InterruptedIOException} if the conversion thread has been interrupted because the
+	 * conversion was canceled. Invoked by the converters between the pages.
+	 */
+	static void checkCanceled() throws InterruptedIOException {
+		if(Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("Conversion has been canceled");
+		}
+	}
+
 	/**
 	 * Test if the given name have an image file extension.
 	 */
@@ -9,6 +9,12 @@ import org.rr.jeborker.gui.ConverterPreferenceController;
 public interface IEBookConverter {
 
 	public IResourceHandler convert() throws IOException;
+
+	/**
+	 * Get the resource the converted ebook is written to. The resource is chosen with the first invocation
+	 * and kept for this instance, so an unfinished conversion could be removed.
+	 */
+	public IResourceHandler getConversionTarget();
 	
 	/**
 	 * Creates the {@link ConverterPreferenceController} instance that was used/set for this {@link IEBookConverter}
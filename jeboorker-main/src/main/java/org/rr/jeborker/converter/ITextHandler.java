@@ -0,0 +1,13 @@
+package org.rr.jeborker.converter;
+
+/**
+ * Receives the text of an ebook piece by piece while it's extracted.
+ */
+public interface ITextHandler {
+
+	/**
+	 * Receives the next piece of the text.
+	 * @return <code>false</code> if no more text is needed, so the extraction could stop.
+	 */
+	public boolean add(String text);
+}
@@ -0,0 +1,122 @@
+package org.rr.jeborker.converter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.rr.commons.utils.ThreadUtils;
+import org.rr.jeborker.app.ApplicationExecutor;
+
+/**
+ * Converts the pages of a comic book archive in three stages. The archive entries are read one after another
+ * in the thread which runs the pipeline, the read pages are processed in parallel by the {@link ApplicationExecutor#CPU}
+ * pool and the processed pages are written in the thread which runs the pipeline in the order of the archive entries.
+ * <br><br>
+ * Only a few pages per processing thread are read ahead. If the oldest page is not processed yet, reading
+ * waits for it, so the pages in memory are limited no matter how large the archive is. If the thread which runs the
+ * pipeline is interrupted, the pipeline stops with an {@link InterruptedIOException} before the next page.
+ *
+ * @param <T> The result of processing one page.
+ */
+abstract class ImagePagePipeline<T> {
+
+	/** The number of pages which could be read ahead of the written page. */
+	private static final int MAX_PENDING_PAGES = Math.max(1, ThreadUtils.availableProcessors() - 1) * 2;
+
+	/**
+	 * Runs the pipeline with the given archive entries. Entries which are not images are skipped.
+	 * @throws IOException if one of the stages has failed. The pages which are still processed are discarded.
+	 */
+	void run(List<String> entries) throws IOException {
+		Deque<PendingPage> pendingPages = new ArrayDeque<>();
+		try {
+			for(int i = 0; i < entries.size(); i++) {
+				String entry = entries.get(i);
+				if(ConverterUtils.isImageFileName(entry)) {
+					ConverterUtils.checkCanceled();
+					if(pendingPages.size() >= MAX_PENDING_PAGES) {
+						writePage(pendingPages.remove());
+					}
+					pendingPages.add(new PendingPage(entry, i, ApplicationExecutor.CPU.submitOrRun(new ProcessPageCallable(entry, read(entry)))));
+				}
+			}
+			while(!pendingPages.isEmpty()) {
+				writePage(pendingPages.remove());
+			}
+		} finally {
+			// only left if the pipeline has failed
+			for(PendingPage page : pendingPages) {
+				page.result.cancel(true);
+			}
+		}
+	}
+
+	private void writePage(PendingPage page) throws IOException {
+		ConverterUtils.checkCanceled();
+		try {
+			write(page.entry, page.index, page.result.get());
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Failed to convert " + page.entry, e.getCause());
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Conversion of " + page.entry + " was interrupted");
+		}
+	}
+
+	/**
+	 * Reads the data of the given archive entry. Invoked in the thread which runs the pipeline.
+	 */
+	protected abstract byte[] read(String entry) throws IOException;
+
+	/**
+	 * Processes the data of one page, for example decodes, transforms and encodes the image.
+	 * Invoked in parallel by the processing threads.
+	 */
+	protected abstract T process(String entry, byte[] data) throws Exception;
+
+	/**
+	 * Writes a processed page. Invoked in the thread which runs the pipeline in the order of the archive entries.
+	 * @param index The index of the entry in the archive entries given to {@link #run(List)}.
+	 */
+	protected abstract void write(String entry, int index, T page) throws IOException;
+
+	private class ProcessPageCallable implements Callable<T> {
+
+		private final String entry;
+
+		private final byte[] data;
+
+		ProcessPageCallable(String entry, byte[] data) {
+			this.entry = entry;
+			this.data = data;
+		}
+
+		@Override
+		public T call() throws Exception {
+			return process(entry, data);
+		}
+	}
+
+	private class PendingPage {
+
+		private final String entry;
+
+		private final int index;
+
+		private final Future<T> result;
+
+		PendingPage(String entry, int index, Future<T> result) {
+			this.entry = entry;
+			this.index = index;
+			this.result = result;
+		}
+	}
+}
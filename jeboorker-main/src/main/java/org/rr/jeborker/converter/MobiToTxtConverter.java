@@ -27,6 +27,8 @@ public class MobiToTxtConverter implements IEBookConverter {
 
 	private IResourceHandler mobiResource;
 
+	private IResourceHandler targetResource;
+
 	MobiToTxtConverter(IResourceHandler pdfSource) {
 		this.mobiResource = pdfSource;
 	}
@@ -39,10 +41,8 @@ public class MobiToTxtConverter implements IEBookConverter {
 		}
 		
 		try {
-			IResourceHandler targetTxtResource = ResourceHandlerFactory.getUniqueResourceHandler(mobiResource, "txt");
-			MobiDocument doc = new MobiReader().read(mobiResource.toFile());
-			String textContent = removeHtml(doc.getTextContent());
-			textContent = new HTMLEntityConverter(textContent, HTMLEntityConverter.ENCODE_EIGHT_BIT_ASCII).decodeEntities();
+			IResourceHandler targetTxtResource = getConversionTarget();
+			String textContent = readText(mobiResource);
 			targetTxtResource.setContent(textContent.getBytes(getSelectedCodePage()));
 			storeComboboxValue(TEXT_CODE_PAGE_LABEL, getSelectedCodePage());
 			return targetTxtResource;
@@ -53,7 +53,17 @@ public class MobiToTxtConverter implements IEBookConverter {
 		}
 	}
 	
-	private String removeHtml(String bodyHtml) {
+	/**
+	 * Reads the text of the given mobi without the html tags and entities.
+	 * @param mobiResource The local mobi file.
+	 */
+	public static String readText(IResourceHandler mobiResource) throws IOException {
+		MobiDocument doc = new MobiReader().read(mobiResource.toFile());
+		String textContent = removeHtml(doc.getTextContent());
+		return new HTMLEntityConverter(textContent, HTMLEntityConverter.ENCODE_EIGHT_BIT_ASCII).decodeEntities();
+	}
+
+	private static String removeHtml(String bodyHtml) {
 		String result = bodyHtml
 				.replaceAll("\\<br\\/?\\>", NEW_LINE)
 				.replaceAll("\\<p.*?\\>", NEW_LINE)
@@ -83,6 +93,14 @@ public class MobiToTxtConverter implements IEBookConverter {
 		return this.converterPreferenceController;
 	}
 
+	@Override
+	public IResourceHandler getConversionTarget() {
+		if (targetResource == null) {
+			targetResource = ResourceHandlerFactory.getUniqueResourceHandler(mobiResource, "txt");
+		}
+		return targetResource;
+	}
+
 	@Override
 	public SUPPORTED_MIMES getConversionSourceType() {
 		return JeboorkerConstants.SUPPORTED_MIMES.MIME_MOBI;
@@ -1,18 +1,27 @@
 package org.rr.jeborker.converter;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.DecimalFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.StringUtils;
 import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.mufs.MimeUtils;
 import org.rr.commons.mufs.ResourceHandlerFactory;
 import org.rr.commons.mufs.ResourceHandlerUtils;
-import org.rr.commons.utils.compression.truezip.TrueZipUtils;
+import org.rr.commons.utils.ThreadUtils;
+import org.rr.commons.utils.compression.zip.ZipArchiveWriter;
+import org.rr.commons.utils.compression.zip.ZipUtils;
+import org.rr.jeborker.app.ApplicationExecutor;
 import org.rr.jeborker.app.JeboorkerConstants;
 import org.rr.jeborker.app.JeboorkerConstants.SUPPORTED_MIMES;
 import org.rr.jeborker.app.preferences.APreferenceStore;
@@ -33,7 +42,12 @@ public class PdfToCBZConverter implements IEBookConverter {
 	
 	private APreferenceStore preferenceStore = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.DB_STORE);
 
+	/** The number of threads of the {@link ApplicationExecutor#CPU} pool. Twice as much pages are rendered ahead of the written page. */
+	private static final int RENDER_THREADS = Math.max(1, ThreadUtils.availableProcessors() - 1);
+
 	private IResourceHandler pdfResource;
+
+	private IResourceHandler targetResource;
 	
 	private ConverterPreferenceController converterPreferenceController;
 	
@@ -43,12 +57,13 @@ public class PdfToCBZConverter implements IEBookConverter {
 	
 	/**
 	 * Renders a page of the given pdf data. 
-	 * @param pdfdata The pdf bytes.
+	 * @param doc The pdf document which must not be used by another thread at the same time.
 	 * @param pageNumber The page number to be rendered starting with 1.
+	 * @param imageQuality The size of the rendered page in percent.
 	 * @return The rendered pdf data or <code>null</code> if the pdf could not be rendered.
 	 * @throws IOException
 	 */
-	private List<byte[]> renderPage(ConverterPreferenceController converterPreferenceDialog, com.jmupdf.pdf.PdfDocument doc, int pageNumber) throws Exception {
+	private List<byte[]> renderPage(ConverterPreferenceController converterPreferenceDialog, com.jmupdf.pdf.PdfDocument doc, int pageNumber, int imageQuality) throws Exception {
 		PagePixels pp = null;
 		Page page = null;
 		PageRect bb = null;
@@ -61,7 +76,7 @@ public class PdfToCBZConverter implements IEBookConverter {
 			pp.getOptions().setZoom(1.5f);
 			pp.drawPage(null, bb.getX0(), bb.getY0(), bb.getX1(), bb.getY1());
 			BufferedImage image = pp.getImage();
-			List<BufferedImage> processImageModifications = ConverterUtils.processImageModifications(image, getImageQuality(), converterPreferenceDialog);
+			List<BufferedImage> processImageModifications = ConverterUtils.processImageModifications(image, imageQuality, converterPreferenceDialog);
 			List<byte[]> result = new ArrayList<byte[]>(processImageModifications.size());
 			for(BufferedImage processedImage : processImageModifications) {
 				byte[] imageBytes = ImageUtils.getImageBytes(processedImage, MimeUtils.MIME_JPEG);
@@ -79,40 +94,189 @@ public class PdfToCBZConverter implements IEBookConverter {
 	public IResourceHandler convert() throws IOException {
 		ConverterPreferenceController converterPreferenceDialog = getConverterPreferenceController();
 		if(converterPreferenceDialog.isConfirmed()) {
-			IResourceHandler targetCbzResource = ResourceHandlerFactory.getUniqueResourceHandler(pdfResource, "cbz");
-			
-			com.jmupdf.pdf.PdfDocument doc = null;
+			IResourceHandler targetCbzResource = getConversionTarget();
+			PdfDocuments documents = new PdfDocuments();
+			Deque<Future<List<byte[]>>> renderedPages = new ArrayDeque<>();
+			ZipArchiveWriter cbz = ZipUtils.openArchiveWriter(targetCbzResource);
 			try {
-				doc = new com.jmupdf.pdf.PdfDocument(pdfResource.getContent());
-				int pageCount = doc.getPageCount();
-				for(int pageNumber = 0, additional = 0; pageNumber < pageCount; pageNumber++) {
-					List<byte[]> renderedPages = renderPage(converterPreferenceDialog, doc, pageNumber + 1);
-					for(int i = 0; i < renderedPages.size(); i++) {
+				int pageCount = documents.get().getPageCount();
+				int imageQuality = getImageQuality();
+				int nextPage = 1;
+				int additional = 0;
+				for(int pageNumber = 0; pageNumber < pageCount; pageNumber++) {
+					ConverterUtils.checkCanceled();
+					// keep some pages ahead in the queue but not the whole pdf as images in memory
+					while(nextPage <= pageCount && renderedPages.size() < RENDER_THREADS * 2) {
+						renderedPages.add(ApplicationExecutor.CPU.submitOrRun(new RenderPageCallable(converterPreferenceDialog, documents, nextPage++, imageQuality)));
+					}
+					List<byte[]> renderedPage = renderedPages.remove().get();
+					for(int i = 0; i < renderedPage.size(); i++) {
 						if(i > 0) {
 							additional++;
 						}
-						byte[] renderedPage = renderedPages.get(i);
-						TrueZipUtils.add(targetCbzResource, getFileName(pageNumber + additional, pageCount), new ByteArrayInputStream(renderedPage));
+						cbz.add(getFileName(pageNumber + additional, pageCount), renderedPage.get(i));
 					}
 				}
-			} catch(IOException e) { 
-				 throw e;
+				cbz.close();
+			} catch(IOException e) {
+				cbz.abort();
+				throw e;
+			} catch(InterruptedException e) {
+				cbz.abort();
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Conversion of PDF " + pdfResource.getName() + " was interrupted");
+			} catch(ExecutionException e) {
+				cbz.abort();
+				throw new IOException("Failed to convert PDF " + pdfResource.getName(), e.getCause());
 			} catch(Exception e) {
+				cbz.abort();
 				throw new IOException("Failed to convert PDF " + pdfResource.getName(), e);
 			} finally {
-				if (doc != null) {
-					doc.dispose();
-					doc = null;
+				for(Future<List<byte[]>> renderedPage : renderedPages) {
+					renderedPage.cancel(true);
 				}
-			}	
-			
+				documents.dispose();
+			}
+
 			ConverterUtils.transferMetadata(pdfResource, targetCbzResource);
 			preferenceStore.addGenericEntryAsNumber(IMAGE_QUALITY_KEY, getImageQuality());
-			return targetCbzResource;	
+			return targetCbzResource;
 		}
 		return null;
 	}
 
+	@Override
+	public IResourceHandler getConversionTarget() {
+		if(targetResource == null) {
+			targetResource = ResourceHandlerFactory.getUniqueResourceHandler(pdfResource, "cbz");
+		}
+		return targetResource;
+	}
+
+	/**
+	 * Renders one page with the pdf document of the current thread.
+	 */
+	private class RenderPageCallable implements Callable<List<byte[]>> {
+
+		private final ConverterPreferenceController converterPreferenceDialog;
+
+		private final PdfDocuments documents;
+
+		private final int pageNumber;
+
+		private final int imageQuality;
+
+		RenderPageCallable(ConverterPreferenceController converterPreferenceDialog, PdfDocuments documents, int pageNumber, int imageQuality) {
+			this.converterPreferenceDialog = converterPreferenceDialog;
+			this.documents = documents;
+			this.pageNumber = pageNumber;
+			this.imageQuality = imageQuality;
+		}
+
+		@Override
+		public List<byte[]> call() throws Exception {
+			com.jmupdf.pdf.PdfDocument document = documents.open();
+			try {
+				return renderPage(converterPreferenceDialog, document, pageNumber, imageQuality);
+			} finally {
+				documents.release();
+			}
+		}
+	}
+
+	/**
+	 * Opens the pdf once for each rendering thread because a mupdf document could not be used by multiple
+	 * threads at the same time. Local pdf files are opened with their path, so mupdf reads only the parts
+	 * it needs instead of the whole pdf in the heap.
+	 */
+	private class PdfDocuments extends ThreadLocal<com.jmupdf.pdf.PdfDocument> {
+
+		private final List<com.jmupdf.pdf.PdfDocument> documents = Collections.synchronizedList(new ArrayList<com.jmupdf.pdf.PdfDocument>());
+
+		private byte[] content;
+
+		/** The number of pages which are rendered at the moment. Guarded by this. */
+		private int rendering;
+
+		private boolean disposed;
+
+		@Override
+		protected com.jmupdf.pdf.PdfDocument initialValue() {
+			try {
+				com.jmupdf.pdf.PdfDocument document;
+				if(ResourceHandlerUtils.isLocalFileResource(pdfResource)) {
+					document = new com.jmupdf.pdf.PdfDocument(pdfResource.toFile().getPath());
+				} else {
+					document = new com.jmupdf.pdf.PdfDocument(getContent());
+				}
+				documents.add(document);
+				return document;
+			} catch(Exception e) {
+				throw new RuntimeException("Failed to open PDF " + pdfResource.getName(), e);
+			}
+		}
+
+		private synchronized byte[] getContent() throws IOException {
+			if(content == null) {
+				content = pdfResource.getContent();
+			}
+			return content;
+		}
+
+		/**
+		 * Gets the document of the current thread for rendering a page. Each invocation must be followed
+		 * by {@link #release()} when the page is rendered.
+		 * @throws InterruptedIOException if the documents are already disposed.
+		 */
+		com.jmupdf.pdf.PdfDocument open() throws InterruptedIOException {
+			synchronized(this) {
+				if(disposed) {
+					throw new InterruptedIOException("Conversion of PDF " + pdfResource.getName() + " has been stopped");
+				}
+				rendering++;
+			}
+			try {
+				return get();
+			} catch(RuntimeException e) {
+				release();
+				throw e;
+			}
+		}
+
+		synchronized void release() {
+			rendering--;
+			notifyAll();
+		}
+
+		/**
+		 * Disposes all documents after the pages which are rendered at the moment are done. The rendering
+		 * threads belong to a shared pool, so they could still render a page of a canceled conversion.
+		 */
+		void dispose() {
+			boolean interrupted = false;
+			synchronized(this) {
+				disposed = true;
+				while(rendering > 0) {
+					try {
+						wait();
+					} catch(InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+			if(interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			synchronized(documents) {
+				for(com.jmupdf.pdf.PdfDocument document : documents) {
+					document.dispose();
+				}
+				documents.clear();
+			}
+			content = null;
+		}
+	}
+
 	@Override
 	public SUPPORTED_MIMES getConversionSourceType() {
 		return JeboorkerConstants.SUPPORTED_MIMES.MIME_PDF;
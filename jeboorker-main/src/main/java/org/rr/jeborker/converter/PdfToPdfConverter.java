@@ -34,6 +34,8 @@ public class PdfToPdfConverter implements IEBookConverter {
 	private ConverterPreferenceController converterPreferenceController;
 	
 	private IResourceHandler pdfResource;
+
+	private IResourceHandler targetResource;
 	
 	PdfToPdfConverter(IResourceHandler pdfSource) {
 		this.pdfResource = pdfSource;
@@ -47,7 +49,7 @@ public class PdfToPdfConverter implements IEBookConverter {
 		}
 		
 		final Document document = new Document();
-		final IResourceHandler targetPdfResource = ResourceHandlerFactory.getUniqueResourceHandler(this.pdfResource, "pdf");
+		final IResourceHandler targetPdfResource = getConversionTarget();
 		final OutputStream pdfOutputStream = targetPdfResource.getContentOutputStream(false);
 		
 		PdfReader reader = null;
@@ -97,12 +99,13 @@ public class PdfToPdfConverter implements IEBookConverter {
 	/**
 	 * Transfers the pdf content from the reader to the writer.
 	 */
-	private void transferPdfContent(final Document document, final PdfReader reader, final PdfWriter writer) {
+	private void transferPdfContent(final Document document, final PdfReader reader, final PdfWriter writer) throws IOException {
 		final float scale = (float) getImageQuality() / 100f;
 		final int pageCount = reader.getNumberOfPages();
 		
 		PdfContentByte directContent = null;		
 		for(int i = 0; i < pageCount; i++) {
+			ConverterUtils.checkCanceled();
 			Rectangle pageSize = reader.getPageSizeWithRotation(i +1);
 			pageSize.setTop(pageSize.getTop() * scale);
 			pageSize.setRight(pageSize.getRight() * scale);
@@ -120,6 +123,14 @@ public class PdfToPdfConverter implements IEBookConverter {
 		
 	}
 
+	@Override
+	public IResourceHandler getConversionTarget() {
+		if(targetResource == null) {
+			targetResource = ResourceHandlerFactory.getUniqueResourceHandler(this.pdfResource, "pdf");
+		}
+		return targetResource;
+	}
+
 	@Override
 	public SUPPORTED_MIMES getConversionSourceType() {
 		return JeboorkerConstants.SUPPORTED_MIMES.MIME_PDF;
@@ -5,6 +5,7 @@ import static org.rr.commons.utils.StringUtil.isNotEmpty;
 import static org.rr.commons.utils.StringUtil.replace;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -59,6 +60,8 @@ public class PdfToTxtConverter implements IEBookConverter {
 
 	private IResourceHandler pdfResource;
 
+	private IResourceHandler targetResource;
+
 	PdfToTxtConverter(IResourceHandler pdfSource) {
 		this.pdfResource = pdfSource;
 	}
@@ -70,7 +73,7 @@ public class PdfToTxtConverter implements IEBookConverter {
 			return null;
 		}
 		Document document = new Document();
-		IResourceHandler targetTxtResource = ResourceHandlerFactory.getUniqueResourceHandler(this.pdfResource, "txt");
+		IResourceHandler targetTxtResource = getConversionTarget();
 
 		PdfReader reader = null;
 		try (OutputStream txtOutputStream = targetTxtResource.getContentOutputStream(false)) {
@@ -167,11 +170,33 @@ public class PdfToTxtConverter implements IEBookConverter {
 
 	private void extractTextFromPdf(Document document, PdfReader reader, PrintWriterFilter out) throws IOException {
 		for (int i = 1; i <= reader.getNumberOfPages(); i++) {
+			ConverterUtils.checkCanceled();
 			String textFromPage = PdfTextExtractor.getTextFromPage(reader, i, getExtractionStrategy());
 			out.println(textFromPage, i);
 		}
 	}
 
+	/**
+	 * Extracts the text of the given pdf page by page with the simple extraction strategy without showing the
+	 * preference dialog of the converter.
+	 * @param pdfResource The local pdf file.
+	 * @param handler Receives the text of each page.
+	 * @throws InterruptedIOException if the current thread has been interrupted.
+	 */
+	public static void extractText(IResourceHandler pdfResource, ITextHandler handler) throws IOException {
+		PdfReader reader = PDFUtils.getReader(pdfResource.toFile());
+		try {
+			for (int i = 1; i <= reader.getNumberOfPages(); i++) {
+				ConverterUtils.checkCanceled();
+				if (!handler.add(PdfTextExtractor.getTextFromPage(reader, i, new SimpleTextExtractionStrategy()))) {
+					break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
 	private TextExtractionStrategy getExtractionStrategy() {
 		String extractionMode = getSelectedExtractionMode();
 		TextExtractionStrategy extractionStrategy;
@@ -203,6 +228,14 @@ public class PdfToTxtConverter implements IEBookConverter {
 		return this.converterPreferenceController;
 	}
 
+	@Override
+	public IResourceHandler getConversionTarget() {
+		if (targetResource == null) {
+			targetResource = ResourceHandlerFactory.getUniqueResourceHandler(this.pdfResource, "txt");
+		}
+		return targetResource;
+	}
+
 	@Override
 	public SUPPORTED_MIMES getConversionSourceType() {
 		return JeboorkerConstants.SUPPORTED_MIMES.MIME_PDF;
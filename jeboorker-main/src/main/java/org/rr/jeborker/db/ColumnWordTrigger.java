@@ -0,0 +1,169 @@
+package org.rr.jeborker.db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.h2.api.Trigger;
+
+/**
+ * Keeps the words of each text column in the <code>COLUMNWORD</code> table. The full text search of H2 did
+ * not know in which column a word has been found, so keywords like <code>author:name</code> are searched
+ * with the index of this table instead of comparing the column of each row.
+ * <br><br>
+ * The trigger is installed by {@link #install(Connection, String)} and fired by H2 with each insert,
+ * update and delete of the table.
+ */
+public class ColumnWordTrigger implements Trigger {
+
+	static final String TABLE_NAME = "COLUMNWORD";
+
+	private String tableName;
+
+	private int keyIndex = -1;
+
+	/** The names of the text columns by their index in the row, <code>null</code> for all other columns. */
+	private String[] textColumns;
+
+	/**
+	 * Creates the word table and the trigger for the given table if they do not exist. The words of the
+	 * rows which are already in the table are added when the trigger is created.
+	 */
+	static void install(Connection connection, String tableName) throws SQLException {
+		String triggerName = tableName + "_" + TABLE_NAME;
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE_NAME
+					+ " (TABLENAME VARCHAR NOT NULL, COLNAME VARCHAR NOT NULL, WORD VARCHAR NOT NULL, ITEMKEY VARCHAR NOT NULL)");
+			statement.execute("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_WORD ON " + TABLE_NAME + " (TABLENAME, COLNAME, WORD)");
+			statement.execute("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_KEY ON " + TABLE_NAME + " (ITEMKEY)");
+
+			try (ResultSet triggers = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TRIGGERS WHERE TRIGGER_NAME = '" + triggerName + "'")) {
+				if(triggers.next() && triggers.getInt(1) > 0) {
+					return;
+				}
+			}
+			statement.execute("CREATE TRIGGER " + triggerName + " AFTER INSERT, UPDATE, DELETE ON " + tableName + " FOR EACH ROW CALL \""
+					+ ColumnWordTrigger.class.getName() + "\"");
+		}
+
+		// index the existing rows
+		ColumnWordTrigger trigger = new ColumnWordTrigger();
+		trigger.init(connection, "PUBLIC", triggerName, tableName, false, INSERT);
+		try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + TABLE_NAME + " WHERE TABLENAME = ?")) {
+			delete.setString(1, tableName);
+			delete.executeUpdate();
+		}
+		try (Statement statement = connection.createStatement(); ResultSet rows = statement.executeQuery("SELECT * FROM " + tableName)) {
+			int columnCount = rows.getMetaData().getColumnCount();
+			while(rows.next()) {
+				Object[] row = new Object[columnCount];
+				for(int i = 0; i < columnCount; i++) {
+					row[i] = rows.getObject(i + 1);
+				}
+				trigger.insert(connection, row);
+			}
+		}
+	}
+
+	/**
+	 * Splits the given text into upper case words the same way the column values are split.
+	 */
+	static Set<String> getWords(String text) {
+		Set<String> words = new LinkedHashSet<>();
+		int start = -1;
+		for(int i = 0; i <= text.length(); i++) {
+			if(i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+				if(start == -1) {
+					start = i;
+				}
+			} else if(start != -1) {
+				words.add(text.substring(start, i).toUpperCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	@Override
+	public void init(Connection connection, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+		this.tableName = tableName;
+		DatabaseMetaData metaData = connection.getMetaData();
+		String keyColumn = null;
+		try (ResultSet keys = metaData.getPrimaryKeys(null, schemaName, tableName)) {
+			if(keys.next()) {
+				keyColumn = keys.getString("COLUMN_NAME");
+			}
+		}
+
+		List<String> columns = new ArrayList<>();
+		try (ResultSet columnSet = metaData.getColumns(null, schemaName, tableName, null)) {
+			while(columnSet.next()) {
+				int index = columnSet.getInt("ORDINAL_POSITION") - 1;
+				while(columns.size() <= index) {
+					columns.add(null);
+				}
+				String name = columnSet.getString("COLUMN_NAME");
+				if(name.equals(keyColumn)) {
+					keyIndex = index;
+				}
+				int dataType = columnSet.getInt("DATA_TYPE");
+				if(dataType == Types.VARCHAR || dataType == Types.CHAR || dataType == Types.LONGVARCHAR) {
+					columns.set(index, name);
+				}
+			}
+		}
+		textColumns = columns.toArray(new String[columns.size()]);
+		if(keyIndex == -1) {
+			throw new SQLException("No primary key for " + tableName);
+		}
+	}
+
+	@Override
+	public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+		if(oldRow != null) {
+			try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + TABLE_NAME + " WHERE ITEMKEY = ? AND TABLENAME = ?")) {
+				delete.setString(1, String.valueOf(oldRow[keyIndex]));
+				delete.setString(2, tableName);
+				delete.executeUpdate();
+			}
+		}
+		if(newRow != null) {
+			insert(connection, newRow);
+		}
+	}
+
+	private void insert(Connection connection, Object[] row) throws SQLException {
+		String key = String.valueOf(row[keyIndex]);
+		try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE_NAME + " (TABLENAME, COLNAME, WORD, ITEMKEY) VALUES (?, ?, ?, ?)")) {
+			for(int i = 0; i < textColumns.length && i < row.length; i++) {
+				if(textColumns[i] != null && row[i] != null) {
+					for(String word : getWords(String.valueOf(row[i]))) {
+						insert.setString(1, tableName);
+						insert.setString(2, textColumns[i]);
+						insert.setString(3, word);
+						insert.setString(4, key);
+						insert.addBatch();
+					}
+				}
+			}
+			insert.executeBatch();
+		}
+	}
+
+	@Override
+	public void close() throws SQLException {
+	}
+
+	@Override
+	public void remove() throws SQLException {
+	}
+}
@@ -0,0 +1,163 @@
+package org.rr.jeborker.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.search.SegmentedIndex;
+import org.rr.commons.utils.ListUtils;
+import org.rr.jeborker.app.preferences.APreferenceStore;
+import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+import org.rr.jeborker.db.item.EbookPropertyItem;
+
+/**
+ * Index over the text content of the ebooks. The index is stored as {@link SegmentedIndex} in the config
+ * directory and is filled by the <code>ContentIndexBackground</code>. Each book is indexed with the
+ * timestamp of its file as version, so changed books could be detected and indexed again.
+ */
+public class ContentIndex {
+
+	private static final String INDEX_DIRECTORY_NAME = "content";
+
+	private static final String MAX_BUFFERED_BOOKS_KEY = "contentIndexBufferedBooks";
+
+	private static final int DEFAULT_MAX_BUFFERED_BOOKS = 100;
+
+	private static final int MAX_SEGMENTS = 16;
+
+	/**
+	 * Gets notified about the books which are stored to or deleted from the database.
+	 */
+	public interface ChangeListener {
+
+		/**
+		 * Invoked with the books which are added or updated in the database.
+		 */
+		void stored(List<EbookPropertyItem> items);
+
+		/**
+		 * Invoked with the books which are deleted from the database. They're already removed from the index.
+		 */
+		void deleted(List<EbookPropertyItem> items);
+	}
+
+	private final SegmentedIndex index;
+
+	private volatile ChangeListener changeListener;
+
+	ContentIndex() throws IOException {
+		int maxBufferedBooks = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE)
+				.getGenericEntryAsNumber(MAX_BUFFERED_BOOKS_KEY, DEFAULT_MAX_BUFFERED_BOOKS).intValue();
+		this.index = new SegmentedIndex(new File(APreferenceStore.getConfigDirectory(), INDEX_DIRECTORY_NAME), maxBufferedBooks, MAX_SEGMENTS);
+	}
+
+	/**
+	 * Creates a new document for the given book. The text is added to the document piece by piece
+	 * and the document is stored with {@link #add(SegmentedIndex.Document)}.
+	 */
+	public SegmentedIndex.Document createDocument(EbookPropertyItem item, long version) {
+		return index.createDocument(item.getFile(), version);
+	}
+
+	/**
+	 * Adds the given document to the index. A previously indexed content of the same book is replaced.
+	 */
+	public void add(SegmentedIndex.Document document) {
+		try {
+			index.add(document);
+		} catch (IOException e) {
+			LoggerFactory.log(Level.SEVERE, this, "Failed to write content index", e);
+		}
+	}
+
+	/**
+	 * @return The file timestamp of the indexed content or <code>-1</code> if the book is not indexed.
+	 */
+	public long getVersion(EbookPropertyItem item) {
+		return index.getVersion(item.getFile());
+	}
+
+	/**
+	 * @return The files of all indexed books.
+	 */
+	public List<String> getKeys() {
+		return index.getKeys();
+	}
+
+	/**
+	 * Removes the book with the given file from the index.
+	 */
+	public void remove(String file) {
+		index.remove(file);
+	}
+
+	void remove(Collection<? extends IDBObject> items) {
+		List<EbookPropertyItem> ebooks = getEbookPropertyItems(items);
+		for(EbookPropertyItem item : ebooks) {
+			index.remove(item.getFile());
+		}
+		ChangeListener listener = changeListener;
+		if(listener != null && !ebooks.isEmpty()) {
+			listener.deleted(ebooks);
+		}
+	}
+
+	/**
+	 * Notifies the {@link ChangeListener} about the given items which are stored to the database.
+	 */
+	void stored(Collection<? extends IDBObject> items) {
+		ChangeListener listener = changeListener;
+		if(listener != null) {
+			List<EbookPropertyItem> ebooks = getEbookPropertyItems(items);
+			if(!ebooks.isEmpty()) {
+				listener.stored(ebooks);
+			}
+		}
+	}
+
+	private List<EbookPropertyItem> getEbookPropertyItems(Collection<? extends IDBObject> items) {
+		List<EbookPropertyItem> result = new ArrayList<>(items.size());
+		for(IDBObject item : items) {
+			if(item instanceof EbookPropertyItem) {
+				result.add((EbookPropertyItem) item);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Sets the listener which gets notified about the books stored to or deleted from the database.
+	 */
+	public void setChangeListener(ChangeListener changeListener) {
+		this.changeListener = changeListener;
+	}
+
+	/**
+	 * Searches the books which contain all of the given keywords.
+	 * @return The files of all found books, the best match first.
+	 */
+	List<String> search(List<String> keywords) {
+		try {
+			return index.search(ListUtils.join(keywords, " "), Integer.MAX_VALUE);
+		} catch (IOException e) {
+			LoggerFactory.log(Level.SEVERE, this, "Failed to search content index", e);
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Writes the books which are not yet written and closes the index.
+	 */
+	void close() {
+		try {
+			index.close();
+		} catch (IOException e) {
+			LoggerFactory.log(Level.SEVERE, this, "Failed to close content index", e);
+		}
+	}
+}
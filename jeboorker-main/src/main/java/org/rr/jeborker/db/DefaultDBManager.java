@@ -2,17 +2,32 @@ package org.rr.jeborker.db;
 
 import java.lang.reflect.Field;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import org.rr.commons.collection.ICloseableList;
 import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.utils.ListUtils;
 import org.rr.commons.utils.ReflectionUtils;
 import org.rr.commons.utils.StringUtil;
+import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+import org.rr.jeborker.db.item.ConversionJobItem;
 import org.rr.jeborker.db.item.EbookPropertyItem;
 import org.rr.jeborker.db.item.EbookPropertyItemUtils;
 import org.rr.jeborker.db.item.PreferenceItem;
@@ -21,10 +36,13 @@ import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
 import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.SelectArg;
 import com.j256.ormlite.stmt.Where;
 
 /**
  * The {@link DefaultDBManager} provides methods for handle database connections and it's content.
+ * Read access runs concurrently on the pooled connections. All write access is serialized
+ * through a single database writer thread.
  *
  * @param <T>
  */
@@ -34,8 +52,49 @@ public abstract class DefaultDBManager {
 
 	protected static final Class<?>[] KNOWN_CLASSES = new Class<?>[] { EbookPropertyItem.class, PreferenceItem.class };
 
+	/** Tables which are created when they're missing, also in existing databases, and which have no full text index. */
+	protected static final Class<?>[] INTERNAL_CLASSES = new Class<?>[] { ConversionJobItem.class };
+
+	private static final String DB_BATCH_SIZE_KEY = "dbBatchSize";
+
+	private static final int DEFAULT_BATCH_SIZE = 500;
+
+	private static final String FULL_TEXT_INDEX_KEY = "fullTextIndex";
+
+	private static final String INVERTED_FULL_TEXT_INDEX = "inverted";
+
+	private static final String CONTENT_INDEX_KEY = "contentIndex";
+
+	private final Map<Class<?>, Dao<?, ?>> daoCache = new ConcurrentHashMap<>();
+
 	private JdbcPooledConnectionSource connection;
 
+	private FullTextIndex fullTextIndex;
+
+	private ContentIndex contentIndex;
+
+	private int batchSize = -1;
+
+	private volatile Thread writerThread;
+
+	private final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+			new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Database-Writer");
+					thread.setDaemon(true);
+					writerThread = thread;
+					return thread;
+				}
+			});
+
+	private final AtomicLong writeCount = new AtomicLong();
+
+	private final AtomicLong writeWaitTime = new AtomicLong();
+
+	private final AtomicLong maxWriteWaitTime = new AtomicLong();
+
 	/**
 	 * Gets a shared {@link ConfigManager} instance.
 	 *
@@ -46,6 +105,8 @@ public abstract class DefaultDBManager {
 			manager = new H2DBManager();
 			JdbcPooledConnectionSource initDatabase = manager.initDatabase();
 			manager.connection = initDatabase;
+			manager.fullTextIndex = manager.createFullTextIndex();
+			manager.contentIndex = manager.createContentIndex();
 		}
 		return manager;
 	}
@@ -65,14 +126,227 @@ public abstract class DefaultDBManager {
 		return connection;
 	}
 
+	/**
+	 * Creates the {@link FullTextIndex} configured with the <code>fullTextIndex</code> system preference.
+	 * @return The index or <code>null</code> if the full text search of the database should be used.
+	 */
+	private FullTextIndex createFullTextIndex() {
+		String engine = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE).getGenericEntryAsString(FULL_TEXT_INDEX_KEY, "h2");
+		if(INVERTED_FULL_TEXT_INDEX.equalsIgnoreCase(engine)) {
+			try {
+				return new InvertedFullTextIndex(this.<EbookPropertyItem, EbookPropertyItem>getDao(EbookPropertyItem.class));
+			} catch (Exception e) {
+				LoggerFactory.log(Level.SEVERE, this, "Failed to create full text index", e);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Creates the {@link ContentIndex} if it's not disabled with the <code>contentIndex</code> system preference.
+	 * @return The index or <code>null</code> if the content of the books should not be indexed.
+	 */
+	private ContentIndex createContentIndex() {
+		String enabled = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE).getGenericEntryAsString(CONTENT_INDEX_KEY, "true");
+		if(Boolean.parseBoolean(enabled)) {
+			try {
+				return new ContentIndex();
+			} catch (Exception e) {
+				LoggerFactory.log(Level.SEVERE, this, "Failed to open content index", e);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return The {@link ContentIndex} for the text of the books or <code>null</code> if the content index is disabled.
+	 */
+	public ContentIndex getContentIndex() {
+		return contentIndex;
+	}
+
+	/**
+	 * @return The {@link FullTextIndex} to be used for keyword searches or <code>null</code> if the full text
+	 * search of the database should be used.
+	 */
+	protected FullTextIndex getFullTextIndex() {
+		return fullTextIndex != null && fullTextIndex.isAvailable() ? fullTextIndex : null;
+	}
+
+	private void updateFullTextIndex(Collection<? extends IDBObject> items) {
+		if(fullTextIndex != null) {
+			fullTextIndex.update(items);
+		}
+		if(contentIndex != null) {
+			contentIndex.stored(items);
+		}
+	}
+
+	private void removeFromFullTextIndex(Collection<? extends IDBObject> items) {
+		if(fullTextIndex != null) {
+			fullTextIndex.remove(items);
+		}
+		if(contentIndex != null) {
+			contentIndex.remove(items);
+		}
+	}
+
 	protected void setConnectionPool(JdbcPooledConnectionSource connection) {
 		this.connection = connection;
+		this.daoCache.clear();
+	}
+
+	/**
+	 * Get the dao for the given entity class. The dao instances are cached, so
+	 * they did not need to be created again with each database access.
+	 * @throws SQLException if the dao could not be created.
+	 */
+	protected <T, ID> Dao<T, ID> getDao(Class<T> cls) throws SQLException {
+		Dao<?, ?> dao = daoCache.get(cls);
+		if(dao == null) {
+			dao = DaoManager.createDao(connection, cls);
+			daoCache.put(cls, dao);
+		}
+		return (Dao<T, ID>) dao;
+	}
+
+	private Dao<IDBObject, Object> getObjectDao(Class<? extends IDBObject> cls) throws SQLException {
+		return (Dao<IDBObject, Object>) (Dao<?, ?>) getDao(cls);
+	}
+
+	/**
+	 * Get the number of rows which are written with one transaction by {@link #storeObjects(Collection)}
+	 * and {@link #deleteObjects(Collection, boolean)}. The value can be configured with the
+	 * <code>dbBatchSize</code> system preference.
+	 */
+	public int getBatchSize() {
+		if(batchSize == -1) {
+			Number value = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE).getGenericEntryAsNumber(DB_BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE);
+			batchSize = Math.max(1, value.intValue());
+		}
+		return batchSize;
+	}
+
+	/**
+	 * Runs the given write task with the database writer thread and waits for it's result.
+	 * The time the task has to wait until the writer picks it up is recorded as contention.
+	 * An interrupt of the invoking thread does not abort the write, the interrupt flag is restored afterwards.
+	 *
+	 * @param failureResult The result if the task could not be executed, for example after {@link #shutdown()}.
+	 */
+	private <T> T executeWrite(final Callable<T> task, T failureResult) {
+		if(Thread.currentThread() == writerThread) {
+			try {
+				return task.call();
+			} catch (Exception e) {
+				LoggerFactory.log(Level.SEVERE, this, "Database write has failed", e);
+				return failureResult;
+			}
+		}
+
+		final long queuedAt = System.nanoTime();
+		final Future<T> result;
+		try {
+			result = writer.submit(new Callable<T>() {
+
+				@Override
+				public T call() throws Exception {
+					long waited = System.nanoTime() - queuedAt;
+					writeCount.incrementAndGet();
+					writeWaitTime.addAndGet(waited);
+					if(waited > maxWriteWaitTime.get()) {
+						// only the single writer thread updates the maximum
+						maxWriteWaitTime.set(waited);
+					}
+					return task.call();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			LoggerFactory.log(Level.WARNING, this, "Database write rejected because the database has been shut down", e);
+			return failureResult;
+		}
+
+		boolean interrupted = false;
+		try {
+			while(true) {
+				try {
+					return result.get();
+				} catch (InterruptedException e) {
+					// the write is already queued, wait for it like the former synchronized methods did
+					interrupted = true;
+				} catch (ExecutionException e) {
+					LoggerFactory.log(Level.SEVERE, this, "Database write has failed", e.getCause());
+					return failureResult;
+				}
+			}
+		} finally {
+			if(interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * @return The number of write operations processed by the database writer.
+	 */
+	public long getWriteCount() {
+		return writeCount.get();
+	}
+
+	/**
+	 * @return The total time in milliseconds the write operations have been waiting for the database writer.
+	 */
+	public long getWriteWaitTime() {
+		return TimeUnit.NANOSECONDS.toMillis(writeWaitTime.get());
+	}
+
+	/**
+	 * @return The longest time in milliseconds a single write operation has been waiting for the database writer.
+	 */
+	public long getMaxWriteWaitTime() {
+		return TimeUnit.NANOSECONDS.toMillis(maxWriteWaitTime.get());
+	}
+
+	/**
+	 * @return The number of write operations currently waiting for the database writer.
+	 */
+	public int getWriteQueueSize() {
+		return writer.getQueue().size();
+	}
+
+	/**
+	 * @return A short human readable summary of the time the writers have been waiting for the database
+	 * writer and the readers have been waiting for a pooled connection.
+	 */
+	public String getContentionStatistics() {
+		long count = getWriteCount();
+		String statistics = "writes=" + count + ", queued=" + getWriteQueueSize() + ", waitTotal=" + getWriteWaitTime() + "ms, waitAvg="
+				+ (count > 0 ? getWriteWaitTime() / count : 0) + "ms, waitMax=" + getMaxWriteWaitTime() + "ms";
+		if(connection instanceof InstrumentedConnectionSource) {
+			statistics += ", " + ((InstrumentedConnectionSource) connection).getStatistics();
+		}
+		return statistics;
 	}
 
 	/**
 	 * Closes and shutdown all database connections previously opened.
 	 */
-	public synchronized void shutdown() {
+	public void shutdown() {
+		writer.shutdown();
+		try {
+			writer.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			LoggerFactory.log(Level.WARNING, this, "Waiting for pending database writes has been interrupted", e);
+		}
+		LoggerFactory.log(Level.INFO, this, "Database contention: " + getContentionStatistics());
+
+		if(fullTextIndex != null) {
+			fullTextIndex.close();
+		}
+		if(contentIndex != null) {
+			contentIndex.close();
+		}
+
 		try {
 			connection.close();
 		} catch (Exception e) {
@@ -85,10 +359,10 @@ public abstract class DefaultDBManager {
 	 * @return a new {@link QueryBuilder} instance for the given class. Never returns <code>null</code>
 	 * @throws RuntimeException if an SQL error occurs.
 	 */
-	public synchronized <T> QueryBuilder<T, T> getQueryBuilder(Class<T> cls) {
+	public <T> QueryBuilder<T, T> getQueryBuilder(Class<T> cls) {
 		Dao<T, T> createDao;
 		try {
-			createDao = DaoManager.createDao(connection, cls);
+			createDao = getDao(cls);
 			QueryBuilder<T, T> queryBuilder = createDao.queryBuilder();
 			return queryBuilder;
 		} catch (SQLException e) {
@@ -96,14 +370,129 @@ public abstract class DefaultDBManager {
 		}
 	}
 
-	public synchronized IDBObject storeObject(final IDBObject item) {
-		try {
-			Dao<IDBObject, ?> createDao = (Dao<IDBObject, ?>) DaoManager.createDao(connection, item.getClass());
-			createDao.createOrUpdate(item);
-		} catch (Exception e) {
-			LoggerFactory.log(Level.SEVERE, this, "Failed to store object " + item, e);
+	public IDBObject storeObject(final IDBObject item) {
+		return executeWrite(new Callable<IDBObject>() {
+
+			@Override
+			public IDBObject call() throws Exception {
+				try {
+					Dao<IDBObject, ?> createDao = getObjectDao(item.getClass());
+					createDao.createOrUpdate(item);
+					updateFullTextIndex(Collections.singletonList(item));
+				} catch (Exception e) {
+					LoggerFactory.log(Level.SEVERE, DefaultDBManager.this, "Failed to store object " + item, e);
+				}
+				return item;
+			}
+		}, item);
+	}
+
+	/**
+	 * Stores all given items with one transaction per batch. This is much faster than
+	 * invoking {@link #storeObject(IDBObject)} for each item because no auto commit happens per row.
+	 *
+	 * @param items The items to be stored.
+	 * @return <code>true</code> if all items have been stored successfully and <code>false</code> otherwise.
+	 * @see #getBatchSize()
+	 */
+	public boolean storeObjects(final Collection<? extends IDBObject> items) {
+		return executeWrite(new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() throws Exception {
+				boolean success = true;
+				for(Map.Entry<Class<? extends IDBObject>, List<IDBObject>> entry : groupByClass(items).entrySet()) {
+					for(final List<IDBObject> batch : ListUtils.chunkSplit(entry.getValue(), getBatchSize())) {
+						try {
+							final Dao<IDBObject, Object> createDao = getObjectDao(entry.getKey());
+							createDao.callBatchTasks(new Callable<Void>() {
+
+								@Override
+								public Void call() throws Exception {
+									for(IDBObject item : batch) {
+										createDao.createOrUpdate(item);
+									}
+									return null;
+								}
+							});
+							updateFullTextIndex(batch);
+						} catch (Exception e) {
+							LoggerFactory.log(Level.SEVERE, DefaultDBManager.this, "Failed to store " + batch.size() + " objects", e);
+							success = false;
+						}
+					}
+				}
+				return success;
+			}
+		}, Boolean.FALSE);
+	}
+
+	/**
+	 * Deletes all given items with one transaction per batch.
+	 *
+	 * @param items The items to be deleted.
+	 * @param deleteCover <code>true</code> if the cover thumbnails of {@link EbookPropertyItem}s should also be deleted.
+	 * @return <code>true</code> if all items have been deleted successfully and <code>false</code> otherwise.
+	 * @see #getBatchSize()
+	 */
+	public boolean deleteObjects(final Collection<? extends IDBObject> items, final boolean deleteCover) {
+		return executeWrite(new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() throws Exception {
+				boolean success = true;
+				for(Map.Entry<Class<? extends IDBObject>, List<IDBObject>> entry : groupByClass(items).entrySet()) {
+					for(final List<IDBObject> batch : ListUtils.chunkSplit(entry.getValue(), getBatchSize())) {
+						try {
+							final Dao<IDBObject, Object> createDao = getObjectDao(entry.getKey());
+							createDao.callBatchTasks(new Callable<Void>() {
+
+								@Override
+								public Void call() throws Exception {
+									createDao.delete(batch);
+									return null;
+								}
+							});
+							removeFromFullTextIndex(batch);
+						} catch (Exception e) {
+							LoggerFactory.log(Level.SEVERE, DefaultDBManager.this, "Failed to delete " + batch.size() + " objects", e);
+							success = false;
+							continue;
+						}
+
+						if(deleteCover) {
+							deleteCoverThumbnails(batch);
+						}
+					}
+				}
+				return success;
+			}
+		}, Boolean.FALSE);
+	}
+
+	private void deleteCoverThumbnails(List<IDBObject> items) {
+		for(IDBObject item : items) {
+			if (item instanceof EbookPropertyItem) {
+				try {
+					EbookPropertyItemUtils.deleteCoverThumbnail(((EbookPropertyItem) item).getResourceHandler());
+				} catch (Exception e) {
+					LoggerFactory.getLogger(this).log(Level.WARNING, "failed to delete cover for " + item, e);
+				}
+			}
 		}
-		return item;
+	}
+
+	private Map<Class<? extends IDBObject>, List<IDBObject>> groupByClass(Collection<? extends IDBObject> items) {
+		Map<Class<? extends IDBObject>, List<IDBObject>> result = new LinkedHashMap<>();
+		for(IDBObject item : items) {
+			List<IDBObject> classItems = result.get(item.getClass());
+			if(classItems == null) {
+				classItems = new ArrayList<>();
+				result.put(item.getClass(), classItems);
+			}
+			classItems.add(item);
+		}
+		return result;
 	}
 
 	/**
@@ -112,10 +501,10 @@ public abstract class DefaultDBManager {
 	 * @param cls The class type of the pojos to be fetched
 	 * @return A Iterable which provides the data. Never returns <code>null</code>.
 	 */
-	public synchronized <T> Collection<T> getItems(Class<T> cls) {
+	public <T> Collection<T> getItems(Class<T> cls) {
 		try {
-			Dao<IDBObject, T> createDao = (Dao<IDBObject, T>) DaoManager.createDao(connection, cls);
-			List<T> queryForAll = (List<T>) createDao.queryForAll();
+			Dao<T, T> createDao = getDao(cls);
+			List<T> queryForAll = createDao.queryForAll();
 			return queryForAll;
 		} catch (Exception e) {
 			LoggerFactory.log(Level.SEVERE, this, "Failed to query objects " + cls, e);
@@ -129,10 +518,10 @@ public abstract class DefaultDBManager {
 	 * @param cls The class type of the pojos to be fetched
 	 * @return A Iterable which provides the data. Never returns <code>null</code>.
 	 */
-	public synchronized <T> List<T> getItems(final Class<T> cls, Where<T, T> where, final List<Field> orderFields,
+	public <T> List<T> getItems(final Class<T> cls, Where<T, T> where, final List<Field> orderFields,
 			final OrderDirection orderDirection) {
 		try {
-			Dao<T, T> createDao = DaoManager.createDao(connection, cls);
+			Dao<T, T> createDao = getDao(cls);
 			QueryBuilder<T, T> queryBuilder = createDao.queryBuilder();
 			if(where != null && !DBUtils.isEmpty(where)) {
 				queryBuilder.setWhere(where);
@@ -162,7 +551,7 @@ public abstract class DefaultDBManager {
 	 * @param item
 	 *            {@link IDBObject} instance to be updated.
 	 */
-	public synchronized IDBObject updateObject(final IDBObject item) {
+	public IDBObject updateObject(final IDBObject item) {
 		// store the bytes before deleting
 		final HashMap<Field, byte[]> data = new HashMap<Field, byte[]>();
 
@@ -194,9 +583,9 @@ public abstract class DefaultDBManager {
 	 *            The condition value.
 	 * @return A list with all results.
 	 */
-	public synchronized <T> List<T> getObject(Class<T> class1, final String field, final String value) {
+	public <T> List<T> getObject(Class<T> class1, final String field, final String value) {
 		try {
-			Dao<T, T> createDao = DaoManager.createDao(connection, class1);
+			Dao<T, T> createDao = getDao(class1);
 			QueryBuilder<T, T> queryBuilder = createDao.queryBuilder();
 			queryBuilder.where().eq(field, StringUtil.escapeSql(value));
 			List<T> query = createDao.query(queryBuilder.prepare());
@@ -207,7 +596,36 @@ public abstract class DefaultDBManager {
 		}
 	}
 
-	public synchronized boolean deleteObject(IDBObject item) {
+	/**
+	 * Searches all entries of the given class type where the given field has one of the given values. The values
+	 * are queried in chunks of the batch size, so only a few queries are needed for a large number of values.
+	 *
+	 * @param cls The entry class type.
+	 * @param field The name of the field for the condition.
+	 * @param values The values to be searched.
+	 * @return A list with all results.
+	 * @see #getBatchSize()
+	 */
+	public <T> List<T> getObjects(Class<T> cls, final String field, final Collection<String> values) {
+		List<T> result = new ArrayList<>();
+		try {
+			Dao<T, T> createDao = getDao(cls);
+			for(List<String> chunk : ListUtils.chunkSplit(new ArrayList<>(values), getBatchSize())) {
+				List<SelectArg> arguments = new ArrayList<>(chunk.size());
+				for(String value : chunk) {
+					arguments.add(new SelectArg(value));
+				}
+				QueryBuilder<T, T> queryBuilder = createDao.queryBuilder();
+				queryBuilder.where().in(field, arguments.toArray());
+				result.addAll(createDao.query(queryBuilder.prepare()));
+			}
+		} catch(Exception e) {
+			LoggerFactory.log(Level.WARNING, this, "getObjects for " + cls + " and field=" + field + " with " + values.size() + " values failed.", e);
+		}
+		return result;
+	}
+
+	public boolean deleteObject(IDBObject item) {
 		return deleteObject(item, true);
 	}
 
@@ -218,19 +636,26 @@ public abstract class DefaultDBManager {
 	 *            The item to be deleted.
 	 * @return
 	 */
-	public synchronized boolean deleteObject(IDBObject item, boolean deleteCover) {
-		try {
-			Dao<IDBObject, ?> createDao = (Dao<IDBObject, ?>) DaoManager.createDao(connection, item.getClass());
-			createDao.delete(item);
+	public boolean deleteObject(final IDBObject item, boolean deleteCover) {
+		return executeWrite(new Callable<Boolean>() {
 
-			if (item instanceof EbookPropertyItem) {
-				EbookPropertyItemUtils.deleteCoverThumbnail(((EbookPropertyItem) item).getResourceHandler());
+			@Override
+			public Boolean call() throws Exception {
+				try {
+					Dao<IDBObject, ?> createDao = getObjectDao(item.getClass());
+					createDao.delete(item);
+					removeFromFullTextIndex(Collections.singletonList(item));
+
+					if (item instanceof EbookPropertyItem) {
+						EbookPropertyItemUtils.deleteCoverThumbnail(((EbookPropertyItem) item).getResourceHandler());
+					}
+				} catch (Exception e) {
+					LoggerFactory.getLogger(DefaultDBManager.this).log(Level.WARNING, "failed to delete " + item, e);
+					return false;
+				}
+				return true;
 			}
-		} catch (Exception e) {
-			LoggerFactory.getLogger(this).log(Level.WARNING, "failed to delete " + item, e);
-			return false;
-		}
-		return true;
+		}, Boolean.FALSE);
 	}
 
 	/**
@@ -252,7 +677,7 @@ public abstract class DefaultDBManager {
 	public IDBObject reload(IDBObject item) {
 		if (item != null) {
 			try {
-				Dao<IDBObject, ?> createDao = (Dao<IDBObject, ?>) DaoManager.createDao(connection, item.getClass());
+				Dao<IDBObject, ?> createDao = getObjectDao(item.getClass());
 				createDao.refresh(item);
 			} catch(Exception e) {
 				LoggerFactory.getLogger(this).log(Level.WARNING, "failed to load " + item, e);
@@ -0,0 +1,42 @@
+package org.rr.jeborker.db;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An index engine which could be used by {@link DefaultDBManager#queryFullTextSearch} instead of the
+ * full text search built into the database. The index is kept up to date by the {@link DefaultDBManager}
+ * with each store and delete.
+ */
+public interface FullTextIndex {
+
+	/**
+	 * Adds the given items to the index or replaces them if they are already indexed.
+	 */
+	void update(Collection<? extends IDBObject> items);
+
+	/**
+	 * Removes the given items from the index.
+	 */
+	void remove(Collection<? extends IDBObject> items);
+
+	/**
+	 * Searches the index. A row matches if it matches one of the given keywords.
+	 * A keyword could be limited to a column like <code>author:name</code>.
+	 *
+	 * @param keywords The keywords to be searched.
+	 * @param limit The maximum number of results.
+	 * @return The ids of the matching rows, the best match first.
+	 */
+	List<String> search(List<String> keywords, int limit);
+
+	/**
+	 * @return <code>false</code> as long as the index is not complete and could not be used for searching.
+	 */
+	boolean isAvailable();
+
+	/**
+	 * Persists the index and releases all resources.
+	 */
+	void close();
+}
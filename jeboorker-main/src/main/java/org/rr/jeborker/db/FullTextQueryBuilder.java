@@ -0,0 +1,333 @@
+package org.rr.jeborker.db;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.utils.ListUtils;
+
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.stmt.Where;
+import com.j256.ormlite.table.TableInfo;
+
+/**
+ * Builds the parameterized sql statements for a full text search. All values given by the user are passed
+ * as statement arguments, so the sql string only depends on the shape of the search. Searches of the same shape,
+ * like typing in the filter field, result in the same sql string and the parsed statement could be reused
+ * from the statement cache of the database.
+ */
+class FullTextQueryBuilder<T> {
+
+	/**
+	 * A sql statement together with its arguments.
+	 */
+	static class PreparedQuery {
+
+		private final String sql;
+
+		private final String[] arguments;
+
+		private PreparedQuery(String sql, List<String> arguments) {
+			this.sql = sql;
+			this.arguments = arguments.toArray(new String[arguments.size()]);
+		}
+
+		String getSql() {
+			return sql;
+		}
+
+		String[] getArguments() {
+			return arguments;
+		}
+
+		@Override
+		public String toString() {
+			return sql + " " + Arrays.toString(arguments);
+		}
+	}
+
+	private static final char LIKE_ESCAPE = '\\';
+
+	private final TableInfo<T, T> tableInfo;
+
+	private final OrderDirection orderDirection;
+
+	private final List<FieldType> orderFieldTypes;
+
+	private final StringBuilder from = new StringBuilder();
+
+	private final List<String> fromArguments = new ArrayList<>();
+
+	/**
+	 * @param tableInfo The table to be searched.
+	 * @param where Additional conditions, could be empty.
+	 * @param keywords The keywords to be searched. Keywords like <code>author:name</code> are restricted to the given column.
+	 * @param orderFields The fields used to order the result.
+	 * @param orderDirection The direction for all order fields.
+	 * @param indexKeys The ids found by a {@link FullTextIndex} for the keywords or <code>null</code> if the
+	 *   keywords should be searched with the full text search of the database.
+	 * @param contentKeys The ids found by the {@link ContentIndex} or <code>null</code> if the content was not searched.
+	 */
+	FullTextQueryBuilder(TableInfo<T, T> tableInfo, Where<T, T> where, List<String> keywords, List<Field> orderFields,
+			OrderDirection orderDirection, List<String> indexKeys, List<String> contentKeys) throws SQLException {
+		this.tableInfo = tableInfo;
+		this.orderDirection = orderDirection;
+		this.orderFieldTypes = getOrderFieldTypes(orderFields);
+		createFrom(where, keywords, indexKeys, contentKeys);
+	}
+
+	/**
+	 * Creates the statement which counts the result rows.
+	 * @param before Only count the rows which are sorted before this item. <code>null</code> counts all rows.
+	 */
+	PreparedQuery buildCountQuery(T before) throws SQLException {
+		List<String> arguments = new ArrayList<>(fromArguments);
+		StringBuilder sql = new StringBuilder("SELECT COUNT(*) ").append(from);
+		appendKeysetCondition(before, false, sql, arguments);
+		return new PreparedQuery(sql.toString(), arguments);
+	}
+
+	/**
+	 * Creates the statement which fetches one page of the result.
+	 * @param after The last item of the previous page or <code>null</code> if the <code>offset</code> should be used.
+	 * @param offset The number of rows to skip. Only used if <code>after</code> is <code>null</code>.
+	 * @param limit The maximum number of rows to fetch.
+	 */
+	PreparedQuery buildPageQuery(T after, int offset, int limit) throws SQLException {
+		List<String> arguments = new ArrayList<>(fromArguments);
+		StringBuilder sql = new StringBuilder("SELECT A.* ").append(from);
+		appendKeysetCondition(after, true, sql, arguments);
+		appendOrderFields(sql);
+		sql.append(" LIMIT ?");
+		arguments.add(String.valueOf(limit));
+		if (after == null) {
+			sql.append(" OFFSET ?");
+			arguments.add(String.valueOf(offset));
+		}
+		return new PreparedQuery(sql.toString(), arguments);
+	}
+
+	/**
+	 * Creates the from and where part of the query which is shared by the count and the page queries.
+	 * The where part is always present, so further conditions could simply be appended with AND.
+	 */
+	private void createFrom(Where<T, T> where, List<String> keywords, List<String> indexKeys, List<String> contentKeys) throws SQLException {
+		String tableName = tableInfo.getTableName().toUpperCase();
+		from.append("FROM ").append(tableName).append(" A");
+
+		List<String> conditions = new ArrayList<>();
+		if (!keywords.isEmpty() && indexKeys != null) {
+			conditions.add(createIndexKeysCondition(indexKeys));
+		} else if (!keywords.isEmpty()) {
+			appendFulltextQueryTable(keywords, tableName);
+			conditions.add("A." + tableInfo.getIdField().getColumnName() + " = ARRAY_GET(B.KEYS, 1)");
+			String columnCondition = createColumnCondition(keywords, tableName);
+			if (columnCondition != null) {
+				conditions.add(columnCondition);
+			}
+		}
+		if (contentKeys != null) {
+			conditions.add(createIndexKeysCondition(contentKeys));
+		}
+		if (!where.toString().equals("empty where clause")) {
+			conditions.add("(" + where.getStatement() + ")");
+		}
+
+		if (conditions.isEmpty()) {
+			conditions.add("TRUE");
+		}
+		from.append(" WHERE ").append(ListUtils.join(conditions, " AND "));
+	}
+
+	/**
+	 * Creates the condition which limits the result to the rows found by the {@link FullTextIndex} or {@link ContentIndex}.
+	 */
+	private String createIndexKeysCondition(List<String> indexKeys) {
+		if (indexKeys.isEmpty()) {
+			return "FALSE";
+		}
+		StringBuilder sql = new StringBuilder("A.").append(tableInfo.getIdField().getColumnName()).append(" IN (");
+		for (int i = 0; i < indexKeys.size(); i++) {
+			sql.append(i > 0 ? ", ?" : "?");
+			fromArguments.add(indexKeys.get(i));
+		}
+		return sql.append(")").toString();
+	}
+
+	/**
+	 * Appends one full text search per keyword. Column scoped keywords are also searched with the
+	 * full text index, so the column condition only needs to filter the rows found by the index.
+	 */
+	private void appendFulltextQueryTable(List<String> keywords, String tableName) {
+		from.append(", (");
+		for (int i = 0; i < keywords.size(); i++) {
+			if (i > 0) {
+				from.append(" UNION ");
+			}
+			from.append("SELECT * FROM FT_SEARCH_DATA(?, 0, 0) F WHERE F.\"TABLE\" = ?");
+			fromArguments.add(getKeywordValue(keywords.get(i)));
+			fromArguments.add(tableName);
+		}
+		from.append(") B");
+	}
+
+	/**
+	 * Creates the condition for the keywords like <code>author:name</code>. The value of the keyword is found if it's
+	 * a part of the column value, like <code>author:ann</code> finds "Joanne" and <code>author:stephen king</code> only
+	 * finds the phrase. The rows are narrowed with the index of the words per column which is maintained by the
+	 * {@link ColumnWordTrigger}: each word of the value must be a part of a word in the column. Only the remaining rows
+	 * are compared with the whole value. Keywords for columns which did not exist are ignored.
+	 * @return The condition or <code>null</code> if there are no column scoped keywords.
+	 */
+	private String createColumnCondition(List<String> keywords, String tableName) {
+		List<String> columnConditions = new ArrayList<>();
+		for (String keyword : keywords) {
+			if (keyword.contains(":")) {
+				FieldType fieldType = getFieldTypeByColumnName(keyword.substring(0, keyword.indexOf(':')));
+				if (fieldType != null) {
+					columnConditions.add(createColumnWordCondition(fieldType, getKeywordValue(keyword), tableName));
+				} else {
+					LoggerFactory.log(Level.INFO, this, "No column for search keyword " + keyword);
+				}
+			}
+		}
+		return columnConditions.isEmpty() ? null : "(" + ListUtils.join(columnConditions, " OR ") + ")";
+	}
+
+	private String createColumnWordCondition(FieldType fieldType, String value, String tableName) {
+		Set<String> words = ColumnWordTrigger.getWords(value);
+		List<String> wordConditions = new ArrayList<>(words.size() + 1);
+		for (String word : words) {
+			wordConditions.add("A." + tableInfo.getIdField().getColumnName() + " IN (SELECT W.ITEMKEY FROM " + ColumnWordTrigger.TABLE_NAME
+					+ " W WHERE W.TABLENAME = ? AND W.COLNAME = ? AND W.WORD LIKE ? ESCAPE '" + LIKE_ESCAPE + "')");
+			fromArguments.add(tableName);
+			fromArguments.add(fieldType.getColumnName().toUpperCase());
+			fromArguments.add("%" + escapeLike(word) + "%");
+		}
+
+		// the words could be found in any order, so the whole value is compared with the remaining rows.
+		wordConditions.add("UPPER(A." + fieldType.getColumnName() + ") LIKE ? ESCAPE '" + LIKE_ESCAPE + "'");
+		fromArguments.add("%" + escapeLike(value.toUpperCase()) + "%");
+		return "(" + ListUtils.join(wordConditions, " AND ") + ")";
+	}
+
+	private String getKeywordValue(String keyword) {
+		return keyword.contains(":") ? keyword.substring(keyword.indexOf(':') + 1) : keyword;
+	}
+
+	private String escapeLike(String value) {
+		StringBuilder result = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+				result.append(LIKE_ESCAPE);
+			}
+			result.append(c);
+		}
+		return result.toString();
+	}
+
+	private FieldType getFieldTypeByColumnName(String columnName) {
+		for (FieldType fieldType : tableInfo.getFieldTypes()) {
+			if (fieldType.getColumnName().equalsIgnoreCase(columnName)) {
+				return fieldType;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the {@link FieldType}s for the order fields. The id field is always appended to get a distinct order which
+	 * is needed for the keyset pagination.
+	 */
+	private List<FieldType> getOrderFieldTypes(List<Field> orderFields) {
+		FieldType idField = tableInfo.getIdField();
+		List<FieldType> result = new ArrayList<>(orderFields.size() + 1);
+		for (Field orderField : orderFields) {
+			FieldType fieldType = tableInfo.getFieldTypeByColumnName(orderField.getName());
+			if (!fieldType.equals(idField)) {
+				result.add(fieldType);
+			}
+		}
+		result.add(idField);
+		return result;
+	}
+
+	/**
+	 * Appends the condition for the rows sorted after (or before) the given item.
+	 *
+	 * @param item The item which marks the border. Nothing is appended if it is <code>null</code>.
+	 * @param after <code>true</code> for the rows sorted after the item, <code>false</code> for the rows sorted before.
+	 */
+	private void appendKeysetCondition(T item, boolean after, StringBuilder sql, List<String> arguments) throws SQLException {
+		if (item != null) {
+			sql.append(" AND ").append(createKeysetCondition(0, orderDirection.isAscending() == after, item, arguments));
+		}
+	}
+
+	/**
+	 * Creates <code>(c0 &gt; v0 OR (c0 = v0 AND (c1 &gt; v1 OR ...)))</code> recursively. NULL values are sorted
+	 * low like H2 did by default.
+	 */
+	private String createKeysetCondition(int index, boolean greater, T item, List<String> arguments) throws SQLException {
+		FieldType fieldType = orderFieldTypes.get(index);
+		String column = "A." + fieldType.getColumnName();
+		String value = toArgument(fieldType.extractJavaFieldValue(item));
+
+		StringBuilder sql = new StringBuilder("(");
+		if (greater) {
+			if (value == null) {
+				sql.append(column).append(" IS NOT NULL");
+			} else {
+				sql.append(column).append(" > ?");
+				arguments.add(value);
+			}
+		} else {
+			if (value == null) {
+				sql.append("FALSE");
+			} else {
+				sql.append("(").append(column).append(" < ? OR ").append(column).append(" IS NULL)");
+				arguments.add(value);
+			}
+		}
+
+		if (index + 1 < orderFieldTypes.size()) {
+			sql.append(" OR (");
+			if (value == null) {
+				sql.append(column).append(" IS NULL");
+			} else {
+				sql.append(column).append(" = ?");
+				arguments.add(value);
+			}
+			sql.append(" AND ").append(createKeysetCondition(index + 1, greater, item, arguments)).append(")");
+		}
+		return sql.append(")").toString();
+	}
+
+	private String toArgument(Object value) {
+		if (value == null) {
+			return null;
+		} else if (value instanceof Date) {
+			return new Timestamp(((Date) value).getTime()).toString();
+		}
+		return String.valueOf(value);
+	}
+
+	private void appendOrderFields(StringBuilder sql) {
+		String nulls = orderDirection.isAscending() ? " NULLS FIRST" : " NULLS LAST";
+		sql.append(" ORDER BY ");
+		for (int i = 0; i < orderFieldTypes.size(); i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append("A.").append(orderFieldTypes.get(i).getColumnName()).append(' ').append(orderDirection.getDirectionString()).append(nulls);
+		}
+	}
+}
@@ -6,27 +6,20 @@ import static org.rr.jeborker.app.preferences.PreferenceStoreFactory.PREFERENCE_
 import java.lang.reflect.Field;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
 
-import org.h2.jdbc.JdbcResultSet;
-import org.h2.result.LocalResult;
 import org.rr.commons.collection.ICloseableList;
-import org.rr.commons.collection.IteratorList;
 import org.rr.commons.log.LoggerFactory;
-import org.rr.commons.utils.ReflectionFailureException;
-import org.rr.commons.utils.ReflectionUtils;
 import org.rr.commons.utils.StringUtil;
 import org.rr.jeborker.Jeboorker;
 import org.rr.jeborker.app.preferences.APreferenceStore;
 import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+import org.rr.jeborker.db.item.EbookPropertyItem;
 
 import com.j256.ormlite.dao.Dao;
-import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.dao.GenericRawResults;
 import com.j256.ormlite.db.DatabaseType;
-import com.j256.ormlite.jdbc.JdbcDatabaseResults;
 import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
 import com.j256.ormlite.jdbc.db.H2DatabaseType;
 import com.j256.ormlite.stmt.RawRowMapperImpl;
@@ -38,13 +31,26 @@ class H2DBManager extends DefaultDBManager {
 
 	private static final DatabaseType H2_DATABASE_TYPE = new H2DatabaseType();
 
+	private static final String SLOW_QUERY_THRESHOLD_KEY = "slowQueryThreshold";
+
+	private static final int DEFAULT_SLOW_QUERY_THRESHOLD = 250;
+
+	private static final String FULL_TEXT_MAX_HITS_KEY = "fullTextMaxHits";
+
+	private static final int DEFAULT_FULL_TEXT_MAX_HITS = 5000;
+
+	private static final String CONTENT_KEYWORD_PREFIX = "content:";
+
+	/** The full text queries are parameterized, so a bigger statement cache helps to reuse the parsed statements. */
+	private static final int QUERY_CACHE_SIZE = 64;
+
 	protected JdbcPooledConnectionSource initDatabase() {
 		PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE);
 		String configPath = APreferenceStore.getConfigDirectory();
 		try {
 			Class.forName("org.h2.Driver");
 
-			JdbcPooledConnectionSource connection = new JdbcPooledConnectionSource("jdbc:h2:" + configPath + "h2db;TRACE_LEVEL_FILE=0");
+			JdbcPooledConnectionSource connection = new InstrumentedConnectionSource("jdbc:h2:" + configPath + "h2db;TRACE_LEVEL_FILE=0;QUERY_CACHE_SIZE=" + QUERY_CACHE_SIZE);
 			connection.setUsername("sa");
 			connection.setPassword(EMPTY);
 			setConnectionPool(connection);
@@ -68,6 +74,27 @@ class H2DBManager extends DefaultDBManager {
 			reCreateFullTextIndices();
 			dbPreferenceStore.addEntryAsString(JEBOORKER_DB_VERSION_KEY, Jeboorker.getAppVersion());
 		}
+		for (Class<?> entity : INTERNAL_CLASSES) {
+			TableUtils.createTableIfNotExists(connection, entity);
+		}
+		// only the ebooks are searched with column scoped keywords
+		initColumnWordIndex(EbookPropertyItem.class);
+	}
+
+	/**
+	 * Installs the {@link ColumnWordTrigger} for the given entity which maintains the index for column scoped keywords.
+	 */
+	private void initColumnWordIndex(Class<?> entity) throws SQLException {
+		JdbcPooledConnectionSource connectionPool = getConnectionPool();
+		DatabaseConnection connection = null;
+		try {
+			connection = connectionPool.getReadWriteConnection(null);
+			ColumnWordTrigger.install(connection.getUnderlyingConnection(), entity.getSimpleName().toUpperCase());
+		} finally {
+			if (connection != null) {
+				connectionPool.releaseConnection(connection);
+			}
+		}
 	}
 
 	private void reCreateFullTextIndices() throws SQLException {
@@ -111,118 +138,146 @@ class H2DBManager extends DefaultDBManager {
 		}
 	}
 
-	public synchronized <T> ICloseableList<T> queryFullTextSearch(Class<T> cls, Where<T, T> where, List<String> keywords, List<Field> orderFields,
-			OrderDirection orderDirection) {
+	/**
+	 * Creates a {@link PagedQueryList} for the given query. The query is not executed at once. Only the pages
+	 * which are accessed by the list are fetched from the database and the size of the result is determined with a
+	 * separate count query.
+	 */
+	public <T> ICloseableList<T> queryFullTextSearch(final Class<T> cls, Where<T, T> where, List<String> keywords, List<Field> orderFields,
+			final OrderDirection orderDirection) {
 		try {
-			StringBuilder sql = new StringBuilder();
-			String tableName = cls.getSimpleName().toUpperCase();
-			sql.append("SELECT A.* FROM ").append(tableName).append(" A ");
-
-			boolean searchTableAppended = appendFulltextQueryTable(keywords, tableName, sql);
-			if (searchTableAppended) {
-				sql.append(" WHERE A.FILE = B.KEYS AND ");
-				boolean queryConditionAppended = appendFulltextQueryCondition(keywords, tableName, sql);
-				if(queryConditionAppended) {
-					sql.append(" AND ");
-				}
-			} else {
-				if(!isEmptyWhereClause(where)) {
-					sql.append(" WHERE ");
-				} else {
-					sql.append(" ");
-				}
-			}
-			
-			if(!isEmptyWhereClause(where)) {
-				sql.append(where.getStatement()).append(' ');
-			}
-			appendOrderFields(orderFields, orderDirection, sql);
-
-			String sqlString = sql.toString();
+			final Dao<T, T> dao = getDao(cls);
+			List<String> contentKeywords = getContentKeywords(keywords);
+			List<String> metadataKeywords = new ArrayList<>(keywords);
+			metadataKeywords.removeAll(contentKeywords);
+			final FullTextQueryBuilder<T> queryBuilder = new FullTextQueryBuilder<>(dao.getTableInfo(), where, metadataKeywords, orderFields,
+					orderDirection, searchFullTextIndex(cls, metadataKeywords), searchContentIndex(cls, contentKeywords));
 
-			Dao<T, T> createDao = DaoManager.createDao(getConnectionPool(), cls);
-			GenericRawResults<T> queryRaw = createDao.queryRaw(sqlString, new RawRowMapperImpl<>(createDao));
+			return new PagedQueryList<>(new PagedQueryList.PageSource<T>() {
 
-			Iterator<T> iterator = queryRaw.closeableIterator();
-			int rowCount = getRowCount(iterator);
+				@Override
+				public int count(T before) {
+					try {
+						FullTextQueryBuilder.PreparedQuery query = queryBuilder.buildCountQuery(before);
+						long start = System.currentTimeMillis();
+						int count = (int) dao.queryRawValue(query.getSql(), query.getArguments());
+						logQueryTime(dao, query, start);
+						return count;
+					} catch (Exception e) {
+						LoggerFactory.log(Level.SEVERE, H2DBManager.this, "Failed to count query result", e);
+						return 0;
+					}
+				}
 
-			return new IteratorList<>(iterator, rowCount);
+				@Override
+				public List<T> fetch(T after, int offset, int limit) {
+					try {
+						FullTextQueryBuilder.PreparedQuery query = queryBuilder.buildPageQuery(after, offset, limit);
+						long start = System.currentTimeMillis();
+						GenericRawResults<T> queryRaw = dao.queryRaw(query.getSql(), new RawRowMapperImpl<>(dao), query.getArguments());
+						List<T> result = queryRaw.getResults();
+						logQueryTime(dao, query, start);
+						return result;
+					} catch (Exception e) {
+						LoggerFactory.log(Level.SEVERE, H2DBManager.this, "Failed to execute query", e);
+						return new ArrayList<>(0);
+					}
+				}
+			});
 		} catch (Exception e) {
 			LoggerFactory.log(Level.SEVERE, this, "Failed to execute query", e);
-			return new IteratorList<>(new ArrayList<T>(0).iterator(), 0);
+			return PagedQueryList.empty();
 		}
 	}
 
-	private <T> boolean isEmptyWhereClause(Where<T, T> where) {
-		return where.toString().equals("empty where clause");
-	}
-
-	private <T> int getRowCount(Iterator<T> iterator) throws ReflectionFailureException {
-		JdbcDatabaseResults results = (JdbcDatabaseResults) ReflectionUtils.getFieldValue(iterator, "results", false);
-		JdbcResultSet resultSet = (JdbcResultSet) ReflectionUtils.getFieldValue(results, "resultSet", false);
-		LocalResult localResult = (LocalResult) ReflectionUtils.getFieldValue(resultSet, "result", false);
-		return (int) localResult.getRowCount();
+	/**
+	 * Searches the keywords with the {@link FullTextIndex} if there is one for the given class. If the index finds more
+	 * than <code>fullTextMaxHits</code> rows, the full text search of the database is used which has no limit.
+	 * @return The ids of the found rows or <code>null</code> if the full text search of the database should be used.
+	 */
+	private <T> List<String> searchFullTextIndex(Class<T> cls, List<String> keywords) {
+		FullTextIndex fullTextIndex = getFullTextIndex();
+		if (fullTextIndex == null || keywords.isEmpty() || cls != EbookPropertyItem.class) {
+			return null;
+		}
+		long start = System.currentTimeMillis();
+		int maxHits = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE)
+				.getGenericEntryAsNumber(FULL_TEXT_MAX_HITS_KEY, DEFAULT_FULL_TEXT_MAX_HITS).intValue();
+		List<String> result = fullTextIndex.search(keywords, maxHits + 1);
+		if (result.size() > maxHits) {
+			LoggerFactory.log(Level.INFO, this, "Full text index search for " + keywords + " found more than " + maxHits
+					+ " items, using the database search to get all of them");
+			return null;
+		}
+		LoggerFactory.log(Level.FINE, this, "Full text index search for " + keywords + " found " + result.size() + " items in "
+				+ (System.currentTimeMillis() - start) + "ms");
+		return result;
 	}
 
-	private void appendOrderFields(List<Field> orderFields, OrderDirection orderDirection, StringBuilder sql) {
-		if (!orderFields.isEmpty()) {
-			sql.append("ORDER BY ");
-			for (Field orderField : orderFields) {
-				sql.append("A.").append(orderField.getName()).append(" ").append(orderDirection.getDirectionString()).append(", ");
+	/**
+	 * @return The keywords like <code>content:word</code> which should be searched in the text of the books.
+	 */
+	private List<String> getContentKeywords(List<String> keywords) {
+		List<String> result = new ArrayList<>();
+		for (String keyword : keywords) {
+			if (keyword.regionMatches(true, 0, CONTENT_KEYWORD_PREFIX, 0, CONTENT_KEYWORD_PREFIX.length())) {
+				result.add(keyword);
 			}
-			sql.setLength(sql.length() - 2);
 		}
-		sql.append(' ');
+		return result;
 	}
 
-	private boolean appendFulltextQueryTable(List<String> keywords, String tableName, StringBuilder sql) {
-		if (!keywords.isEmpty()) {
-			sql.append(", (");
-			for (int i = 0; i < keywords.size(); i++) {
-				if (i > 0) {
-					sql.append(" union ");
-				}
-				String keyword = keywords.get(i);
-				if (keyword.contains(":")) {
-					keyword = keyword.substring(keyword.indexOf(':') + 1);
-				}
-				keyword = StringUtil.escapeSql(keyword);
-				sql.append("select * from FT_SEARCH_DATA('").append(keyword).append("', 0, 0) B where B.TABLE='").append(tableName).append("'");
-			}
-			sql.append(") B");
-			return true;
+	/**
+	 * Searches the content keywords with the {@link ContentIndex}. All keywords must be found in a book. There is no other
+	 * search for the content, so all found books are returned, also if there are more than <code>fullTextMaxHits</code>.
+	 * @return The ids of the found rows or <code>null</code> if there is nothing to search in the content.
+	 */
+	private <T> List<String> searchContentIndex(Class<T> cls, List<String> contentKeywords) {
+		ContentIndex contentIndex = getContentIndex();
+		if (contentKeywords.isEmpty() || cls != EbookPropertyItem.class) {
+			return null;
+		} else if (contentIndex == null) {
+			LoggerFactory.log(Level.INFO, this, "Content index is disabled, ignoring " + contentKeywords);
+			return null;
+		}
+		List<String> words = new ArrayList<>();
+		for (String keyword : contentKeywords) {
+			words.add(keyword.substring(CONTENT_KEYWORD_PREFIX.length()));
 		}
-		return false;
+		long start = System.currentTimeMillis();
+		List<String> result = contentIndex.search(words);
+		int maxHits = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE)
+				.getGenericEntryAsNumber(FULL_TEXT_MAX_HITS_KEY, DEFAULT_FULL_TEXT_MAX_HITS).intValue();
+		LoggerFactory.log(result.size() > maxHits ? Level.INFO : Level.FINE, this, "Content index search for " + words + " found " + result.size()
+				+ " items in " + (System.currentTimeMillis() - start) + "ms");
+		return result;
 	}
 
-	private boolean appendFulltextQueryCondition(List<String> keywords, String tableName, StringBuilder sql) {
-		if (!keywords.isEmpty()) {
-			StringBuilder localSQL = new StringBuilder();
-			boolean append = false;
-			String orString = " OR ";
-			localSQL.append(" (");
-			for (String keyword : keywords) {
-				if (keyword.contains(":")) {
-					String searchColumn = keyword.substring(0, keyword.indexOf(':')).toUpperCase();
-					keyword = keyword.substring(keyword.indexOf(':') + 1).toUpperCase();
-					keyword = StringUtil.escapeSql(keyword);
-
-					localSQL.append("upper(").append(searchColumn).append(") like '%").append(keyword).append("%'").append(orString);
-					append = true;
-				}
-			}
-			if(localSQL.length() > orString.length() && localSQL.substring(localSQL.length() - orString.length(), localSQL.length()).equals(orString)) {
-				localSQL.setLength(localSQL.length() - orString.length());
-			}
-
-			localSQL.append(") ");
+	/**
+	 * Logs the execution time of the given query. Queries which took longer than the <code>slowQueryThreshold</code>
+	 * are logged as warning together with their query plan.
+	 */
+	private <T> void logQueryTime(Dao<T, T> dao, FullTextQueryBuilder.PreparedQuery query, long start) {
+		long duration = System.currentTimeMillis() - start;
+		long threshold = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE)
+				.getGenericEntryAsNumber(SLOW_QUERY_THRESHOLD_KEY, DEFAULT_SLOW_QUERY_THRESHOLD).longValue();
+		if (duration >= threshold) {
+			LoggerFactory.log(Level.WARNING, this, "Slow query took " + duration + "ms: " + query + "\n" + getQueryPlan(dao, query));
+		} else {
+			LoggerFactory.log(Level.FINE, this, "Query took " + duration + "ms: " + query);
+		}
+	}
 
-			if(append) {
-				sql.append(localSQL);
+	private <T> String getQueryPlan(Dao<T, T> dao, FullTextQueryBuilder.PreparedQuery query) {
+		try {
+			StringBuilder plan = new StringBuilder();
+			for (String[] row : dao.queryRaw("EXPLAIN " + query.getSql(), query.getArguments()).getResults()) {
+				plan.append(StringUtil.join(" ", row));
 			}
-			return append;
+			return plan.toString();
+		} catch (Exception e) {
+			return "No query plan: " + e.getMessage();
 		}
-		return false;
 	}
 
 }
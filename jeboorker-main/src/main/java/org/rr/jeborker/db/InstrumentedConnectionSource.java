@@ -0,0 +1,51 @@
+package org.rr.jeborker.db;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * A {@link JdbcPooledConnectionSource} which records the time the readers have to wait
+ * until they get a connection from the pool.
+ */
+class InstrumentedConnectionSource extends JdbcPooledConnectionSource {
+
+	private final AtomicLong readCount = new AtomicLong();
+
+	private final AtomicLong readWaitTime = new AtomicLong();
+
+	private final AtomicLong maxReadWaitTime = new AtomicLong();
+
+	InstrumentedConnectionSource(String url) throws SQLException {
+		super(url);
+	}
+
+	@Override
+	public DatabaseConnection getReadOnlyConnection(String tableName) throws SQLException {
+		long start = System.nanoTime();
+		try {
+			return super.getReadOnlyConnection(tableName);
+		} finally {
+			long waited = System.nanoTime() - start;
+			readCount.incrementAndGet();
+			readWaitTime.addAndGet(waited);
+			long max = maxReadWaitTime.get();
+			while(waited > max && !maxReadWaitTime.compareAndSet(max, waited)) {
+				max = maxReadWaitTime.get();
+			}
+		}
+	}
+
+	/**
+	 * @return A short human readable summary of the time the readers have been waiting for a connection.
+	 */
+	String getStatistics() {
+		long count = readCount.get();
+		long waitTotal = TimeUnit.NANOSECONDS.toMillis(readWaitTime.get());
+		return "reads=" + count + ", readWaitTotal=" + waitTotal + "ms, readWaitAvg=" + (count > 0 ? waitTotal / count : 0) + "ms, readWaitMax="
+				+ TimeUnit.NANOSECONDS.toMillis(maxReadWaitTime.get()) + "ms";
+	}
+}
@@ -0,0 +1,265 @@
+package org.rr.jeborker.db;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.apache.commons.io.IOUtils;
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.search.InvertedIndex;
+import org.rr.jeborker.app.ApplicationExecutor;
+import org.rr.jeborker.app.preferences.APreferenceStore;
+import org.rr.jeborker.db.item.EbookPropertyItem;
+
+import com.j256.ormlite.dao.CloseableIterator;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+
+/**
+ * {@link FullTextIndex} for the {@link EbookPropertyItem}s which keeps an {@link InvertedIndex} over all
+ * text columns in the config directory. The index is loaded at startup and written back with {@link #close()}.
+ * A marker file exists from the first change until the index is written, so an index which missed changes
+ * because the application was not closed properly is detected. If the loaded index did not match the database,
+ * it is rebuilt in the background.
+ */
+class InvertedFullTextIndex implements FullTextIndex {
+
+	private static final String INDEX_FILE_NAME = "fulltext.idx";
+
+	private static final String DIRTY_MARKER_FILE_NAME = "fulltext.dirty";
+
+	private final Dao<EbookPropertyItem, EbookPropertyItem> dao;
+
+	private final List<FieldType> fieldTypes = new ArrayList<>();
+
+	private final InvertedIndex index;
+
+	private final File indexFile;
+
+	private final File dirtyMarker;
+
+	private volatile boolean available = false;
+
+	private volatile boolean dirty = false;
+
+	InvertedFullTextIndex(Dao<EbookPropertyItem, EbookPropertyItem> dao) {
+		this.dao = dao;
+		this.indexFile = new File(APreferenceStore.getConfigDirectory(), INDEX_FILE_NAME);
+		this.dirtyMarker = new File(APreferenceStore.getConfigDirectory(), DIRTY_MARKER_FILE_NAME);
+
+		List<String> fieldNames = new ArrayList<>();
+		for(FieldType fieldType : dao.getTableInfo().getFieldTypes()) {
+			if(fieldType.getType() == String.class && !fieldType.isId()) {
+				fieldTypes.add(fieldType);
+				fieldNames.add(fieldType.getColumnName());
+			}
+		}
+		this.index = new InvertedIndex(fieldNames.toArray(new String[fieldNames.size()]));
+		index.setBoost("title", 3f);
+		index.setBoost("author", 2f);
+		index.setBoost("seriesName", 1.5f);
+		open();
+	}
+
+	/**
+	 * Loads the index from the config directory and starts a rebuild if it's missing or out of date.
+	 */
+	private void open() {
+		if(indexFile.isFile()) {
+			InputStream in = null;
+			try {
+				in = new BufferedInputStream(new FileInputStream(indexFile));
+				index.read(in);
+			} catch (Exception e) {
+				LoggerFactory.log(Level.WARNING, this, "Failed to read full text index " + indexFile, e);
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+		}
+
+		try {
+			if(isCurrent()) {
+				available = true;
+				return;
+			}
+		} catch (Exception e) {
+			LoggerFactory.log(Level.WARNING, this, "Failed to compare the full text index with the database", e);
+		}
+
+		ApplicationExecutor.CPU.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				rebuild();
+			}
+		});
+	}
+
+	/**
+	 * Tests if the loaded index has been written after the last change and contains each item of the database
+	 * with it's current timestamp.
+	 */
+	private boolean isCurrent() throws Exception {
+		if(dirtyMarker.exists()) {
+			LoggerFactory.log(Level.INFO, this, "Full text index has not been written after the last change");
+			return false;
+		}
+
+		int count = 0;
+		CloseableIterator<EbookPropertyItem> iterator = dao.queryBuilder().selectColumns("file", "timestamp").iterator();
+		try {
+			while(iterator.hasNext()) {
+				EbookPropertyItem item = iterator.next();
+				if(index.getVersion(item.getFile()) != item.getTimestamp()) {
+					return false;
+				}
+				count++;
+			}
+		} finally {
+			iterator.closeQuietly();
+		}
+		return count == index.size();
+	}
+
+	/**
+	 * Creates the marker file with the first change after the index has been written.
+	 */
+	private void markDirty() {
+		if(!dirty) {
+			dirty = true;
+			try {
+				dirtyMarker.createNewFile();
+			} catch (Exception e) {
+				LoggerFactory.log(Level.WARNING, this, "Failed to create " + dirtyMarker, e);
+			}
+		}
+	}
+
+	/**
+	 * Indexes all items of the database and removes the indexed items which are no longer in the database.
+	 */
+	private void rebuild() {
+		long start = System.currentTimeMillis();
+		Set<String> keys = new HashSet<>(index.getKeys());
+		CloseableIterator<EbookPropertyItem> iterator = dao.iterator();
+		try {
+			while(iterator.hasNext()) {
+				EbookPropertyItem item = iterator.next();
+				keys.remove(item.getFile());
+				put(item);
+			}
+			for(String key : keys) {
+				index.remove(key);
+			}
+			markDirty();
+			available = true;
+			LoggerFactory.log(Level.INFO, this, "Full text index with " + index.size() + " items rebuilt in " + (System.currentTimeMillis() - start) + "ms");
+		} catch (Exception e) {
+			LoggerFactory.log(Level.SEVERE, this, "Failed to rebuild full text index", e);
+		} finally {
+			iterator.closeQuietly();
+		}
+	}
+
+	private void put(EbookPropertyItem item) throws Exception {
+		Map<String, String> values = new HashMap<>();
+		for(FieldType fieldType : fieldTypes) {
+			values.put(fieldType.getColumnName(), (String) fieldType.extractJavaFieldValue(item));
+		}
+		index.put(item.getFile(), item.getTimestamp(), values);
+	}
+
+	@Override
+	public void update(Collection<? extends IDBObject> items) {
+		for(IDBObject item : items) {
+			if(item instanceof EbookPropertyItem) {
+				try {
+					put((EbookPropertyItem) item);
+					markDirty();
+				} catch (Exception e) {
+					LoggerFactory.log(Level.WARNING, this, "Failed to index " + item, e);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void remove(Collection<? extends IDBObject> items) {
+		for(IDBObject item : items) {
+			if(item instanceof EbookPropertyItem && index.remove(((EbookPropertyItem) item).getFile())) {
+				markDirty();
+			}
+		}
+	}
+
+	/**
+	 * Searches each keyword separately and merges the hits. A row found by more
+	 * than one keyword gets the sum of the scores.
+	 */
+	@Override
+	public List<String> search(List<String> keywords, int limit) {
+		final Map<String, Float> scores = new HashMap<>();
+		for(String keyword : keywords) {
+			for(InvertedIndex.Hit hit : index.search(keyword, limit)) {
+				Float score = scores.get(hit.getKey());
+				scores.put(hit.getKey(), Float.valueOf(score != null ? score.floatValue() + hit.getScore() : hit.getScore()));
+			}
+		}
+
+		List<String> result = new ArrayList<>(scores.keySet());
+		Collections.sort(result, new Comparator<String>() {
+
+			@Override
+			public int compare(String o1, String o2) {
+				return Float.compare(scores.get(o2).floatValue(), scores.get(o1).floatValue());
+			}
+		});
+		return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return available;
+	}
+
+	@Override
+	public void close() {
+		if(!available || !dirty) {
+			return;
+		}
+
+		File tmpFile = new File(indexFile.getPath() + ".tmp");
+		OutputStream out = null;
+		try {
+			out = new BufferedOutputStream(new FileOutputStream(tmpFile));
+			index.write(out);
+			out.close();
+			out = null;
+			Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			dirty = false;
+			if(!dirtyMarker.delete()) {
+				LoggerFactory.log(Level.WARNING, this, "Failed to delete " + dirtyMarker);
+			}
+		} catch (Exception e) {
+			LoggerFactory.log(Level.SEVERE, this, "Failed to write full text index " + indexFile, e);
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+}
@@ -0,0 +1,314 @@
+package org.rr.jeborker.db;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+
+import org.rr.commons.collection.ICloseableList;
+import org.rr.commons.collection.LRUCacheMap;
+import org.rr.commons.log.LoggerFactory;
+import org.rr.jeborker.app.ApplicationExecutor;
+
+/**
+ * A read only window over a database query result. Only the pages which are really accessed
+ * are fetched from the database and a limited number of them is kept in a LRU cache. The size
+ * of the result is determined with a separate count query.
+ * <br><br>
+ * Pages are fetched with keyset pagination whenever the last row of the previous page is known,
+ * so the database did not need to skip all previous rows. A random access far behind the already
+ * fetched pages falls back to an offset query.
+ * <br><br>
+ * The list did not change the database. The {@link #add(int, Object)}, {@link #remove(int)} and
+ * {@link #set(int, Object)} methods tells the list that the database has been changed by someone else.
+ * Only the affected pages are invalidated and fetched again if needed.
+ */
+public class PagedQueryList<T> extends AbstractList<T> implements ICloseableList<T> {
+
+	/**
+	 * Provides the pages and the row count for a {@link PagedQueryList}.
+	 */
+	interface PageSource<T> {
+
+		/**
+		 * Count the rows of the query result.
+		 * @param before Only count the rows which are sorted before this item. <code>null</code> counts all rows.
+		 */
+		int count(T before);
+
+		/**
+		 * Fetch a page of the query result.
+		 * @param after The last item of the previous page or <code>null</code> if the <code>offset</code> should be used.
+		 * @param offset The number of rows to skip. Only used if <code>after</code> is <code>null</code>.
+		 * @param limit The maximum number of rows to fetch.
+		 */
+		List<T> fetch(T after, int offset, int limit);
+	}
+
+	private static final int PAGE_SIZE = 250;
+
+	private static final int CACHED_PAGES = 16;
+
+	private static final int PREFETCH_MARGIN = 50;
+
+	private final PageSource<T> source;
+
+	private final Map<Integer, List<T>> pages = new LRUCacheMap<>(CACHED_PAGES);
+
+	/** The last item of each page, used as key for the keyset pagination of the following page. */
+	private final Map<Integer, T> boundaries = new HashMap<>();
+
+	private final Set<Integer> prefetching = new HashSet<>();
+
+	private int size = -1;
+
+	/** Incremented with each invalidation, so pages fetched before could be detected as outdated. */
+	private int generation = 0;
+
+	PagedQueryList(PageSource<T> source) {
+		this.source = source;
+	}
+
+	@Override
+	public T get(int index) {
+		if(index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+
+		int pageIndex = index / PAGE_SIZE;
+		int offset = index % PAGE_SIZE;
+		List<T> page = getPage(pageIndex);
+		prefetch(pageIndex, offset);
+		if(offset < page.size()) {
+			return page.get(offset);
+		}
+		throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+	}
+
+	@Override
+	public synchronized int size() {
+		if(size == -1) {
+			size = source.count(null);
+		}
+		return size;
+	}
+
+	/**
+	 * Replaces the item at the given index in the cached page. Should be invoked
+	 * if the item has been changed in the database. The rows sorted before the item are counted
+	 * by the database, so if the sort key has been changed, the pages between the old and the
+	 * new position are invalidated instead.
+	 */
+	@Override
+	public T set(int index, T element) {
+		int newIndex = source.count(element);
+		synchronized(this) {
+			List<T> page = pages.get(Integer.valueOf(index / PAGE_SIZE));
+			int offset = index % PAGE_SIZE;
+			T replaced = page != null && offset < page.size() ? page.get(offset) : null;
+			if(newIndex != index) {
+				invalidate(Math.min(index, newIndex) / PAGE_SIZE);
+			} else if(replaced != null) {
+				page.set(offset, element);
+			}
+			return replaced;
+		}
+	}
+
+	/**
+	 * Tells the list that the given item has been added to the database. The given index is ignored because
+	 * the position of the item is defined by the sort order of the query.
+	 * @see #insert(Object)
+	 */
+	@Override
+	public void add(int index, T element) {
+		insert(element);
+	}
+
+	/**
+	 * Tells the list that the given item has been added to the database. The rows sorted before the
+	 * item are counted by the database which gives the position of the new item. Only the page
+	 * containing the new item and the following pages are invalidated. The size is counted again,
+	 * so an item which is not matched by the query or which is already part of the result did not
+	 * grow the list.
+	 * @return The index of the new item or -1 if the item is not added to the result.
+	 */
+	public int insert(T element) {
+		int index = source.count(element);
+		int newSize = source.count(null);
+		synchronized(this) {
+			int oldSize = size;
+			size = newSize;
+			index = Math.min(index, Math.max(0, newSize - 1));
+			if(oldSize != -1 && newSize != oldSize + 1) {
+				// the item is not added, or the result has been changed by someone else.
+				invalidate(newSize == oldSize ? index / PAGE_SIZE : 0);
+				return -1;
+			}
+			invalidate(index / PAGE_SIZE);
+		}
+		return index;
+	}
+
+	/**
+	 * Tells the list that the item at the given index has been removed from the database.
+	 * The page containing the item and all following pages are invalidated.
+	 */
+	@Override
+	public synchronized T remove(int index) {
+		List<T> page = pages.get(Integer.valueOf(index / PAGE_SIZE));
+		int offset = index % PAGE_SIZE;
+		T removed = page != null && offset < page.size() ? page.get(offset) : null;
+		size = Math.max(0, size() - 1);
+		invalidate(index / PAGE_SIZE);
+		return removed;
+	}
+
+	/**
+	 * Searches the cached pages for the given item first. If the item is not cached, the rows
+	 * sorted before the item are counted by the database which gives the index of the item.
+	 */
+	@Override
+	public int indexOf(Object o) {
+		synchronized(this) {
+			for(Map.Entry<Integer, List<T>> page : pages.entrySet()) {
+				int offset = page.getValue().indexOf(o);
+				if(offset != -1) {
+					return page.getKey().intValue() * PAGE_SIZE + offset;
+				}
+			}
+		}
+
+		try {
+			int index = source.count((T) o);
+			if(index < size() && o.equals(get(index))) {
+				return index;
+			}
+		} catch (ClassCastException e) {
+			return -1;
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) != -1;
+	}
+
+	@Override
+	public synchronized void close() {
+		invalidate(0);
+	}
+
+	/**
+	 * Removes the page with the given index and all following pages from the cache.
+	 */
+	private void invalidate(int fromPage) {
+		generation++;
+		for(Integer pageIndex : new ArrayList<>(pages.keySet())) {
+			if(pageIndex.intValue() >= fromPage) {
+				pages.remove(pageIndex);
+			}
+		}
+		for(Integer pageIndex : new ArrayList<>(boundaries.keySet())) {
+			if(pageIndex.intValue() >= fromPage) {
+				boundaries.remove(pageIndex);
+			}
+		}
+	}
+
+	/**
+	 * Get the page with the given index from the cache or from the database. The database
+	 * is queried without holding the lock, so a prefetch did not block the page access.
+	 */
+	private List<T> getPage(int pageIndex) {
+		final T after;
+		final int pageGeneration;
+		synchronized(this) {
+			List<T> page = pages.get(Integer.valueOf(pageIndex));
+			if(page != null) {
+				return page;
+			}
+			after = pageIndex > 0 ? boundaries.get(Integer.valueOf(pageIndex - 1)) : null;
+			pageGeneration = generation;
+		}
+
+		List<T> page = source.fetch(after, pageIndex * PAGE_SIZE, PAGE_SIZE);
+		synchronized(this) {
+			if(pageGeneration == generation) {
+				pages.put(Integer.valueOf(pageIndex), page);
+				if(!page.isEmpty()) {
+					boundaries.put(Integer.valueOf(pageIndex), page.get(page.size() - 1));
+				}
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Fetches the neighbour page in the background if the accessed row is near the page border.
+	 */
+	private void prefetch(int pageIndex, int offset) {
+		final int prefetchPage;
+		if(offset >= PAGE_SIZE - PREFETCH_MARGIN && (pageIndex + 1) * PAGE_SIZE < size()) {
+			prefetchPage = pageIndex + 1;
+		} else if(offset < PREFETCH_MARGIN && pageIndex > 0) {
+			prefetchPage = pageIndex - 1;
+		} else {
+			return;
+		}
+
+		synchronized(this) {
+			if(pages.containsKey(Integer.valueOf(prefetchPage)) || !prefetching.add(Integer.valueOf(prefetchPage))) {
+				return;
+			}
+		}
+
+		try {
+			ApplicationExecutor.BACKGROUND_IO.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						getPage(prefetchPage);
+					} catch(Exception e) {
+						LoggerFactory.log(Level.WARNING, PagedQueryList.this, "Failed to prefetch page " + prefetchPage, e);
+					} finally {
+						synchronized(PagedQueryList.this) {
+							prefetching.remove(Integer.valueOf(prefetchPage));
+						}
+					}
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			// the page is loaded on access if the background pool is busy
+			synchronized(this) {
+				prefetching.remove(Integer.valueOf(prefetchPage));
+			}
+		}
+	}
+
+	/**
+	 * Creates an empty {@link PagedQueryList}.
+	 */
+	static <T> PagedQueryList<T> empty() {
+		return new PagedQueryList<>(new PageSource<T>() {
+
+			@Override
+			public int count(T before) {
+				return 0;
+			}
+
+			@Override
+			public List<T> fetch(T after, int offset, int limit) {
+				return Collections.emptyList();
+			}
+		});
+	}
+}
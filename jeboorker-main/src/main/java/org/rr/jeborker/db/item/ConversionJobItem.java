@@ -0,0 +1,139 @@
+package org.rr.jeborker.db.item;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.rr.jeborker.db.IDBObject;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * The persistent state of a queued ebook conversion. Jobs which are not finished when the application
+ * ends are continued with the next start.
+ */
+@DatabaseTable(tableName = "ConversionJobItem")
+public class ConversionJobItem implements IDBObject, Serializable {
+
+	private static final long serialVersionUID = 2940327729103563921L;
+
+	public static final String STATE_FIELD = "state";
+
+	public enum State {
+		QUEUED, RUNNING, DONE, FAILED, CANCELED
+	}
+
+	/**
+	 * The source file and the converter class, so the same conversion is never queued twice.
+	 */
+	@DatabaseField(id = true, width = Integer.MAX_VALUE)
+	private String id;
+
+	@DatabaseField(width = Integer.MAX_VALUE)
+	private String source;
+
+	@DatabaseField(width = 1024)
+	private String converterClass;
+
+	@DatabaseField(index = true)
+	private String state;
+
+	@DatabaseField
+	private Date createdAt;
+
+	/**
+	 * The time in milliseconds the conversion has taken.
+	 */
+	@DatabaseField
+	private long duration;
+
+	/**
+	 * The converted file.
+	 */
+	@DatabaseField(width = Integer.MAX_VALUE)
+	private String target;
+
+	/**
+	 * The size of the converted file in bytes.
+	 */
+	@DatabaseField
+	private long targetSize;
+
+	/**
+	 * The error of a failed conversion.
+	 */
+	@DatabaseField(width = Integer.MAX_VALUE)
+	private String message;
+
+	public ConversionJobItem() {
+	}
+
+	public ConversionJobItem(String source, Class<?> converterClass) {
+		this.id = source + '\n' + converterClass.getName();
+		this.source = source;
+		this.converterClass = converterClass.getName();
+		this.state = State.QUEUED.name();
+		this.createdAt = new Date();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	public String getConverterClass() {
+		return converterClass;
+	}
+
+	public State getState() {
+		return State.valueOf(state);
+	}
+
+	public void setState(State state) {
+		this.state = state.name();
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public long getDuration() {
+		return duration;
+	}
+
+	public void setDuration(long duration) {
+		this.duration = duration;
+	}
+
+	public String getTarget() {
+		return target;
+	}
+
+	public void setTarget(String target) {
+		this.target = target;
+	}
+
+	public long getTargetSize() {
+		return targetSize;
+	}
+
+	public void setTargetSize(long targetSize) {
+		this.targetSize = targetSize;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + source + ", " + converterClass + ", " + state + "]";
+	}
+}
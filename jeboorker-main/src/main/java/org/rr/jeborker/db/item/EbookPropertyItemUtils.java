@@ -1,23 +1,30 @@
 package org.rr.jeborker.db.item;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.logging.Level;
 
 import org.apache.jempbox.xmp.Thumbnail;
 import org.rr.commons.collection.TransformValueList;
+import org.rr.commons.io.PackStore;
 import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.mufs.MimeUtils;
 import org.rr.commons.mufs.ResourceHandlerFactory;
 import org.rr.commons.utils.ListUtils;
+import org.rr.commons.utils.StringUtil;
+import org.rr.jeborker.app.ApplicationExecutor;
 import org.rr.jeborker.app.BasePathList;
 import org.rr.jeborker.app.preferences.APreferenceStore;
 import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
@@ -26,14 +33,18 @@ import org.rr.jeborker.gui.MainController;
 import org.rr.jeborker.metadata.IMetadataReader;
 import org.rr.jeborker.metadata.MetadataHandlerFactory;
 import org.rr.jeborker.metadata.MetadataProperty;
-import org.rr.pm.image.IImageProvider;
-import org.rr.pm.image.ImageProviderFactory;
 import org.rr.pm.image.ImageUtils;
+import org.rr.pm.image.ThumbnailDecoder;
+
+import com.j256.ormlite.dao.GenericRawResults;
+import com.j256.ormlite.stmt.QueryBuilder;
 
 public class EbookPropertyItemUtils {
 
 	private static final String ALL_BOOK_PATH_COLLECTION = "allBookPathCollection";
+	private static final int COVER_THUMBNAIL_HEIGHT = 100;
 	private static final String thumbnailFolder = APreferenceStore.getConfigDirectory() + "thumbs/";
+	private static PackStore thumbnailStore;
 	static {
 		IResourceHandler thumbnailFolderResource = ResourceHandlerFactory.getResourceHandler(thumbnailFolder);
 		if(!thumbnailFolderResource.exists()) {
@@ -78,6 +89,66 @@ public class EbookPropertyItemUtils {
 		return defaultDBManager.getObject(EbookPropertyItem.class, "file", resourceLoader.toString());
 	}
 	
+	/**
+	 * Get the {@link EbookPropertyItem}s for all given {@link IResourceHandler} with as few database queries as possible.
+	 * @param resources The {@link IResourceHandler} instances where the {@link EbookPropertyItem}s should be fetched from the database.
+	 * @return The desired {@link EbookPropertyItem}s.
+	 */
+	public static List<EbookPropertyItem> getEbookPropertyItemsByResources(Collection<IResourceHandler> resources) {
+		if(resources.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		List<String> files = new ArrayList<>(resources.size());
+		for (IResourceHandler resource : resources) {
+			files.add(resource.toString());
+		}
+		return DefaultDBManager.getInstance().getObjects(EbookPropertyItem.class, "file", files);
+	}
+
+	/**
+	 * Get the file and the timestamp of all ebooks with the given base path with a single query. Only these
+	 * columns are fetched, so this is much cheaper than loading the {@link EbookPropertyItem}s.
+	 * The base path is matched with and without a trailing separator.
+	 * @param basePath The base path of the ebooks.
+	 * @return The timestamps mapped by the ebook files. Never returns <code>null</code>.
+	 */
+	public static Map<String, Long> getTimestampsByBasePath(String basePath) {
+		final String normalizedPath = StringUtil.replace(basePath, File.separator, StringUtil.EMPTY);
+		final Map<String, Long> result = new HashMap<>();
+		try {
+			QueryBuilder<EbookPropertyItem, EbookPropertyItem> queryBuilder = DefaultDBManager.getInstance().getQueryBuilder(EbookPropertyItem.class);
+			queryBuilder.selectColumns("file", "timestamp", "basePath");
+			queryBuilder.where().in("basePath", getBasePathVariants(basePath));
+			try (GenericRawResults<String[]> rows = queryBuilder.queryRaw()) {
+				for(String[] row : rows) {
+					if(row[2] != null && StringUtil.replace(row[2], File.separator, StringUtil.EMPTY).equals(normalizedPath)) {
+						result.put(row[0], row[1] != null ? Long.valueOf(row[1]) : Long.valueOf(0));
+					}
+				}
+			}
+		} catch(Exception e) {
+			LoggerFactory.log(Level.WARNING, EbookPropertyItemUtils.class, "Failed to fetch the timestamps for " + basePath, e);
+		}
+		return result;
+	}
+
+	/**
+	 * @return The given base path without and with a trailing separator.
+	 */
+	private static List<String> getBasePathVariants(String basePath) {
+		String path = basePath;
+		while(path.length() > 1 && path.endsWith(File.separator)) {
+			path = path.substring(0, path.length() - File.separator.length());
+		}
+		List<String> variants = new ArrayList<>(2);
+		variants.add(path);
+		if(!path.endsWith(File.separator)) {
+			variants.add(path + File.separator);
+		}
+		return variants;
+	}
+
 	/**
 	 * Creates a new {@link EbookPropertyItem} from the given resource but without any setup excepting the resource file name.
 	 *  
@@ -146,30 +217,24 @@ public class EbookPropertyItemUtils {
 	}
 
 	/**
-	 * Does the setup for the cover image bytes. A new {@link EbookPropertyCoverItem} is created
-	 * and stored and the reference is set to the given {@link EbookPropertyItem}.
+	 * Does the setup for the cover image bytes. The cover thumbnail is created and stored for the
+	 * given {@link EbookPropertyItem}. The cover is decoded near to the size of the thumbnail with the
+	 * {@link ThumbnailDecoder}, so large covers are never decoded in their full resolution.
 	 *
 	 * @param item The {@link EbookPropertyItem} instance to be setup.
-	 * @param imageData The data to be stored in a {@link EbookPropertyCoverItem}
-	 * @return The newly created {@link EbookPropertyCoverItem} with the cover data.
+	 * @param imageData The cover image or <code>null</code> if the thumbnail should be deleted.
 	 */
 	public static void setupCoverData(final EbookPropertyItem item, byte[] imageData) {
 		//create thumbnail to be stored
 		try {
-			if(imageData != null && imageData.length > 0) {
-				IImageProvider imageProvider = ImageProviderFactory.getImageProvider(ResourceHandlerFactory.getVirtualResourceHandler(UUID.randomUUID().toString(), imageData));
-				if(imageProvider != null) {
-					BufferedImage thumbnailImage = ImageUtils.scaleToHeight(imageProvider.getImage(), 100);
-
-					//much faster cropping the thumbnail than the original sized cover image.
-					BufferedImage cropedImage = ImageUtils.crop(thumbnailImage);
+			BufferedImage thumbnailImage = imageData != null && imageData.length > 0
+					? ThumbnailDecoder.decodeToHeight(new ByteArrayInputStream(imageData), COVER_THUMBNAIL_HEIGHT) : null;
+			if(thumbnailImage != null) {
+				BufferedImage cropedImage = ImageUtils.crop(thumbnailImage);
 
-					byte[] thumbnailImageBytes = ImageUtils.getImageBytes(cropedImage, MimeUtils.MIME_JPEG);
-					if(thumbnailImageBytes != null) {
-						setCoverThumbnail(thumbnailImageBytes, item.getResourceHandler());
-					} else {
-						deleteCoverThumbnail(item.getResourceHandler());
-					}
+				byte[] thumbnailImageBytes = ImageUtils.getImageBytes(cropedImage, MimeUtils.MIME_JPEG);
+				if(thumbnailImageBytes != null) {
+					setCoverThumbnail(thumbnailImageBytes, item.getResourceHandler());
 				} else {
 					deleteCoverThumbnail(item.getResourceHandler());
 				}
@@ -181,15 +246,63 @@ public class EbookPropertyItemUtils {
 		}
 	}
 
+	/**
+	 * Get the store for the cover thumbnails. The store is opened with the first access and the
+	 * garbage of removed thumbnails is compacted in the background.
+	 * @return The thumbnail store or <code>null</code> if the store could not be opened.
+	 */
+	private static synchronized PackStore getCoverThumbnailStore() {
+		if(thumbnailStore == null) {
+			try {
+				final PackStore store = new PackStore(new File(thumbnailFolder));
+				thumbnailStore = store;
+				ApplicationExecutor.BACKGROUND_IO.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							while(store.compact()) {
+								Thread.yield();
+							}
+						} catch (IOException e) {
+							LoggerFactory.getLogger().log(Level.WARNING, "Failed to compact thumbnails in " + thumbnailFolder, e);
+						}
+					}
+				});
+			} catch (IOException e) {
+				LoggerFactory.getLogger().log(Level.SEVERE, "Could not open thumbnail store " + thumbnailFolder, e);
+			}
+		}
+		return thumbnailStore;
+	}
+
+	/**
+	 * Closes the cover thumbnail store. Should be invoked when the application is terminated.
+	 */
+	public static synchronized void closeCoverThumbnailStore() {
+		if(thumbnailStore != null) {
+			try {
+				thumbnailStore.close();
+			} catch (IOException e) {
+				LoggerFactory.getLogger().log(Level.WARNING, "Failed to close thumbnail store " + thumbnailFolder, e);
+			}
+			thumbnailStore = null;
+		}
+	}
+
 	/**
 	 * Deletes the cover thumbnail for the given ebook {@link IResourceHandler}.
 	 * @param ebookResource The ebook where the cover thumbnail should be deleted for.
 	 * @throws IOException
 	 */
 	public static void deleteCoverThumbnail(final IResourceHandler ebookResource) throws IOException {
-		IResourceHandler thumbnailResourceLoader = getCoverThumbnailResourceHandler(ebookResource);
-		if(thumbnailResourceLoader.exists()) {
-			thumbnailResourceLoader.delete();
+		PackStore store = getCoverThumbnailStore();
+		if(store != null) {
+			store.remove(ebookResource.toString());
+		}
+		IResourceHandler legacyThumbnail = getLegacyCoverThumbnailResourceHandler(ebookResource);
+		if(legacyThumbnail.exists()) {
+			legacyThumbnail.delete();
 		}
 	}
 
@@ -200,22 +313,27 @@ public class EbookPropertyItemUtils {
 	 * @throws IOException
 	 */
 	private static void setCoverThumbnail(byte[] thumbnailData, IResourceHandler ebookResource) throws IOException {
-		if(thumbnailData != null && thumbnailData.length != 0) {
-			IResourceHandler thumbnailResourceLoader = getCoverThumbnailResourceHandler(ebookResource);
-			thumbnailResourceLoader.setContent(thumbnailData);
+		PackStore store = getCoverThumbnailStore();
+		if(store != null && thumbnailData != null && thumbnailData.length != 0) {
+			store.put(ebookResource.toString(), thumbnailData);
 		}
 	}
 
 	/**
-	 * Get the cover thumbnail bytes for the given ebook resource.
+	 * Get the cover thumbnail bytes for the given ebook resource. A thumbnail which is still stored in
+	 * it's own file is moved to the thumbnail store with the first access.
 	 * @param ebookResource The ebook resource wehere the cover thumbnail bytes should be loaded for.
 	 * @return The desired cover thumbnail bytes or <code>null</code> if no cover is stored for the given ebook {@link IResourceHandler}.
 	 */
 	public static byte[] getCoverThumbnailBytes(final IResourceHandler ebookResource) {
-		IResourceHandler coverThumbnail = getCoverThumbnail(ebookResource);
-		if(coverThumbnail != null) {
+		PackStore store = getCoverThumbnailStore();
+		if(store != null) {
 			try {
-				return coverThumbnail.getContent();
+				byte[] thumbnail = store.get(ebookResource.toString());
+				if(thumbnail == null) {
+					thumbnail = migrateLegacyCoverThumbnail(store, ebookResource, ebookResource);
+				}
+				return thumbnail;
 			} catch (IOException e) {
 				LoggerFactory.getLogger().log(Level.WARNING, "Failed to load cover thumbnail for " + ebookResource.getName(), e);
 			}
@@ -224,44 +342,46 @@ public class EbookPropertyItemUtils {
 	}
 
 	/**
-	 * Get the cover thumbnail {@link IResourceHandler} for the given ebook {@link IResourceHandler}.
-	 * @param ebookResource The ebook {@link IResourceHandler} where the {@link Thumbnail} should be fetched for.
-	 * @return The desired {@link IResourceHandler} instance for the cover thumbnail. Returns <code>null</code> if
-	 *   no cover is stored for the given ebook {@link IResourceHandler}.
+	 * Moves the thumbnail file which was created by previous versions for the given source ebook into the thumbnail store.
+	 * @return The thumbnail data or <code>null</code> if there is no thumbnail file for the source ebook.
 	 */
-	private static IResourceHandler getCoverThumbnail(final IResourceHandler ebookResource) {
-		IResourceHandler coverThumbnailResourceHandler = getCoverThumbnailResourceHandler(ebookResource);
-		if(coverThumbnailResourceHandler.exists()) {
-			return coverThumbnailResourceHandler;
+	private static byte[] migrateLegacyCoverThumbnail(PackStore store, IResourceHandler source, IResourceHandler target) throws IOException {
+		IResourceHandler legacyThumbnail = getLegacyCoverThumbnailResourceHandler(source);
+		if(legacyThumbnail.exists()) {
+			byte[] thumbnail = legacyThumbnail.getContent();
+			store.put(target.toString(), thumbnail);
+			legacyThumbnail.delete();
+			return thumbnail;
 		}
 		return null;
 	}
 
 	/**
-	 * Get the {@link IResourceHandler} pointing to the cover thumbnail for the given ebook {@link IResourceHandler}.
+	 * Get the {@link IResourceHandler} pointing to the cover thumbnail file for the given ebook {@link IResourceHandler}.
+	 * Previous versions have stored each {@link Thumbnail} in it's own file.
 	 * @param ebookResource The ebook {@link IResourceHandler} where the cover thumbnail {@link IResourceHandler} should be fetched for.
 	 * @return The desired cover thumbnail {@link IResourceHandler} instance.
 	 */
-	private static IResourceHandler getCoverThumbnailResourceHandler(IResourceHandler ebookResource) {
+	private static IResourceHandler getLegacyCoverThumbnailResourceHandler(IResourceHandler ebookResource) {
 		String thumbnail = thumbnailFolder + UUID.nameUUIDFromBytes(ebookResource.toString().getBytes()) + ".jpg";
 		return ResourceHandlerFactory.getResourceHandler(thumbnail);
 	}
 
 	/**
 	 * Renames the cover thumbnail for the given source resource to one which matches to the given target {@link IResourceHandler}.
-	 * This always happens if the file name changes.
+	 * This always happens if the file name changes. Only the key of the thumbnail is changed, the thumbnail data is not copied.
 	 * @param source The source to be renamed.
 	 * @param target The target {@link IResourceHandler} for the cover thumbnail.
 	 */
 	public static void renameCoverThumbnail(IResourceHandler source, IResourceHandler target) {
-		IResourceHandler sourceThumbnailResourceHandler = getCoverThumbnailResourceHandler(source);
-		if(sourceThumbnailResourceHandler.exists()) {
-			IResourceHandler targetThumbnailResourceHandler = getCoverThumbnailResourceHandler(target);
+		PackStore store = getCoverThumbnailStore();
+		if(store != null) {
 			try {
-				sourceThumbnailResourceHandler.moveTo(targetThumbnailResourceHandler, true);
+				if(!store.rename(source.toString(), target.toString())) {
+					migrateLegacyCoverThumbnail(store, source, target);
+				}
 			} catch (IOException e) {
-				LoggerFactory.getLogger().log(Level.WARNING,
-						String.format("Failed to rename thumbnail from %s to %s", sourceThumbnailResourceHandler, targetThumbnailResourceHandler), e);
+				LoggerFactory.getLogger().log(Level.WARNING, String.format("Failed to rename thumbnail from %s to %s", source, target), e);
 			}
 		}
 	}
@@ -32,6 +32,16 @@ public class ConverterPreferenceController {
 		hasShown = true;
 	}
 	
+	/**
+	 * Confirms the preferences without showing the dialog. Used for conversions which are continued
+	 * without the user, for example queued conversions after a restart, with the last used preferences.
+	 */
+	public void confirm() {
+		getView();
+		actionResult = JPreferenceDialog.ACTION_RESULT_OK;
+		hasShown = true;
+	}
+
 	/**
 	 * Tells if the dialog has already been shown to the user.
 	 */
@@ -4,8 +4,14 @@ import java.awt.Point;
 
 import javax.swing.JFrame;
 
+import org.rr.jeborker.app.ApplicationExecutor;
+import org.rr.jeborker.app.FileRefreshBackground;
 import org.rr.jeborker.app.preferences.APreferenceStore;
 import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+import org.rr.jeborker.converter.ConversionJobScheduler;
+import org.rr.jeborker.db.DefaultDBManager;
+import org.rr.jeborker.gui.cell.EbookTableCellRenderer;
+import org.rr.jeborker.gui.cell.FrameTimeMonitor;
 
 public class LoggerController {
 
@@ -47,6 +53,19 @@ public class LoggerController {
 		restoreProperties();
 	}
 
+	/**
+	 * @return The current statistics of the thread pools, the database and the background workers as human readable text.
+	 */
+	String getStatistics() {
+		ConversionJobScheduler conversions = ConversionJobScheduler.getInstance();
+		return "Executors\n" + ApplicationExecutor.getStatistics() + conversions.getExecutorStatistics()
+				+ "\n\nConversion jobs: " + conversions.getStatistics()
+				+ "\nDatabase: " + DefaultDBManager.getInstance().getContentionStatistics()
+				+ "\nFile refresh: " + FileRefreshBackground.getStatistics()
+				+ "\nCover icons: " + EbookTableCellRenderer.getCoverIconStatistics()
+				+ "\nFrames: " + FrameTimeMonitor.getStatistics();
+	}
+
 	public void close() {
 		storeProperties();
 
@@ -37,6 +37,16 @@ class LoggerView extends JDialog implements ClipboardOwner {
 		}
 	};
 	
+	private final ActionListener statisticsAction = new ActionListener() {
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			showStatistics = !showStatistics;
+			statisticsButton.setText(Bundle.getString(showStatistics ? "LogMonitorView.log" : "LogMonitorView.statistics"));
+			setContentText();
+		}
+	};
+
 	private final ActionListener copyClipboardAction = new ActionListener()  {
 		
 		@Override
@@ -50,6 +60,8 @@ class LoggerView extends JDialog implements ClipboardOwner {
 	private LoggerController logMonitorController;
 	
 	private JButton copyButton;
+	private JButton statisticsButton;
+	private boolean showStatistics = false;
 	private JTextArea contentTextArea;
 	private JButton closeButton;
 	private JPanel bottomPanel;
@@ -99,6 +111,10 @@ class LoggerView extends JDialog implements ClipboardOwner {
 		getContentPane().add(bottomPanel, gbc_panel);
 		bottomPanel.setLayout(new EqualsLayout(3));
 		
+		statisticsButton = new JButton(Bundle.getString("LogMonitorView.statistics"));
+		bottomPanel.add(statisticsButton);
+		statisticsButton.addActionListener(statisticsAction);
+
 		copyButton = new JButton(Bundle.getString("LogMonitorView.copy"));
 		bottomPanel.add(copyButton);
 		
@@ -111,16 +127,12 @@ class LoggerView extends JDialog implements ClipboardOwner {
 			
 			@Override
 			public void windowOpened(WindowEvent e) {
-				setLogText();
+				setContentText();
 			}
 			
 			@Override
 			public void windowActivated(WindowEvent e) {
-				setLogText();
-			}
-			
-			private void setLogText() {
-				contentTextArea.setText(JeboorkerLogger.getLogFilePrint());
+				setContentText();
 			}
 			
 			@Override
@@ -131,6 +143,14 @@ class LoggerView extends JDialog implements ClipboardOwner {
 		});
 	}
 
+	private void setContentText() {
+		if(showStatistics) {
+			contentTextArea.setText(logMonitorController.getStatistics());
+		} else {
+			contentTextArea.setText(JeboorkerLogger.getLogFilePrint());
+		}
+	}
+
 	/**
 	 * Empty implementation of the ClipboardOwner interface.
 	 */
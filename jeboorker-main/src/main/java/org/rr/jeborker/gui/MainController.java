@@ -8,6 +8,7 @@ import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
@@ -27,13 +28,17 @@ import org.rr.commons.swing.dialogs.JDirectoryChooser;
 import org.rr.commons.utils.CommonUtils;
 import org.rr.commons.utils.StringUtil;
 import org.rr.jeborker.app.BasePathList;
+import org.rr.jeborker.app.BasePathReconciliation;
+import org.rr.jeborker.app.ContentIndexBackground;
 import org.rr.jeborker.app.FileWatchService;
 import org.rr.jeborker.app.preferences.APreferenceStore;
 import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+import org.rr.jeborker.converter.ConversionJobScheduler;
 import org.rr.jeborker.db.item.EbookPropertyItem;
 import org.rr.jeborker.db.item.EbookPropertyItemUtils;
 import org.rr.jeborker.event.ApplicationEvent;
 import org.rr.jeborker.event.EventManager;
+import org.rr.jeborker.gui.action.ConversionJobTableListener;
 import org.rr.jeborker.gui.model.EbookPropertyDBTableModel;
 import org.rr.jeborker.gui.model.EbookPropertyFileTableModel;
 import org.rr.jeborker.gui.model.EbookSheetPropertyModel;
@@ -170,6 +175,11 @@ public class MainController {
 		BasePathList basePath = preferenceStore.getBasePath();
 		FileWatchService.addWatchPath(basePath);
 		FileWatchService.addWatchPath(EbookPropertyItemUtils.fetchPathElements());
+		BasePathReconciliation.start();
+		ContentIndexBackground.start();
+
+		ConversionJobScheduler.getInstance().addListener(new ConversionJobTableListener());
+		ConversionJobScheduler.getInstance().resume();
 	}
 
 	/**
@@ -414,6 +424,24 @@ public class MainController {
 		}
 	}
 
+	/**
+	 * Adds the given {@link EbookPropertyItem}s to the model with a single refresh of the table.
+	 * @param items The items to be added.
+	 */
+	public void addEbookPropertyItems(final List<EbookPropertyItem> items) {
+		List<EbookPropertyItem> visibleItems = new ArrayList<>(items.size());
+		for(EbookPropertyItem item : items) {
+			if(preferenceStore.isBasePathVisible(item.getBasePath())) {
+				visibleItems.add(item);
+			}
+		}
+		if(!visibleItems.isEmpty()) {
+			getEbookTableHandler().clearSelection();
+			getModel().addRows(visibleItems);
+			mainWindow.getEbookTableHandler().stopEdit();
+		}
+	}
+
 	/**
 	 * Gets all selected items from the main table.
 	 * @return The selected items. Never returns <code>null</code>.
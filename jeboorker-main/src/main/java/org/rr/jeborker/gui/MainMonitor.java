@@ -2,14 +2,13 @@ package org.rr.jeborker.gui;
 
 import static org.rr.commons.utils.StringUtil.EMPTY;
 
-import java.util.concurrent.Callable;
 import java.util.logging.Level;
 
 import javax.swing.JProgressBar;
 import javax.swing.SwingUtilities;
 
 import org.rr.commons.log.LoggerFactory;
-import org.rr.jeborker.Jeboorker;
+import org.rr.jeborker.app.ApplicationExecutor;
 
 public class MainMonitor {
 	
@@ -31,10 +30,10 @@ public class MainMonitor {
 	}
 	
 	private void startMessageCleanerThread() {
-		Jeboorker.APPLICATION_THREAD_POOL.submit(new Callable<Void>() {
+		ApplicationExecutor.LONG_RUNNING.execute("MainMonitor-MessageCleaner", new Runnable() {
 
 			@Override
-			public Void call() throws Exception {
+			public void run() {
 				while(true) {
 					if(clearTimeout == -1) {
 						try {
@@ -154,6 +153,15 @@ public class MainMonitor {
 		}
 	}
 	
+	/**
+	 * Sets the progress and the message in one go. Long running jobs
+	 * like the ebook import use this to report their throughput.
+	 */
+	public void setProgress(final int progress, final int max, final String message) {
+		setMessage(message);
+		setProgress(progress, max);
+	}
+
 	public void resetProgress() {
 		if(isEnabled) {
 			SwingUtilities.invokeLater(new Runnable() {
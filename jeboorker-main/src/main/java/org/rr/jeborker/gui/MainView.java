@@ -8,6 +8,7 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Container;
 import java.awt.Dimension;
+import java.awt.Graphics;
 import java.awt.Point;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
@@ -117,6 +118,7 @@ import org.rr.jeborker.gui.cell.DefaultPropertyCellEditor;
 import org.rr.jeborker.gui.cell.DefaultPropertyRenderer;
 import org.rr.jeborker.gui.cell.EbookTableCellEditor;
 import org.rr.jeborker.gui.cell.EbookTableCellRenderer;
+import org.rr.jeborker.gui.cell.FrameTimeMonitor;
 import org.rr.jeborker.gui.cell.FileSystemTreeCellEditor;
 import org.rr.jeborker.gui.cell.FileSystemTreeCellRenderer;
 import org.rr.jeborker.gui.cell.MultiListPropertyEditor;
@@ -584,7 +586,15 @@ class MainView extends JFrame {
 	}
 
 	private void createMainTable() {
-		mainTable = new JRTable();
+		mainTable = new JRTable() {
+
+			@Override
+			protected void paintComponent(Graphics g) {
+				long start = System.nanoTime();
+				super.paintComponent(g);
+				FrameTimeMonitor.record(getName(), System.nanoTime() - start);
+			}
+		};
 		mainTable.setName("MainTable");
 		mainTable.setRowHeight(74);
 		mainTable.setModel(new EbookPropertyDBTableModel(true));
@@ -36,6 +36,7 @@ import org.rr.commons.swing.components.JRScrollPane;
 import org.rr.commons.swing.components.JRTable;
 import org.rr.commons.swing.components.container.ShadowPanel;
 import org.rr.commons.utils.StringUtil;
+import org.rr.jeborker.app.ApplicationExecutor;
 import org.rr.jeborker.db.item.EbookPropertyItem;
 import org.rr.jeborker.gui.cell.MetadataDownloadTableCellEditor;
 import org.rr.jeborker.gui.cell.MetadataDownloadTableCellRenderer;
@@ -109,7 +110,7 @@ class MetadataDownloadView extends AbstractDialogView {
 			final ShadowPanel shadowPanel = new ShadowPanel();
 
 			setGlassPane(shadowPanel);
-			new Thread(new Runnable() {
+			ApplicationExecutor.NETWORK.execute(new Runnable() {
 
 				@Override
 				public void run() {
@@ -127,7 +128,7 @@ class MetadataDownloadView extends AbstractDialogView {
 						shadowPanel.setVisible(false);
 					}
 				}
-			}).start();
+			});
 		}
 	};
 
@@ -1,8 +1,11 @@
 package org.rr.jeborker.gui.action;
 
 import java.awt.event.ActionEvent;
+import java.util.concurrent.RejectedExecutionException;
 
-import org.rr.jeborker.Jeboorker;
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.utils.BooleanUtils;
+import org.rr.jeborker.app.ApplicationExecutor;
 
 class ActionEventQueue {
 
@@ -11,15 +14,22 @@ class ActionEventQueue {
     }
     
 	static synchronized void addActionEvent(final ApplicationAction action, final ActionEvent event, final Runnable invokeLater) {
-		Jeboorker.APPLICATION_THREAD_POOL.submit(new Runnable() {
-			@Override
-			public void run() {
-				action.invokeRealAction(event);
-				if(invokeLater != null) {
-					invokeLater.run();
+		final boolean longRunning = BooleanUtils.toBoolean(action.getValue(ApplicationAction.LONG_RUNNING_ACTION_KEY), Boolean.FALSE);
+		final ApplicationExecutor executor = longRunning ? ApplicationExecutor.LONG_ACTIONS : ApplicationExecutor.ACTIONS;
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					action.invokeRealAction(event);
+					if(invokeLater != null) {
+						invokeLater.run();
+					}
 				}
-			}
-		});
+			});
+		} catch(RejectedExecutionException e) {
+			// the queues of the action pools are not bounded, so this only happens after the pools are shut down.
+			LoggerFactory.logWarning(ActionEventQueue.class, "The action " + action.getValue(ApplicationAction.NAME) + " is not invoked while quitting.", e);
+		}
 	}
 
 }
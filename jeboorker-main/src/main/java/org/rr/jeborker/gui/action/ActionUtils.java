@@ -17,7 +17,9 @@ import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.mufs.ResourceHandlerFactory;
 import org.rr.commons.utils.StringUtil;
+import org.rr.jeborker.app.ApplicationExecutor;
 import org.rr.jeborker.app.FileRefreshBackground;
+import org.rr.jeborker.app.ContentIndexBackground;
 import org.rr.jeborker.app.FileWatchService;
 import org.rr.jeborker.app.JeboorkerConstants;
 import org.rr.jeborker.app.JeboorkerConstants.SUPPORTED_MIMES;
@@ -56,6 +58,10 @@ public class ActionUtils {
 	static void quit() {
 		MainController.getController().dispose();
 		FileWatchService.shutdownWatchService();
+		ContentIndexBackground.shutdown();
+		EbookPropertyItemUtils.closeCoverThumbnailStore();
+		LoggerFactory.log(Level.INFO, ActionUtils.class, "Executors:\n" + ApplicationExecutor.getStatistics());
+		ApplicationExecutor.shutdown();
 		try {
 			DefaultDBManager.getInstance().shutdown();
 		} catch(Exception e1) {
@@ -2,7 +2,6 @@ package org.rr.jeborker.gui.action;
 
 import java.awt.event.ActionEvent;
 import java.io.File;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
@@ -13,13 +12,9 @@ import javax.swing.Action;
 import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.mufs.ResourceHandlerFactory;
-import org.rr.commons.mufs.ResourceHandlerUtils;
-import org.rr.commons.mufs.ResourceNameFilter;
 import org.rr.commons.swing.SwingUtils;
 import org.rr.jeborker.app.preferences.APreferenceStore;
 import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
-import org.rr.jeborker.db.item.EbookPropertyItem;
-import org.rr.jeborker.db.item.EbookPropertyItemUtils;
 import org.rr.jeborker.gui.MainController;
 import org.rr.jeborker.gui.resources.ImageResourceBundle;
 
@@ -46,6 +41,7 @@ class AddBasePathAction extends AbstractAction {
 //		putValue(Action.LARGE_ICON_KEY, ImageResourceBundle.getResourceAsImageIcon("add_22.png"));
 		putValue(MNEMONIC_KEY, SwingUtils.getMnemonicKeyCode(name));
 		putValue(SHORT_DESCRIPTION, Bundle.getString("AddBasePathAction.tooltip")); //tooltip
+		putValue(ApplicationAction.LONG_RUNNING_ACTION_KEY, Boolean.TRUE);
 	}
 	
 	@Override
@@ -124,26 +120,7 @@ class AddBasePathAction extends AbstractAction {
 	 * @param baseFolder The folder where the ebook search should be started.
 	 */
 	static int readEbookFilesToDB(final IResourceHandler baseFolder) {
-		final HashSet<String> path = new HashSet<>();
-		int count = ResourceHandlerUtils.readAllFilesFromBasePath(baseFolder, new ResourceNameFilter() {
-			
-			@Override
-			public boolean accept(IResourceHandler resource) {
-				if(resource.isFileResource() && ActionUtils.isSupportedEbookFormat(resource, true)) {
-					try {
-						final EbookPropertyItem item = EbookPropertyItemUtils.createEbookPropertyItem(resource, baseFolder);
-						ActionUtils.addAndStoreEbookPropertyItem(item);
-						path.add(resource.getParentResource().toString());
-						return true;
-					} catch(Throwable e) {
-						LoggerFactory.getLogger(this).log(Level.SEVERE, "Failed adding resource " + resource, e);
-					}
-				}
-				return false;
-			}
-		});
-		EbookPropertyItemUtils.storePathElements(path);
-		return count;
+		return new EbookImportPipeline(baseFolder).importBasePath();
 	}
 
 }
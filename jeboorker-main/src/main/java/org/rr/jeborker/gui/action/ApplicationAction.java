@@ -32,6 +32,13 @@ public class ApplicationAction extends AbstractAction {
 	 */
 	public static final String NON_THREADED_ACTION_KEY = "nonThreadedAction";
 
+	/**
+	 * Can be used as key for the actions to get marked they're running for a long time, like imports or refreshing
+	 * a base path. These actions are invoked in their own pool, so they did not block the other actions.
+	 * Example: <code>putValue(ApplicationAction.LONG_RUNNING_ACTION_KEY, Boolean.TRUE);</code>
+	 */
+	public static final String LONG_RUNNING_ACTION_KEY = "longRunningAction";
+
 	private static final HashMap<Class<?>, ApplicationAction> singletonInstances = new HashMap<Class<?>, ApplicationAction>();
 
 	private final Action realAction;
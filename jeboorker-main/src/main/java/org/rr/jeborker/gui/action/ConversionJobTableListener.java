@@ -0,0 +1,38 @@
+package org.rr.jeborker.gui.action;
+
+import java.util.List;
+import java.util.logging.Level;
+
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.ResourceHandlerFactory;
+import org.rr.jeborker.converter.ConversionJobScheduler.ConversionJobListener;
+import org.rr.jeborker.db.item.ConversionJobItem;
+import org.rr.jeborker.db.item.EbookPropertyItem;
+import org.rr.jeborker.db.item.EbookPropertyItemUtils;
+import org.rr.jeborker.gui.MainController;
+
+/**
+ * Adds the ebooks converted by the queued conversion jobs to the database and the ebook table.
+ * The converted ebook gets the base path of it's source.
+ */
+public class ConversionJobTableListener implements ConversionJobListener {
+
+	@Override
+	public void jobFinished(ConversionJobItem job, IResourceHandler target) {
+		if(target == null) {
+			return;
+		}
+
+		List<EbookPropertyItem> sourceItems = EbookPropertyItemUtils.getEbookPropertyItemByResource(ResourceHandlerFactory.getResourceHandler(job.getSource()));
+		if(sourceItems.isEmpty()) {
+			LoggerFactory.log(Level.WARNING, this, "Failed to find " + job.getSource() + " in database.");
+			return;
+		}
+
+		IResourceHandler basePath = ResourceHandlerFactory.getResourceHandler(sourceItems.get(0).getBasePath());
+		EbookPropertyItem item = EbookPropertyItemUtils.createEbookPropertyItem(target, basePath);
+		ActionUtils.addAndStoreEbookPropertyItem(item);
+		MainController.getController().getMainTreeHandler().refreshFileSystemTreeEntry(target.getParentResource());
+	}
+}
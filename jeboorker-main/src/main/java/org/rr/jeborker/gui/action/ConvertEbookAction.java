@@ -1,6 +1,7 @@
 package org.rr.jeborker.gui.action;
 
 import java.awt.event.ActionEvent;
+import java.util.Collections;
 import java.util.logging.Level;
 
 import javax.swing.AbstractAction;
@@ -9,6 +10,7 @@ import javax.swing.Action;
 import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.mufs.ResourceHandlerFactory;
+import org.rr.jeborker.converter.ConversionJobScheduler;
 import org.rr.jeborker.converter.ConverterFactory;
 import org.rr.jeborker.converter.IEBookConverter;
 import org.rr.jeborker.db.item.EbookPropertyItem;
@@ -31,6 +33,9 @@ class ConvertEbookAction extends AbstractAction implements IFinalizeAction, IDoO
 	
 	private ConverterPreferenceController converterPreferenceController;
 
+	/** Tells if the conversion is queued as background job because multiple books are converted. */
+	private boolean queued = false;
+
 	ConvertEbookAction(String text) {
 		this.book = text;
 		this.bookResourceHandler = ResourceHandlerFactory.getResourceHandler(book);
@@ -49,6 +54,11 @@ class ConvertEbookAction extends AbstractAction implements IFinalizeAction, IDoO
 			if(!this.converterPreferenceController.isConfirmed()) {
 				return;
 			}
+			if(queued) {
+				ConversionJobScheduler.getInstance().submit(Collections.singletonList(bookResourceHandler), converter.getConversionTargetType(),
+						converterPreferenceController);
+				return;
+			}
 			controller.getProgressMonitor().monitorProgressStart(Bundle.getFormattedString("ConvertEbookAction.message", bookResourceHandler.getName()), false);
 			
 			converter.setConverterPreferenceController(this.converterPreferenceController);
@@ -106,6 +116,7 @@ class ConvertEbookAction extends AbstractAction implements IFinalizeAction, IDoO
 
 	@Override
 	public void prepareFor(int index, int size) {
+		queued = size > 1;
 	}
 
 }
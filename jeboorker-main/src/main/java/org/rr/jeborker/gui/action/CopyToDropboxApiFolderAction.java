@@ -46,6 +46,7 @@ public class CopyToDropboxApiFolderAction extends AbstractAction {
 		putValue(Action.NAME, Bundle.getString("CopyToDropboxAction.name"));
 		putValue(Action.SMALL_ICON, ImageResourceBundle.getResourceAsImageIcon("copy_dropbox_16.png"));
 		putValue(Action.LARGE_ICON_KEY, ImageResourceBundle.getResourceAsImageIcon("copy_dropbox_22.png"));
+		putValue(ApplicationAction.LONG_RUNNING_ACTION_KEY, Boolean.TRUE);
 	}
 
 	@Override
@@ -19,6 +19,7 @@ public class CopyToTargetAction extends AbstractAction {
 
 	CopyToTargetAction(String text) {
 		this.source = text;
+		putValue(ApplicationAction.LONG_RUNNING_ACTION_KEY, Boolean.TRUE);
 	}
 
 	@Override
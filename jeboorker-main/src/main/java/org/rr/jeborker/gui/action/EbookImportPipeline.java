@@ -0,0 +1,299 @@
+package org.rr.jeborker.gui.action;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import javax.swing.SwingUtilities;
+
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.ResourceHandlerUtils;
+import org.rr.commons.mufs.ResourceNameFilter;
+import org.rr.commons.utils.ThreadUtils;
+import org.rr.jeborker.app.ApplicationExecutor;
+import org.rr.jeborker.app.preferences.APreferenceStore;
+import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+import org.rr.jeborker.db.DefaultDBManager;
+import org.rr.jeborker.db.item.EbookPropertyItem;
+import org.rr.jeborker.db.item.EbookPropertyItemUtils;
+import org.rr.jeborker.gui.MainController;
+import org.rr.jeborker.gui.MainMonitor;
+
+/**
+ * Imports all ebook files below a base folder or a list of single ebook files into the database. The import
+ * is done in three stages:
+ * <ul>
+ * <li>The calling thread walks the directory tree or the list and hands each file to the extraction stage.</li>
+ * <li>The {@link ApplicationExecutor#CPU} pool reads the metadata and creates the cover thumbnails in parallel.</li>
+ * <li>A single writer stores the extracted items in batches.</li>
+ * </ul>
+ * The number of files handed to the extraction stage and the queue to the writer are bounded, so a fast
+ * directory walk could not pile up more items in memory than the following stages are able to handle.
+ */
+public class EbookImportPipeline {
+
+	private static final String IMPORT_THREADS_KEY = "importThreads";
+
+	private static final String IMPORT_BATCH_SIZE_KEY = "importBatchSize";
+
+	private static final int DEFAULT_BATCH_SIZE = 100;
+
+	private static final long PROGRESS_INTERVAL = 500;
+
+	/** The imported base folder or <code>null</code> if single files of any base path are imported. */
+	private final IResourceHandler baseFolder;
+
+	private final int batchSize;
+
+	/** The number of files which could be handed to the extraction stage before the walk has to wait. */
+	private final int maxPendingExtractions;
+
+	private final Semaphore pendingExtractions;
+
+	private final BlockingQueue<EbookPropertyItem> storeQueue;
+
+	private final Set<String> path = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private final AtomicInteger found = new AtomicInteger();
+
+	private final AtomicInteger processed = new AtomicInteger();
+
+	private final AtomicInteger stored = new AtomicInteger();
+
+	private final MainMonitor monitor;
+
+	private volatile boolean extractionFinished = false;
+
+	private volatile Future<Void> writer;
+
+	private long startTime;
+
+	private long lastProgress;
+
+	/**
+	 * Creates a pipeline for importing single files with {@link #importFiles(Map)}.
+	 */
+	public EbookImportPipeline() {
+		this(null);
+	}
+
+	/**
+	 * @param baseFolder The base folder which should be imported.
+	 */
+	public EbookImportPipeline(IResourceHandler baseFolder) {
+		final APreferenceStore preferenceStore = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE);
+		int threads = preferenceStore.getGenericEntryAsNumber(IMPORT_THREADS_KEY, ThreadUtils.availableProcessors()).intValue();
+
+		this.baseFolder = baseFolder;
+		this.batchSize = Math.max(1, preferenceStore.getGenericEntryAsNumber(IMPORT_BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE).intValue());
+		this.storeQueue = new LinkedBlockingQueue<>(batchSize * 2);
+		this.monitor = MainController.getController().getProgressMonitor();
+
+		// the walk waits for a free slot before it hands the next file to the extraction stage.
+		// This gives back pressure to the walk without filling the queue of the shared pool.
+		this.maxPendingExtractions = Math.max(1, threads) * 4;
+		this.pendingExtractions = new Semaphore(maxPendingExtractions);
+	}
+
+	/**
+	 * Walks the base folder, extracts the metadata of all supported ebook files and stores them to the database.
+	 * @return The number of ebook files stored to the database.
+	 */
+	public int importBasePath() {
+		startTime = System.currentTimeMillis();
+		startWriter();
+		try {
+			ResourceHandlerUtils.readAllFilesFromBasePath(baseFolder, new ResourceNameFilter() {
+
+				@Override
+				public boolean accept(final IResourceHandler resource) {
+					if(resource.isFileResource()) {
+						submitExtraction(resource, baseFolder);
+					}
+					return false;
+				}
+			});
+		} finally {
+			finish();
+		}
+		return logImported(baseFolder.toString());
+	}
+
+	/**
+	 * Extracts the metadata of the given files in parallel and stores those which are supported ebooks to the
+	 * database. The added rows are shown in the table with one refresh for each stored batch.
+	 * @param resources The files to be imported mapped to their base paths.
+	 * @return The number of ebook files stored to the database.
+	 */
+	public int importFiles(Map<IResourceHandler, IResourceHandler> resources) {
+		startTime = System.currentTimeMillis();
+		startWriter();
+		try {
+			for(Map.Entry<IResourceHandler, IResourceHandler> resource : resources.entrySet()) {
+				submitExtraction(resource.getKey(), resource.getValue());
+			}
+		} finally {
+			finish();
+		}
+		return logImported(resources.size() + " files");
+	}
+
+	/**
+	 * Waits for a free slot of the extraction stage and hands the given file to it.
+	 */
+	private void submitExtraction(final IResourceHandler resource, final IResourceHandler basePath) {
+		found.incrementAndGet();
+		try {
+			pendingExtractions.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while importing " + resource, e);
+		}
+		ApplicationExecutor.CPU.submitOrRun(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				try {
+					extract(resource, basePath);
+				} finally {
+					pendingExtractions.release();
+				}
+				return null;
+			}
+		});
+	}
+
+	private int logImported(String source) {
+		EbookPropertyItemUtils.storePathElements(path);
+
+		long duration = Math.max(1, System.currentTimeMillis() - startTime);
+		LoggerFactory.log(Level.INFO, this, "Imported " + stored.get() + " of " + found.get() + " files from " + source + " in " + duration
+				+ "ms (" + getThroughput(stored.get(), duration) + " files/s)");
+		return stored.get();
+	}
+
+	/**
+	 * Starts the writer on the {@link ApplicationExecutor#LONG_RUNNING} pool. The writer gets a thread of its own
+	 * which is not shared with the short background tasks, so it could never starve while the extraction stage
+	 * waits for free space in the store queue.
+	 */
+	private void startWriter() {
+		FutureTask<Void> writerTask = new FutureTask<>(new Writer());
+		writer = writerTask;
+		ApplicationExecutor.LONG_RUNNING.execute("EbookImportWriter", writerTask);
+	}
+
+	/**
+	 * Waits until the extraction stage and the writer have processed all pending items.
+	 */
+	private void finish() {
+		try {
+			pendingExtractions.acquire(maxPendingExtractions);
+		} catch (InterruptedException e) {
+			LoggerFactory.log(Level.WARNING, this, "Waiting for metadata extraction has been interrupted", e);
+			Thread.currentThread().interrupt();
+		}
+		extractionFinished = true;
+
+		try {
+			writer.get();
+		} catch (InterruptedException e) {
+			LoggerFactory.log(Level.WARNING, this, "Waiting for the database writer has been interrupted", e);
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			LoggerFactory.log(Level.SEVERE, this, "Storing the imported files has failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Reads the metadata and the cover for the given resource and passes the
+	 * result to the writer stage. Invoked by the threads of the extraction stage.
+	 */
+	private void extract(IResourceHandler resource, IResourceHandler basePath) {
+		try {
+			if(ActionUtils.isSupportedEbookFormat(resource, true)) {
+				final EbookPropertyItem item = EbookPropertyItemUtils.createEbookPropertyItem(resource, basePath);
+				path.add(resource.getParentResource().toString());
+				while(!storeQueue.offer(item, PROGRESS_INTERVAL, TimeUnit.MILLISECONDS)) {
+					if(writer.isDone()) {
+						// the writer has failed, nobody takes the item from the queue
+						LoggerFactory.log(Level.WARNING, this, "Skipped " + resource + " because the database writer has stopped");
+						return;
+					}
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch(Throwable e) {
+			LoggerFactory.getLogger(this).log(Level.SEVERE, "Failed adding resource " + resource, e);
+		} finally {
+			processed.incrementAndGet();
+		}
+	}
+
+	private void reportProgress(boolean force) {
+		long now = System.currentTimeMillis();
+		if(baseFolder != null && (force || now - lastProgress > PROGRESS_INTERVAL)) {
+			lastProgress = now;
+			int processedCount = processed.get();
+			int foundCount = found.get();
+			String throughput = getThroughput(processedCount, now - startTime);
+			monitor.setProgress(processedCount, foundCount,
+					Bundle.getFormattedString("AddBasePathAction.progress", String.valueOf(processedCount), String.valueOf(foundCount), throughput));
+		}
+	}
+
+	private String getThroughput(int count, long duration) {
+		return String.valueOf(count * 1000L / Math.max(1, duration));
+	}
+
+	/**
+	 * The single writer which takes the extracted items from the store queue and
+	 * stores them with one transaction per batch.
+	 */
+	private class Writer implements Callable<Void> {
+
+		@Override
+		public Void call() throws Exception {
+			while(!extractionFinished || !storeQueue.isEmpty()) {
+				EbookPropertyItem item = storeQueue.poll(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+				if(item != null) {
+					final List<EbookPropertyItem> batch = new ArrayList<>(batchSize);
+					batch.add(item);
+					storeQueue.drainTo(batch, batchSize - 1);
+					store(batch);
+				}
+				reportProgress(false);
+			}
+			reportProgress(true);
+			return null;
+		}
+
+		private void store(final List<EbookPropertyItem> batch) {
+			if(DefaultDBManager.getInstance().storeObjects(batch)) {
+				stored.addAndGet(batch.size());
+				SwingUtilities.invokeLater(new Runnable() {
+
+					@Override
+					public void run() {
+						MainController.getController().addEbookPropertyItems(batch);
+					}
+				});
+			}
+		}
+	}
+}
@@ -25,6 +25,7 @@ public class FileSystemImportAction extends AbstractAction {
 		putValue(Action.SMALL_ICON, ImageResourceBundle.getResourceAsImageIcon("import_16.png"));
 		putValue(Action.NAME, targetFolder);
 		putValue(SHORT_DESCRIPTION, Bundle.getString("FileSystemImportAction.tooltip")); //tooltip
+		putValue(ApplicationAction.LONG_RUNNING_ACTION_KEY, Boolean.TRUE);
 	}
 	
 	@Override
@@ -0,0 +1,10 @@
+package org.rr.jeborker.gui.action;
+
+/**
+ * Marks an action which could be invoked by multiple threads at the same time. The {@link MultiActionWrapper} runs
+ * the action instances of such an action in parallel if multiple resources are selected. Only the instances for
+ * different resources are running at the same time, the instances for the same resource are invoked in their order.
+ */
+interface IThreadSafeAction {
+
+}
@@ -0,0 +1,223 @@
+package org.rr.jeborker.gui.action;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import org.rr.commons.log.LoggerFactory;
+import org.rr.commons.mufs.IResourceHandler;
+import org.rr.commons.mufs.ResourceHandlerFactory;
+import org.rr.commons.utils.ListUtils;
+import org.rr.commons.utils.ThreadUtils;
+import org.rr.commons.utils.ThreadUtils.RunnableImpl;
+import org.rr.jeborker.app.FolderWalk;
+import org.rr.jeborker.db.DefaultDBManager;
+import org.rr.jeborker.db.item.EbookPropertyItem;
+import org.rr.jeborker.db.item.EbookPropertyItemUtils;
+import org.rr.jeborker.gui.MainController;
+import org.rr.jeborker.gui.MainMonitor;
+
+/**
+ * Refreshes a base path by comparing the files below the base path with the database. The files and
+ * timestamps of all ebooks in the base path are fetched with a single query and compared with a parallel
+ * walk of the base path. Only the new, changed and removed files are transferred to the database.
+ */
+class IncrementalBasePathRefresh {
+
+	/**
+	 * A file found by the walk of the base path.
+	 */
+	private static class FoundFile {
+
+		private final String folder;
+
+		private final long modified;
+
+		private FoundFile(String folder, long modified) {
+			this.folder = folder;
+			this.modified = modified;
+		}
+	}
+
+	private final IResourceHandler basePath;
+
+	private final DefaultDBManager db = DefaultDBManager.getInstance();
+
+	private final MainMonitor monitor = MainController.getController().getProgressMonitor();
+
+	private final Map<String, FoundFile> files = new ConcurrentHashMap<>();
+
+	/** The folders which contain ebooks. */
+	private final Set<String> path = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private int processed;
+
+	private int total;
+
+	private long startTime;
+
+	/**
+	 * @param basePath The base path which should be refreshed.
+	 */
+	IncrementalBasePathRefresh(IResourceHandler basePath) {
+		this.basePath = basePath;
+	}
+
+	/**
+	 * Transfers all differences between the base path and the database to the database.
+	 * @return The folders below the base path which contain ebooks.
+	 */
+	Collection<String> refresh() {
+		startTime = System.currentTimeMillis();
+		final Map<String, Long> timestamps = EbookPropertyItemUtils.getTimestampsByBasePath(basePath.toString());
+		walk(timestamps);
+
+		final List<String> added = new ArrayList<>();
+		final List<String> changed = new ArrayList<>();
+		for(Map.Entry<String, FoundFile> entry : files.entrySet()) {
+			Long timestamp = timestamps.remove(entry.getKey());
+			if(timestamp == null) {
+				added.add(entry.getKey());
+			} else {
+				path.add(entry.getValue().folder);
+				if(timestamp.longValue() == 0 || timestamp.longValue() != entry.getValue().modified) {
+					changed.add(entry.getKey());
+				}
+			}
+		}
+		// all remaining ebooks have not been found below the base path
+		final List<String> removed = new ArrayList<>(timestamps.keySet());
+
+		total = added.size() + changed.size();
+		removeDeletedFiles(removed);
+		refreshChangedFiles(changed);
+		addNewFiles(added);
+
+		LoggerFactory.log(Level.INFO, this, "Refreshed " + files.size() + " files in " + basePath + " with added=" + added.size() + ", changed="
+				+ changed.size() + ", removed=" + removed.size() + " in " + (System.currentTimeMillis() - startTime) + "ms");
+		return path;
+	}
+
+	/**
+	 * Collects the ebook files below the base path with their modification time. Each folder is read by a separate task.
+	 * Files which are not in the database are only collected if their extension belongs to a supported format, so other
+	 * files like images or text files are neither sniffed nor counted as added.
+	 * @param timestamps The timestamps of the ebooks in the database mapped by their files.
+	 */
+	private void walk(final Map<String, Long> timestamps) {
+		try {
+			new FolderWalk<IResourceHandler>() {
+
+				@Override
+				protected List<IResourceHandler> readFolder(IResourceHandler folder) {
+					String folderName = folder.toString();
+					try {
+						for(IResourceHandler file : folder.listFileResources()) {
+							String fileName = file.toString();
+							if(timestamps.containsKey(fileName) || ActionUtils.isSupportedEbookFormat(file, false)) {
+								files.put(fileName, new FoundFile(folderName, file.getModifiedAt().getTime()));
+							}
+						}
+					} catch (IOException e) {
+						LoggerFactory.log(Level.INFO, this, "Failed reading folder " + folder, e);
+					}
+
+					try {
+						return Arrays.asList(folder.listDirectoryResources());
+					} catch (IOException e) {
+						LoggerFactory.log(Level.INFO, this, "Failed reading subfolders of " + folder, e);
+						return Collections.emptyList();
+					}
+				}
+			}.walk(basePath);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while walking " + basePath, e);
+		}
+	}
+
+	/**
+	 * Deletes the ebooks from the database which files no longer exist.
+	 */
+	private void removeDeletedFiles(List<String> removed) {
+		List<String> deleted = new ArrayList<>(removed.size());
+		for(String file : removed) {
+			if(!ResourceHandlerFactory.getResourceHandler(file).exists()) {
+				deleted.add(file);
+			}
+		}
+		if(!deleted.isEmpty()) {
+			db.deleteObjects(db.getObjects(EbookPropertyItem.class, "file", deleted), true);
+		}
+	}
+
+	/**
+	 * Rereads the metadata of the changed files in parallel and stores them batch by batch.
+	 */
+	private void refreshChangedFiles(List<String> changed) {
+		for(List<String> batch : ListUtils.chunkSplit(changed, db.getBatchSize())) {
+			List<EbookPropertyItem> items = db.getObjects(EbookPropertyItem.class, "file", batch);
+			store(ThreadUtils.loopAndWait(items, new RunnableImpl<EbookPropertyItem, EbookPropertyItem>() {
+
+				@Override
+				public EbookPropertyItem run(EbookPropertyItem item) {
+					try {
+						EbookPropertyItemUtils.refreshEbookPropertyItem(item, item.getResourceHandler(), true);
+						return item;
+					} catch(Throwable e) {
+						LoggerFactory.getLogger(this).log(Level.SEVERE, "Failed refreshing resource " + item.getFile(), e);
+						return null;
+					}
+				}
+			}, ThreadUtils.availableProcessors()), batch.size());
+		}
+	}
+
+	/**
+	 * Reads the metadata of the new files in parallel and stores them batch by batch.
+	 */
+	private void addNewFiles(List<String> added) {
+		for(List<String> batch : ListUtils.chunkSplit(added, db.getBatchSize())) {
+			store(ThreadUtils.loopAndWait(batch, new RunnableImpl<String, EbookPropertyItem>() {
+
+				@Override
+				public EbookPropertyItem run(String file) {
+					IResourceHandler resource = ResourceHandlerFactory.getResourceHandler(file);
+					try {
+						if(ActionUtils.isSupportedEbookFormat(resource, true)) {
+							path.add(files.get(file).folder);
+							return EbookPropertyItemUtils.createEbookPropertyItem(resource, basePath);
+						}
+					} catch(Throwable e) {
+						LoggerFactory.getLogger(this).log(Level.SEVERE, "Failed adding resource " + resource, e);
+					}
+					return null;
+				}
+			}, ThreadUtils.availableProcessors()), batch.size());
+		}
+	}
+
+	private void store(List<EbookPropertyItem> items, int batchSize) {
+		List<EbookPropertyItem> itemsToStore = new ArrayList<>(items.size());
+		for(EbookPropertyItem item : items) {
+			if(item != null) {
+				itemsToStore.add(item);
+			}
+		}
+		if(!itemsToStore.isEmpty()) {
+			db.storeObjects(itemsToStore);
+		}
+
+		processed += batchSize;
+		String throughput = String.valueOf(processed * 1000L / Math.max(1, System.currentTimeMillis() - startTime));
+		monitor.setProgress(processed, total,
+				Bundle.getFormattedString("AddBasePathAction.progress", String.valueOf(processed), String.valueOf(total), throughput));
+	}
+}
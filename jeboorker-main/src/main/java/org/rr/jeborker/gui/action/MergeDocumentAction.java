@@ -34,6 +34,7 @@ class MergeDocumentAction extends AbstractAction {
 			putValue(Action.NAME, text);
 		}
 		putValue(MNEMONIC_KEY, SwingUtils.getMnemonicKeyCode(name));
+		putValue(ApplicationAction.LONG_RUNNING_ACTION_KEY, Boolean.TRUE);
 	}
 
 	@Override
@@ -4,8 +4,12 @@ import java.awt.event.ActionEvent;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -13,9 +17,13 @@ import javax.swing.Action;
 import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.utils.ReflectionUtils;
+import org.rr.commons.utils.ThreadUtils;
+import org.rr.commons.utils.ThreadUtils.RunnableImpl;
+import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
 import org.rr.jeborker.db.item.EbookPropertyItem;
 import org.rr.jeborker.event.RefreshAbstractAction;
 import org.rr.jeborker.gui.MainController;
+import org.rr.jeborker.gui.MainMonitor;
 
 class MultiActionWrapper extends AbstractAction {
 
@@ -25,6 +33,8 @@ class MultiActionWrapper extends AbstractAction {
 	
 	public static final String SELECTED_ITEMS_TO_REFRESH_KEY = "SELECTED_ITEMS_TO_REFRESH_KEY";
 
+	private static final String PARALLEL_ACTION_THREADS_KEY = "parallelActionThreads";
+
 	private final Action firstActionInstance;
 	
 	private List<IResourceHandler> handlers;
@@ -48,20 +58,13 @@ class MultiActionWrapper extends AbstractAction {
 		putValue(Action.SMALL_ICON, firstActionInstance.getValue(Action.SMALL_ICON));
 		putValue(Action.LARGE_ICON_KEY, firstActionInstance.getValue(Action.LARGE_ICON_KEY));
 		putValue(ApplicationAction.NON_THREADED_ACTION_KEY, firstActionInstance.getValue(ApplicationAction.NON_THREADED_ACTION_KEY));
+		putValue(ApplicationAction.LONG_RUNNING_ACTION_KEY, firstActionInstance.getValue(ApplicationAction.LONG_RUNNING_ACTION_KEY));
 		putValue(ApplicationAction.SINGLETON_ACTION_KEY, firstActionInstance.getValue(ApplicationAction.SINGLETON_ACTION_KEY));		
 	}
 	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	@Override
 	public void actionPerformed(ActionEvent e) {
-		final Iterator<IResourceHandler> iterator = handlers.iterator();
-		final int size = handlers.size();
-		
-		//skip the first and use the firstActionInstance action we have already created with the constructor
-		if(iterator.hasNext()) {
-			iterator.next();
-		}
-		
 		Object doOnce;
 		transferValues(firstActionInstance);
 		if(firstActionInstance instanceof IDoOnlyOnceAction<?>) {
@@ -70,23 +73,11 @@ class MultiActionWrapper extends AbstractAction {
 			doOnce = null;
 		}
 		
-		List<Action> actions = new ArrayList<>(size);
-		actions.add(this.doActionAt(firstActionInstance, e, 0, size));
-		
-		//create an action instance for all the other handlers. 
-		for (int i = 1; iterator.hasNext(); i++) {
-			MainController.getController().getProgressMonitor().setProgress(i, handlers.size());
-			IResourceHandler handler = iterator.next();
-			Action action = createInstance(firstActionInstance.getClass(), handler, selectedRowsToRefresh);
-			
-			if(action != null) {
-				if(doOnce != null && action instanceof IDoOnlyOnceAction<?>) {
-					((IDoOnlyOnceAction)action).setDoOnceResult(doOnce);
-				}				
-				actions.add(this.doActionAt(action, e, i, size));	
-			} else {
-				LoggerFactory.logWarning(this, "could not create action for " + handler, null);
-			}
+		List<Action> actions;
+		if(firstActionInstance instanceof IThreadSafeAction && handlers.size() > 1) {
+			actions = doActionsParallel(e, doOnce);
+		} else {
+			actions = doActions(e, doOnce);
 		}
 		MainController.getController().getProgressMonitor().resetProgress();
 		
@@ -107,6 +98,111 @@ class MultiActionWrapper extends AbstractAction {
 		}
 	}
 
+	/**
+	 * Invokes the actions for all handlers one after another.
+	 * @return The invoked actions.
+	 */
+	private List<Action> doActions(ActionEvent e, Object doOnce) {
+		final Iterator<IResourceHandler> iterator = handlers.iterator();
+		final int size = handlers.size();
+		
+		//skip the first and use the firstActionInstance action we have already created with the constructor
+		if(iterator.hasNext()) {
+			iterator.next();
+		}
+		
+		List<Action> actions = new ArrayList<>(size);
+		actions.add(this.doActionAt(firstActionInstance, e, 0, size));
+		
+		//create an action instance for all the other handlers. 
+		for (int i = 1; iterator.hasNext(); i++) {
+			MainController.getController().getProgressMonitor().setProgress(i, handlers.size());
+			IResourceHandler handler = iterator.next();
+			Action action = createInstance(handler, doOnce);
+			if(action != null) {
+				actions.add(this.doActionAt(action, e, i, size));	
+			}
+		}
+		return actions;
+	}
+
+	/**
+	 * Invokes the actions for all handlers in parallel. The actions for the same handler are invoked
+	 * one after another in their order. A failing action is logged and did not stop the other ones.
+	 * @return The invoked actions.
+	 */
+	private List<Action> doActionsParallel(final ActionEvent e, Object doOnce) {
+		final int size = handlers.size();
+		final List<Action> actions = new ArrayList<>(size);
+		final Map<String, List<Integer>> indicesByHandler = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			IResourceHandler handler = handlers.get(i);
+			Action action = i == 0 ? firstActionInstance : createInstance(handler, doOnce);
+			if(action != null) {
+				String key = String.valueOf(handler);
+				List<Integer> indices = indicesByHandler.get(key);
+				if(indices == null) {
+					indices = new ArrayList<>();
+					indicesByHandler.put(key, indices);
+				}
+				indices.add(Integer.valueOf(i));
+			}
+			actions.add(action);
+		}
+
+		final MainMonitor monitor = MainController.getController().getProgressMonitor();
+		final AtomicInteger done = new AtomicInteger();
+		final AtomicInteger failed = new AtomicInteger();
+		int threads = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE)
+				.getGenericEntryAsNumber(PARALLEL_ACTION_THREADS_KEY, ThreadUtils.availableProcessors()).intValue();
+		ThreadUtils.loopAndWait(new ArrayList<>(indicesByHandler.values()), new RunnableImpl<List<Integer>, Void>() {
+
+			@Override
+			public Void run(List<Integer> indices) {
+				for(Integer index : indices) {
+					try {
+						doActionAt(actions.get(index), e, index, size);
+					} catch(Exception ex) {
+						failed.incrementAndGet();
+						LoggerFactory.logWarning(MultiActionWrapper.this, "Failed to invoke " + getValue(Action.NAME) + " for " + handlers.get(index), ex);
+					}
+					monitor.setProgress(done.incrementAndGet(), size);
+				}
+				return null;
+			}
+		}, Math.max(1, threads));
+
+		if(failed.get() > 0) {
+			LoggerFactory.log(Level.WARNING, this, getValue(Action.NAME) + " has failed for " + failed.get() + " of " + size + " entries");
+		}
+
+		List<Action> result = new ArrayList<>(size);
+		for(Action action : actions) {
+			if(action != null) {
+				result.add(action);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Creates the action instance for the given handler and passes the result of the
+	 * {@link IDoOnlyOnceAction#doOnce()} invocation to it.
+	 * @return The new action or <code>null</code> if the action could not be created.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Action createInstance(IResourceHandler handler, Object doOnce) {
+		Action action = createInstance(firstActionInstance.getClass(), handler, selectedRowsToRefresh);
+		if(action != null) {
+			if(doOnce != null && action instanceof IDoOnlyOnceAction<?>) {
+				((IDoOnlyOnceAction)action).setDoOnceResult(doOnce);
+			}
+		} else {
+			LoggerFactory.logWarning(this, "could not create action for " + handler, null);
+		}
+		return action;
+	}
+
 	/**
 	 * Invokes the action method to the given action.
 	 * @param action The action to be executed.
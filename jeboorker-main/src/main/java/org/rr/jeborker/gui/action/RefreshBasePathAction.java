@@ -32,6 +32,8 @@ class RefreshBasePathAction extends AbstractAction {
 	private static final long serialVersionUID = -9066575818229620987L;
 	
 	private static final String REFRESH_ALL = "refreshAll";
+
+	private static final String INCREMENTAL_REFRESH_KEY = "incrementalRefresh";
 	
 	private String path;
 	
@@ -46,6 +48,7 @@ class RefreshBasePathAction extends AbstractAction {
 		}
 		putValue(Action.SMALL_ICON, ImageResourceBundle.getResourceAsImageIcon("refresh_16.png"));
 		putValue(Action.LARGE_ICON_KEY, ImageResourceBundle.getResourceAsImageIcon("refresh_22.png"));
+		putValue(ApplicationAction.LONG_RUNNING_ACTION_KEY, Boolean.TRUE);
 	}
 	
 	@Override
@@ -81,12 +84,28 @@ class RefreshBasePathAction extends AbstractAction {
 	
 	private void doRefreshBasePath(String path, ActionEvent e, MainMonitor monitor) {
 		IResourceHandler resourceLoader = ResourceHandlerFactory.getResourceHandler(path);
-		removeDeletedFiles(resourceLoader);
-		refreshEbookFiles(resourceLoader);
+		if(isIncrementalRefresh()) {
+			final Collection<String> oldPathElements = EbookPropertyItemUtils.fetchPathElements();
+			final Collection<String> pathElements = new IncrementalBasePathRefresh(resourceLoader).refresh();
+			EbookPropertyItemUtils.storePathElements(pathElements);
+			reloadBasePathTree(pathElements, oldPathElements);
+		} else {
+			removeDeletedFiles(resourceLoader);
+			refreshEbookFiles(resourceLoader);
+		}
 		
 		MainController.getController().getEbookTableHandler().refreshTable();
 	}
 	
+	/**
+	 * Tells if only the differences between the base path and the database should be processed. The
+	 * incremental refresh can be disabled with the <code>incrementalRefresh</code> system preference.
+	 */
+	private static boolean isIncrementalRefresh() {
+		String enabled = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE).getGenericEntryAsString(INCREMENTAL_REFRESH_KEY, "true");
+		return Boolean.parseBoolean(enabled);
+	}
+
 	/**
 	 * Removes all deleted files from the database.
 	 * @param basePath The folder to be processed.
@@ -94,12 +113,14 @@ class RefreshBasePathAction extends AbstractAction {
 	private static void removeDeletedFiles(final IResourceHandler basePath) {
 		final DefaultDBManager db = DefaultDBManager.getInstance();
 		final ArrayList<EbookPropertyItem> itemsToTest = RemoveBasePathAction.getItemsByBasePath(basePath.toString());
+		final List<EbookPropertyItem> itemsToDelete = new ArrayList<>();
 		for(EbookPropertyItem item : itemsToTest) {
 			final IResourceHandler itemResourceHandler = item.getResourceHandler();
 			if(!itemResourceHandler.exists()) {
-				db.deleteObject(item);
+				itemsToDelete.add(item);
 			}
 		}
+		db.deleteObjects(itemsToDelete, true);
 	}
 	
 	/**
@@ -110,6 +131,7 @@ class RefreshBasePathAction extends AbstractAction {
 		final DefaultDBManager db = DefaultDBManager.getInstance();
 		final HashSet<String> path = new HashSet<>();
 		final Collection<String> oldPathElements = EbookPropertyItemUtils.fetchPathElements();
+		final List<EbookPropertyItem> itemsToStore = new ArrayList<>();
 		ResourceHandlerUtils.readAllFilesFromBasePath(basePath, new ResourceNameFilter() {
 			
 			@Override
@@ -123,13 +145,13 @@ class RefreshBasePathAction extends AbstractAction {
 								if(item.getTimestamp() == 0 || item.getTimestamp() != fileTimeStamp) {
 									//file has changed
 									EbookPropertyItemUtils.refreshEbookPropertyItem(item, resourceLoader, true);
-									db.updateObject(item);
+									storeBatched(item);
 								}
 							}
 						} else {
 							//new ebook
 							final EbookPropertyItem item = EbookPropertyItemUtils.createEbookPropertyItem(resourceLoader, basePath);
-							db.storeObject(item);
+							storeBatched(item);
 						}
 						path.add(resourceLoader.getParentResource().toString());
 						return true;
@@ -139,7 +161,19 @@ class RefreshBasePathAction extends AbstractAction {
 				}
 				return false;
 			}
+
+			/**
+			 * Collects the given item and stores all collected items if the batch size is reached.
+			 */
+			private void storeBatched(EbookPropertyItem item) {
+				itemsToStore.add(item);
+				if(itemsToStore.size() >= db.getBatchSize()) {
+					db.storeObjects(itemsToStore);
+					itemsToStore.clear();
+				}
+			}
 		});
+		db.storeObjects(itemsToStore);
 		EbookPropertyItemUtils.storePathElements(path);
 		reloadBasePathTree(path, oldPathElements);
 	}
@@ -13,7 +13,7 @@ import org.rr.jeborker.db.item.EbookPropertyItem;
 import org.rr.jeborker.gui.MainController;
 import org.rr.jeborker.gui.resources.ImageResourceBundle;
 
-class RefreshEntryAction extends AbstractAction {
+class RefreshEntryAction extends AbstractAction implements IThreadSafeAction {
 
 	private static final long serialVersionUID = -8907068823573668230L;
 	
@@ -30,6 +30,7 @@ class RefreshEntryAction extends AbstractAction {
 		putValue(Action.SMALL_ICON, ImageResourceBundle.getResourceAsImageIcon("refresh_16.png"));
 		putValue(Action.LARGE_ICON_KEY, ImageResourceBundle.getResourceAsImageIcon("refresh_22.png"));
 		putValue(MNEMONIC_KEY, SwingUtils.getMnemonicKeyCode(name));
+		putValue(ApplicationAction.LONG_RUNNING_ACTION_KEY, Boolean.TRUE);
 	}
 
 	@Override
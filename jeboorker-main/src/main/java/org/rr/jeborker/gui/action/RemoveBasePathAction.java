@@ -41,6 +41,7 @@ class RemoveBasePathAction extends AbstractAction {
 		}
 		putValue(Action.SMALL_ICON, ImageResourceBundle.getResourceAsImageIcon("remove_16.png"));
 		putValue(Action.LARGE_ICON_KEY, ImageResourceBundle.getResourceAsImageIcon("remove_22.png"));
+		putValue(ApplicationAction.LONG_RUNNING_ACTION_KEY, Boolean.TRUE);
 	}
 	
 	@Override
@@ -115,9 +116,7 @@ class RemoveBasePathAction extends AbstractAction {
 		
 		progressMonitor.setMessage(Bundle.getString("RemoveBasePathAction.deletingMany"));
 		
-		for(EbookPropertyItem item : items) {
-			DefaultDBManager.getInstance().deleteObject(item);
-		}
+		DefaultDBManager.getInstance().deleteObjects(items, true);
 		SwingUtilities.invokeLater(new Runnable() {
 			
 			@Override
@@ -0,0 +1,258 @@
+package org.rr.jeborker.gui.cell;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.logging.Level;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+
+import org.rr.commons.log.LoggerFactory;
+import org.rr.jeborker.app.ApplicationExecutor;
+import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+import org.rr.jeborker.db.item.EbookPropertyItem;
+import org.rr.jeborker.db.item.EbookPropertyItemUtils;
+import org.rr.pm.image.ImageUtils;
+
+/**
+ * Cache for the scaled cover icons shown in the ebook table. The size of the cache is limited by the memory
+ * used by the icons. Icons which are not cached are loaded and scaled by a background thread, the row
+ * is repainted when the icon is available. The covers of the rows next to the visible ones are prefetched.
+ */
+class CoverIconCache {
+
+	/**
+	 * A cover which should be loaded by the background thread.
+	 */
+	private static class Request {
+
+		private final String key;
+
+		private final EbookPropertyItem item;
+
+		private final JTable table;
+
+		private final int row;
+
+		private final Dimension dimension;
+
+		private Request(String key, EbookPropertyItem item, JTable table, int row, Dimension dimension) {
+			this.key = key;
+			this.item = item;
+			this.table = table;
+			this.row = row;
+			this.dimension = dimension;
+		}
+	}
+
+	private static final String CACHE_SIZE_KEY = "coverIconCacheSize";
+
+	private static final String PREFETCH_ROWS_KEY = "coverIconPrefetchRows";
+
+	/** Marks an item without cover, so it's not loaded again. */
+	private static final ImageIcon NO_COVER = new ImageIcon();
+
+	/** Requests which are not processed before this number of newer requests are dropped. */
+	private static final int MAX_REQUESTS = 200;
+
+	private final Map<String, ImageIcon> icons = new LinkedHashMap<>(256, 0.75f, true);
+
+	private final LinkedBlockingDeque<Request> requests = new LinkedBlockingDeque<>();
+
+	private final Set<String> pending = new HashSet<>();
+
+	private final long maxWeight;
+
+	private final int prefetchRows;
+
+	private long weight;
+
+	private long hits;
+
+	private long misses;
+
+	CoverIconCache() {
+		maxWeight = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE).getGenericEntryAsNumber(CACHE_SIZE_KEY, 16384).longValue() * 1024;
+		prefetchRows = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE).getGenericEntryAsNumber(PREFETCH_ROWS_KEY, 8).intValue();
+
+		ApplicationExecutor.LONG_RUNNING.execute("CoverIconLoader", new Runnable() {
+
+			@Override
+			public void run() {
+				while(true) {
+					try {
+						load(requests.takeFirst());
+					} catch (InterruptedException e) {
+						return;
+					} catch (Exception e) {
+						LoggerFactory.log(Level.INFO, CoverIconCache.this, "Could not load cover icon", e);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Get the cover icon for the given item. Must be invoked by the event dispatch thread.
+	 * @param table The table which shows the item.
+	 * @param item The item which cover icon should be returned.
+	 * @param row The row of the item in the table.
+	 * @param column The column of the item in the table.
+	 * @param dimension The size for the icon.
+	 * @return The cover icon or <code>null</code> if the item has no cover or the cover is not loaded yet.
+	 */
+	ImageIcon getIcon(JTable table, EbookPropertyItem item, int row, int column, Dimension dimension) {
+		String key = getKey(item);
+		ImageIcon icon;
+		synchronized(this) {
+			icon = icons.get(key);
+			if(icon != null) {
+				hits++;
+			} else {
+				misses++;
+			}
+		}
+		if(icon == null) {
+			request(new Request(key, item, table, row, dimension), true);
+		}
+		prefetch(table, row, column, dimension);
+		return icon != NO_COVER ? icon : null;
+	}
+
+	/**
+	 * Requests the covers of the rows next to the given one, if the row is the first or the last visible row.
+	 */
+	private void prefetch(JTable table, int row, int column, Dimension dimension) {
+		Rectangle visible = table.getVisibleRect();
+		int firstRow = table.rowAtPoint(visible.getLocation());
+		int lastRow = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+		if(row == lastRow) {
+			for(int i = row + 1; i <= row + prefetchRows && i < table.getRowCount(); i++) {
+				prefetchRow(table, i, column, dimension);
+			}
+		}
+		if(row == firstRow) {
+			for(int i = row - 1; i >= row - prefetchRows && i >= 0; i--) {
+				prefetchRow(table, i, column, dimension);
+			}
+		}
+	}
+
+	private void prefetchRow(JTable table, int row, int column, Dimension dimension) {
+		Object value = table.getValueAt(row, column);
+		if(value instanceof EbookPropertyItem) {
+			EbookPropertyItem item = (EbookPropertyItem) value;
+			String key = getKey(item);
+			synchronized(this) {
+				if(icons.containsKey(key)) {
+					return;
+				}
+			}
+			request(new Request(key, item, table, row, dimension), false);
+		}
+	}
+
+	/**
+	 * Adds the given request to the queue. Requests for visible rows are processed first.
+	 */
+	private void request(Request request, boolean visible) {
+		synchronized(pending) {
+			if(!pending.add(request.key)) {
+				if(!visible) {
+					return;
+				}
+				for(Iterator<Request> iterator = requests.iterator(); iterator.hasNext();) {
+					if(iterator.next().key.equals(request.key)) {
+						iterator.remove();
+					}
+				}
+			}
+			if(visible) {
+				requests.addFirst(request);
+			} else {
+				requests.addLast(request);
+			}
+			while(requests.size() > MAX_REQUESTS) {
+				Request dropped = requests.pollLast();
+				if(dropped != null) {
+					pending.remove(dropped.key);
+				}
+			}
+		}
+	}
+
+	private void load(final Request request) throws Exception {
+		ImageIcon icon = NO_COVER;
+		try {
+			byte[] coverThumbnail = EbookPropertyItemUtils.getCoverThumbnailBytes(request.item.getResourceHandler());
+			if(coverThumbnail != null && coverThumbnail.length > 0) {
+				BufferedImage image = ImageIO.read(new ByteArrayInputStream(coverThumbnail));
+				if(image != null) {
+					icon = new ImageIcon(ImageUtils.scaleToMatch(image, request.dimension, false));
+				}
+			}
+		} finally {
+			put(request.key, icon);
+			synchronized(pending) {
+				pending.remove(request.key);
+			}
+		}
+
+		if(icon != NO_COVER) {
+			SwingUtilities.invokeLater(new Runnable() {
+
+				@Override
+				public void run() {
+					if(request.row < request.table.getRowCount()) {
+						Rectangle cell = request.table.getCellRect(request.row, 0, true);
+						request.table.repaint(0, cell.y, request.table.getWidth(), cell.height);
+					}
+				}
+			});
+		}
+	}
+
+	private synchronized void put(String key, ImageIcon icon) {
+		ImageIcon previous = icons.put(key, icon);
+		weight += getWeight(icon) - getWeight(previous);
+		for(Iterator<ImageIcon> iterator = icons.values().iterator(); weight > maxWeight && iterator.hasNext();) {
+			weight -= getWeight(iterator.next());
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * @return The approximated memory used by the given icon.
+	 */
+	private static long getWeight(ImageIcon icon) {
+		if(icon == null) {
+			return 0;
+		}
+		return Math.max(icon.getIconWidth(), 1) * Math.max(icon.getIconHeight(), 1) * 4L + 64;
+	}
+
+	/**
+	 * The key contains the timestamp of the item, so the cached icon is no longer used if the ebook file has changed.
+	 */
+	private static String getKey(EbookPropertyItem item) {
+		return item.getFile() + ':' + item.getTimestamp();
+	}
+
+	/**
+	 * @return The hits, misses and the used memory of the cache.
+	 */
+	synchronized String getStatistics() {
+		return "cover icons=" + icons.size() + ", memory=" + (weight / 1024) + "KB, hits=" + hits + ", misses=" + misses + ", queued=" + requests.size();
+	}
+}
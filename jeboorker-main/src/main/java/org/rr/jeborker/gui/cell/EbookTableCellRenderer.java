@@ -6,7 +6,6 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.awt.image.BufferedImage;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.text.SimpleDateFormat;
@@ -22,13 +21,10 @@ import javax.swing.table.TableCellRenderer;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.jsoup.Jsoup;
 import org.jsoup.safety.Safelist;
-import org.rr.commons.collection.VolatileHashMap;
 import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.mufs.IResourceHandler;
-import org.rr.commons.mufs.ResourceHandlerFactory;
 import org.rr.commons.swing.SwingUtils;
 import org.rr.commons.swing.components.StarRater;
-import org.rr.commons.utils.CommonUtils;
 import org.rr.commons.utils.HTMLEntityConverter;
 import org.rr.commons.utils.ListUtils;
 import org.rr.commons.utils.ReflectionFailureException;
@@ -43,9 +39,6 @@ import org.rr.jeborker.db.IDBObject;
 import org.rr.jeborker.db.item.EbookPropertyItem;
 import org.rr.jeborker.db.item.EbookPropertyItemUtils;
 import org.rr.jeborker.gui.MainController;
-import org.rr.pm.image.IImageProvider;
-import org.rr.pm.image.ImageProviderFactory;
-import org.rr.pm.image.ImageUtils;
 
 public class EbookTableCellRenderer implements TableCellRenderer, Serializable  {
 
@@ -222,7 +215,7 @@ public class EbookTableCellRenderer implements TableCellRenderer, Serializable
 		}
 	}
 	
-	private static final VolatileHashMap<String, ImageIcon> thumbnailCache = new VolatileHashMap<String, ImageIcon>(20, 20);
+	private static final CoverIconCache coverIconCache = new CoverIconCache();
 	
 	private final APreferenceStore preferenceStore = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.DB_STORE);
 	
@@ -278,7 +271,7 @@ public class EbookTableCellRenderer implements TableCellRenderer, Serializable
 		RendererComponent renderer = createTableCellComponent(item);
 		setCommonColorRendererComponentSetup(isSelected, foregroundColor, selectionForegroundColor, brighterColor, backgroundColor, renderer);
 		
-		renderer.imageLabel.setIcon(getImageIconCover(table, item));
+		renderer.imageLabel.setIcon(getImageIconCover(table, item, row, column));
 		renderer.completeLabelSetup(table, renderer);
 		
 		//title
@@ -375,45 +368,28 @@ public class EbookTableCellRenderer implements TableCellRenderer, Serializable
 	}
 
 	/**
-	 * Gets the thumbnail image to be displayed in the renderer.
+	 * Gets the thumbnail image to be displayed in the renderer. The image is loaded in the background
+	 * if it's not cached and the row is repainted when it's available.
 	 * @param table The JTable instance.
 	 * @param item The item to be rendered.
-	 * @return The thumbnail image to be displayed in the renderer.
+	 * @param row The row of the item.
+	 * @param column The column of the item.
+	 * @return The thumbnail image to be displayed in the renderer or <code>null</code> if the image is not available yet.
 	 */
-	private ImageIcon getImageIconCover(final JTable table, final EbookPropertyItem item) {
+	private ImageIcon getImageIconCover(final JTable table, final EbookPropertyItem item, int row, int column) {
 		if(item == null) {
 			return null;
 		}
-		
-		byte[] coverThumbnail = EbookPropertyItemUtils.getCoverThumbnailBytes(item.getResourceHandler());
-		if(item != null && coverThumbnail != null && coverThumbnail.length > 0) {
-			final String coverThumbnailCRC32 = String.valueOf(CommonUtils.calculateCrc(coverThumbnail));
-			if(thumbnailCache.containsKey(coverThumbnailCRC32)) {
-				return thumbnailCache.get(coverThumbnailCRC32);
-			}
-			
-			try {
-				final byte[] coverData = coverThumbnail;
-				if(coverData != null) {
-					final IResourceHandler virtualImageResourceLoader = ResourceHandlerFactory.getVirtualResourceHandler("TableCellRendererImageData", coverData);
-					final IImageProvider imageProvider = ImageProviderFactory.getImageProvider(virtualImageResourceLoader);
-					final BufferedImage image = imageProvider.getImage();
-					if(image != null) {
-						BufferedImage scaleToMatch = ImageUtils.scaleToMatch(imageProvider.getImage(), getThumbnailDimension(table), false);
-						ImageIcon imageIcon = new ImageIcon(scaleToMatch);
-						thumbnailCache.put(coverThumbnailCRC32, imageIcon);
-						return imageIcon;
-					} else {
-						return null;
-					}
-				}
-			} catch (Exception e) {
-				LoggerFactory.logInfo(this, "Could not render thumbnail", e);
-			}
-		}
-		return null;
+		return coverIconCache.getIcon(table, item, row, column, getThumbnailDimension(table));
 	}
-	
+
+	/**
+	 * @return The hits, misses and used memory of the cover icon cache.
+	 */
+	public static String getCoverIconStatistics() {
+		return coverIconCache.getStatistics();
+	}
+
 	/**
 	 * Gets the dimension for the thumbnail in the view.
 	 * @param table The tabel which shows the thumbnail.
@@ -0,0 +1,59 @@
+package org.rr.jeborker.gui.cell;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.rr.commons.log.LoggerFactory;
+import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
+
+/**
+ * Measures how long the painting of a component like the ebook table takes. A frame which takes longer than
+ * the configured threshold is logged, so a stuttering table could be detected while scrolling.
+ */
+public class FrameTimeMonitor {
+
+	private static final String SLOW_FRAME_KEY = "slowFrameThreshold";
+
+	private static final long slowFrameNanos = TimeUnit.MILLISECONDS.toNanos(
+			PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE).getGenericEntryAsNumber(SLOW_FRAME_KEY, 16).longValue());
+
+	private static final AtomicLong frames = new AtomicLong();
+
+	private static final AtomicLong slowFrames = new AtomicLong();
+
+	private static final AtomicLong totalNanos = new AtomicLong();
+
+	private static final AtomicLong maxNanos = new AtomicLong();
+
+	private FrameTimeMonitor() {
+	}
+
+	/**
+	 * Records the time of a painted frame.
+	 * @param name The name of the painted component, used for logging.
+	 * @param nanos The time used to paint the frame.
+	 */
+	public static void record(String name, long nanos) {
+		frames.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		long max = maxNanos.get();
+		while(nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+		if(nanos > slowFrameNanos) {
+			slowFrames.incrementAndGet();
+			LoggerFactory.log(Level.FINE, FrameTimeMonitor.class, "Slow frame painting " + name + " took " + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms");
+		}
+	}
+
+	/**
+	 * @return The number of frames, the average and maximum frame time and the number of slow frames.
+	 */
+	public static String getStatistics() {
+		long count = frames.get();
+		long average = count > 0 ? totalNanos.get() / count : 0;
+		return "frames=" + count + ", average=" + TimeUnit.NANOSECONDS.toMicros(average) / 1000d + "ms, max="
+				+ TimeUnit.NANOSECONDS.toMillis(maxNanos.get()) + "ms, slow=" + slowFrames.get();
+	}
+}
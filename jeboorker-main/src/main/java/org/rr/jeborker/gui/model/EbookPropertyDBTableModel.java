@@ -5,9 +5,7 @@ import static org.rr.commons.utils.StringUtil.EMPTY;
 import java.lang.reflect.Field;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
 
@@ -16,16 +14,13 @@ import javax.swing.event.EventListenerList;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 
-import org.rr.commons.collection.BlindElementList;
-import org.rr.commons.collection.CompoundList;
 import org.rr.commons.collection.ICloseableList;
-import org.rr.commons.collection.InsertElementList;
-import org.rr.commons.collection.ReplacementElementList;
 import org.rr.commons.log.LoggerFactory;
 import org.rr.jeborker.app.FileRefreshBackground;
 import org.rr.jeborker.db.DBUtils;
 import org.rr.jeborker.db.DefaultDBManager;
 import org.rr.jeborker.db.OrderDirection;
+import org.rr.jeborker.db.PagedQueryList;
 import org.rr.jeborker.db.item.EbookPropertyItem;
 import org.rr.jeborker.db.item.EbookPropertyItemUtils;
 
@@ -192,7 +187,7 @@ public class EbookPropertyDBTableModel extends AbstractEbookPropertyTableModel {
 				if(item != null) {
 					EbookPropertyItem dbItem = item;
 					if(dbItem.getFile().equals(modelItem.getFile())) {
-						this.allItems = new ReplacementElementList<>(ebookItems, rowIndex, dbItem);
+						ebookItems.set(rowIndex, dbItem);
 					}
 				}
 			}
@@ -204,15 +199,7 @@ public class EbookPropertyDBTableModel extends AbstractEbookPropertyTableModel {
 			return -1;
 		}
 		
-		final List<EbookPropertyItem> ebookItems = this.getEbookItems();
-		for(int i = 0; i < ebookItems.size(); i++) {
-			EbookPropertyItem ebookPropertyItem = ebookItems.get(i);
-			if(ebookPropertyItem.equals(item)) {
-				return i;
-			}
-		}
-		
-		return -1;
+		return this.getEbookItems().indexOf(item);
 	}
 
 	@Override
@@ -319,8 +306,7 @@ public class EbookPropertyDBTableModel extends AbstractEbookPropertyTableModel {
 				this.dbItems.close();
 			}
 			this.dbItems = items;
-			List<EbookPropertyItem> addedItems = new ArrayList<>();
-			this.allItems = new CompoundList<>(dbItems, addedItems);
+			this.allItems = items;
 		}
 		return this.allItems;
 	}
@@ -355,51 +341,64 @@ public class EbookPropertyDBTableModel extends AbstractEbookPropertyTableModel {
 
 	/**
 	 * Attaches an {@link EbookPropertyItem} to the specified row. If the row parameter is -1 the value is added to the end of the list.
+	 * The item must already be stored to the database. If the rows are paged from the database, the row is placed at it's position
+	 * in the sort order and only the pages from the new row on are fetched again.
 	 * 
 	 * @param item The item to be attached.
 	 * @param row The row where the {@link EbookPropertyItem} should be added to.
 	 */
 	public void addRow(EbookPropertyItem item, int row) {
-		if (row < 0) {
-			boolean isInsert = false;
-			try {
-				isInsert = this.allItems.add(item);
-			} catch (java.lang.UnsupportedOperationException e) {
-				// not allowed to add
-				this.allItems = new CompoundList<EbookPropertyItem>(this.allItems, new ArrayList<>(Arrays.asList(item)));
-				isInsert = true;
+		try {
+			final List<EbookPropertyItem> ebookItems = this.getEbookItems();
+			final int ins;
+			if(ebookItems instanceof PagedQueryList) {
+				// the database knows where the item is sorted in
+				ins = ((PagedQueryList<EbookPropertyItem>) ebookItems).insert(item);
+			} else {
+				ins = row < 0 ? ebookItems.size() : row;
+				ebookItems.add(ins, item);
 			}
-			if (isInsert) {
-				final int ins = this.allItems.size() - 1;
+			oldSize = ebookItems.size();
+			if(ins >= 0) {
 				fireTableRowsInserted(ins, ins);
+			} else {
+				fireTableChanged(new TableModelEvent(this));
 			}
-		} else {
-			this.allItems = new InsertElementList<>(this.allItems, item, row);
-			fireTableRowsInserted(row, row);
+		} catch (java.lang.UnsupportedOperationException e) {
+			// not allowed to add
+			this.setDirty();
+		}
+	}
+
+	/**
+	 * Adds the given items at once. The rows of the database are fetched again with the next access,
+	 * so only one count query is needed instead of one for each item.
+	 */
+	public void addRows(List<EbookPropertyItem> items) {
+		if(items.size() == 1) {
+			addRow(items.get(0), -1);
+		} else if(!items.isEmpty()) {
+			setDirty();
+			fireTableChanged(new TableModelEvent(this));
 		}
 	}
 
 	public boolean removeRow(final EbookPropertyItem item) {
-		final Iterator<EbookPropertyItem> iterator = this.allItems.iterator();
-		boolean removed = false;
-		for (int i = 0; iterator.hasNext(); i++) {
-			final EbookPropertyItem toRemove = iterator.next();
-			try {
-				if (toRemove != null && toRemove.equals(item)) {
-					DefaultDBManager.getInstance().deleteObject(toRemove);
-					if (!isDirty()) {
-						this.allItems = new BlindElementList<>(this.allItems, i);
-						fireTableRowsDeleted(i, i);
-					}
-					removed = true;
-					break;
+		try {
+			final List<EbookPropertyItem> ebookItems = this.getEbookItems();
+			final int index = item != null ? ebookItems.indexOf(item) : -1;
+			if (index != -1) {
+				DefaultDBManager.getInstance().deleteObject(item);
+				if (!isDirty()) {
+					ebookItems.remove(index);
+					fireTableRowsDeleted(index, index);
 				}
-			} catch (Exception e) {
-				this.setDirty();
-				break;
+				return true;
 			}
+		} catch (Exception e) {
+			this.setDirty();
 		}
-		return removed;
+		return false;
 	}
 
 	/**
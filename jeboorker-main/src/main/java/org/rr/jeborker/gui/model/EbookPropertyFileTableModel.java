@@ -169,6 +169,13 @@ public class EbookPropertyFileTableModel extends AbstractEbookPropertyTableModel
 		fireTableRowsInserted(ebookPropertyItems.size() -1, ebookPropertyItems.size());
 	}
 
+	@Override
+	public void addRows(List<EbookPropertyItem> items) {
+		int first = ebookPropertyItems.size();
+		ebookPropertyItems = new CompoundList<>(ebookPropertyItems, new ArrayList<>(items));
+		fireTableRowsInserted(first, ebookPropertyItems.size() - 1);
+	}
+
 	@Override
 	public int searchRow(EbookPropertyItem item) {
 		for (int i = 0; i < ebookPropertyItems.size(); i++) {
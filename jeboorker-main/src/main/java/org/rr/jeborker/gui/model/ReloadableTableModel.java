@@ -16,6 +16,8 @@ public interface ReloadableTableModel extends TableModel {
 
 	public void addRow(EbookPropertyItem item, int row);
 
+	public void addRows(List<EbookPropertyItem> items);
+
 	public int searchRow(EbookPropertyItem item);
 
 	public boolean removeRow(EbookPropertyItem item);
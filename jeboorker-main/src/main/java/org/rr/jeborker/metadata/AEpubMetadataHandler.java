@@ -6,6 +6,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.zip.ZipException;
 
 import org.apache.commons.io.IOUtils;
 import org.rr.commons.log.LoggerFactory;
@@ -17,6 +19,7 @@ import org.rr.commons.utils.StringUtil;
 import org.rr.commons.utils.compression.CompressedDataEntry;
 import org.rr.commons.utils.compression.FileEntryFilter;
 import org.rr.commons.utils.compression.zip.LazyZipEntryStream;
+import org.rr.commons.utils.compression.zip.RandomAccessZip;
 import org.rr.commons.utils.compression.zip.ZipUtils;
 import org.rr.jeborker.db.item.EbookPropertyItem;
 import org.rr.jeborker.metadata.IMetadataReader.COMMON_METADATA_TYPES;
@@ -283,7 +286,7 @@ abstract class AEpubMetadataHandler extends AMetadataHandler {
 			final String fullPathString = "full-path=";
 			InputStream contentInputStream = null;
 			try {
-				final CompressedDataEntry containerXml = ZipUtils.extract(ebookResource, "META-INF/container.xml");
+				final CompressedDataEntry containerXml = extractEntry(ebookResource, "META-INF/container.xml");
 				if(containerXml!=null) {
 					final String containerXmlData = new String(containerXml.getBytes());
 					final int fullPathIndex = containerXmlData.indexOf(fullPathString);
@@ -312,7 +315,7 @@ abstract class AEpubMetadataHandler extends AMetadataHandler {
 			if (opfFile != null) {
 				InputStream contentInputStream = null;
 				try {
-					final CompressedDataEntry containerXml = ZipUtils.extract(ebookResource, opfFile);
+					final CompressedDataEntry containerXml = extractEntry(ebookResource, opfFile);
 					if (containerXml != null) {
 						this.containerOpfData = containerXml.getBytes();
 					} else {
@@ -335,6 +338,22 @@ abstract class AEpubMetadataHandler extends AMetadataHandler {
 		return true;
 	}
 
+	/**
+	 * Extracts a single entry from the epub. Local files are read with the central directory of the zip
+	 * and only the entry itself is read. All other ones are streamed until the entry is found.
+	 * @return The desired entry or <code>null</code> if the epub did not contain the entry.
+	 */
+	private CompressedDataEntry extractEntry(final IResourceHandler ebookResource, final String entry) throws IOException {
+		try (RandomAccessZip zip = RandomAccessZip.open(ebookResource)) {
+			if(zip != null) {
+				return zip.extract(entry);
+			}
+		} catch (IllegalArgumentException | ZipException e) {
+			LoggerFactory.log(Level.FINE, this, "Could not read the central directory of " + ebookResource, e);
+		}
+		return ZipUtils.extract(ebookResource, entry);
+	}
+
 	/**
 	 * Read all entries from, the given zip data and creates a {@link Book} instance from them.
 	 * @throws IOException
@@ -342,28 +361,7 @@ abstract class AEpubMetadataHandler extends AMetadataHandler {
 	protected Book readBook(final InputStream zipData, final IResourceHandler ebookResourceHandler, final boolean lazy) throws IOException {
 		try {
 			final EpubReader reader = new EpubReader();
-			final Resources resources = new Resources();
-			final EpubZipFileFilter epubZipFileFilter = new EpubZipFileFilter(lazy);
-			final List<CompressedDataEntry> extracted = ZipUtils.extract(ebookResourceHandler, epubZipFileFilter);
-			final List<String> lazyEntries = epubZipFileFilter.getLazyEntries();
-			final List<byte[]> lazyRawEntries = epubZipFileFilter.getLazyRawEntries();
-
-			for(CompressedDataEntry entry : extracted) {
-				Resource resource = new Resource(entry.getBytes(), entry.rawPath);
-				resources.add(resource);
-			}
-
-			if(lazyEntries.size() == lazyRawEntries.size()) {
-				for(int i = 0; i < lazyEntries.size(); i++) {
-					String entry = lazyEntries.get(i);
-					byte[] rawEntry = lazyRawEntries.get(i);
-					Resource resource = new Resource(new LazyZipEntryStream(ebookResourceHandler, entry), rawEntry);
-					resources.add(resource);
-				}
-			} else {
-				throw new IOException("Zip entries not even");
-			}
-
+			final Resources resources = readResources(ebookResourceHandler, lazy);
 			final Book epub = reader.readEpub(resources, StringUtil.UTF_8, ebookResourceHandler.getName());
 			return epub;
 		} finally {
@@ -371,6 +369,58 @@ abstract class AEpubMetadataHandler extends AMetadataHandler {
 		}
 	}
 
+	/**
+	 * Reads the entries of the epub with the central directory of the zip. If lazy is set, only the entries
+	 * needed for the metadata are read, all other ones are read by their {@link LazyZipEntryStream} if needed.
+	 */
+	private Resources readResources(final IResourceHandler ebookResourceHandler, final boolean lazy) throws IOException {
+		try (RandomAccessZip zip = RandomAccessZip.open(ebookResourceHandler)) {
+			if(zip != null) {
+				final Resources resources = new Resources();
+				for(String entry : zip.getEntryNames()) {
+					byte[] rawEntry = RandomAccessZip.getRawName(entry);
+					if(!lazy || EpubZipFileFilter.isMetadataEntry(entry)) {
+						resources.add(new Resource(zip.extract(entry).getBytes(), rawEntry));
+					} else {
+						resources.add(new Resource(new LazyZipEntryStream(ebookResourceHandler, entry), rawEntry));
+					}
+				}
+				return resources;
+			}
+		} catch (IllegalArgumentException | ZipException e) {
+			LoggerFactory.log(Level.FINE, this, "Could not read the central directory of " + ebookResourceHandler, e);
+		}
+		return readResourcesFromStream(ebookResourceHandler, lazy);
+	}
+
+	/**
+	 * Reads the entries of the epub by streaming through the whole zip. Used for epubs which are not local files.
+	 */
+	private Resources readResourcesFromStream(final IResourceHandler ebookResourceHandler, final boolean lazy) throws IOException {
+		final Resources resources = new Resources();
+		final EpubZipFileFilter epubZipFileFilter = new EpubZipFileFilter(lazy);
+		final List<CompressedDataEntry> extracted = ZipUtils.extract(ebookResourceHandler, epubZipFileFilter);
+		final List<String> lazyEntries = epubZipFileFilter.getLazyEntries();
+		final List<byte[]> lazyRawEntries = epubZipFileFilter.getLazyRawEntries();
+
+		for(CompressedDataEntry entry : extracted) {
+			Resource resource = new Resource(entry.getBytes(), entry.rawPath);
+			resources.add(resource);
+		}
+
+		if(lazyEntries.size() == lazyRawEntries.size()) {
+			for(int i = 0; i < lazyEntries.size(); i++) {
+				String entry = lazyEntries.get(i);
+				byte[] rawEntry = lazyRawEntries.get(i);
+				Resource resource = new Resource(new LazyZipEntryStream(ebookResourceHandler, entry), rawEntry);
+				resources.add(resource);
+			}
+		} else {
+			throw new IOException("Zip entries not even");
+		}
+		return resources;
+	}
+
 	/**
 	 * Zip file filter that collects all zip file entries and support lazy handling for
 	 * having not all files to be extracted. Only these files will be extracted which
@@ -390,22 +440,7 @@ abstract class AEpubMetadataHandler extends AMetadataHandler {
 
 		@Override
 		public boolean accept(String entry, byte[] rawEntry) {
-			boolean accept = true;
-			if(lazy) {
-				String lowerCaseEntry = entry.toLowerCase();
-				if(lowerCaseEntry.endsWith("/container.xml")) {
-					accept = true;
-				} else if(lowerCaseEntry.endsWith(".opf")) {
-					accept = true;
-				} else if(lowerCaseEntry.endsWith(".ncx")) {
-					accept = true;
-				} else if(lowerCaseEntry.endsWith("cover.jpg") || lowerCaseEntry.endsWith("cover.jpeg")) {
-					accept = true;
-				} else {
-					accept = false;
-				}
-			}
-
+			boolean accept = !lazy || isMetadataEntry(entry);
 			if(!accept) {
 				lazyEntries.add(entry);
 				lazyRawEntries.add(rawEntry);
@@ -413,6 +448,15 @@ abstract class AEpubMetadataHandler extends AMetadataHandler {
 			return accept;
 		}
 
+		/**
+		 * Tests if the given entry is commonly used by the {@link EpubReader} to read the metadata.
+		 */
+		static boolean isMetadataEntry(String entry) {
+			String lowerCaseEntry = entry.toLowerCase();
+			return lowerCaseEntry.endsWith("/container.xml") || lowerCaseEntry.endsWith(".opf") || lowerCaseEntry.endsWith(".ncx")
+					|| lowerCaseEntry.endsWith("cover.jpg") || lowerCaseEntry.endsWith("cover.jpeg");
+		}
+
 		public List<String> getLazyEntries() {
 			return this.lazyEntries;
 		}
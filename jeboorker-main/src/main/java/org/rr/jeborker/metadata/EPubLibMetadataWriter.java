@@ -6,6 +6,7 @@ import static org.rr.commons.utils.StringUtil.EMPTY;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
@@ -24,15 +25,22 @@ import nl.siegmann.epublib.domain.Metadata;
 import nl.siegmann.epublib.domain.Resource;
 import nl.siegmann.epublib.domain.Resources;
 import nl.siegmann.epublib.epub.EpubWriter;
+import nl.siegmann.epublib.epub.PackageDocumentMetadataWriter;
 
 import org.apache.commons.lang3.StringUtils;
 import org.rr.commons.log.LoggerFactory;
 import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.mufs.ResourceHandlerFactory;
+import org.rr.commons.mufs.ResourceHandlerUtils;
 import org.rr.commons.utils.Base64;
 import org.rr.commons.utils.DateConversionUtils;
-import org.rr.commons.utils.compression.truezip.TrueZipUtils;
+import org.rr.commons.utils.compression.zip.RandomAccessZip;
+import org.rr.commons.utils.compression.zip.RawZipFile;
+import org.rr.commons.utils.compression.zip.ZipEntry;
+import org.rr.commons.utils.compression.zip.ZipOutputStream;
+import org.rr.commons.utils.compression.zip.ZipUtils;
 import org.rr.jeborker.app.FileRefreshBackground;
+import org.rr.jeborker.app.preferences.PreferenceStoreFactory;
 import org.rr.jeborker.gui.MainController;
 import org.rr.pm.image.IImageProvider;
 import org.rr.pm.image.ImageProviderFactory;
@@ -40,6 +48,11 @@ import org.rr.pm.image.ImageUtils;
 
 class EPubLibMetadataWriter extends AEpubMetadataHandler implements IMetadataWriter {
 
+	private static final String IN_PLACE_UPDATE_KEY = "epubInPlaceMetadataUpdate";
+
+	/** The cover which data was replaced while setting the metadata. */
+	private Resource replacedCoverImage;
+
 	public EPubLibMetadataWriter(IResourceHandler ebookResourceHandler) {
 		super(ebookResourceHandler);
 	}
@@ -49,11 +62,17 @@ class EPubLibMetadataWriter extends AEpubMetadataHandler implements IMetadataWri
 		final IResourceHandler ebookResourceHandler = getEbookResource().get(0);
 		
 		try {
-			boolean lazy = ebookResourceHandler.size() > 10000000; //10MB
+			boolean inPlace = isInPlaceUpdate(ebookResourceHandler);
+			boolean lazy = inPlace || ebookResourceHandler.size() > 10000000; //10MB
 			final Book epub = readBook(ebookResourceHandler.getContentInputStream(), ebookResourceHandler, lazy);
+			final Resource oldCoverImage = epub.getCoverImage();
+			replacedCoverImage = null;
 			setMetadata(epub, props);
 			
-			writeBook(epub, ebookResourceHandler);
+			// a new or another cover changes the manifest, so the whole book must be written.
+			if(!inPlace || epub.getCoverImage() != oldCoverImage || !updateBook(epub, ebookResourceHandler)) {
+				writeBook(epub, ebookResourceHandler);
+			}
 			LoggerFactory.logInfo(this, "Metadata successfully written to " + ebookResourceHandler, null);
 		} catch (Exception e) {
 			LoggerFactory.logWarning(this, "could not write metadata to file " + ebookResourceHandler, e);
@@ -149,12 +168,93 @@ class EPubLibMetadataWriter extends AEpubMetadataHandler implements IMetadataWri
 		}
 	}
 
+	/**
+	 * Tells if the metadata of the given epub could be written by replacing the opf file in the epub
+	 * instead of writing the whole book with epublib.
+	 */
+	private boolean isInPlaceUpdate(final IResourceHandler ebookResourceHandler) {
+		String inPlaceUpdate = PreferenceStoreFactory.getPreferenceStore(PreferenceStoreFactory.SYSTEM_STORE).getGenericEntryAsString(IN_PLACE_UPDATE_KEY, Boolean.TRUE.toString());
+		return Boolean.parseBoolean(inPlaceUpdate) && ResourceHandlerUtils.isLocalFileResource(ebookResourceHandler);
+	}
+
+	/**
+	 * Writes the book by copying all entries of the epub with their compressed data. Only the opf file and
+	 * a replaced cover are written new. Manifest, spine and guide of the opf file are kept as they are.
+	 * @return <code>false</code> if the epub could not be updated this way and must be written with {@link #writeBook(Book, IResourceHandler)}.
+	 */
+	private boolean updateBook(final Book epub, final IResourceHandler ebookResourceHandler) throws IOException {
+		FileRefreshBackground.setDisabled(true);
+		IResourceHandler temporaryResourceLoader = null;
+		try {
+			temporaryResourceLoader = ResourceHandlerFactory.getUniqueResourceHandler(ebookResourceHandler, "tmp");
+			final String opfFile = getOpfFile(ebookResourceHandler);
+			final byte[] opf = opfFile != null ? getContainerOPF(ebookResourceHandler) : null;
+			if(opf == null) {
+				return false;
+			}
+			final byte[] newOpf = PackageDocumentMetadataWriter.replaceMetaData(epub, opf);
+			final String coverEntry = replacedCoverImage != null ? getZipEntryName(replacedCoverImage, opfFile) : null;
+			try (RawZipFile zip = new RawZipFile(ebookResourceHandler.toFile());
+					ZipOutputStream out = new ZipOutputStream(temporaryResourceLoader.getContentOutputStream(false))) {
+				if(zip.getEntry(opfFile) == null || (coverEntry != null && zip.getEntry(coverEntry) == null)) {
+					return false;
+				}
+				for(ZipEntry entry : zip.getEntries()) {
+					if(entry.getName().equals(opfFile)) {
+						writeZipEntry(out, entry, newOpf);
+					} else if(entry.getName().equals(coverEntry)) {
+						writeZipEntry(out, entry, replacedCoverImage.getData());
+					} else {
+						zip.copyRawEntry(entry.getName(), out);
+					}
+				}
+			}
+			RandomAccessZip.closeShared(ebookResourceHandler);
+			if(temporaryResourceLoader.size() > 0) {
+				temporaryResourceLoader.moveTo(ebookResourceHandler, true);
+				return true;
+			}
+			return false;
+		} catch (IllegalArgumentException | IOException e) {
+			LoggerFactory.log(Level.INFO, this, "Could not update " + ebookResourceHandler + " in place, the whole book is written.", e);
+			return false;
+		} finally {
+			if(temporaryResourceLoader != null && temporaryResourceLoader.exists()) {
+				temporaryResourceLoader.delete();
+			}
+			FileRefreshBackground.setDisabled(false);
+		}
+	}
+
+	/**
+	 * Get the name of the zip entry for the given resource. Resources read from the zip know their entry name,
+	 * the href of all other ones is relative to the opf file.
+	 */
+	private static String getZipEntryName(final Resource resource, final String opfFile) {
+		if(resource.getRawHref() != null) {
+			return new String(resource.getRawHref(), StandardCharsets.UTF_8);
+		}
+		return opfFile.substring(0, opfFile.lastIndexOf('/') + 1) + resource.getHref();
+	}
+
+	/**
+	 * Writes the given data compressed to the zip, using the name of the given entry.
+	 */
+	private static void writeZipEntry(final ZipOutputStream out, final ZipEntry sourceEntry, final byte[] data) throws IOException {
+		final ZipEntry entry = new ZipEntry(sourceEntry.getName(), sourceEntry.getRawName());
+		entry.setTime(System.currentTimeMillis());
+		out.putNextEntry(entry);
+		out.write(data);
+		out.closeEntry();
+	}
+
 	private void writeBook(final Book epub, final IResourceHandler ebookResourceHandler) throws IOException {
 		FileRefreshBackground.setDisabled(true);
 		try {
 			final EpubWriter writer = new EpubWriter();
 			final IResourceHandler temporaryResourceLoader = ResourceHandlerFactory.getUniqueResourceHandler(ebookResourceHandler, "tmp");
 			writer.write(epub, temporaryResourceLoader.getContentOutputStream(false));
+			RandomAccessZip.closeShared(ebookResourceHandler);
 			if(temporaryResourceLoader.size() > 0) {
 				temporaryResourceLoader.moveTo(ebookResourceHandler, true);
 			} else {
@@ -228,6 +328,7 @@ class EPubLibMetadataWriter extends AEpubMetadataHandler implements IMetadataWri
 		final byte[] imageBytes = ImageUtils.getImageBytes(coverImageProvider.getImage(), targetConversionMime);
 		oldCoverImage.setData(imageBytes);
 		epub.setCoverImage(oldCoverImage);
+		replacedCoverImage = oldCoverImage;
 	}
 
 	private void changeExistingCover(final Book epub, final EpubLibMetadataProperty<?> meta) {
@@ -305,7 +406,9 @@ class EPubLibMetadataWriter extends AEpubMetadataHandler implements IMetadataWri
 	 */
 	private void writeZipData(byte[] content, final String file) throws IOException {
 		final IResourceHandler ebookResourceHandler = getEbookResource().get(0);
-		TrueZipUtils.add(ebookResourceHandler, file, new ByteArrayInputStream(content));
+		if(!ZipUtils.add(ebookResourceHandler, file, new ByteArrayInputStream(content))) {
+			throw new IOException("Could not write " + file + " to " + ebookResourceHandler);
+		}
 	}
 
 	@Override
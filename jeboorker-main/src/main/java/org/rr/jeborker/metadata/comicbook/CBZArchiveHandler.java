@@ -11,6 +11,7 @@ import org.rr.commons.mufs.IResourceHandler;
 import org.rr.commons.utils.compression.CompressedDataEntry;
 import org.rr.commons.utils.compression.FileEntryFilter;
 import org.rr.commons.utils.compression.truezip.TrueZipUtils;
+import org.rr.commons.utils.compression.zip.ZipUtils;
 
 public class CBZArchiveHandler extends AArchiveHandler {
 
@@ -20,7 +21,7 @@ public class CBZArchiveHandler extends AArchiveHandler {
 
 	@Override
 	public boolean replaceComicInfoXml(byte[] comicInfoXml, String comicInfoFilePath) throws IOException {
-		boolean success = TrueZipUtils.add(resource, comicInfoFilePath, new ByteArrayInputStream(comicInfoXml));
+		boolean success = ZipUtils.add(resource, comicInfoFilePath, new ByteArrayInputStream(comicInfoXml));
 		if(!success) {
 			LoggerFactory.getLogger().log(Level.WARNING, "Writing CBZ " + resource + " has failed.");
 		}
@@ -60,6 +61,6 @@ public class CBZArchiveHandler extends AArchiveHandler {
 
 	@Override
 	public void addArchiveEntry(String name, byte[] content) {
-		TrueZipUtils.add(resource, name, new ByteArrayInputStream(content));
+		ZipUtils.add(resource, name, new ByteArrayInputStream(content));
 	}
 }